@@ -4,6 +4,7 @@ import java.util.*;
 
 import com.alibaba.fastjson2.JSON;
 import com.make.common.core.redis.RedisCache;
+import com.make.framework.web.service.LoginUserNearCache;
 import com.make.system.config.CacheRegistry;
 import com.make.system.domain.CacheMetadata;
 import com.make.system.service.ICacheMetadataService;
@@ -25,6 +26,7 @@ import com.make.system.domain.SysCache;
  * 支持功能：
  * - 获取Redis信息、命令统计、缓存大小等监控数据
  * - 获取缓存名称列表
+ * - 查看登录用户近端缓存统计
  * - 查看指定缓存的所有Key
  * - 查看某个缓存Key的值
  * - 删除指定缓存前缀的所有Key
@@ -50,6 +52,9 @@ public class CacheController {
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private LoginUserNearCache loginUserNearCache;
+
 
     /**
      * 获取 Redis 运行基本信息，包括服务器信息、命令统计信息和当前数据库大小。
@@ -97,6 +102,17 @@ public class CacheController {
         return AjaxResult.success(CACHES);
     }
 
+    /**
+     * 获取登录用户本地近端缓存的命中率、容量与失效统计。
+     *
+     * @return AjaxResult 包含近端缓存统计
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/loginUserNearCache")
+    public AjaxResult loginUserNearCache() {
+        return AjaxResult.success(loginUserNearCache.stats());
+    }
+
     /**
      * 获取指定缓存前缀下的所有缓存键。
      *
@@ -20,6 +20,7 @@ import com.make.common.core.page.TableDataInfo;
 import com.make.common.core.redis.RedisCache;
 import com.make.common.enums.BusinessType;
 import com.make.common.utils.StringUtils;
+import com.make.framework.web.service.TokenService;
 import com.make.system.domain.SysUserOnline;
 import com.make.system.service.ISysUserOnlineService;
 
@@ -38,6 +39,9 @@ public class SysUserOnlineController extends BaseController
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private TokenService tokenService;
+
     @PreAuthorize("@ss.hasPermi('monitor:online:list')")
     @GetMapping("/list")
     public TableDataInfo list(String ipaddr, String userName)
@@ -77,7 +81,8 @@ public class SysUserOnlineController extends BaseController
     @DeleteMapping("/{tokenId}")
     public AjaxResult forceLogout(@PathVariable String tokenId)
     {
-        redisCache.deleteObject(CacheConstants.LOGIN_TOKEN_KEY + tokenId);
+        // 经 TokenService 删除，同时清理各节点的登录用户近端缓存
+        tokenService.delLoginUser(tokenId);
         return success();
     }
 }
@@ -8,25 +8,22 @@ import com.google.gson.JsonObject;
 import com.make.common.constant.CacheConstants;
 import com.make.common.core.redis.RedisCache;
 import com.make.common.exception.business.BusinessException;
-import com.make.finance.domain.BankCardTransactions;
 import com.make.finance.domain.Expense;
+import com.make.finance.domain.FinanceMonthlyAggregate;
 import com.make.finance.domain.Income;
 import com.make.finance.domain.LoanRepayments;
 import com.make.finance.domain.ServerInfo;
 import com.make.finance.domain.TransactionCategories;
-import com.make.finance.domain.TransactionRecords;
-import com.make.finance.domain.UserAccounts;
 import com.make.finance.domain.vo.LoanTotalRepaymentPieChart;
 import com.make.finance.domain.vo.LoanTotalWithInterestRepaymentPieChart;
 import com.make.finance.domain.vo.MonthlyExpenditureBarChart;
 import com.make.finance.domain.vo.TotalAmount;
 import com.make.finance.mapper.TransactionRecordsMapper;
-import com.make.finance.service.IBankCardTransactionsService;
 import com.make.finance.service.IExpenseService;
 import com.make.finance.service.IIncomeService;
 import com.make.finance.service.ILoanRepaymentsService;
 import com.make.finance.service.IServerInfoService;
-import com.make.finance.service.IUserAccountsService;
+import com.make.finance.service.impl.FinanceAggregateStore;
 import com.make.stock.domain.SalesData;
 import com.make.stock.service.ISalesDataService;
 import com.make.web.service.IPieChartService;
@@ -52,6 +49,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -72,9 +70,6 @@ public class PieChartServiceImpl implements IPieChartService {
     @Resource
     private TransactionRecordsMapper transactionRecordsMapper;
 
-    @Resource
-    private IBankCardTransactionsService iBankCardTransactionsService;
-
     @Resource
     private ILoanRepaymentsService iLoanRepaymentsService;
 
@@ -88,7 +83,7 @@ public class PieChartServiceImpl implements IPieChartService {
     private IExpenseService expenseService;
 
     @Resource
-    private IUserAccountsService userAccountsService;
+    private FinanceAggregateStore financeAggregateStore;
 
     @Resource
     private ISalesDataService salesDataService;
@@ -114,7 +109,19 @@ public class PieChartServiceImpl implements IPieChartService {
         if (!CollectionUtils.isEmpty(cacheData)) {
             return cacheData;
         }
-        List<Map<String, Object>> dbData = transactionRecordsMapper.selectTransactionTypePieChartData(id);
+        // 近 12 个自然月按商品类型统计笔数（读预聚合）
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (FinanceMonthlyAggregate row : financeAggregateStore.list(id, FinanceMonthlyAggregate.SOURCE_WXZFB,
+                null, lastTwelveMonths(), null)) {
+            counts.merge(row.getCategory(), row.getRecordCount(), Long::sum);
+        }
+        List<Map<String, Object>> dbData = new ArrayList<>();
+        counts.forEach((type, count) -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("type", type);
+            item.put("amount", count);
+            dbData.add(item);
+        });
         if (!CollectionUtils.isEmpty(dbData)) {
             redisCache.setCacheList(cacheKeyPie, dbData);
             // 设置这个键的过期时间为 24 小时
@@ -136,7 +143,19 @@ public class PieChartServiceImpl implements IPieChartService {
         if (!CollectionUtils.isEmpty(cacheData)) {
             return cacheData;
         }
-        List<Map<String, Object>> dbData = transactionRecordsMapper.selectTotalAmountPieChartData(id);
+        // 近 12 个自然月按商品类型汇总金额（读预聚合）
+        Map<String, BigDecimal> amounts = new LinkedHashMap<>();
+        for (FinanceMonthlyAggregate row : financeAggregateStore.list(id, FinanceMonthlyAggregate.SOURCE_WXZFB,
+                null, lastTwelveMonths(), null)) {
+            amounts.merge(row.getCategory(), row.getAmount(), BigDecimal::add);
+        }
+        List<Map<String, Object>> dbData = new ArrayList<>();
+        amounts.forEach((category, amount) -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("category", category);
+            item.put("amount", amount);
+            dbData.add(item);
+        });
 
         if (!CollectionUtils.isEmpty(dbData)) {
             redisCache.setCacheList(cacheKeyPie, dbData);
@@ -161,34 +180,15 @@ public class PieChartServiceImpl implements IPieChartService {
             return cacheData;
         }
         List<TotalAmount> dbData = new ArrayList<>();
-        TransactionRecords transactionRecord = new TransactionRecords();
-        transactionRecord.setUserId(id);
-        List<TransactionRecords> transactionRecords = transactionRecordsMapper.selectTransactionRecordsList(transactionRecord);
-        // 获取当前日期的前一年的日期
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.YEAR, -1);
-        Date oneYearAgo = calendar.getTime();
-        // 日期格式化工具，用于将 Date 转换为 "yyyy-MM" 格式
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM");
-        // 用于存储每月总金额的 Map
-        TreeMap<String, Double> monthlyTotals = new TreeMap<>();
-        // 手动计算每月总交易金额
-        for (TransactionRecords record : transactionRecords) {
-            // 过滤过去一年的记录
-            if (record.getTransactionTime().after(oneYearAgo) && !record.getTransactionType().contains("退款") && !record.getInOut().contains("收入")) {
-                // 格式化为 "yyyy-MM"
-                String month = dateFormat.format(record.getTransactionTime());
-                // 累加每月总金额
-                monthlyTotals.put(month,
-                        monthlyTotals.getOrDefault(month, 0.00) + record.getAmount().doubleValue());
-            }
+        // 近 12 个自然月每月支出（不含退款与收入），读预聚合
+        TreeMap<String, BigDecimal> monthlyTotals = new TreeMap<>();
+        for (FinanceMonthlyAggregate row : financeAggregateStore.list(id, FinanceMonthlyAggregate.SOURCE_WXZFB,
+                FinanceMonthlyAggregate.DIRECTION_OUT, lastTwelveMonths(), null)) {
+            monthlyTotals.merge(row.getMonth(), row.getAmount(), BigDecimal::add);
         }
-        for (Map.Entry<String, Double> entry : monthlyTotals.entrySet()) {
-            BigDecimal bd = new BigDecimal(Double.toString(entry.getValue()));
-            bd = bd.setScale(2, RoundingMode.HALF_UP);
-            double value = bd.doubleValue();
-            TotalAmount totalAmount = new TotalAmount(entry.getKey(), value);
-            dbData.add(totalAmount);
+        for (Map.Entry<String, BigDecimal> entry : monthlyTotals.entrySet()) {
+            double value = entry.getValue().setScale(2, RoundingMode.HALF_UP).doubleValue();
+            dbData.add(new TotalAmount(entry.getKey(), value));
         }
         if (!CollectionUtils.isEmpty(dbData)) {
             redisCache.setCacheList(cacheKeyPie, dbData);
@@ -213,66 +213,33 @@ public class PieChartServiceImpl implements IPieChartService {
 //            return cacheData;
 //        }
 
-        // 2. 获取当前日期和往前推一年的起始日期
-        LocalDate currentDate = LocalDate.now();
-        LocalDate oneYearAgoDate = currentDate.minusYears(1).withDayOfMonth(1); // 上一年1号
-
-        // 获取最近的完整月最后一天，例如 2025-06-30
-        LocalDate lastFullMonth = currentDate.minusMonths(1);
-        YearMonth lastYearMonth = YearMonth.from(lastFullMonth);
-        LocalDate endDate = lastYearMonth.atEndOfMonth();
-
-        // 3. 格式化为 yyyy-MM-dd 字符串，用于查询
-        String startDateStr = oneYearAgoDate.format(DateTimeFormatter.ISO_LOCAL_DATE);
-        String endDateStr = endDate.format(DateTimeFormatter.ISO_LOCAL_DATE);
-
-        // 4. 查询这一年内的所有银行卡交易记录
-        List<BankCardTransactions> bankCardTransactions = iBankCardTransactionsService.queryBankCardTransactionsYearList(id, startDateStr, endDateStr);
-
-        // 5. 查询当前用户账户的银行列表（排除互转）
-        List<UserAccounts> userAccounts = userAccountsService.selectUserAccountsList(new UserAccounts());
-        List<String> counterPartyList = userAccounts.stream()
-                .map(UserAccounts::getBankCardNumber)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        // 6. 使用 TreeMap 确保按月份排序，分别聚合收入与支出
-        Map<YearMonth, BigDecimal> totalIncomeByMonth = new TreeMap<>();
-        Map<YearMonth, BigDecimal> totalExpenseByMonth = new TreeMap<>();
-
-        // 7. 聚合处理交易记录
-        for (BankCardTransactions transaction : bankCardTransactions) {
-            String counterParty = transaction.getCounterParty();
-
-            // 排除互转、还款、证券转账（模糊匹配）
-            boolean isExcluded = counterPartyList.stream().anyMatch(counterParty::contains)
-                    || counterParty.contains("还款")
-                    || counterParty.contains("中国银河证券");
-            if (isExcluded) {
-                continue;
-            }
-
-            BigDecimal amount = transaction.getAmount();
-            LocalDate date = transaction.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-            YearMonth ym = YearMonth.from(date);
-
-            if (amount.compareTo(BigDecimal.ZERO) >= 0) {
-                totalIncomeByMonth.merge(ym, amount, BigDecimal::add);
-            } else {
-                totalExpenseByMonth.merge(ym, amount.abs(), BigDecimal::add);
+        // 2. 统计区间：上一年同月至上一个完整月
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth fromMonth = currentMonth.minusYears(1);
+        YearMonth toMonth = currentMonth.minusMonths(1);
+
+        // 3. 读取银行卡流水月度预聚合（本人账户互转、还款、证券转账已在汇总时归为 TRANSFER）
+        Map<String, BigDecimal> totalIncomeByMonth = new TreeMap<>();
+        Map<String, BigDecimal> totalExpenseByMonth = new TreeMap<>();
+        for (FinanceMonthlyAggregate row : financeAggregateStore.list(id, FinanceMonthlyAggregate.SOURCE_BANK,
+                null, fromMonth.toString(), toMonth.toString())) {
+            if (FinanceMonthlyAggregate.DIRECTION_IN.equals(row.getDirection())) {
+                totalIncomeByMonth.merge(row.getMonth(), row.getAmount(), BigDecimal::add);
+            } else if (FinanceMonthlyAggregate.DIRECTION_OUT.equals(row.getDirection())) {
+                totalExpenseByMonth.merge(row.getMonth(), row.getAmount(), BigDecimal::add);
             }
         }
 
-        // 8. 合并结果为 DTO 列表
+        // 4. 合并结果为 DTO 列表
         List<MonthlyExpenditureBarChart> result = new ArrayList<>();
-        for (YearMonth ym : totalIncomeByMonth.keySet()) {
-            BigDecimal income = totalIncomeByMonth.getOrDefault(ym, BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
-            BigDecimal expense = totalExpenseByMonth.getOrDefault(ym, BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+        for (String month : totalIncomeByMonth.keySet()) {
+            BigDecimal income = totalIncomeByMonth.getOrDefault(month, BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal expense = totalExpenseByMonth.getOrDefault(month, BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
 
-            result.add(new MonthlyExpenditureBarChart(ym.toString(), income.doubleValue(), expense.doubleValue()));
+            result.add(new MonthlyExpenditureBarChart(month, income.doubleValue(), expense.doubleValue()));
         }
 
-        // 9. 写入 Redis 缓存，有效期 24 小时
+        // 5. 写入 Redis 缓存，有效期 24 小时
         if (!result.isEmpty()) {
             redisCache.setCacheList(cacheKeyPie, result);
             redisCache.setExpireTime(cacheKeyPie, TIME_OUT_HOURS, TimeUnit.HOURS);
@@ -651,6 +618,13 @@ public class PieChartServiceImpl implements IPieChartService {
     }
 
 
+    /**
+     * 辅助方法：近 12 个自然月（含当月）的起始月份 yyyy-MM
+     */
+    private static String lastTwelveMonths() {
+        return YearMonth.now().minusMonths(11).toString();
+    }
+
     /**
      * 辅助方法：累加金额到指定 Map 中的 "amount" 字段
      *
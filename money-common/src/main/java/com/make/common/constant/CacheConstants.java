@@ -89,6 +89,40 @@ public class CacheConstants {
      * </p>
      */
     public static final String REALTIME_STOCK_ALL_DONGFANG_KEY = "stock:realtime:dongfang";
+
+    /**
+     * 东方财富全市场快照（二进制）Redis 键名
+     * <p>
+     * HASH：股票代码 -> 定长二进制编码的快照
+     * </p>
+     */
+    public static final String REALTIME_STOCK_DONGFANG_SNAPSHOT_KEY = "stock:realtime:dongfang:snap";
+
+    /**
+     * 东方财富全市场快照变更序号 Redis 键名
+     * <p>
+     * ZSET：股票代码 -> 最后一次变更时的版本号
+     * </p>
+     */
+    public static final String REALTIME_STOCK_DONGFANG_SEQ_KEY = "stock:realtime:dongfang:seq";
+
+    /**
+     * 东方财富全市场快照版本号 Redis 键名（每次发布 INCR）
+     */
+    public static final String REALTIME_STOCK_DONGFANG_VERSION_KEY = "stock:realtime:dongfang:version";
+
+    /**
+     * 东方财富全市场快照纪元 Redis 键名（快照过期重建时更换，读取端据此识别版本号重新计数）
+     */
+    public static final String REALTIME_STOCK_DONGFANG_EPOCH_KEY = "stock:realtime:dongfang:epoch";
+
+    /**
+     * 东方财富历史数据导入断点 Redis 键名
+     * <p>
+     * SET：已完成导入的股票代码，全部完成后清除
+     * </p>
+     */
+    public static final String HISTORY_IMPORT_DONE_KEY = "stock:history:import:done";
     
     /**
      * 实时股票数据 Redis 缓存键名
@@ -22,6 +22,7 @@ public class KafkaTopics {
     public static final String TOPIC_ETF_TASK = "stock.etf.task";
     public static final String TOPIC_KLINE_TASK = "stock.kline.task";
     public static final String TOPIC_STOCK_TICK_TASK = "stock.tick.task";
+    public static final String TOPIC_STOCK_TICK_ROLLUP = "stock.tick.rollup";
 
     /**
      * Finance Related Topics
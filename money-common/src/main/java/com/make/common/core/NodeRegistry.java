@@ -71,6 +71,16 @@ public class NodeRegistry implements SmartLifecycle {
         return isMaster;
     }
 
+    /**
+     * 节点心跳是否仍在（心跳 TTL 键存在）
+     *
+     * @param nodeId 节点 ID
+     * @return 心跳键存在返回 true
+     */
+    public boolean isNodeAlive(String nodeId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(NODE_TTL_PREFIX + nodeId));
+    }
+
     @PostConstruct
     public void init() {
         try {
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
 
@@ -39,6 +40,7 @@ import com.make.common.exception.UtilException;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.poi.hssf.usermodel.HSSFClientAnchor;
 import org.apache.poi.hssf.usermodel.HSSFPicture;
 import org.apache.poi.hssf.usermodel.HSSFPictureData;
@@ -194,6 +196,26 @@ public class ExcelUtil<T> {
      */
     private Map<Integer, Double> statistics = new HashMap<Integer, Double>();
 
+    /**
+     * 流式导出的列写入器，导出开始时解析一次
+     */
+    private List<StreamColumn> streamColumns;
+
+    /**
+     * 流式导出当前工作表序号
+     */
+    private int streamSheetIndex;
+
+    /**
+     * 流式导出当前工作表的下一行行号
+     */
+    private int streamRowNum;
+
+    /**
+     * 流式导出当前工作表已写入的数据行数
+     */
+    private int streamSheetRows;
+
     /**
      * 数字格式
      */
@@ -530,6 +552,56 @@ public class ExcelUtil<T> {
         exportExcel(response);
     }
 
+    /**
+     * 流式导出数据到Excel
+     * 数据由查询通过 ResultHandler 逐行推送，直接写入 SXSSFWorkbook 的行窗口（超出窗口的行刷到临时文件），
+     * 无需先加载完整的 List，导出数十万行时堆内存占用保持稳定
+     *
+     * @param response  返回数据
+     * @param sheetName 工作表的名称
+     * @param query     查询，参数为逐行接收结果的 ResultHandler
+     */
+    public void exportExcelStream(HttpServletResponse response, String sheetName, Consumer<ResultHandler<T>> query) {
+        exportExcelStream(response, sheetName, StringUtils.EMPTY, query);
+    }
+
+    /**
+     * 流式导出数据到Excel
+     * 每列的取值方式与样式在导出开始时解析一次，逐行写入时不再拼接样式键、创建日期格式
+     *
+     * @param response  返回数据
+     * @param sheetName 工作表的名称
+     * @param title     标题
+     * @param query     查询，参数为逐行接收结果的 ResultHandler
+     */
+    public void exportExcelStream(HttpServletResponse response, String sheetName, String title, Consumer<ResultHandler<T>> query) {
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setCharacterEncoding("utf-8");
+        this.init(null, sheetName, title, Excel.Type.EXPORT);
+        if (isSubList()) {
+            // 子列表需要跨行合并单元格，仍按全量方式导出
+            query.accept(context -> this.list.add(context.getResultObject()));
+            exportExcel(response);
+            return;
+        }
+        try {
+            createStreamColumns();
+            createHeadRow();
+            this.streamSheetIndex = 0;
+            this.streamSheetRows = 0;
+            this.streamRowNum = rownum + 1;
+            query.accept(context -> writeStreamRow(context.getResultObject()));
+            addStatisticsRow();
+            wb.write(response.getOutputStream());
+        } catch (Exception e) {
+            log.error("导出Excel异常{}", e.getMessage());
+        } finally {
+            // 删除行窗口刷出的临时文件
+            ((SXSSFWorkbook) wb).dispose();
+            IOUtils.closeQuietly(wb);
+        }
+    }
+
     /**
      * 对list数据源将其里面的数据导入到excel表单
      *
@@ -625,21 +697,7 @@ public class ExcelUtil<T> {
             createSheet(sheetNo, index);
 
             // 产生一行
-            Row row = sheet.createRow(rownum);
-            int column = 0;
-            // 写入各个字段的列头名称
-            for (Object[] os : fields) {
-                Field field = (Field) os[0];
-                Excel excel = (Excel) os[1];
-                if (Collection.class.isAssignableFrom(field.getType())) {
-                    for (Field subField : subFields) {
-                        Excel subExcel = subField.getAnnotation(Excel.class);
-                        this.createHeadCell(subExcel, row, column++);
-                    }
-                } else {
-                    this.createHeadCell(excel, row, column++);
-                }
-            }
+            Row row = createHeadRow();
             if (Excel.Type.EXPORT.equals(type)) {
                 fillExcelData(index, row);
                 addStatisticsRow();
@@ -647,6 +705,99 @@ public class ExcelUtil<T> {
         }
     }
 
+    /**
+     * 写入各个字段的列头名称
+     *
+     * @return 列头行
+     */
+    private Row createHeadRow() {
+        Row row = sheet.createRow(rownum);
+        int column = 0;
+        for (Object[] os : fields) {
+            Field field = (Field) os[0];
+            Excel excel = (Excel) os[1];
+            if (Collection.class.isAssignableFrom(field.getType())) {
+                for (Field subField : subFields) {
+                    Excel subExcel = subField.getAnnotation(Excel.class);
+                    this.createHeadCell(subExcel, row, column++);
+                }
+            } else {
+                this.createHeadCell(excel, row, column++);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 解析流式导出的列写入器
+     * 字段访问权限、数据样式、日期格式样式在此一次性准备好
+     */
+    private void createStreamColumns() {
+        this.streamColumns = new ArrayList<StreamColumn>(fields.size());
+        int column = 0;
+        for (Object[] os : fields) {
+            Field field = (Field) os[0];
+            Excel attr = (Excel) os[1];
+            int index = column++;
+            if (!attr.isExport()) {
+                continue;
+            }
+            field.setAccessible(true);
+            String styleKey = StringUtils.format("data_{}_{}_{}_{}_{}", attr.align(), attr.color(), attr.backgroundColor(), attr.cellType(), attr.wrapText());
+            CellStyle style = styles.get(styleKey);
+            if (StringUtils.isNotEmpty(attr.dateFormat())) {
+                // 日期列使用独立样式，不修改同键的共享样式
+                String dateKey = styleKey + "_" + attr.dateFormat();
+                CellStyle dateStyle = styles.get(dateKey);
+                if (dateStyle == null) {
+                    dateStyle = wb.createCellStyle();
+                    dateStyle.cloneStyleFrom(style);
+                    dateStyle.setDataFormat(wb.createDataFormat().getFormat(attr.dateFormat()));
+                    styles.put(dateKey, dateStyle);
+                }
+                style = dateStyle;
+            }
+            streamColumns.add(new StreamColumn(field, attr, index, style));
+        }
+    }
+
+    /**
+     * 流式写入一行数据，当前工作表写满 sheetSize 行后换到新的工作表
+     *
+     * @param vo 实体对象
+     */
+    private void writeStreamRow(T vo) {
+        if (vo == null) {
+            return;
+        }
+        if (streamSheetRows >= sheetSize) {
+            addStatisticsRow();
+            streamSheetIndex++;
+            this.sheet = wb.createSheet();
+            wb.setSheetName(streamSheetIndex, sheetName + streamSheetIndex);
+            createTitle();
+            createHeadRow();
+            streamRowNum = rownum + 1;
+            streamSheetRows = 0;
+        }
+        Row row = sheet.createRow(streamRowNum++);
+        row.setHeight(maxHeight);
+        for (StreamColumn col : streamColumns) {
+            Cell cell = row.createCell(col.column);
+            cell.setCellStyle(col.style);
+            try {
+                Object value = col.direct ? col.field.get(vo) : getTargetValue(vo, col.field, col.attr);
+                setCellValue(col.attr, cell, value);
+                if (col.attr.isStatistics()) {
+                    addStatisticsData(col.column, Convert.toStr(value), col.attr);
+                }
+            } catch (Exception e) {
+                log.error("导出Excel失败{}", e);
+            }
+        }
+        streamSheetRows++;
+    }
+
     /**
      * 填充excel数据
      * 根据分页索引填充对应数据到Excel表格中，支持嵌套集合类型字段的展开显示
@@ -1042,28 +1193,10 @@ public class ExcelUtil<T> {
                 // 用于读取对象中的属性
                 Object value = getTargetValue(vo, field, attr);
                 String dateFormat = attr.dateFormat();
-                String readConverterExp = attr.readConverterExp();
-                String separator = attr.separator();
-                String dictType = attr.dictType();
                 if (StringUtils.isNotEmpty(dateFormat) && StringUtils.isNotNull(value)) {
                     cell.getCellStyle().setDataFormat(this.wb.getCreationHelper().createDataFormat().getFormat(dateFormat));
-                    cell.setCellValue(parseDateToStr(dateFormat, value));
-                } else if (StringUtils.isNotEmpty(readConverterExp) && StringUtils.isNotNull(value)) {
-                    cell.setCellValue(convertByExp(Convert.toStr(value), readConverterExp, separator));
-                } else if (StringUtils.isNotEmpty(dictType) && StringUtils.isNotNull(value)) {
-                    if (!sysDictMap.containsKey(dictType + value)) {
-                        String lable = convertDictByExp(Convert.toStr(value), dictType, separator);
-                        sysDictMap.put(dictType + value, lable);
-                    }
-                    cell.setCellValue(sysDictMap.get(dictType + value));
-                } else if (value instanceof BigDecimal && -1 != attr.scale()) {
-                    cell.setCellValue((((BigDecimal) value).setScale(attr.scale(), attr.roundingMode())).doubleValue());
-                } else if (!attr.handler().equals(ExcelHandlerAdapter.class)) {
-                    cell.setCellValue(dataFormatHandlerAdapter(value, attr, cell));
-                } else {
-                    // 设置列类型
-                    setCellVo(value, attr, cell);
                 }
+                setCellValue(attr, cell, value);
                 addStatisticsData(column, Convert.toStr(value), attr);
             }
         } catch (Exception e) {
@@ -1072,6 +1205,39 @@ public class ExcelUtil<T> {
         return cell;
     }
 
+    /**
+     * 按注解配置写入单元格的值
+     * 依次处理日期格式、转换表达式、字典、小数精度、自定义处理器，其余按列类型写入
+     *
+     * @param attr  注解相关
+     * @param cell  单元格信息
+     * @param value 属性值
+     */
+    private void setCellValue(Excel attr, Cell cell, Object value) {
+        String dateFormat = attr.dateFormat();
+        String readConverterExp = attr.readConverterExp();
+        String separator = attr.separator();
+        String dictType = attr.dictType();
+        if (StringUtils.isNotEmpty(dateFormat) && StringUtils.isNotNull(value)) {
+            cell.setCellValue(parseDateToStr(dateFormat, value));
+        } else if (StringUtils.isNotEmpty(readConverterExp) && StringUtils.isNotNull(value)) {
+            cell.setCellValue(convertByExp(Convert.toStr(value), readConverterExp, separator));
+        } else if (StringUtils.isNotEmpty(dictType) && StringUtils.isNotNull(value)) {
+            if (!sysDictMap.containsKey(dictType + value)) {
+                String lable = convertDictByExp(Convert.toStr(value), dictType, separator);
+                sysDictMap.put(dictType + value, lable);
+            }
+            cell.setCellValue(sysDictMap.get(dictType + value));
+        } else if (value instanceof BigDecimal && -1 != attr.scale()) {
+            cell.setCellValue((((BigDecimal) value).setScale(attr.scale(), attr.roundingMode())).doubleValue());
+        } else if (!attr.handler().equals(ExcelHandlerAdapter.class)) {
+            cell.setCellValue(dataFormatHandlerAdapter(value, attr, cell));
+        } else {
+            // 设置列类型
+            setCellVo(value, attr, cell);
+        }
+    }
+
     /**
      * 设置 POI XSSFSheet 单元格提示或选择框
      *
@@ -1645,4 +1811,27 @@ public class ExcelUtil<T> {
         }
         return method;
     }
+
+    /**
+     * 流式导出的列写入器
+     */
+    private static final class StreamColumn {
+        private final Field field;
+        private final Excel attr;
+        private final int column;
+        private final CellStyle style;
+
+        /**
+         * 未配置 targetAttr 时直接读取字段
+         */
+        private final boolean direct;
+
+        private StreamColumn(Field field, Excel attr, int column, CellStyle style) {
+            this.field = field;
+            this.attr = attr;
+            this.column = column;
+            this.style = style;
+            this.direct = StringUtils.isEmpty(attr.targetAttr());
+        }
+    }
 }
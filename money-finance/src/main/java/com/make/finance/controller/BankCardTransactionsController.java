@@ -181,10 +181,8 @@ public class BankCardTransactionsController extends BaseController {
             if (CollectionUtils.isEmpty(bankCardTransactions)) {
                 return AjaxResult.error("导入失败：不支持的文件或文件为空");
             } else {
-                //存储数据库
-                for (BankCardTransactions bankCardTransaction : bankCardTransactions) {
-                    bankCardTransactionsService.insertBankCardTransactions(bankCardTransaction);
-                }
+                //存储数据库（批量写入，写完后统一重算首页图表预聚合）
+                bankCardTransactionsService.batchInsertBankCardTransactions(bankCardTransactions);
             }
             // 返回成功信息，包含导入的数据条数
             return AjaxResult.success("导入成功，数据条数：");
@@ -8,7 +8,6 @@ import java.util.List;
 import javax.servlet.http.HttpServletResponse;
 
 import com.make.common.utils.file.FileUploadUtils;
-import com.make.finance.utils.CSVUtil;
 import com.make.finance.utils.OSValidatorUtil;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +25,7 @@ import com.make.common.core.controller.BaseController;
 import com.make.common.core.domain.AjaxResult;
 import com.make.common.enums.BusinessType;
 import com.make.finance.domain.TransactionRecords;
+import com.make.finance.domain.vo.TransactionImportStatus;
 import com.make.finance.service.ITransactionRecordsService;
 import com.make.common.utils.poi.ExcelUtil;
 import com.make.common.core.page.TableDataInfo;
@@ -73,9 +73,8 @@ public class TransactionRecordsController extends BaseController {
     @Log(title = "微信支付宝流水", businessType = BusinessType.EXPORT)
     @PostMapping("/export")
     public void export(HttpServletResponse response, TransactionRecords transactionRecords) {
-        List<TransactionRecords> list = transactionRecordsService.selectTransactionRecordsList(transactionRecords);
         ExcelUtil<TransactionRecords> util = new ExcelUtil<TransactionRecords>(TransactionRecords.class);
-        util.exportExcel(response, list, "微信支付宝流水数据");
+        util.exportExcelStream(response, "微信支付宝流水数据", handler -> transactionRecordsService.streamTransactionRecordsList(transactionRecords, handler));
     }
 
     /**
@@ -121,7 +120,7 @@ public class TransactionRecordsController extends BaseController {
      * 导入数据的方法，处理文件上传和解析。
      *
      * @param multipartFile 上传的文件，类型为 MultipartFile
-     * @return AjaxResult 返回操作结果，包含成功或失败信息
+     * @return AjaxResult 返回导入任务状态（含任务ID），失败时返回错误信息
      */
     @PreAuthorize("@ss.hasPermi('finance:weChatRecords:import')") // 权限校验，确保用户有权限进行导入操作
     @Log(title = "流水解析", businessType = BusinessType.IMPORT) // 日志记录，记录导入操作
@@ -153,19 +152,12 @@ public class TransactionRecordsController extends BaseController {
             // 将上传的文件保存到指定路径
             multipartFile.transferTo(savedFile);
 
-            // 使用统一的智能解析器
-            // 自动解析并应用分类逻辑和 userId
-            List<TransactionRecords> records = CSVUtil.parse(savedFile, userId);
-
-            // 如果转换后的记录不为空，进行后续处理
-            if (!records.isEmpty()) {
-                for (TransactionRecords record : records) {
-                    transactionRecordsService.insertTransactionRecords(record); // 使用批量插入方法
-                }
+            // 异步流式导入：边解析边分批去重写入，进度通过 /import/{jobId} 查询
+            TransactionImportStatus status = transactionRecordsService.importTransactionRecords(savedFile, userId);
+            if (TransactionImportStatus.STATE_FAILED.equals(status.getState())) {
+                return AjaxResult.error(status.getMessage());
             }
-
-            // 返回成功信息，包含导入的数据条数
-            return AjaxResult.success("导入成功，数据条数：" + records.size());
+            return AjaxResult.success("导入任务已提交", status);
         } catch (IOException e) {
             // 处理 IO 异常，返回错误信息
             return AjaxResult.error("导入失败：文件读取错误：" + e.getMessage());
@@ -177,4 +169,16 @@ public class TransactionRecordsController extends BaseController {
         }
     }
 
+    /**
+     * 查询流水导入任务状态（速率、丢弃行数、重复行数、写入行数）
+     */
+    @PreAuthorize("@ss.hasPermi('finance:weChatRecords:import')")
+    @GetMapping("/import/{jobId}")
+    public AjaxResult importStatus(@PathVariable("jobId") String jobId) {
+        TransactionImportStatus status = transactionRecordsService.selectImportStatus(jobId);
+        if (status == null) {
+            return AjaxResult.error("导入任务不存在或已过期");
+        }
+        return success(status);
+    }
 }
@@ -0,0 +1,136 @@
+package com.make.finance.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * 财务流水月度预聚合对象 finance_monthly_aggregate
+ * <p>
+ * 按 (用户, 来源, 月份, 分类, 收支方向) 汇总，由流水写入路径增量维护，首页图表直接读取。
+ * </p>
+ */
+public class FinanceMonthlyAggregate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 来源：微信支付宝流水
+     */
+    public static final String SOURCE_WXZFB = "WXZFB";
+
+    /**
+     * 来源：银行卡流水
+     */
+    public static final String SOURCE_BANK = "BANK";
+
+    public static final String DIRECTION_IN = "IN";
+    public static final String DIRECTION_OUT = "OUT";
+    public static final String DIRECTION_TRANSFER = "TRANSFER";
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 数据来源
+     */
+    private String source;
+
+    /**
+     * 月份 yyyy-MM
+     */
+    private String month;
+
+    /**
+     * 分类
+     */
+    private String category;
+
+    /**
+     * 收支方向
+     */
+    private String direction;
+
+    /**
+     * 金额合计
+     */
+    private BigDecimal amount;
+
+    /**
+     * 记录条数
+     */
+    private Long recordCount;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Long getRecordCount() {
+        return recordCount;
+    }
+
+    public void setRecordCount(Long recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+                .append("userId", getUserId())
+                .append("source", getSource())
+                .append("month", getMonth())
+                .append("category", getCategory())
+                .append("direction", getDirection())
+                .append("amount", getAmount())
+                .append("recordCount", getRecordCount())
+                .toString();
+    }
+}
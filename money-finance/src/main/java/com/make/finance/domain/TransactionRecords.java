@@ -124,6 +124,11 @@ public class TransactionRecords extends BaseEntity {
     @Excel(name = "用户 ID，关联用户表")
     private Long userId;
 
+    /**
+     * 去重键（同一用户下唯一：来源 + 交易单号，无交易单号时为关键字段摘要），重复导入时据此跳过
+     */
+    private String dedupKey;
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -268,6 +273,14 @@ public class TransactionRecords extends BaseEntity {
         return userId;
     }
 
+    public void setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+    }
+
+    public String getDedupKey() {
+        return dedupKey;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
@@ -289,6 +302,7 @@ public class TransactionRecords extends BaseEntity {
                 .append("createdAt", getCreatedAt())
                 .append("updatedAt", getUpdatedAt())
                 .append("userId", getUserId())
+                .append("dedupKey", getDedupKey())
                 .toString();
     }
 }
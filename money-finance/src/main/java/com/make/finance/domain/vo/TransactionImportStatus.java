@@ -0,0 +1,150 @@
+package com.make.finance.domain.vo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流水异步导入任务状态
+ */
+public class TransactionImportStatus {
+
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_SUCCESS = "SUCCESS";
+    public static final String STATE_FAILED = "FAILED";
+
+    // 任务ID
+    private final String jobId;
+    // 导入文件名
+    private final String fileName;
+    // 导入用户
+    private final Long userId;
+    // 开始时间
+    private final long startMs = System.currentTimeMillis();
+    // 结束时间（运行中为 0）
+    private volatile long endMs;
+    // 任务状态
+    private volatile String state = STATE_RUNNING;
+    // 失败原因
+    private volatile String message;
+
+    // 已读取的文件行数（解析结束时写入）
+    private final AtomicLong readRows = new AtomicLong();
+    // 解析成功的记录数
+    private final AtomicLong parsedRows = new AtomicLong();
+    // 解析失败被丢弃的行数
+    private final AtomicLong rejectedRows = new AtomicLong();
+    // 已存在（文件内重复或库中已有）被跳过的记录数
+    private final AtomicLong duplicateRows = new AtomicLong();
+    // 写入的记录数
+    private final AtomicLong insertedRows = new AtomicLong();
+    // 写入失败的记录数
+    private final AtomicLong failedRows = new AtomicLong();
+
+    public TransactionImportStatus(String jobId, String fileName, Long userId) {
+        this.jobId = jobId;
+        this.fileName = fileName;
+        this.userId = userId;
+    }
+
+    public void finish(String state, String message) {
+        this.state = state;
+        this.message = message;
+        this.endMs = System.currentTimeMillis();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    public Date getStartTime() {
+        return new Date(startMs);
+    }
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    public Date getEndTime() {
+        return endMs > 0 ? new Date(endMs) : null;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getElapsedMs() {
+        return (endMs > 0 ? endMs : System.currentTimeMillis()) - startMs;
+    }
+
+    /**
+     * 解析速率（记录/秒）
+     */
+    public long getRowsPerSecond() {
+        long elapsed = Math.max(1L, getElapsedMs());
+        return parsedRows.get() * 1000L / elapsed;
+    }
+
+    public AtomicLong readRows() {
+        return readRows;
+    }
+
+    public AtomicLong parsedRows() {
+        return parsedRows;
+    }
+
+    public AtomicLong rejectedRows() {
+        return rejectedRows;
+    }
+
+    public AtomicLong duplicateRows() {
+        return duplicateRows;
+    }
+
+    public AtomicLong insertedRows() {
+        return insertedRows;
+    }
+
+    public AtomicLong failedRows() {
+        return failedRows;
+    }
+
+    public long getReadRows() {
+        return readRows.get();
+    }
+
+    public long getParsedRows() {
+        return parsedRows.get();
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.get();
+    }
+
+    public long getDuplicateRows() {
+        return duplicateRows.get();
+    }
+
+    public long getInsertedRows() {
+        return insertedRows.get();
+    }
+
+    public long getFailedRows() {
+        return failedRows.get();
+    }
+
+    public boolean isFinished() {
+        return endMs > 0;
+    }
+}
@@ -0,0 +1,77 @@
+package com.make.finance.mapper;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.make.finance.domain.FinanceMonthlyAggregate;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 财务流水月度预聚合Mapper接口
+ */
+public interface FinanceMonthlyAggregateMapper {
+
+    /**
+     * 查询预聚合数据
+     *
+     * @param userId    用户ID
+     * @param source    数据来源
+     * @param direction 收支方向，为空不过滤
+     * @param fromMonth 起始月份（含），为空不限
+     * @param toMonth   截止月份（含），为空不限
+     * @return 预聚合集合
+     */
+    public List<FinanceMonthlyAggregate> selectAggregateList(@Param("userId") Long userId,
+                                                             @Param("source") String source,
+                                                             @Param("direction") String direction,
+                                                             @Param("fromMonth") String fromMonth,
+                                                             @Param("toMonth") String toMonth);
+
+    /**
+     * 删除指定来源的预聚合
+     *
+     * @param userId 用户ID，为空表示全部用户
+     * @param source 数据来源
+     * @param months 月份，为空表示全部月份
+     * @return 结果
+     */
+    public int deleteAggregate(@Param("userId") Long userId,
+                               @Param("source") String source,
+                               @Param("months") Collection<String> months);
+
+    /**
+     * 从 transaction_records 重新汇总
+     *
+     * @param userId 用户ID，为空表示全部用户
+     * @param months 月份，为空表示全部月份
+     * @return 写入行数
+     */
+    public int insertTransactionRecordsAggregate(@Param("userId") Long userId,
+                                                 @Param("months") Collection<String> months);
+
+    /**
+     * 从 bank_card_transactions 重新汇总
+     *
+     * @param userId 用户ID，为空表示全部用户
+     * @param months 月份，为空表示全部月份
+     * @return 写入行数
+     */
+    public int insertBankCardTransactionsAggregate(@Param("userId") Long userId,
+                                                   @Param("months") Collection<String> months);
+
+    /**
+     * 查询微信支付宝流水所属的 (用户, 月份)
+     *
+     * @param ids 流水主键
+     * @return 仅填充 userId、month
+     */
+    public List<FinanceMonthlyAggregate> selectTransactionRecordsMonths(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 查询银行流水所属的 (用户, 月份)
+     *
+     * @param ids 流水主键
+     * @return 仅填充 userId、month
+     */
+    public List<FinanceMonthlyAggregate> selectBankCardTransactionsMonths(@Param("ids") Collection<Long> ids);
+}
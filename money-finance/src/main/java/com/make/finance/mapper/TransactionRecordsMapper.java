@@ -5,6 +5,7 @@ import java.util.Map;
 
 import com.make.finance.domain.TransactionRecords;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 微信支付宝流水Mapper接口
@@ -29,6 +30,14 @@ public interface TransactionRecordsMapper {
      */
     public List<TransactionRecords> selectTransactionRecordsList(TransactionRecords transactionRecords);
 
+    /**
+     * 流式查询微信支付宝流水列表，逐行回调，用于大数据量导出
+     *
+     * @param transactionRecords 查询条件
+     * @param handler 行回调
+     */
+    public void streamTransactionRecordsList(TransactionRecords transactionRecords, ResultHandler<TransactionRecords> handler);
+
     /**
      * 新增微信支付宝流水
      *
@@ -114,7 +123,16 @@ public interface TransactionRecordsMapper {
     List<Map<String, Object>> selectTotalAmountColumnChartData(@Param("userId") Long userId);
 
     /**
-     * 批量插入交易记录
+     * 批量插入交易记录（去重键冲突的行保持原样）
      */
     public int insertBatch(List<TransactionRecords> records);
+
+    /**
+     * 查询用户已存在的去重键
+     *
+     * @param userId    用户 ID
+     * @param dedupKeys 待检查的去重键
+     * @return 其中已入库的去重键
+     */
+    public List<String> selectExistingDedupKeys(@Param("userId") Long userId, @Param("dedupKeys") List<String> dedupKeys);
 }
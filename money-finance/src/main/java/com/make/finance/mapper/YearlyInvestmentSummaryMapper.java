@@ -1,7 +1,9 @@
 package com.make.finance.mapper;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.apache.ibatis.annotations.Param;
 import com.make.finance.domain.YearlyInvestmentSummary;
 
 /**
@@ -59,4 +61,13 @@ public interface YearlyInvestmentSummaryMapper {
      * @return 结果
      */
     public int deleteYearlyInvestmentSummaryByIds(Long[] ids);
+
+    /**
+     * 按交易表汇总当年净利润，刷新指定用户的实际期末值与实际收益率
+     *
+     * @param year    年份
+     * @param userIds 用户ID集合
+     * @return 结果
+     */
+    public int refreshActualEndValueFromTrades(@Param("year") int year, @Param("userIds") Collection<Long> userIds);
 }
@@ -1,8 +1,11 @@
 package com.make.finance.service;
 
+import java.io.File;
 import java.util.List;
 
 import com.make.finance.domain.TransactionRecords;
+import com.make.finance.domain.vo.TransactionImportStatus;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 微信支付宝流水Service接口
@@ -27,6 +30,14 @@ public interface ITransactionRecordsService {
      */
     public List<TransactionRecords> selectTransactionRecordsList(TransactionRecords transactionRecords);
 
+    /**
+     * 流式查询微信支付宝流水列表，逐行回调，用于大数据量导出
+     *
+     * @param transactionRecords 查询条件
+     * @param handler 行回调
+     */
+    public void streamTransactionRecordsList(TransactionRecords transactionRecords, ResultHandler<TransactionRecords> handler);
+
     /**
      * 新增微信支付宝流水
      *
@@ -63,4 +74,21 @@ public interface ITransactionRecordsService {
      * 批量插入交易记录
      */
     public int insertTransactionRecordsBatch(List<TransactionRecords> records);
+
+    /**
+     * 异步导入流水文件（流式解析、分批去重写入）
+     *
+     * @param file   已保存的上传文件
+     * @param userId 用户 ID
+     * @return 导入任务状态（含任务ID）
+     */
+    public TransactionImportStatus importTransactionRecords(File file, Long userId);
+
+    /**
+     * 查询流水导入任务状态
+     *
+     * @param jobId 任务ID
+     * @return 任务状态，不存在或已过期返回 null
+     */
+    public TransactionImportStatus selectImportStatus(String jobId);
 }
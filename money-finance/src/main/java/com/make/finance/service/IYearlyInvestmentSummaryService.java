@@ -1,5 +1,6 @@
 package com.make.finance.service;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.make.finance.domain.YearlyInvestmentSummary;
@@ -59,4 +60,13 @@ public interface IYearlyInvestmentSummaryService {
      * @return 结果
      */
     public int deleteYearlyInvestmentSummaryById(Long id);
+
+    /**
+     * 按交易表汇总当年净利润，刷新指定用户的实际期末值与实际收益率
+     *
+     * @param year    年份
+     * @param userIds 用户ID集合
+     * @return 结果
+     */
+    public int refreshActualEndValueFromTrades(int year, Collection<Long> userIds);
 }
@@ -1,10 +1,18 @@
 package com.make.finance.service.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import com.make.common.utils.DateUtils;
+import com.make.finance.domain.FinanceMonthlyAggregate;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.make.finance.mapper.BankCardTransactionsMapper;
 import com.make.finance.domain.BankCardTransactions;
 import com.make.finance.service.IBankCardTransactionsService;
@@ -20,6 +28,9 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
     @Autowired
     private BankCardTransactionsMapper bankCardTransactionsMapper;
 
+    @Autowired
+    private FinanceAggregateStore financeAggregateStore;
+
     /**
      * 查询银行流水
      *
@@ -49,8 +60,12 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int insertBankCardTransactions(BankCardTransactions bankCardTransactions) {
-        return bankCardTransactionsMapper.insertBankCardTransactions(bankCardTransactions);
+        int rows = bankCardTransactionsMapper.insertBankCardTransactions(bankCardTransactions);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_BANK,
+                FinanceAggregateStore.monthsOfBankCardTransactions(Collections.singletonList(bankCardTransactions)));
+        return rows;
     }
 
     /**
@@ -60,8 +75,15 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int updateBankCardTransactions(BankCardTransactions bankCardTransactions) {
-        return bankCardTransactionsMapper.updateBankCardTransactions(bankCardTransactions);
+        List<Long> ids = Collections.singletonList(bankCardTransactions.getId());
+        Map<Long, Set<String>> before = financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_BANK, ids);
+        int rows = bankCardTransactionsMapper.updateBankCardTransactions(bankCardTransactions);
+        // 修改可能变更交易日期或用户，新旧月份都需重算
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_BANK, FinanceAggregateStore.merge(before,
+                financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_BANK, ids)));
+        return rows;
     }
 
     /**
@@ -71,8 +93,12 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteBankCardTransactionsByIds(Long[] ids) {
-        return bankCardTransactionsMapper.deleteBankCardTransactionsByIds(ids);
+        Map<Long, Set<String>> months = financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_BANK, Arrays.asList(ids));
+        int rows = bankCardTransactionsMapper.deleteBankCardTransactionsByIds(ids);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_BANK, months);
+        return rows;
     }
 
     /**
@@ -82,8 +108,12 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteBankCardTransactionsById(Long id) {
-        return bankCardTransactionsMapper.deleteBankCardTransactionsById(id);
+        Map<Long, Set<String>> months = financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_BANK, Collections.singletonList(id));
+        int rows = bankCardTransactionsMapper.deleteBankCardTransactionsById(id);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_BANK, months);
+        return rows;
     }
 
     /**
@@ -96,11 +126,23 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
         return bankCardTransactionsMapper.selectBankCardTransactionsYearList(id, startDate, endDate);
     }
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int batchInsertBankCardTransactions(List<BankCardTransactions> transactions) {
         if (CollectionUtils.isEmpty(transactions)) {
             return 0;
         }
 
+        // 批量插入会显式写入所有列，补齐单条插入时由数据库默认值填充的时间字段
+        Date now = DateUtils.getNowDate();
+        for (BankCardTransactions transaction : transactions) {
+            if (transaction.getCreatedAt() == null) {
+                transaction.setCreatedAt(now);
+            }
+            if (transaction.getUpdatedAt() == null) {
+                transaction.setUpdatedAt(now);
+            }
+        }
+
         // 使用 MyBatis 的批量操作或分批处理以提高性能
         int total = 0;
         int batchSize = 1000; // 每批处理1000条记录
@@ -113,6 +155,9 @@ public class BankCardTransactionsServiceImpl implements IBankCardTransactionsSer
             total += bankCardTransactionsMapper.batchInsertBankCardTransactions(batch);
         }
 
+        // 整批写完后按涉及的月份统一重算一次预聚合
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_BANK,
+                FinanceAggregateStore.monthsOfBankCardTransactions(transactions));
         return total;
     }
 
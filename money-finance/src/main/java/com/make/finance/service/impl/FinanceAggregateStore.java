@@ -0,0 +1,226 @@
+package com.make.finance.service.impl;
+
+import com.make.common.constant.CacheConstants;
+import com.make.common.core.redis.RedisCache;
+import com.make.finance.domain.BankCardTransactions;
+import com.make.finance.domain.FinanceMonthlyAggregate;
+import com.make.finance.domain.TransactionRecords;
+import com.make.finance.mapper.FinanceMonthlyAggregateMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 财务流水月度预聚合
+ * <p>
+ * 1. finance_monthly_aggregate 按 (用户, 来源, 月份, 分类, 收支方向) 保存金额与条数，首页图表只读该表。
+ * 2. 流水写入时由各 Service 在同一事务内调用 {@link #refresh(String, Map)}，
+ *    删除并按原始流水重新汇总受影响的 (用户, 月份)，汇总与流水同时提交或回滚。
+ *    按月重算而非加减差额，修改、删除、重复导入都不会累积误差。
+ * 3. 事务提交后清除对应用户的首页图表缓存，写入后刷新即可看到新数据。
+ * </p>
+ */
+@Component
+public class FinanceAggregateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FinanceAggregateStore.class);
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    /**
+     * 依赖预聚合的首页图表缓存名（键为 HOMEPAGE_CACHE_PREFIX + 名称 + "_" + 用户ID）
+     */
+    private static final List<String> WXZFB_CHARTS = Arrays.asList(
+            "TransactionTypePieChartData", "TotalAmountPieChartData", "TotalAmountChartData", "WechatAlipayData");
+
+    private static final List<String> BANK_CHARTS = Arrays.asList("MonthlyExpenditureBarChart");
+
+    @Resource
+    private FinanceMonthlyAggregateMapper financeMonthlyAggregateMapper;
+
+    @Resource
+    private RedisCache redisCache;
+
+    /**
+     * 查询预聚合数据
+     *
+     * @param userId    用户ID
+     * @param source    数据来源
+     * @param direction 收支方向，为空不过滤
+     * @param fromMonth 起始月份 yyyy-MM（含），为空不限
+     * @param toMonth   截止月份 yyyy-MM（含），为空不限
+     * @return 按月份升序的预聚合集合
+     */
+    public List<FinanceMonthlyAggregate> list(Long userId, String source, String direction,
+                                              String fromMonth, String toMonth) {
+        return financeMonthlyAggregateMapper.selectAggregateList(userId, source, direction, fromMonth, toMonth);
+    }
+
+    /**
+     * 查询库中流水所属的 (用户, 月份)，用于修改、删除前记录受影响的月份
+     *
+     * @param source 数据来源
+     * @param ids    流水主键
+     * @return 用户ID -> 月份集合
+     */
+    public Map<Long, Set<String>> monthsOf(String source, Collection<Long> ids) {
+        Map<Long, Set<String>> months = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return months;
+        }
+        List<FinanceMonthlyAggregate> rows = FinanceMonthlyAggregate.SOURCE_BANK.equals(source)
+                ? financeMonthlyAggregateMapper.selectBankCardTransactionsMonths(ids)
+                : financeMonthlyAggregateMapper.selectTransactionRecordsMonths(ids);
+        for (FinanceMonthlyAggregate row : rows) {
+            months.computeIfAbsent(row.getUserId(), k -> new TreeSet<>()).add(row.getMonth());
+        }
+        return months;
+    }
+
+    /**
+     * 微信支付宝流水所属的 (用户, 月份)
+     */
+    public static Map<Long, Set<String>> monthsOfTransactionRecords(Collection<TransactionRecords> records) {
+        Map<Long, Set<String>> months = new HashMap<>();
+        for (TransactionRecords record : records) {
+            addMonth(months, record.getUserId(), record.getTransactionTime());
+        }
+        return months;
+    }
+
+    /**
+     * 银行流水所属的 (用户, 月份)
+     */
+    public static Map<Long, Set<String>> monthsOfBankCardTransactions(Collection<BankCardTransactions> transactions) {
+        Map<Long, Set<String>> months = new HashMap<>();
+        for (BankCardTransactions transaction : transactions) {
+            addMonth(months, transaction.getUserId(), transaction.getDate());
+        }
+        return months;
+    }
+
+    /**
+     * 合并两组 (用户, 月份)
+     */
+    public static Map<Long, Set<String>> merge(Map<Long, Set<String>> a, Map<Long, Set<String>> b) {
+        Map<Long, Set<String>> merged = new HashMap<>();
+        for (Map<Long, Set<String>> m : Arrays.asList(a, b)) {
+            m.forEach((userId, months) -> merged.computeIfAbsent(userId, k -> new TreeSet<>()).addAll(months));
+        }
+        return merged;
+    }
+
+    /**
+     * 重新汇总指定用户、月份的预聚合
+     *
+     * @param source 数据来源
+     * @param months 用户ID -> 月份集合
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void refresh(String source, Map<Long, Set<String>> months) {
+        for (Map.Entry<Long, Set<String>> entry : months.entrySet()) {
+            if (entry.getKey() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            List<String> monthList = new ArrayList<>(entry.getValue());
+            financeMonthlyAggregateMapper.deleteAggregate(entry.getKey(), source, monthList);
+            if (FinanceMonthlyAggregate.SOURCE_BANK.equals(source)) {
+                financeMonthlyAggregateMapper.insertBankCardTransactionsAggregate(entry.getKey(), monthList);
+            } else {
+                financeMonthlyAggregateMapper.insertTransactionRecordsAggregate(entry.getKey(), monthList);
+            }
+        }
+        evictAfterCommit(source, months.keySet());
+    }
+
+    /**
+     * 全量重算某来源的预聚合
+     * <p>
+     * 银行卡流水的互转判定依赖 user_accounts，本人账户变更后需全量重算。
+     * </p>
+     *
+     * @param source 数据来源
+     * @param userId 用户ID，为空表示全部用户
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void rebuild(String source, Long userId) {
+        long start = System.currentTimeMillis();
+        financeMonthlyAggregateMapper.deleteAggregate(userId, source, null);
+        int rows = FinanceMonthlyAggregate.SOURCE_BANK.equals(source)
+                ? financeMonthlyAggregateMapper.insertBankCardTransactionsAggregate(userId, null)
+                : financeMonthlyAggregateMapper.insertTransactionRecordsAggregate(userId, null);
+        log.info("[FinanceAggregate] 全量重算 source={}, userId={}, rows={}, cost={}ms",
+                source, userId, rows, System.currentTimeMillis() - start);
+        evictAfterCommit(source, userId != null ? Arrays.asList(userId) : null);
+    }
+
+    /**
+     * 记录 (用户, 月份)，用户或时间为空时忽略
+     */
+    public static void addMonth(Map<Long, Set<String>> months, Long userId, Date time) {
+        if (userId == null || time == null) {
+            return;
+        }
+        String month = Instant.ofEpochMilli(time.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().format(MONTH);
+        months.computeIfAbsent(userId, k -> new TreeSet<>()).add(month);
+    }
+
+    /**
+     * 事务提交后清除图表缓存；提交前清除可能被并发读取以旧数据重新填充
+     *
+     * @param userIds 用户ID，为空表示全部用户
+     */
+    private void evictAfterCommit(String source, Collection<Long> userIds) {
+        Runnable evict = () -> evict(source, userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+
+    private void evict(String source, Collection<Long> userIds) {
+        List<String> charts = FinanceMonthlyAggregate.SOURCE_BANK.equals(source) ? BANK_CHARTS : WXZFB_CHARTS;
+        try {
+            List<String> keys = new ArrayList<>();
+            for (String chart : charts) {
+                String prefix = CacheConstants.HOMEPAGE_CACHE_PREFIX + chart + "_";
+                if (userIds == null) {
+                    keys.addAll(redisCache.keys(prefix + "*"));
+                } else {
+                    for (Long userId : userIds) {
+                        keys.add(prefix + userId);
+                    }
+                }
+            }
+            if (!keys.isEmpty()) {
+                redisCache.deleteObject(keys);
+            }
+        } catch (Exception e) {
+            // 缓存仍会按过期时间失效
+            log.warn("[FinanceAggregate] 清除图表缓存失败 source={}, err={}", source, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.make.finance.service.impl;
+
+import com.make.common.utils.ThreadPoolUtil;
+import com.make.finance.domain.FinanceMonthlyAggregate;
+import com.make.finance.domain.TransactionRecords;
+import com.make.finance.domain.vo.TransactionImportStatus;
+import com.make.finance.mapper.TransactionRecordsMapper;
+import com.make.finance.utils.CSVUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 微信/支付宝流水异步导入
+ * <p>
+ * 1. 上传后立即返回任务ID，解析在 statement-import 线程中进行，状态通过 {@link #status(String)} 查询。
+ * 2. {@link CSVUtil.UniversalListener} 每解析出一行即交给批量写入器，按 BATCH_SIZE 分批，
+ *    批次提交到 statement-import-writer 线程池写库，解析与写库并行；在途批次数受信号量限制，内存有界。
+ * 3. 去重：文件内按去重键过滤，写库前按 (user_id, dedup_key) 查询已存在的键再过滤，
+ *    唯一索引 + ON DUPLICATE KEY UPDATE 兜底并发导入，重复导入同一账单是幂等的。
+ * 4. 全部批次写完后按涉及的月份重算首页图表预聚合（{@link FinanceAggregateStore}），导入完成即可看到新数据。
+ * </p>
+ */
+@Component
+public class TransactionRecordsImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionRecordsImporter.class);
+
+    /**
+     * 单批写入行数
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 单个任务在途（已提交未写完）的最大批次数
+     */
+    private static final int MAX_IN_FLIGHT_BATCHES = 4;
+
+    /**
+     * 已结束任务状态的保留时长
+     */
+    private static final long JOB_RETENTION_MS = 24 * 3600 * 1000L;
+
+    @Autowired
+    private TransactionRecordsMapper transactionRecordsMapper;
+
+    @Autowired
+    private FinanceAggregateStore financeAggregateStore;
+
+    private final ExecutorService readExecutor = ThreadPoolUtil.createCustomThreadPool(
+            1, 2, 20, "statement-import", new ThreadPoolExecutor.AbortPolicy());
+
+    private final ExecutorService writeExecutor = ThreadPoolUtil.createCustomThreadPool(
+            2, 4, 8, "statement-import-writer");
+
+    private final Map<String, TransactionImportStatus> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 提交导入任务
+     *
+     * @param file   已保存的上传文件
+     * @param userId 用户 ID
+     * @return 任务状态（含任务ID）
+     */
+    public TransactionImportStatus submit(File file, Long userId) {
+        evictFinished();
+        TransactionImportStatus status = new TransactionImportStatus(
+                UUID.randomUUID().toString().replace("-", ""), file.getName(), userId);
+        jobs.put(status.getJobId(), status);
+        try {
+            readExecutor.execute(() -> run(file, userId, status));
+        } catch (RejectedExecutionException e) {
+            status.finish(TransactionImportStatus.STATE_FAILED, "导入任务排队已满，请稍后重试");
+        }
+        return status;
+    }
+
+    /**
+     * 查询任务状态
+     *
+     * @param jobId 任务ID
+     * @return 任务状态，不存在或已过期返回 null
+     */
+    public TransactionImportStatus status(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ThreadPoolUtil.shutdownGracefully(readExecutor, 10, TimeUnit.SECONDS);
+        ThreadPoolUtil.shutdownGracefully(writeExecutor, 10, TimeUnit.SECONDS);
+    }
+
+    private void run(File file, Long userId, TransactionImportStatus status) {
+        BatchWriter writer = new BatchWriter(userId, status);
+        try {
+            CSVUtil.UniversalListener listener = CSVUtil.stream(file, userId, writer);
+            writer.awaitAll();
+            refreshAggregates(writer, status);
+            status.readRows().set(listener.getTotalRows());
+            status.rejectedRows().set(listener.getRejectedRows());
+            status.finish(TransactionImportStatus.STATE_SUCCESS, null);
+        } catch (Exception e) {
+            writer.awaitAll();
+            refreshAggregates(writer, status);
+            log.error("流水导入失败 jobId={}, file={}", status.getJobId(), file.getName(), e);
+            status.finish(TransactionImportStatus.STATE_FAILED, e.getMessage());
+        }
+        log.info("流水导入结束 jobId={}, state={}, parsed={}, rejected={}, duplicate={}, inserted={}, failed={}, cost={}ms",
+                status.getJobId(), status.getState(), status.getParsedRows(), status.getRejectedRows(),
+                status.getDuplicateRows(), status.getInsertedRows(), status.getFailedRows(), status.getElapsedMs());
+    }
+
+    /**
+     * 写入一批：过滤库中已存在的去重键后批量插入
+     */
+    private void writeBatch(Long userId, List<TransactionRecords> batch, TransactionImportStatus status) {
+        try {
+            List<String> keys = new ArrayList<>(batch.size());
+            for (TransactionRecords record : batch) {
+                keys.add(record.getDedupKey());
+            }
+            Set<String> existing = new HashSet<>(transactionRecordsMapper.selectExistingDedupKeys(userId, keys));
+            List<TransactionRecords> fresh = new ArrayList<>(batch.size());
+            for (TransactionRecords record : batch) {
+                if (!existing.contains(record.getDedupKey())) {
+                    fresh.add(record);
+                }
+            }
+            status.duplicateRows().addAndGet(batch.size() - fresh.size());
+            if (!fresh.isEmpty()) {
+                transactionRecordsMapper.insertBatch(fresh);
+                status.insertedRows().addAndGet(fresh.size());
+            }
+        } catch (Exception e) {
+            status.failedRows().addAndGet(batch.size());
+            log.error("流水批量写入失败 jobId={}, size={}", status.getJobId(), batch.size(), e);
+        }
+    }
+
+    /**
+     * 重算本次导入涉及月份的预聚合；失败不影响导入结果，下次写入同月流水时会再次重算
+     */
+    private void refreshAggregates(BatchWriter writer, TransactionImportStatus status) {
+        if (status.getInsertedRows() == 0) {
+            return;
+        }
+        try {
+            financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_WXZFB, writer.months);
+        } catch (Exception e) {
+            log.error("流水导入后重算预聚合失败 jobId={}, months={}", status.getJobId(), writer.months, e);
+        }
+    }
+
+    private void evictFinished() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(s -> s.isFinished() && s.getEndTime().getTime() + JOB_RETENTION_MS < now);
+    }
+
+    /**
+     * 有界批量写入器：由解析线程调用 accept，按批提交到写入线程池
+     */
+    private final class BatchWriter implements Consumer<TransactionRecords> {
+
+        private final Long userId;
+        private final TransactionImportStatus status;
+        private final Set<String> seen = new HashSet<>();
+        private final Map<Long, Set<String>> months = new HashMap<>();
+        private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT_BATCHES);
+        private List<TransactionRecords> batch = new ArrayList<>(BATCH_SIZE);
+
+        private BatchWriter(Long userId, TransactionImportStatus status) {
+            this.userId = userId;
+            this.status = status;
+        }
+
+        @Override
+        public void accept(TransactionRecords record) {
+            status.parsedRows().incrementAndGet();
+            if (!seen.add(record.getDedupKey())) {
+                status.duplicateRows().incrementAndGet();
+                return;
+            }
+            FinanceAggregateStore.addMonth(months, record.getUserId(), record.getTransactionTime());
+            batch.add(record);
+            if (batch.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<TransactionRecords> toWrite = batch;
+            batch = new ArrayList<>(BATCH_SIZE);
+            inFlight.acquireUninterruptibly();
+            // 写入线程池满时由解析线程自己写（CallerRunsPolicy），天然反压
+            writeExecutor.execute(() -> {
+                try {
+                    writeBatch(userId, toWrite, status);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        /**
+         * 提交剩余记录并等待所有在途批次写完
+         */
+        private void awaitAll() {
+            flush();
+            try {
+                if (inFlight.tryAcquire(MAX_IN_FLIGHT_BATCHES, 10, TimeUnit.MINUTES)) {
+                    inFlight.release(MAX_IN_FLIGHT_BATCHES);
+                } else {
+                    log.warn("等待流水批量写入超时 jobId={}", status.getJobId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.make.finance.service.impl;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import com.make.finance.domain.FinanceMonthlyAggregate;
+import com.make.finance.domain.vo.TransactionImportStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.make.finance.mapper.TransactionRecordsMapper;
 import com.make.finance.domain.TransactionRecords;
 import com.make.finance.service.ITransactionRecordsService;
 import org.springframework.transaction.annotation.Transactional;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 微信支付宝流水Service业务层处理
@@ -20,6 +28,12 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
     @Autowired
     private TransactionRecordsMapper transactionRecordsMapper;
 
+    @Autowired
+    private TransactionRecordsImporter transactionRecordsImporter;
+
+    @Autowired
+    private FinanceAggregateStore financeAggregateStore;
+
     /**
      * 查询微信支付宝流水
      *
@@ -42,6 +56,17 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
         return transactionRecordsMapper.selectTransactionRecordsList(transactionRecords);
     }
 
+    /**
+     * 流式查询微信支付宝流水列表，逐行回调，用于大数据量导出
+     *
+     * @param transactionRecords 查询条件
+     * @param handler 行回调
+     */
+    @Override
+    public void streamTransactionRecordsList(TransactionRecords transactionRecords, ResultHandler<TransactionRecords> handler) {
+        transactionRecordsMapper.streamTransactionRecordsList(transactionRecords, handler);
+    }
+
     /**
      * 新增微信支付宝流水
      *
@@ -49,8 +74,12 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int insertTransactionRecords(TransactionRecords transactionRecords) {
-        return transactionRecordsMapper.insertTransactionRecords(transactionRecords);
+        int rows = transactionRecordsMapper.insertTransactionRecords(transactionRecords);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_WXZFB,
+                FinanceAggregateStore.monthsOfTransactionRecords(Collections.singletonList(transactionRecords)));
+        return rows;
     }
 
     /**
@@ -60,8 +89,15 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int updateTransactionRecords(TransactionRecords transactionRecords) {
-        return transactionRecordsMapper.updateTransactionRecords(transactionRecords);
+        List<Long> ids = Collections.singletonList(transactionRecords.getId());
+        Map<Long, Set<String>> before = financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_WXZFB, ids);
+        int rows = transactionRecordsMapper.updateTransactionRecords(transactionRecords);
+        // 修改可能变更交易时间或用户，新旧月份都需重算
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_WXZFB, FinanceAggregateStore.merge(before,
+                financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_WXZFB, ids)));
+        return rows;
     }
 
     /**
@@ -71,8 +107,12 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteTransactionRecordsByIds(Long[] ids) {
-        return transactionRecordsMapper.deleteTransactionRecordsByIds(ids);
+        Map<Long, Set<String>> months = financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_WXZFB, Arrays.asList(ids));
+        int rows = transactionRecordsMapper.deleteTransactionRecordsByIds(ids);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_WXZFB, months);
+        return rows;
     }
 
     /**
@@ -82,8 +122,12 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteTransactionRecordsById(Long id) {
-        return transactionRecordsMapper.deleteTransactionRecordsById(id);
+        Map<Long, Set<String>> months = financeAggregateStore.monthsOf(FinanceMonthlyAggregate.SOURCE_WXZFB, Collections.singletonList(id));
+        int rows = transactionRecordsMapper.deleteTransactionRecordsById(id);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_WXZFB, months);
+        return rows;
     }
 
     /**
@@ -95,6 +139,32 @@ public class TransactionRecordsServiceImpl implements ITransactionRecordsService
         if (records == null || records.isEmpty()) {
             return 0;
         }
-        return transactionRecordsMapper.insertBatch(records);
+        int rows = transactionRecordsMapper.insertBatch(records);
+        financeAggregateStore.refresh(FinanceMonthlyAggregate.SOURCE_WXZFB,
+                FinanceAggregateStore.monthsOfTransactionRecords(records));
+        return rows;
+    }
+
+    /**
+     * 异步导入流水文件
+     *
+     * @param file   已保存的上传文件
+     * @param userId 用户 ID
+     * @return 导入任务状态
+     */
+    @Override
+    public TransactionImportStatus importTransactionRecords(File file, Long userId) {
+        return transactionRecordsImporter.submit(file, userId);
+    }
+
+    /**
+     * 查询流水导入任务状态
+     *
+     * @param jobId 任务ID
+     * @return 任务状态
+     */
+    @Override
+    public TransactionImportStatus selectImportStatus(String jobId) {
+        return transactionRecordsImporter.status(jobId);
     }
 }
@@ -2,8 +2,10 @@ package com.make.finance.service.impl;
 
 import java.util.List;
 
+import com.make.finance.domain.FinanceMonthlyAggregate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.make.finance.mapper.UserAccountsMapper;
 import com.make.finance.domain.UserAccounts;
 import com.make.finance.service.IUserAccountsService;
@@ -20,6 +22,9 @@ public class UserAccountsServiceImpl implements IUserAccountsService {
     @Autowired
     private UserAccountsMapper userAccountsMapper;
 
+    @Autowired
+    private FinanceAggregateStore financeAggregateStore;
+
     /**
      * 查询用户账户银行卡信息
      *
@@ -49,8 +54,11 @@ public class UserAccountsServiceImpl implements IUserAccountsService {
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int insertUserAccounts(UserAccounts userAccounts) {
-        return userAccountsMapper.insertUserAccounts(userAccounts);
+        int rows = userAccountsMapper.insertUserAccounts(userAccounts);
+        rebuildBankAggregates();
+        return rows;
     }
 
     /**
@@ -60,8 +68,11 @@ public class UserAccountsServiceImpl implements IUserAccountsService {
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int updateUserAccounts(UserAccounts userAccounts) {
-        return userAccountsMapper.updateUserAccounts(userAccounts);
+        int rows = userAccountsMapper.updateUserAccounts(userAccounts);
+        rebuildBankAggregates();
+        return rows;
     }
 
     /**
@@ -71,8 +82,11 @@ public class UserAccountsServiceImpl implements IUserAccountsService {
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteUserAccountsByIds(Long[] ids) {
-        return userAccountsMapper.deleteUserAccountsByIds(ids);
+        int rows = userAccountsMapper.deleteUserAccountsByIds(ids);
+        rebuildBankAggregates();
+        return rows;
     }
 
     /**
@@ -82,7 +96,17 @@ public class UserAccountsServiceImpl implements IUserAccountsService {
      * @return 结果
      */
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public int deleteUserAccountsById(Long id) {
-        return userAccountsMapper.deleteUserAccountsById(id);
+        int rows = userAccountsMapper.deleteUserAccountsById(id);
+        rebuildBankAggregates();
+        return rows;
+    }
+
+    /**
+     * 银行流水的本人账户互转判定依赖全部账户卡号，账户变更后重算银行流水预聚合
+     */
+    private void rebuildBankAggregates() {
+        financeAggregateStore.rebuild(FinanceMonthlyAggregate.SOURCE_BANK, null);
     }
 }
@@ -2,6 +2,7 @@ package com.make.finance.service.impl;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collection;
 import java.util.List;
 
 import com.make.common.utils.DateUtils;
@@ -103,6 +104,22 @@ public class YearlyInvestmentSummaryServiceImpl implements IYearlyInvestmentSumm
         return yearlyInvestmentSummaryMapper.deleteYearlyInvestmentSummaryById(id);
     }
 
+    /**
+     * 按交易表汇总当年净利润，刷新指定用户的实际期末值与实际收益率
+     * <p>
+     * 汇总与写入在同一条 SQL 中完成，多个节点并发刷新时以库中已提交的交易为准，不会互相覆盖。
+     *
+     * @param year    年份
+     * @param userIds 用户ID集合
+     * @return 结果
+     */
+    @Override
+    public int refreshActualEndValueFromTrades(int year, Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        return yearlyInvestmentSummaryMapper.refreshActualEndValueFromTrades(year, userIds);
+    }
 
     /**
      * 计算收益率（针对本期投入）
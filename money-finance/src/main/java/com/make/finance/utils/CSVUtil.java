@@ -6,15 +6,18 @@ import com.alibaba.excel.event.AnalysisEventListener;
 import com.make.finance.domain.TransactionRecords;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.DigestUtils;
 
 import java.io.File;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * 统一流水文件解析工具类
@@ -57,6 +60,41 @@ public class CSVUtil {
         return listener.getRecords();
     }
 
+    /**
+     * 流式解析入口：每解析出一条记录即交给 sink，不在内存中累积
+     *
+     * @param file   用户上传文件
+     * @param userId 当前用户 ID
+     * @param sink   记录消费者（抛出异常时终止解析）
+     * @return 监听器（含行统计）
+     */
+    public static UniversalListener stream(File file, Long userId, Consumer<TransactionRecords> sink) {
+        UniversalListener listener = new UniversalListener(userId, sink);
+        EasyExcel.read(file, listener).sheet().doRead();
+        return listener;
+    }
+
+    /**
+     * 生成去重键：有交易单号时为「来源:交易单号」，否则为关键字段的 MD5
+     */
+    public static String dedupKey(TransactionRecords record) {
+        String transactionId = record.getTransactionId();
+        if (transactionId != null && !transactionId.isBlank()) {
+            return record.getSource() + ":" + transactionId.trim();
+        }
+        String time = record.getTransactionTime() == null ? ""
+                : DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+                .format(record.getTransactionTime().toInstant().atZone(ZoneId.systemDefault()));
+        String raw = String.join("|",
+                String.valueOf(record.getSource()),
+                time,
+                record.getAmount() == null ? "" : record.getAmount().stripTrailingZeros().toPlainString(),
+                Objects.toString(record.getCounterparty(), ""),
+                Objects.toString(record.getProduct(), ""),
+                Objects.toString(record.getInOut(), ""));
+        return "h:" + DigestUtils.md5DigestAsHex(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * 通用监听器（核心状态机）
      */
@@ -65,6 +103,11 @@ public class CSVUtil {
         private final List<TransactionRecords> records = new ArrayList<>();
         private final Long userId;
 
+        /**
+         * 流式消费者；为空时记录累积到 records
+         */
+        private final Consumer<TransactionRecords> sink;
+
         /**
          * 是否已经识别到表头
          */
@@ -86,9 +129,16 @@ public class CSVUtil {
         private int totalRows = 0;
         private int droppedByTime = 0;
         private int droppedByHeader = 0;
+        private int droppedByError = 0;
+        private int accepted = 0;
 
         public UniversalListener(Long userId) {
+            this(userId, null);
+        }
+
+        public UniversalListener(Long userId, Consumer<TransactionRecords> sink) {
             this.userId = userId;
+            this.sink = sink;
         }
 
         /**
@@ -111,29 +161,39 @@ public class CSVUtil {
             }
 
             // ========= 阶段 2：解析数据行 =========
+            TransactionRecords record;
             try {
-                TransactionRecords record = parseRow(rowData, detectedType);
+                record = parseRow(rowData, detectedType);
 
                 if (record == null) {
                     return; // 已在内部记录日志
                 }
 
                 enrichRecord(record);
-                records.add(record);
-
             } catch (Exception e) {
+                droppedByError++;
                 log.warn("行解析异常，已跳过: {}", rowData, e);
+                return;
+            }
+
+            accepted++;
+            // 消费者异常直接抛出，由 EasyExcel 终止解析
+            if (sink != null) {
+                sink.accept(record);
+            } else {
+                records.add(record);
             }
         }
 
         @Override
         public void doAfterAllAnalysed(AnalysisContext context) {
             log.info(
-                    "解析完成：总行数={}, 成功={}, 时间丢弃={}, 表头丢弃={}",
+                    "解析完成：总行数={}, 成功={}, 时间丢弃={}, 表头丢弃={}, 异常丢弃={}",
                     totalRows,
-                    records.size(),
+                    accepted,
                     droppedByTime,
-                    droppedByHeader
+                    droppedByHeader,
+                    droppedByError
             );
         }
 
@@ -141,6 +201,20 @@ public class CSVUtil {
             return records;
         }
 
+        /**
+         * 已读取的行数（含表头前说明行）
+         */
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        /**
+         * 表头之后被丢弃的数据行数
+         */
+        public int getRejectedRows() {
+            return droppedByTime + droppedByHeader + droppedByError;
+        }
+
         // ========================= 表头识别 =========================
 
         /**
@@ -252,6 +326,8 @@ public class CSVUtil {
             } else if (product.contains("转账") || product.contains("红包")) {
                 record.setProductType("转账");
             }
+
+            record.setDedupKey(dedupKey(record));
         }
 
         // ========================= 工具方法 =========================
@@ -10,7 +10,10 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import com.make.framework.web.service.LoginUserNearCache;
 
 /**
  * redis配置
@@ -53,6 +56,18 @@ public class RedisConfig extends CachingConfigurerSupport {
         return template;
     }
 
+    /**
+     * 订阅登录用户失效广播，清理本地近端缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer loginUserNearCacheContainer(RedisConnectionFactory connectionFactory,
+                                                                     LoginUserNearCache loginUserNearCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(loginUserNearCache, new ChannelTopic(LoginUserNearCache.CHANNEL));
+        return container;
+    }
+
     @Bean
     public DefaultRedisScript<Long> limitScript() {
         DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
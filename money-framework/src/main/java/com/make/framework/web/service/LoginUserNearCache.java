@@ -0,0 +1,245 @@
+package com.make.framework.web.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.make.common.core.domain.model.LoginUser;
+import com.make.common.utils.uuid.IdUtils;
+
+/**
+ * 登录用户本地近端缓存
+ * <p>
+ * 位于 Redis 之前，按令牌 uuid 缓存 LoginUser，省去每次请求的 Redis 往返与 JSON 反序列化：
+ * 1. 条目在 LoginUser 的 expireTime 到期（与 Redis 中令牌的 TTL 一致），且最长只保留 maxStaleSeconds，
+ *    失效广播丢失（如订阅断开）时也能在有限时间内回源 Redis；容量超过 maxSize 时由 Caffeine 淘汰。
+ * 2. 令牌刷新、用户信息或权限变更、退出登录时向 {@link #CHANNEL} 广播 uuid，
+ *    其他节点收到后丢弃本地条目，本节点发出的消息忽略。
+ * 3. 回源期间若收到失效消息，本次加载结果不写入缓存，避免旧数据覆盖失效。
+ * </p>
+ *
+ * @author ruoyi
+ */
+@Component
+public class LoginUserNearCache implements MessageListener
+{
+    private static final Logger log = LoggerFactory.getLogger(LoginUserNearCache.class);
+
+    /**
+     * 登录用户失效广播频道
+     */
+    public static final String CHANNEL = "sys:login-user:invalidate";
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 本节点标识，用于忽略自己发出的失效消息
+     */
+    private final String nodeId = IdUtils.fastSimpleUUID();
+
+    @Value("${token.nearCache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${token.nearCache.maxSize:10000}")
+    private long maxSize;
+
+    @Value("${token.nearCache.maxStaleSeconds:60}")
+    private long maxStaleSeconds;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Cache<String, LoginUser> cache;
+
+    /**
+     * 失效次数（本地与远端），回源前后比对以丢弃期间已失效的加载结果
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong localInvalidations = new AtomicLong();
+    private final AtomicLong remoteInvalidations = new AtomicLong();
+    private final AtomicLong publishFailures = new AtomicLong();
+
+    @PostConstruct
+    public void init()
+    {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry(TimeUnit.SECONDS.toNanos(maxStaleSeconds)))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 读取本地缓存的登录用户
+     *
+     * @param uuid 令牌 uuid
+     * @return 登录用户，未命中返回 null
+     */
+    public LoginUser get(String uuid)
+    {
+        return enabled ? cache.getIfPresent(uuid) : null;
+    }
+
+    /**
+     * 回源前取当前失效代次，配合 {@link #putIfUnchanged(String, LoginUser, long)} 使用
+     */
+    public long generation()
+    {
+        return generation.get();
+    }
+
+    /**
+     * 写入从 Redis 加载的登录用户；加载期间发生过失效则丢弃
+     * <p>
+     * 代次比对与写入在同一个键锁内完成：失效方先递增代次再删除条目，
+     * 比对通过的写入要么被随后的删除清掉，要么能看到已递增的代次而放弃。
+     * </p>
+     *
+     * @param uuid       令牌 uuid
+     * @param loginUser  登录用户
+     * @param generation 回源前的失效代次
+     */
+    public void putIfUnchanged(String uuid, LoginUser loginUser, long generation)
+    {
+        if (!enabled || loginUser == null)
+        {
+            return;
+        }
+        cache.asMap().compute(uuid, (key, current) -> this.generation.get() == generation ? loginUser : current);
+    }
+
+    /**
+     * 登录用户已写回 Redis：更新本地条目并通知其他节点丢弃旧条目
+     *
+     * @param uuid      令牌 uuid
+     * @param loginUser 登录用户
+     */
+    public void update(String uuid, LoginUser loginUser)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.put(uuid, loginUser);
+        publish(uuid);
+    }
+
+    /**
+     * 登录用户已从 Redis 删除：丢弃本地条目并通知其他节点
+     *
+     * @param uuid 令牌 uuid
+     */
+    public void invalidate(String uuid)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.invalidate(uuid);
+        localInvalidations.incrementAndGet();
+        publish(uuid);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern)
+    {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int idx = body.indexOf(SEPARATOR);
+        if (idx < 0 || body.substring(0, idx).equals(nodeId))
+        {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.invalidate(body.substring(idx + 1));
+        remoteInvalidations.incrementAndGet();
+    }
+
+    /**
+     * 近端缓存统计（监控用）
+     */
+    public Map<String, Object> stats()
+    {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxSize", maxSize);
+        stats.put("maxStaleSeconds", maxStaleSeconds);
+        stats.put("localInvalidations", localInvalidations.get());
+        stats.put("remoteInvalidations", remoteInvalidations.get());
+        stats.put("publishFailures", publishFailures.get());
+        CacheStats cs = cache.stats();
+        stats.put("size", cache.estimatedSize());
+        stats.put("hitCount", cs.hitCount());
+        stats.put("missCount", cs.missCount());
+        stats.put("hitRate", cs.hitRate());
+        stats.put("evictionCount", cs.evictionCount());
+        return stats;
+    }
+
+    private void publish(String uuid)
+    {
+        try
+        {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + uuid);
+        }
+        catch (Exception e)
+        {
+            // 其他节点的条目仍会在 maxStaleSeconds 内过期
+            publishFailures.incrementAndGet();
+            log.warn("登录用户失效广播失败 uuid={}, err={}", uuid, e.getMessage());
+        }
+    }
+
+    /**
+     * 条目过期时间：令牌到期时刻与 maxStaleSeconds 取早者
+     */
+    private static final class TokenExpiry implements Expiry<String, LoginUser>
+    {
+        private final long maxStaleNanos;
+
+        private TokenExpiry(long maxStaleNanos)
+        {
+            this.maxStaleNanos = maxStaleNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, LoginUser value, long currentTime)
+        {
+            Long expireTime = value.getExpireTime();
+            if (expireTime == null)
+            {
+                return maxStaleNanos;
+            }
+            long remaining = TimeUnit.MILLISECONDS.toNanos(expireTime - System.currentTimeMillis());
+            return Math.max(0L, Math.min(remaining, maxStaleNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, LoginUser value, long currentTime, long currentDuration)
+        {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, LoginUser value, long currentTime, long currentDuration)
+        {
+            return currentDuration;
+        }
+    }
+}
@@ -54,6 +54,9 @@ public class TokenService
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private LoginUserNearCache loginUserNearCache;
+
     /**
      * 获取用户身份信息
      *
@@ -70,8 +73,13 @@ public class TokenService
                 Claims claims = parseToken(token);
                 // 解析对应的权限以及用户信息
                 String uuid = (String) claims.get(Constants.LOGIN_USER_KEY);
-                String userKey = getTokenKey(uuid);
-                LoginUser user = redisCache.getCacheObject(userKey);
+                LoginUser user = loginUserNearCache.get(uuid);
+                if (user == null)
+                {
+                    long generation = loginUserNearCache.generation();
+                    user = redisCache.getCacheObject(getTokenKey(uuid));
+                    loginUserNearCache.putIfUnchanged(uuid, user, generation);
+                }
                 return user;
             }
             catch (Exception e)
@@ -102,6 +110,7 @@ public class TokenService
         {
             String userKey = getTokenKey(token);
             redisCache.deleteObject(userKey);
+            loginUserNearCache.invalidate(token);
         }
     }
 
@@ -152,6 +161,7 @@ public class TokenService
         // 根据uuid将loginUser缓存
         String userKey = getTokenKey(loginUser.getToken());
         redisCache.setCacheObject(userKey, loginUser, expireTime, TimeUnit.MINUTES);
+        loginUserNearCache.update(loginUser.getToken(), loginUser);
     }
 
     /**
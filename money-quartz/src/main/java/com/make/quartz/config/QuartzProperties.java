@@ -31,6 +31,17 @@ public class QuartzProperties {
      */
     private long backpressureSleepMs = 50L;
 
+    /**
+     * 监听器空闲时最长等待时间 (本节点入队、重试到期时会被提前唤醒；
+     * 其他节点入队不会唤醒本节点，该值即跨节点取任务的最坏延迟，默认与原固定轮询间隔一致)
+     */
+    private long listenerIdleMaxMs = 200L;
+
+    /**
+     * 时间轮预取的延迟消息时间窗 (超出窗口的由每秒推进任务后续纳入)
+     */
+    private long delayWheelHorizonMs = 60000L;
+
     /**
      * Producer Thread Pool (Scheduler)
      */
@@ -140,6 +151,12 @@ public class QuartzProperties {
     public long getBackpressureSleepMs() { return backpressureSleepMs; }
     public void setBackpressureSleepMs(long backpressureSleepMs) { this.backpressureSleepMs = backpressureSleepMs; }
 
+    public long getListenerIdleMaxMs() { return listenerIdleMaxMs; }
+    public void setListenerIdleMaxMs(long listenerIdleMaxMs) { this.listenerIdleMaxMs = listenerIdleMaxMs; }
+
+    public long getDelayWheelHorizonMs() { return delayWheelHorizonMs; }
+    public void setDelayWheelHorizonMs(long delayWheelHorizonMs) { this.delayWheelHorizonMs = delayWheelHorizonMs; }
+
     public int getProducerCoreSize() { return producerCoreSize; }
     public void setProducerCoreSize(int producerCoreSize) { this.producerCoreSize = producerCoreSize; }
 
@@ -57,6 +57,9 @@ public class SysJobController extends BaseController {
         if (!jobService.checkCronExpressionIsValid(job.getCronExpression())) {
             return error("新增任务失败，Cron 表达式不正确");
         }
+        if (!jobService.checkInvokeTargetIsValid(job.getInvokeTarget())) {
+            return error("新增任务失败，调用目标不存在或方法签名不匹配");
+        }
 
         int rows = jobService.insertJob(job);
         return rows > 0 ? success() : error("新增任务失败");
@@ -70,6 +73,9 @@ public class SysJobController extends BaseController {
         if (!jobService.checkCronExpressionIsValid(job.getCronExpression())) {
             return error("修改任务失败，Cron 表达式不正确");
         }
+        if (!jobService.checkInvokeTargetIsValid(job.getInvokeTarget())) {
+            return error("修改任务失败，调用目标不存在或方法签名不匹配");
+        }
 
         int rows = jobService.updateJob(job);
         return rows > 0 ? success() : error("修改任务失败");
@@ -53,9 +53,8 @@ public class SysJobExecutionLogController extends BaseController {
     @Log(title = "任务执行历史记录", businessType = BusinessType.EXPORT)
     @PostMapping("/export")
     public void export(HttpServletResponse response, SysJobExecutionLog sysJobExecutionLog) {
-        List<SysJobExecutionLog> list = sysJobExecutionLogService.selectSysJobExecutionLogList(sysJobExecutionLog);
         ExcelUtil<SysJobExecutionLog> util = new ExcelUtil<SysJobExecutionLog>(SysJobExecutionLog. class);
-        util.exportExcel(response, list, "任务执行历史记录数据");
+        util.exportExcelStream(response, "任务执行历史记录数据", handler -> sysJobExecutionLogService.streamSysJobExecutionLogList(sysJobExecutionLog, handler));
     }
 
     /**
@@ -6,6 +6,7 @@ import java.util.Map;
 import javax.servlet.http.HttpServletResponse;
 
 import com.make.quartz.domain.SysJobExecutionLog;
+import com.make.quartz.service.ExecutionJournal;
 import com.make.quartz.service.ISysJobExecutionLogService;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -48,6 +49,9 @@ public class SysJobRuntimeController extends BaseController {
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private ExecutionJournal executionJournal;
+
     private void populateDisplayStatus(List<SysJobRuntime> list) {
         if (list == null || list.isEmpty()) {
             return;
@@ -207,4 +211,13 @@ public class SysJobRuntimeController extends BaseController {
         return AjaxResult.success(data);
     }
 
+    /**
+     * 执行日志待落库积压与刷写统计
+     */
+    @PreAuthorize("@ss.hasPermi('quartz:runtime:list')")
+    @GetMapping("/journal")
+    public AjaxResult journal() {
+        return AjaxResult.success(executionJournal.stats());
+    }
+
 }
@@ -94,6 +94,14 @@ public interface SysJobRuntimeMapper {
      */
     int deleteByExecutionId(@Param("executionId") String executionId);
 
+    /**
+     * 根据 executionId 批量删除运行时任务
+     *
+     * @param executionIds 执行ID集合
+     * @return 影响行数
+     */
+    int deleteByExecutionIds(@Param("executionIds") List<String> executionIds);
+
     /**
      * 根据 executionId 查询运行时任务
      *
@@ -0,0 +1,398 @@
+package com.make.quartz.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.make.common.core.NodeRegistry;
+import com.make.common.utils.ThreadPoolUtil;
+import com.make.quartz.domain.SysJobExecutionLog;
+import com.make.quartz.mapper.SysJobExecutionLogMapper;
+import com.make.quartz.mapper.SysJobRuntimeMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务执行日志（write-behind）
+ *
+ * <p>执行结束时不再同步写库：
+ * 1) 一次 Redis Pipeline 内完成：执行记录追加到 {@link #JOURNAL_KEY}、写入完成标记、删除去重锁与运行时缓存
+ * 2) 后台每秒把一批记录从日志原子地移入本节点处理列表（{@link #PROCESSING_KEY_PREFIX} + nodeId），
+ *    多行插入 sys_job_execution_log 成功后才删除处理列表，再按 executionId 批量删除 sys_job_runtime
+ * 3) 落库前 sys_job_runtime 仍保留该行，恢复服务依据完成标记跳过，避免已完成的任务被重复执行
+ *
+ * <p>日志列表为所有节点共享，任一节点都可以刷写。入库失败或节点宕机时记录留在处理列表中，
+ * 下一轮刷写（包括重启后的第一轮，节点ID即IP，重启不变）先重放处理列表，不会丢失；
+ * 入库提交后、删除处理列表前宕机会导致该批重复入库一次。
+ *
+ * <p>同一批次连续失败 {@link #MAX_BATCH_FAILURES} 次后改为逐行写入：数据本身导致的失败（非连接类异常）
+ * 把该行移入死信列表 {@link #DEAD_LETTER_KEY}，其余行正常入库，避免一条坏记录让整批永远重放。
+ *
+ * <p>写入过处理列表的节点登记在 {@link #NODES_KEY}；节点心跳消失后，任一存活节点把它的处理列表放回日志头部，
+ * 不依赖宕机节点重启。
+ */
+@Component
+public class ExecutionJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionJournal.class);
+
+    /**
+     * 待落库的执行记录（JSON）
+     */
+    public static final String JOURNAL_KEY = "mq:job:journal";
+
+    /**
+     * 执行完成标记前缀，值为结束状态
+     */
+    public static final String DONE_KEY_PREFIX = "mq:job:done:";
+
+    /**
+     * 节点处理中的批次前缀，+ nodeId
+     */
+    public static final String PROCESSING_KEY_PREFIX = "mq:job:journal:processing:";
+
+    /**
+     * 逐行写入仍失败的记录（JSON），需人工排查
+     */
+    public static final String DEAD_LETTER_KEY = "mq:job:journal:dead";
+
+    /**
+     * 拥有处理列表的节点集合
+     */
+    public static final String NODES_KEY = "mq:job:journal:nodes";
+
+    private static final String DEDUP_KEY_PREFIX = "mq:job:dedup:";
+    private static final String RUNTIME_CACHE_PREFIX = "mq:job:runtime:";
+
+    /**
+     * 完成标记保留时长，与运行时缓存一致
+     */
+    private static final long DONE_TTL_SECONDS = 86400;
+
+    private static final long FLUSH_INTERVAL_MS = 1000;
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    /**
+     * 同一批次连续失败达到该次数后改为逐行写入
+     */
+    private static final int MAX_BATCH_FAILURES = 3;
+
+    /**
+     * 检查失联节点处理列表的间隔
+     */
+    private static final long ADOPT_INTERVAL_MS = 30_000;
+
+    /**
+     * 停机时最多刷写的批次数，避免积压过多时拖住关闭流程
+     */
+    private static final int DRAIN_MAX_BATCHES = 20;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private SysJobExecutionLogMapper sysJobExecutionLogMapper;
+
+    @Resource
+    private SysJobRuntimeMapper sysJobRuntimeMapper;
+
+    /**
+     * 注入以保证节点ID在构造处理列表键之前已初始化
+     */
+    @Resource
+    private NodeRegistry nodeRegistry;
+
+    private DefaultRedisScript<List> moveScript;
+
+    private DefaultRedisScript<Long> adoptScript;
+
+    private String processingKey;
+
+    private ScheduledFuture<?> flushFuture;
+
+    private ScheduledFuture<?> adoptFuture;
+
+    /**
+     * 当前处理列表中的批次已连续失败的次数，仅在 flush 的锁内读写
+     */
+    private int batchFailures;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong adopted = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // Script: MOVE_BATCH
+        // KEYS[1]=Journal, KEYS[2]=Processing, KEYS[3]=Nodes, ARGV[1]=Count, ARGV[2]=NodeId
+        // 处理列表非空时直接返回其中的批次（上一轮未确认，需重放）；
+        // 否则原子地把日志头部最多 Count 条移入处理列表并登记本节点，多节点同时刷写也不会重复入库
+        String moveLua = "local pending = redis.call('LRANGE', KEYS[2], 0, -1)\n" +
+                "if #pending > 0 then return pending end\n" +
+                "local items = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)\n" +
+                "if #items > 0 then\n" +
+                "    redis.call('LTRIM', KEYS[1], #items, -1)\n" +
+                "    redis.call('RPUSH', KEYS[2], unpack(items))\n" +
+                "    redis.call('SADD', KEYS[3], ARGV[2])\n" +
+                "end\n" +
+                "return items";
+        this.moveScript = new DefaultRedisScript<>(moveLua, List.class);
+
+        // Script: ADOPT_PROCESSING
+        // KEYS[1]=Processing (dead node), KEYS[2]=Journal, KEYS[3]=Nodes, ARGV[1]=NodeId
+        // 把失联节点未确认的批次按原顺序放回日志头部并注销该节点，返回放回的条数
+        String adoptLua = "local items = redis.call('LRANGE', KEYS[1], 0, -1)\n" +
+                "for i = #items, 1, -1 do\n" +
+                "    redis.call('LPUSH', KEYS[2], items[i])\n" +
+                "end\n" +
+                "redis.call('DEL', KEYS[1])\n" +
+                "redis.call('SREM', KEYS[3], ARGV[1])\n" +
+                "return #items";
+        this.adoptScript = new DefaultRedisScript<>(adoptLua, Long.class);
+        this.processingKey = PROCESSING_KEY_PREFIX + NodeRegistry.getCurrentNodeId();
+
+        // 首轮立即执行，重放上次停机时未确认的批次
+        flushFuture = ThreadPoolUtil.getScheduler()
+                .scheduleWithFixedDelay(this::flushSafely, 0, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        adoptFuture = ThreadPoolUtil.getScheduler()
+                .scheduleWithFixedDelay(this::adoptOrphans, ADOPT_INTERVAL_MS, ADOPT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        log.info("[JOURNAL_INIT] flushMs={} batchSize={} processingKey={}", FLUSH_INTERVAL_MS, FLUSH_BATCH_SIZE, processingKey);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        if (adoptFuture != null) {
+            adoptFuture.cancel(false);
+        }
+        drain();
+    }
+
+    /**
+     * 记录一次执行结束
+     *
+     * <p>同步完成：去重锁删除后调用方才能续约下一次调度。
+     *
+     * @param entry 执行记录
+     */
+    public void complete(SysJobExecutionLog entry) {
+        String executionId = entry.getExecutionId();
+        String json = JSON.toJSONString(entry);
+        String dedupKey = entry.getJobId() != null ? DEDUP_KEY_PREFIX + entry.getJobId() : null;
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.rPush(JOURNAL_KEY, json);
+            conn.setEx(DONE_KEY_PREFIX + executionId, DONE_TTL_SECONDS, entry.getStatus());
+            conn.del(RUNTIME_CACHE_PREFIX + executionId);
+            if (dedupKey != null) {
+                conn.del(dedupKey);
+            }
+            return null;
+        });
+        appended.incrementAndGet();
+    }
+
+    /**
+     * 执行是否已结束（结束记录可能尚未落库）
+     *
+     * @param executionId 执行ID
+     */
+    public boolean isDone(String executionId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(DONE_KEY_PREFIX + executionId));
+    }
+
+    /**
+     * 刷写一批执行记录（优先重放本节点处理列表中未确认的批次）
+     *
+     * @return 本批落库条数，没有待刷写记录时返回 0
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int flush() {
+        List<String> items = stringRedisTemplate.execute(moveScript,
+                Arrays.asList(JOURNAL_KEY, processingKey, NODES_KEY),
+                String.valueOf(FLUSH_BATCH_SIZE), NodeRegistry.getCurrentNodeId());
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+
+        List<SysJobExecutionLog> logs = new ArrayList<>(items.size());
+        List<String> raws = new ArrayList<>(items.size());
+        List<String> executionIds = new ArrayList<>(items.size());
+        List<String> unparseable = new ArrayList<>();
+        for (String item : items) {
+            try {
+                SysJobExecutionLog entry = JSON.parseObject(item, SysJobExecutionLog.class);
+                logs.add(entry);
+                raws.add(item);
+                if (entry.getExecutionId() != null) {
+                    executionIds.add(entry.getExecutionId());
+                }
+            } catch (Exception e) {
+                log.error("[JOURNAL_DROP] unparseable entry={}", item, e);
+                unparseable.add(item);
+            }
+        }
+        if (!logs.isEmpty()) {
+            try {
+                sysJobExecutionLogMapper.insertSysJobExecutionLogBatch(logs);
+            } catch (Exception e) {
+                flushFailures.incrementAndGet();
+                if (++batchFailures < MAX_BATCH_FAILURES) {
+                    // 批次留在处理列表，下一轮重放
+                    throw e;
+                }
+                log.warn("[JOURNAL_ROW_BY_ROW] batch failed {} times, retry row by row. size={} err={}",
+                        batchFailures, logs.size(), e.getMessage());
+                insertRowByRow(logs, raws);
+            }
+        }
+        batchFailures = 0;
+        unparseable.forEach(this::deadLetter);
+        // 入库已提交，确认批次
+        stringRedisTemplate.delete(processingKey);
+        if (logs.isEmpty()) {
+            return 0;
+        }
+        flushed.addAndGet(logs.size());
+        if (executionIds.isEmpty()) {
+            return logs.size();
+        }
+
+        try {
+            int rows = sysJobRuntimeMapper.deleteByExecutionIds(executionIds);
+            log.info("[JOURNAL_FLUSH] logs={} runtimeDeleted={}", logs.size(), rows);
+        } catch (Exception e) {
+            // 残留的运行时行带有完成标记，由恢复服务清理
+            log.error("[JOURNAL_RUNTIME_DELETE_FAIL] count={} err={}", executionIds.size(), e.getMessage());
+        }
+        return logs.size();
+    }
+
+    /**
+     * 逐行写入一个反复失败的批次
+     * <p>
+     * 数据本身导致的失败移入死信列表；连接类异常说明数据库不可用，已处理的行移出处理列表后抛出，
+     * 剩余行下一轮重放。
+     */
+    private void insertRowByRow(List<SysJobExecutionLog> logs, List<String> raws) {
+        for (int i = 0; i < logs.size(); i++) {
+            try {
+                sysJobExecutionLogMapper.insertSysJobExecutionLogBatch(Collections.singletonList(logs.get(i)));
+            } catch (Exception e) {
+                if (!isDataError(e)) {
+                    for (int j = 0; j < i; j++) {
+                        stringRedisTemplate.opsForList().remove(processingKey, 1, raws.get(j));
+                    }
+                    throw e;
+                }
+                log.error("[JOURNAL_DEAD_LETTER] executionId={} err={}", logs.get(i).getExecutionId(), e.getMessage());
+                deadLetter(raws.get(i));
+            }
+        }
+    }
+
+    /**
+     * 是否为数据本身导致的失败（约束冲突、字段超长、类型不符等），重试不会成功
+     */
+    private static boolean isDataError(Exception e) {
+        return e instanceof NonTransientDataAccessException && !(e instanceof NonTransientDataAccessResourceException);
+    }
+
+    private void deadLetter(String item) {
+        stringRedisTemplate.opsForList().rightPush(DEAD_LETTER_KEY, item);
+        deadLettered.incrementAndGet();
+    }
+
+    /**
+     * 接管心跳已消失节点的处理列表
+     */
+    private void adoptOrphans() {
+        try {
+            Set<String> nodes = stringRedisTemplate.opsForSet().members(NODES_KEY);
+            if (nodes == null || nodes.isEmpty()) {
+                return;
+            }
+            String self = NodeRegistry.getCurrentNodeId();
+            for (String node : nodes) {
+                if (node == null || node.equals(self) || nodeRegistry.isNodeAlive(node)) {
+                    continue;
+                }
+                Long count = stringRedisTemplate.execute(adoptScript,
+                        Arrays.asList(PROCESSING_KEY_PREFIX + node, JOURNAL_KEY, NODES_KEY), node);
+                if (count != null && count > 0) {
+                    adopted.addAndGet(count);
+                    log.warn("[JOURNAL_ADOPT] node={} heartbeat missing, requeued {} unconfirmed entries", node, count);
+                }
+            }
+        } catch (Exception e) {
+            log.error("[JOURNAL_ADOPT_ERR] err={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 尽量刷空日志（停机时调用）
+     */
+    public void drain() {
+        for (int i = 0; i < DRAIN_MAX_BATCHES; i++) {
+            try {
+                if (flush() < FLUSH_BATCH_SIZE) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("[JOURNAL_DRAIN_ERR] err={}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 日志统计（监控用）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", stringRedisTemplate.opsForList().size(JOURNAL_KEY));
+        stats.put("processing", stringRedisTemplate.opsForList().size(processingKey));
+        stats.put("appended", appended.get());
+        stats.put("flushed", flushed.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("deadLetter", stringRedisTemplate.opsForList().size(DEAD_LETTER_KEY));
+        stats.put("deadLettered", deadLettered.get());
+        stats.put("adopted", adopted.get());
+        return stats;
+    }
+
+    private void flushSafely() {
+        try {
+            // 积压时连续刷写，直到不足一批
+            int count;
+            do {
+                count = flush();
+            } while (count >= FLUSH_BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("[JOURNAL_FLUSH_ERR] err={}", e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.make.quartz.service;
 import java.util.List;
 
 import com.make.quartz.domain .SysJobExecutionLog;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 任务执行历史记录Service接口
@@ -28,6 +29,14 @@ public interface ISysJobExecutionLogService {
      */
     public List<SysJobExecutionLog> selectSysJobExecutionLogList(SysJobExecutionLog sysJobExecutionLog);
 
+    /**
+     * 流式查询任务执行历史记录列表，逐行回调，用于大数据量导出
+     *
+     * @param sysJobExecutionLog 查询条件
+     * @param handler 行回调
+     */
+    public void streamSysJobExecutionLogList(SysJobExecutionLog sysJobExecutionLog, ResultHandler<SysJobExecutionLog> handler);
+
     /**
      * 新增任务执行历史记录
      *
@@ -79,4 +79,12 @@ public interface ISysJobService {
      * @return true-合法；false-非法
      */
     boolean checkCronExpressionIsValid(String cronExpression);
+
+    /**
+     * 校验调用目标是否可执行（bean/类与方法均存在）
+     *
+     * @param invokeTarget 调用目标字符串
+     * @return true-合法；false-非法
+     */
+    boolean checkInvokeTargetIsValid(String invokeTarget);
 }
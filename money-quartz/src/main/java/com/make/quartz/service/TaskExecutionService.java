@@ -59,6 +59,9 @@ public class TaskExecutionService {
     @Autowired
     private TaskDistributor taskDistributor;
 
+    @Autowired
+    private ExecutionJournal executionJournal;
+
     private static final String DEDUP_KEY_PREFIX = "mq:job:dedup:";
     private static final String RUNTIME_CACHE_PREFIX = "mq:job:runtime:";
     private static final String TASK_MONITOR_PREFIX = "TASK_MONITOR:"; // Requirement 3
@@ -83,6 +86,9 @@ public class TaskExecutionService {
         log.info("[SHUTDOWN] Starting TaskExecutionService shutdown...");
         RedisMessageQueue.getInstance().stopListening();
 
+        // 先把已结束的执行落库，剩下的 RUNNING 才是真正未完成的
+        executionJournal.drain();
+
         try {
             String currentNodeId = NodeRegistry.getCurrentNodeId();
 
@@ -100,6 +106,11 @@ public class TaskExecutionService {
                         String execId = task.getExecutionId();
                         Long jobId = task.getJobId();
 
+                        if (executionJournal.isDone(execId)) {
+                            // 已执行结束、记录尚未落库，交由日志刷写或恢复服务清理
+                            continue;
+                        }
+
                         // 2. 清理 Redis 锁 (Dedup & Runtime & Monitor)
                         redisTemplate.delete(DEDUP_KEY_PREFIX + jobId);
                         redisTemplate.delete(RUNTIME_CACHE_PREFIX + execId);
@@ -242,36 +253,50 @@ public class TaskExecutionService {
 
     /**
      * 最终清理逻辑
+     *
+     * <p>执行记录写入 {@link ExecutionJournal}，由其批量落库并删除 sys_job_runtime；
+     * 去重锁与运行时缓存在同一 Pipeline 中同步删除，保证随后的续约能拿到去重锁。
      */
     private void handleFinalCleanup(String executionId, SysJob sysJob, String status, String errorMsg, Long duration, Date scheduledTime) {
+        SysJobExecutionLog logEntry = new SysJobExecutionLog();
+        logEntry.setExecutionId(executionId);
+        if (sysJob != null) {
+            logEntry.setJobId(sysJob.getJobId());
+            logEntry.setJobName(sysJob.getJobName());
+            logEntry.setJobGroup(sysJob.getJobGroup());
+            logEntry.setPayload(JSON.toJSONString(sysJob));
+        }
+        logEntry.setStatus(status);
+        logEntry.setNodeId(NodeRegistry.getCurrentNodeId());
+        logEntry.setStartTime(new Date(System.currentTimeMillis() - duration));
+        logEntry.setEndTime(new Date());
+        logEntry.setDurationMs(duration);
+        logEntry.setErrorMessage(errorMsg);
+        // Fix: ensure scheduledTime is set
+        logEntry.setScheduledTime(scheduledTime != null ? scheduledTime : logEntry.getStartTime());
+
         try {
-            // 1. 插入 sys_job_execution_log
-            SysJobExecutionLog logEntry = new SysJobExecutionLog();
-            logEntry.setExecutionId(executionId);
-            if (sysJob != null) {
-                logEntry.setJobId(sysJob.getJobId());
-                logEntry.setJobName(sysJob.getJobName());
-                logEntry.setJobGroup(sysJob.getJobGroup());
-                logEntry.setPayload(JSON.toJSONString(sysJob));
-            }
-            logEntry.setStatus(status);
-            logEntry.setNodeId(NodeRegistry.getCurrentNodeId());
-            logEntry.setStartTime(new Date(System.currentTimeMillis() - duration));
-            logEntry.setEndTime(new Date());
-            logEntry.setDurationMs(duration);
-            logEntry.setErrorMessage(errorMsg);
-            // Fix: ensure scheduledTime is set
-            logEntry.setScheduledTime(scheduledTime != null ? scheduledTime : logEntry.getStartTime());
+            executionJournal.complete(logEntry);
+            log.info("[EXEC_JOURNAL] jobId={} executionId={} status={}", sysJob != null ? sysJob.getJobId() : "?", executionId, status);
+        } catch (Exception e) {
+            // Redis 不可用时退回同步写库
+            log.error("[EXEC_JOURNAL_FAIL] executionId={} fallback=db", executionId, e);
+            fallbackCleanup(executionId, sysJob, logEntry);
+        }
+    }
 
+    /**
+     * 同步写库清理（日志不可用时的兜底）
+     */
+    private void fallbackCleanup(String executionId, SysJob sysJob, SysJobExecutionLog logEntry) {
+        try {
             int rows = sysJobExecutionLogMapper.insertSysJobExecutionLog(logEntry);
-            log.info("[EXEC_LOG_INSERT] jobId={} executionId={} status={} rows={}", sysJob != null ? sysJob.getJobId() : "?", executionId, status, rows);
-
+            log.info("[EXEC_LOG_INSERT] jobId={} executionId={} status={} rows={}", sysJob != null ? sysJob.getJobId() : "?", executionId, logEntry.getStatus(), rows);
         } catch (Exception e) {
             log.error("[EXEC_CLEANUP_LOG_FAIL] executionId={}", executionId, e);
         }
 
         try {
-            // 2. 删除 sys_job_runtime
             int rows = sysJobRuntimeMapper.deleteByExecutionId(executionId);
             log.info("[RUNTIME_DB_DELETE] jobId={} executionId={} rows={}", sysJob != null ? sysJob.getJobId() : "?", executionId, rows);
         } catch (Exception e) {
@@ -279,12 +304,10 @@ public class TaskExecutionService {
         }
 
         try {
-            // 3. 删除 Redis Keys
-            String jobIdStr = (sysJob != null) ? String.valueOf(sysJob.getJobId()) : "*";
             redisTemplate.delete(RUNTIME_CACHE_PREFIX + executionId);
-            redisTemplate.delete(DEDUP_KEY_PREFIX + jobIdStr);
-            log.info("[DEDUP_LOCK_DEL] jobId={}", jobIdStr);
-            log.info("[RUNTIME_CACHE_DEL] executionId={}", executionId);
+            if (sysJob != null) {
+                redisTemplate.delete(DEDUP_KEY_PREFIX + sysJob.getJobId());
+            }
         } catch (Exception e) {
              log.error("[EXEC_CLEANUP_REDIS_FAIL] executionId={}", executionId, e);
         }
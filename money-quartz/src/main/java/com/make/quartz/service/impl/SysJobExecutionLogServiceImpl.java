@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 import com.make.quartz.mapper.SysJobExecutionLogMapper;
 import com.make.quartz.domain.SysJobExecutionLog;
 import com.make.quartz.service.ISysJobExecutionLogService;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 任务执行历史记录Service业务层处理
@@ -42,6 +43,17 @@ public class SysJobExecutionLogServiceImpl implements ISysJobExecutionLogService
         return sysJobExecutionLogMapper.selectSysJobExecutionLogList(sysJobExecutionLog);
     }
 
+    /**
+     * 流式查询任务执行历史记录列表，逐行回调，用于大数据量导出
+     *
+     * @param sysJobExecutionLog 查询条件
+     * @param handler 行回调
+     */
+    @Override
+    public void streamSysJobExecutionLogList(SysJobExecutionLog sysJobExecutionLog, ResultHandler<SysJobExecutionLog> handler) {
+        sysJobExecutionLogMapper.streamSysJobExecutionLogList(sysJobExecutionLog, handler);
+    }
+
     /**
      * 新增任务执行历史记录
      *
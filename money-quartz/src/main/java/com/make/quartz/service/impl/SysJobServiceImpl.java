@@ -4,6 +4,7 @@ import com.make.common.utils.StringUtils;
 import com.make.quartz.domain.SysJob;
 import com.make.quartz.mapper.SysJobMapper;
 import com.make.quartz.service.ISysJobService;
+import com.make.quartz.util.JobInvokeUtil;
 import com.make.quartz.util.TaskDistributor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +14,10 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Resource;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -30,6 +34,11 @@ public class SysJobServiceImpl implements ISysJobService {
      */
     private final AtomicBoolean bootstrapped = new AtomicBoolean(false);
 
+    /**
+     * bootstrap 每批调度的任务数
+     */
+    private static final int BOOTSTRAP_BATCH_SIZE = 500;
+
     public SysJobServiceImpl(SysJobMapper jobMapper, TaskDistributor taskDistributor) {
         this.jobMapper = jobMapper;
         this.taskDistributor = taskDistributor;
@@ -53,14 +62,39 @@ public class SysJobServiceImpl implements ISysJobService {
 
         log.info("[JOB_BOOTSTRAP_START] trigger={} total={}", trigger, jobs.size());
 
+        // 启用任务按批走 TaskDistributor.scheduleBatch，每批固定往返次数
+        Map<SysJob, Long> batch = new LinkedHashMap<>();
+        Map<TaskDistributor.ScheduleOutcome, Integer> summary = new EnumMap<>(TaskDistributor.ScheduleOutcome.class);
         for (SysJob job : jobs) {
             if (!Objects.equals("0", job.getStatus())) {
                 continue;
             }
-            enqueueNextExecution(job);
+            Long nextAtMillis = nextExecutionMillis(job);
+            if (nextAtMillis == null) {
+                continue;
+            }
+            batch.put(job, nextAtMillis);
+            if (batch.size() >= BOOTSTRAP_BATCH_SIZE) {
+                scheduleBootstrapBatch(batch, summary);
+            }
         }
+        scheduleBootstrapBatch(batch, summary);
+
+        log.info("[JOB_BOOTSTRAP_DONE] trigger={} outcomes={}", trigger, summary);
+    }
 
-        log.info("[JOB_BOOTSTRAP_DONE] trigger={}", trigger);
+    private void scheduleBootstrapBatch(Map<SysJob, Long> batch, Map<TaskDistributor.ScheduleOutcome, Integer> summary) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Long, TaskDistributor.ScheduleOutcome> outcomes = taskDistributor.scheduleBatch(batch);
+        outcomes.forEach((jobId, outcome) -> {
+            summary.merge(outcome, 1, Integer::sum);
+            if (outcome == TaskDistributor.ScheduleOutcome.FAILED) {
+                log.warn("[JOB_BOOTSTRAP_FAIL] jobId={}", jobId);
+            }
+        });
+        batch.clear();
     }
 
     /* ========================= 查询接口 ========================= */
@@ -81,6 +115,7 @@ public class SysJobServiceImpl implements ISysJobService {
             return 0;
         }
 
+        evictInvokeTarget(job.getJobId());
         return jobMapper.deleteJobByIds(new Long[]{job.getJobId()});
     }
 
@@ -103,6 +138,7 @@ public class SysJobServiceImpl implements ISysJobService {
 
     @Override
     public int updateJob(SysJob job) {
+        evictInvokeTarget(job.getJobId());
         int rows = jobMapper.updateJob(job);
         if (rows > 0 && Objects.equals("0", job.getStatus())) {
             enqueueNextExecution(job);
@@ -143,10 +179,67 @@ public class SysJobServiceImpl implements ISysJobService {
         }
     }
 
+    @Override
+    public boolean checkInvokeTargetIsValid(String invokeTarget) {
+        if (StringUtils.isEmpty(invokeTarget)) {
+            return false;
+        }
+        try {
+            JobInvokeUtil.compile(invokeTarget);
+            return true;
+        } catch (Exception e) {
+            log.warn("[JOB_TARGET_INVALID] invokeTarget={} err={}", invokeTarget, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * 清除任务原调用目标的编译缓存
+     */
+    private void evictInvokeTarget(Long jobId) {
+        if (jobId == null) {
+            return;
+        }
+        SysJob old = jobMapper.selectJobById(jobId);
+        if (old != null) {
+            JobInvokeUtil.evict(old.getInvokeTarget());
+        }
+    }
+
     private void enqueueNextExecution(SysJob job) {
+        Long nextAtMillis = nextExecutionMillis(job);
+        if (nextAtMillis == null) {
+            return;
+        }
+
+        try {
+            taskDistributor.scheduleJob(job, nextAtMillis);
+
+            log.info(
+                    "[JOB_SCHEDULE] jobId={} jobName={} nextAtMillis={}",
+                    job.getJobId(),
+                    job.getJobName(),
+                    nextAtMillis
+            );
+        } catch (Exception e) {
+            log.warn(
+                    "[JOB_SCHEDULE_ERR] jobId={} cron={}",
+                    job.getJobId(),
+                    job.getCronExpression(),
+                    e
+            );
+        }
+    }
+
+    /**
+     * 计算任务下一次触发时间
+     *
+     * @return 毫秒时间戳；无 cron、cron 非法或无下一次时返回 null
+     */
+    private Long nextExecutionMillis(SysJob job) {
         String cron = job.getCronExpression();
         if (StringUtils.isEmpty(cron)) {
-            return;
+            return null;
         }
 
         try {
@@ -161,18 +254,9 @@ public class SysJobServiceImpl implements ISysJobService {
                         job.getJobName(),
                         cron
                 );
-                return;
+                return null;
             }
-
-            long nextAtMillis = nextTime.toInstant().toEpochMilli();
-            taskDistributor.scheduleJob(job, nextAtMillis);
-
-            log.info(
-                    "[JOB_SCHEDULE] jobId={} jobName={} nextAtMillis={}",
-                    job.getJobId(),
-                    job.getJobName(),
-                    nextAtMillis
-            );
+            return nextTime.toInstant().toEpochMilli();
         } catch (Exception e) {
             log.warn(
                     "[JOB_SCHEDULE_ERR] jobId={} cron={}",
@@ -180,6 +264,7 @@ public class SysJobServiceImpl implements ISysJobService {
                     cron,
                     e
             );
+            return null;
         }
     }
 }
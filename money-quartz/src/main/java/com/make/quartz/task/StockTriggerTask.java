@@ -84,6 +84,13 @@ public class StockTriggerTask {
         send(KafkaTopics.TOPIC_WATCH_STOCK_YEAR_LOW, "trigger");
     }
 
+    /**
+     * 触发：逐笔成交收盘汇总与分区维护
+     */
+    public void triggerTickRollup() {
+        send(KafkaTopics.TOPIC_STOCK_TICK_ROLLUP, "trigger");
+    }
+
     /**
      * 触发：股票价格刷新任务（Kline/Batch）
      */
@@ -5,6 +5,7 @@ import com.make.common.utils.ThreadPoolUtil;
 import com.make.common.utils.StringUtils;
 import com.make.quartz.domain.SysJob;
 import com.make.quartz.domain.SysJobRuntime;
+import com.make.quartz.service.ExecutionJournal;
 import com.make.quartz.service.ISysJobRuntimeService;
 import com.make.quartz.service.TaskExecutionService;
 import com.make.common.core.NodeRegistry;
@@ -39,6 +40,9 @@ public class TaskRecoveryService {
     @Resource
     private TaskExecutionService taskExecutionService;
 
+    @Resource
+    private ExecutionJournal executionJournal;
+
     private static final String DEDUP_KEY_PREFIX = "mq:job:dedup:";
     private static final String RUNTIME_CACHE_PREFIX = "mq:job:runtime:";
     private static final String TASK_MONITOR_PREFIX = "TASK_MONITOR:";
@@ -122,6 +126,10 @@ public class TaskRecoveryService {
                     Long jobId = task.getJobId();
                     String execId = task.getExecutionId();
 
+                    if (releaseIfDone(task)) {
+                        continue;
+                    }
+
                     // 1. 清理 Redis 锁，确保 recoverLostTasks 能识别到它（missing key）
                     redisTemplate.delete(DEDUP_KEY_PREFIX + jobId);
                     redisTemplate.delete(RUNTIME_CACHE_PREFIX + execId);
@@ -167,6 +175,9 @@ public class TaskRecoveryService {
                     // 2. 检查 Redis Dedup Key 是否丢失
                     // 判定依据：Redis 无，DB 有 (Active)
                     if (Boolean.FALSE.equals(redisTemplate.hasKey(dedupKey))) {
+                        if (releaseIfDone(runtime)) {
+                            continue;
+                        }
                         log.warn("[RECOVERY_TRIGGER] Found zombie task: jobId={} executionId={}. Redis key missing.", jobId, executionId);
                         recoveredCount++;
 
@@ -207,4 +218,19 @@ public class TaskRecoveryService {
             log.error("[RECOVERY_LOOP_ERR] Error in recovery loop", e);
         }
     }
+
+    /**
+     * 已执行结束但运行时行仍在（执行日志尚未落库或批量删除失败）：直接删除该行，不再恢复执行
+     *
+     * @return true 表示已结束
+     */
+    private boolean releaseIfDone(SysJobRuntime runtime) {
+        if (!executionJournal.isDone(runtime.getExecutionId())) {
+            return false;
+        }
+        sysJobRuntimeService.deleteSysJobRuntimeById(runtime.getId());
+        log.info("[RECOVERY_SKIP_DONE] jobId={} executionId={} already finished, runtime row removed",
+                runtime.getJobId(), runtime.getExecutionId());
+        return true;
+    }
 }
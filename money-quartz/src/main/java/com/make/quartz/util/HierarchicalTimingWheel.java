@@ -0,0 +1,223 @@
+package com.make.quartz.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 节点内分层时间轮
+ *
+ * <p>结构：
+ * - 第一层每格 tickMs，共 wheelSize 格；超出本层跨度的任务放入上一层（每格为下层整圈），按需创建
+ * - 只有非空的格子进入 DelayQueue，驱动线程按格子到期时间阻塞等待，空闲时不会空转
+ * - 高层格子到期后其中任务重新放入低层，直到落在第一层对应的格子上执行
+ *
+ * <p>任务在驱动线程上执行，只适合做唤醒、提交线程池这类轻量动作。
+ */
+public class HierarchicalTimingWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    private final DelayQueue<Bucket> queue = new DelayQueue<>();
+    private final Level root;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Thread driver;
+    private volatile boolean running = true;
+
+    /**
+     * @param tickMs    第一层每格时长（毫秒）
+     * @param wheelSize 每层格数
+     * @param name      驱动线程名
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, String name) {
+        this.root = new Level(tickMs, wheelSize, System.currentTimeMillis(), queue);
+        this.driver = new Thread(this::runDriver, name);
+        this.driver.setDaemon(true);
+        this.driver.start();
+    }
+
+    /**
+     * 在指定时刻执行任务，已到期的任务立即在调用线程执行
+     *
+     * @param dueAtMillis 到期时间戳（毫秒）
+     * @param task        任务
+     */
+    public void schedule(long dueAtMillis, Runnable task) {
+        Entry entry = new Entry(dueAtMillis, task);
+        boolean added;
+        synchronized (this) {
+            added = root.add(entry);
+        }
+        if (added) {
+            size.incrementAndGet();
+        } else {
+            runQuietly(task);
+        }
+    }
+
+    /**
+     * 尚未到期的任务数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public void shutdown() {
+        running = false;
+        driver.interrupt();
+    }
+
+    private void runDriver() {
+        while (running) {
+            try {
+                Bucket bucket = queue.poll(1, TimeUnit.SECONDS);
+                while (bucket != null) {
+                    List<Entry> entries;
+                    List<Entry> due = new ArrayList<>();
+                    synchronized (this) {
+                        root.advanceClock(bucket.getExpiration());
+                        entries = bucket.flush();
+                        for (Entry entry : entries) {
+                            // 高层格子里的任务降级到低层，降不下去说明已到期
+                            if (!root.add(entry)) {
+                                due.add(entry);
+                            }
+                        }
+                    }
+                    size.addAndGet(-due.size());
+                    for (Entry entry : due) {
+                        runQuietly(entry.task);
+                    }
+                    bucket = queue.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("[TIMING_WHEEL_ERR] {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void runQuietly(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.warn("[TIMING_WHEEL_TASK_ERR] {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 时间轮的一层（调用方持有外部锁）
+     */
+    private static final class Level {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket[] buckets;
+        private final DelayQueue<Bucket> queue;
+        private long currentTime;
+        private Level overflow;
+
+        private Level(long tickMs, int wheelSize, long startMs, DelayQueue<Bucket> queue) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.queue = queue;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        /**
+         * @return false 表示已到期（不足一格），需立即执行
+         */
+        private boolean add(Entry entry) {
+            long expiration = entry.dueAt;
+            if (expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level(interval, wheelSize, currentTime, queue);
+            }
+            return overflow.add(entry);
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一格内的任务，按格子到期时间进入 DelayQueue
+     */
+    private static final class Bucket implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private final List<Entry> entries = new ArrayList<>();
+
+        private void add(Entry entry) {
+            entries.add(entry);
+        }
+
+        /**
+         * @return true 表示到期时间变化（格子被复用），需要重新放入 DelayQueue
+         */
+        private boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        private long getExpiration() {
+            return expiration.get();
+        }
+
+        private List<Entry> flush() {
+            List<Entry> flushed = new ArrayList<>(entries);
+            entries.clear();
+            expiration.set(-1L);
+            return flushed;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(0L, getExpiration() - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+        }
+    }
+
+    private static final class Entry {
+        private final long dueAt;
+        private final Runnable task;
+
+        private Entry(long dueAt, Runnable task) {
+            this.dueAt = dueAt;
+            this.task = task;
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.make.quartz.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import com.make.common.utils.StringUtils;
 import com.make.common.utils.spring.SpringUtils;
@@ -11,10 +18,21 @@ import com.make.quartz.domain.SysJob;
 
 /**
  * 任务执行工具
+ * <p>
+ * 调用目标首次执行时解析为 {@link CompiledTarget} 并按 invokeTarget 缓存：
+ * 方法句柄已绑定参数，单例 bean 直接持有实例，之后每次执行不再解析字符串和反射查找方法。
+ * 缓存键即 invokeTarget 本身，目标修改后自然生成新条目，旧条目在任务修改、删除时清除。
+ * </p>
  *
  * @author ruoyi
  */
 public class JobInvokeUtil {
+
+    /**
+     * 已编译的调用目标
+     */
+    private static final Map<String, CompiledTarget> COMPILED = new ConcurrentHashMap<>();
+
     /**
      * 执行方法
      *
@@ -22,35 +40,95 @@ public class JobInvokeUtil {
      */
     public static void invokeMethod(SysJob sysJob) throws Exception {
         String invokeTarget = sysJob.getInvokeTarget();
+        CompiledTarget target = COMPILED.get(invokeTarget);
+        if (target == null) {
+            target = compile(invokeTarget);
+            COMPILED.put(invokeTarget, target);
+        }
+        target.invoke();
+    }
+
+    /**
+     * 解析调用目标并生成方法句柄，目标不存在时抛出异常（保存任务时用于校验）
+     *
+     * @param invokeTarget 调用目标字符串
+     * @return 编译后的调用目标
+     */
+    public static CompiledTarget compile(String invokeTarget) throws Exception {
         String beanName = getBeanName(invokeTarget);
         String methodName = getMethodName(invokeTarget);
         List<Object[]> methodParams = getMethodParams(invokeTarget);
 
+        Supplier<Object> beanSupplier;
+        Class<?> beanClass;
         if (!isValidClassName(beanName)) {
             Object bean = SpringUtils.getBean(beanName);
-            invokeMethod(bean, methodName, methodParams);
+            beanClass = bean.getClass();
+            // 非单例 bean 每次执行重新获取，保持原有语义
+            beanSupplier = SpringUtils.isSingleton(beanName) ? () -> bean : () -> SpringUtils.getBean(beanName);
         } else {
-            Object bean = Class.forName(beanName).getDeclaredConstructor().newInstance();
-            invokeMethod(bean, methodName, methodParams);
+            Class<?> clazz = Class.forName(beanName);
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            beanClass = clazz;
+            beanSupplier = () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("实例化任务类失败: " + beanName, e);
+                }
+            };
         }
+
+        Method method;
+        Object[] args;
+        if (StringUtils.isNotNull(methodParams) && methodParams.size() > 0) {
+            method = beanClass.getMethod(methodName, getMethodParamsType(methodParams));
+            args = getMethodParamsValue(methodParams);
+        } else {
+            method = beanClass.getMethod(methodName);
+            args = new Object[0];
+        }
+        // 方法可能声明在非 public 父类中，与 Method.invoke 一样需放开访问检查
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method);
+        handle = MethodHandles.insertArguments(handle, 1, args)
+                .asType(MethodType.methodType(void.class, Object.class));
+        return new CompiledTarget(beanSupplier, handle);
     }
 
     /**
-     * 调用任务方法
+     * 清除调用目标的编译缓存
      *
-     * @param bean         目标对象
-     * @param methodName   方法名称
-     * @param methodParams 方法参数
+     * @param invokeTarget 调用目标字符串
      */
-    private static void invokeMethod(Object bean, String methodName, List<Object[]> methodParams)
-            throws NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException,
-            InvocationTargetException {
-        if (StringUtils.isNotNull(methodParams) && methodParams.size() > 0) {
-            Method method = bean.getClass().getMethod(methodName, getMethodParamsType(methodParams));
-            method.invoke(bean, getMethodParamsValue(methodParams));
-        } else {
-            Method method = bean.getClass().getMethod(methodName);
-            method.invoke(bean);
+    public static void evict(String invokeTarget) {
+        if (invokeTarget != null) {
+            COMPILED.remove(invokeTarget);
+        }
+    }
+
+    /**
+     * 编译后的调用目标：bean 获取方式 + 已绑定参数的方法句柄 (Object)void
+     */
+    public static final class CompiledTarget {
+        private final Supplier<Object> beanSupplier;
+        private final MethodHandle handle;
+
+        private CompiledTarget(Supplier<Object> beanSupplier, MethodHandle handle) {
+            this.beanSupplier = beanSupplier;
+            this.handle = handle;
+        }
+
+        /**
+         * 执行目标方法，目标方法抛出的异常包装为 InvocationTargetException（与反射调用一致）
+         */
+        void invoke() throws InvocationTargetException {
+            Object bean = beanSupplier.get();
+            try {
+                handle.invokeExact(bean);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
         }
     }
 
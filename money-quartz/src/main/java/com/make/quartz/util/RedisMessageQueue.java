@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Component;
@@ -19,6 +20,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Redis 队列调度与消费中心（Redis-only 引擎）
@@ -33,6 +35,12 @@ import java.util.concurrent.*;
  * - 全局 Delay ZSET：mq:delay:global
  * - 处理中队列（归属）：mq:task:processing:{ownerIp}
  * - 任务元数据：mq:task:meta:{executionId} (owner, processingAt)
+ *
+ * <p>节点内时间轮：
+ * - Delay ZSET 中未来 delayWheelHorizonMs 内的到期时刻（本节点入队的 + 每秒预取的）放入时间轮，到点立即推进
+ * - 本节点的重试到期时刻同样放入时间轮，到点唤醒监听线程
+ * - 监听线程空闲时按退避等待，本节点入队、推进或重试到期时被提前唤醒，减少空轮询的 Lua 调用
+ * - Redis 仍是唯一可信来源：推进脚本原子去重，每秒的推进任务兜底
  */
 @Component
 public class RedisMessageQueue implements SmartLifecycle {
@@ -54,6 +62,21 @@ public class RedisMessageQueue implements SmartLifecycle {
     private static final String LOCAL_RETRY_PREFIX = "mq:retry:";
     private static final String NODE_FUSED_PREFIX = "mq:node:fused:";
 
+    /**
+     * 监听线程空闲等待的初始值（毫秒），连续空轮询时翻倍至 listenerIdleMaxMs；listenerIdleMaxMs 更小时以其为准
+     */
+    private static final long LISTENER_IDLE_MIN_MS = 200L;
+
+    /**
+     * 本地重试队列无到期消息时的复查间隔（兜底，正常由时间轮唤醒）
+     */
+    private static final long LOCAL_RETRY_RECHECK_MS = 5000L;
+
+    /**
+     * 单次预取进时间轮的延迟消息上限
+     */
+    private static final int DELAY_PREFETCH_LIMIT = 200;
+
     /**
      * 是否运行（生命周期）
      */
@@ -79,6 +102,28 @@ public class RedisMessageQueue implements SmartLifecycle {
      */
     private ScheduledExecutorService internalScheduler;
 
+    /**
+     * 节点内时间轮：延迟消息推进、本地重试唤醒
+     */
+    private HierarchicalTimingWheel delayWheel;
+
+    /**
+     * 已放入时间轮的推进时刻，同一时刻只推进一次
+     */
+    private final Set<Long> wheelPromoteTimes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 监听线程唤醒信号
+     */
+    private final Object idleMonitor = new Object();
+    private final AtomicLong wakeups = new AtomicLong();
+
+    /**
+     * 本地重试队列下次检查时间；时间轮到期时清零并递增 epoch
+     */
+    private volatile long localRetryCheckAt = 0L;
+    private final AtomicLong localRetryEpoch = new AtomicLong();
+
     // Lua Scripts
     private DefaultRedisScript<String> pollScript;
     private DefaultRedisScript<String> pollLocalRetryScript;
@@ -128,11 +173,14 @@ public class RedisMessageQueue implements SmartLifecycle {
             return t;
         });
 
-        // 1. 启动定时任务：推进 Delayed 消息 (Global)
+        this.delayWheel = new HierarchicalTimingWheel(1, 64, "redis-queue-timing-wheel");
+
+        // 1. 启动定时任务：推进 Delayed 消息 (Global)，并预取下一时间窗的到期时刻
         this.internalScheduler.scheduleWithFixedDelay(() -> {
             if (running) {
                 try {
                     promoteDueDelayedMessages();
+                    prefetchDelayHorizon();
                 } catch (Exception e) {
                     log.warn("[RMQ_PROMOTE_ERR] {}", e.getMessage());
                 }
@@ -274,20 +322,34 @@ public class RedisMessageQueue implements SmartLifecycle {
 
         log.info("[RMQ_START] Starting global listening on node={} concurrency={}", currentNodeId, concurrency);
 
+        loadLocalRetryWakeups();
+
         for (int i = 0; i < concurrency; i++) {
             listenerExecutor.submit(() -> runListenerLoop(handler));
         }
     }
 
     private void runListenerLoop(MessageHandler handler) {
+        long idleMs = idleFloorMs();
         while (running && !Thread.currentThread().isInterrupted()) {
             TaskMessage msg = null;
             try {
+                long seenWakeups = wakeups.get();
+                String msgRaw = null;
+
                 // 1. Poll Local Retry (Priority 1)
                 // Always check local retry first, even if fused (it's our own mess to clean up)
-                String msgRaw = redisTemplate.execute(pollLocalRetryScript,
-                        Collections.singletonList(LOCAL_RETRY_PREFIX + currentNodeId),
-                        currentNodeId, String.valueOf(System.currentTimeMillis()), META_PREFIX, PROCESSING_PREFIX);
+                // 仅在时间轮提示有到期重试或到达复查时间时调用，避免每轮都执行 Lua
+                long now = System.currentTimeMillis();
+                if (now >= localRetryCheckAt) {
+                    long epoch = localRetryEpoch.get();
+                    msgRaw = redisTemplate.execute(pollLocalRetryScript,
+                            Collections.singletonList(LOCAL_RETRY_PREFIX + currentNodeId),
+                            currentNodeId, String.valueOf(now), META_PREFIX, PROCESSING_PREFIX);
+                    if (msgRaw == null && localRetryEpoch.get() == epoch) {
+                        localRetryCheckAt = now + LOCAL_RETRY_RECHECK_MS;
+                    }
+                }
 
                 // 2. Poll Global (Priority 2)
                 if (msgRaw == null) {
@@ -305,10 +367,14 @@ public class RedisMessageQueue implements SmartLifecycle {
                 }
 
                 if (msgRaw == null) {
-                    // Empty queue, sleep to avoid spin
-                    Thread.sleep(200);
+                    // Empty queue: 退避等待，本节点有新消息时提前唤醒
+                    boolean woken = awaitWork(seenWakeups, idleMs);
+                    long floor = idleFloorMs();
+                    idleMs = woken ? floor
+                            : Math.min(idleMs * 2, Math.max(floor, quartzProperties.getListenerIdleMaxMs()));
                     continue;
                 }
+                idleMs = idleFloorMs();
 
                 // Parse: <executionId>|<priority>\n<json>
                 int p = msgRaw.indexOf('\n');
@@ -370,6 +436,74 @@ public class RedisMessageQueue implements SmartLifecycle {
 
     public void stopListening() {
         this.running = false;
+        signalWork();
+    }
+
+    /**
+     * 空闲等待下限：取 LISTENER_IDLE_MIN_MS 与 listenerIdleMaxMs 中较小者（至少 10ms）
+     */
+    private long idleFloorMs() {
+        return Math.max(10L, Math.min(LISTENER_IDLE_MIN_MS, quartzProperties.getListenerIdleMaxMs()));
+    }
+
+    /**
+     * 空闲等待，期间收到唤醒信号立即返回
+     *
+     * @return true 表示被唤醒，false 表示等待超时
+     */
+    private boolean awaitWork(long seenWakeups, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (idleMonitor) {
+            while (running && wakeups.get() == seenWakeups) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                idleMonitor.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 唤醒空闲的监听线程
+     */
+    private void signalWork() {
+        wakeups.incrementAndGet();
+        synchronized (idleMonitor) {
+            idleMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * 本地重试到期时刻放入时间轮，到点让监听线程检查本地重试队列
+     */
+    private void scheduleLocalRetryWakeup(long dueAtMillis) {
+        delayWheel.schedule(dueAtMillis, () -> {
+            localRetryEpoch.incrementAndGet();
+            localRetryCheckAt = 0L;
+            signalWork();
+        });
+    }
+
+    /**
+     * 启动时把本节点遗留的重试消息到期时刻放入时间轮
+     */
+    private void loadLocalRetryWakeups() {
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                    .rangeWithScores(LOCAL_RETRY_PREFIX + currentNodeId, 0, DELAY_PREFETCH_LIMIT - 1);
+            if (tuples == null) {
+                return;
+            }
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getScore() != null) {
+                    scheduleLocalRetryWakeup(tuple.getScore().longValue());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[RMQ_LOCAL_RETRY_LOAD_ERR] {}", e.getMessage());
+        }
     }
 
     /**
@@ -432,6 +566,7 @@ public class RedisMessageQueue implements SmartLifecycle {
                 msg.setOriginalJson(newRaw);
 
                 redisTemplate.opsForZSet().add(LOCAL_RETRY_PREFIX + currentNodeId, newRaw, nextAt);
+                scheduleLocalRetryWakeup(nextAt);
 
                 log.warn("[RMQ_LOCAL_RETRY] executionId={} nodeRetry={} nextAt={} err={}",
                         execId, msg.getRetryCount(), nextAt, e.getMessage());
@@ -485,6 +620,10 @@ public class RedisMessageQueue implements SmartLifecycle {
             enqueueInPipeline(connection, sysJob, sysJob.getTraceId(), priority, scheduledAtMillis);
             return null;
         });
+        if (scheduledAtMillis <= System.currentTimeMillis()) {
+            // 本节点续约的下一次执行可被本节点监听线程立即取走
+            signalWork();
+        }
     }
 
     /**
@@ -524,6 +663,7 @@ public class RedisMessageQueue implements SmartLifecycle {
             }
         } else {
             connection.zAdd(GLOBAL_DELAY_ZSET.getBytes(), scheduledAtMillis, rawBytes);
+            scheduleDelayWakeup(scheduledAtMillis);
         }
     }
 
@@ -531,17 +671,63 @@ public class RedisMessageQueue implements SmartLifecycle {
      * Promote Delayed Messages (Global)
      */
     private void promoteDueDelayedMessages() {
-        long now = System.currentTimeMillis();
         int batch = 50;
+        long total = 0;
+        Long count;
+        do {
+            // Use Lua for atomicity
+            count = redisTemplate.execute(promoteScript,
+                    Arrays.asList(GLOBAL_DELAY_ZSET, GLOBAL_QUEUE_HIGH, GLOBAL_QUEUE_NORMAL),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(batch));
+            total += count != null ? count : 0;
+        } while (count != null && count >= batch);
+
+        if (total > 0) {
+            log.debug("[RMQ_PROMOTE] Promoted {} tasks", total);
+            signalWork();
+        }
+    }
 
-        // Use Lua for atomicity
-        Long count = redisTemplate.execute(promoteScript,
-                Arrays.asList(GLOBAL_DELAY_ZSET, GLOBAL_QUEUE_HIGH, GLOBAL_QUEUE_NORMAL),
-                String.valueOf(now), String.valueOf(batch));
+    /**
+     * 预取下一时间窗内的延迟消息到期时刻放入时间轮（包含其他节点入队的消息）
+     */
+    private void prefetchDelayHorizon() {
+        long now = System.currentTimeMillis();
+        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().rangeByScoreWithScores(
+                GLOBAL_DELAY_ZSET, now, now + quartzProperties.getDelayWheelHorizonMs(), 0, DELAY_PREFETCH_LIMIT);
+        if (tuples == null) {
+            return;
+        }
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            if (tuple.getScore() != null) {
+                scheduleDelayWakeup(tuple.getScore().longValue());
+            }
+        }
+    }
 
-        if (count != null && count > 0) {
-            log.debug("[RMQ_PROMOTE] Promoted {} tasks", count);
+    /**
+     * 延迟消息到期时刻放入时间轮，到点在内部调度器上推进；超出时间窗的由预取纳入
+     */
+    private void scheduleDelayWakeup(long dueAtMillis) {
+        if (delayWheel == null || dueAtMillis > System.currentTimeMillis() + quartzProperties.getDelayWheelHorizonMs()) {
+            return;
+        }
+        if (!wheelPromoteTimes.add(dueAtMillis)) {
+            return;
         }
+        delayWheel.schedule(dueAtMillis, () -> {
+            wheelPromoteTimes.remove(dueAtMillis);
+            if (!running) {
+                return;
+            }
+            internalScheduler.execute(() -> {
+                try {
+                    promoteDueDelayedMessages();
+                } catch (Exception e) {
+                    log.warn("[RMQ_PROMOTE_ERR] {}", e.getMessage());
+                }
+            });
+        });
     }
 
     /**
@@ -651,6 +837,7 @@ public class RedisMessageQueue implements SmartLifecycle {
     @PreDestroy
     public void shutdown() {
         stopListening();
+        if (delayWheel != null) delayWheel.shutdown();
         if (internalScheduler != null) internalScheduler.shutdownNow();
         if (listenerExecutor != null) listenerExecutor.shutdownNow();
         if (consumerExecutor != null) consumerExecutor.shutdownNow();
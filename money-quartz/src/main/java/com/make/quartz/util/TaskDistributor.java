@@ -10,11 +10,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -84,52 +90,105 @@ public class TaskDistributor {
         return performThreeStageWrite(sysJob, executionId, scheduledAt, dedupKey);
     }
 
+    /**
+     * 批量调度任务的单个结果
+     */
+    public enum ScheduleOutcome {
+        /**
+         * 已入队
+         */
+        SCHEDULED,
+        /**
+         * 去重锁已被占用（上一次执行未结束）
+         */
+        DEDUPLICATED,
+        /**
+         * 写库或入队失败
+         */
+        FAILED
+    }
+
     /**
      * 批量调度任务（提升吞吐量）
      *
      * @param sysJobs     任务列表
      * @param scheduledAt 计划执行时间（毫秒），若为0或小于当前时间则视为立即执行
-     * @return 成功调度的任务数
+     * @return 任务ID -> 调度结果
      */
-    public int scheduleBatch(List<SysJob> sysJobs, long scheduledAt) {
-        if (sysJobs == null || sysJobs.isEmpty()) {
-            return 0;
+    public Map<Long, ScheduleOutcome> scheduleBatch(List<SysJob> sysJobs, long scheduledAt) {
+        Map<SysJob, Long> jobs = new LinkedHashMap<>();
+        if (sysJobs != null) {
+            for (SysJob job : sysJobs) {
+                jobs.put(job, scheduledAt);
+            }
         }
+        return scheduleBatch(jobs);
+    }
 
-        // 1. 批量准备数据
-        List<SysJobRuntime> insertList = new java.util.ArrayList<>();
-        List<SysJob> validJobs = new java.util.ArrayList<>();
-        List<String> validExecutionIds = new java.util.ArrayList<>();
+    /**
+     * 批量调度任务，每个任务可带各自的计划时间
+     *
+     * <p>固定 3 次 Redis 往返 + 1 次 DB 写入，与任务数无关：
+     * 1) 一个 Pipeline 批量 SET NX 去重锁，逐个返回是否抢到
+     * 2) 抢到的任务一条 INSERT IGNORE 写入 sys_job_runtime（入队时间随行写入）
+     * 3) 一个 Pipeline 写运行时缓存并入队；失败时一次性删除去重锁
+     *
+     * @param jobs 任务 -> 计划执行时间（毫秒）
+     * @return 任务ID -> 调度结果（按入参顺序）
+     */
+    public Map<Long, ScheduleOutcome> scheduleBatch(Map<SysJob, Long> jobs) {
+        Map<Long, ScheduleOutcome> outcomes = new LinkedHashMap<>();
+        if (jobs == null || jobs.isEmpty()) {
+            return outcomes;
+        }
 
-        long now = System.currentTimeMillis();
         long dedupTtlSeconds = 7200;
+        List<SysJob> candidates = new ArrayList<>(jobs.keySet());
+        List<String> executionIds = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            executionIds.add(IdUtils.fastSimpleUUID());
+        }
 
-        for (SysJob job : sysJobs) {
-            String executionId = IdUtils.fastSimpleUUID();
-            Long jobId = job.getJobId();
-            String dedupKey = DEDUP_KEY_PREFIX + jobId;
-
-            try {
-                // Redis 去重 (简单循环，可优化为 Pipeline)
-                // 这里为了简单稳健，仍然逐个 check，但因为去掉了 DB check，速度会很快
-                Boolean locked = redisTemplate.opsForValue().setIfAbsent(dedupKey, executionId, dedupTtlSeconds, TimeUnit.SECONDS);
-                if (locked == null || !locked) {
-                    continue;
+        // 1. 批量抢占去重锁
+        List<Object> claims = null;
+        try {
+            claims = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < candidates.size(); i++) {
+                    connection.set((DEDUP_KEY_PREFIX + candidates.get(i).getJobId()).getBytes(),
+                            executionIds.get(i).getBytes(),
+                            Expiration.seconds(dedupTtlSeconds),
+                            RedisStringCommands.SetOption.ifAbsent());
                 }
-            } catch (Exception e) {
-                // Redis error, proceed to DB check via constraint
-                log.error("[BATCH_DEDUP_ERR] jobId={} ex={}", jobId, e.getMessage());
+                return null;
+            });
+        } catch (Exception e) {
+            // Redis error -> 与单个调度一致，继续依靠 DB 约束兜底
+            log.error("[BATCH_DEDUP_ERR] count={} ex={}", candidates.size(), e.getMessage());
+        }
+
+        List<SysJobRuntime> insertList = new ArrayList<>();
+        List<SysJob> validJobs = new ArrayList<>();
+        List<String> validExecutionIds = new ArrayList<>();
+        Date now = new Date();
+
+        for (int i = 0; i < candidates.size(); i++) {
+            SysJob job = candidates.get(i);
+            if (claims != null && !Boolean.TRUE.equals(claims.get(i))) {
+                outcomes.putIfAbsent(job.getJobId(), ScheduleOutcome.DEDUPLICATED);
+                continue;
             }
+            String executionId = executionIds.get(i);
+            long scheduledAt = jobs.get(job) != null ? jobs.get(job) : 0L;
 
             // 构建 Runtime 对象
             SysJobRuntime runtime = new SysJobRuntime();
-            runtime.setJobId(jobId);
+            runtime.setJobId(job.getJobId());
             runtime.setJobName(job.getJobName());
             runtime.setJobGroup(job.getJobGroup());
             runtime.setExecutionId(executionId);
             runtime.setStatus("WAITING");
-            runtime.setScheduledTime(scheduledAt > 0 ? new Date(scheduledAt) : new Date());
-            runtime.setEnqueueTime(new Date());
+            runtime.setScheduledTime(scheduledAt > 0 ? new Date(scheduledAt) : now);
+            runtime.setEnqueueTime(now);
             runtime.setRetryCount(0L);
             runtime.setMaxRetry(3L);
             runtime.setPayload(JSON.toJSONString(job));
@@ -143,30 +202,23 @@ public class TaskDistributor {
         }
 
         if (insertList.isEmpty()) {
-            return 0;
+            return outcomes;
         }
 
-        // 2. 批量写 DB
+        // 2. 批量写 DB（INSERT IGNORE）
         try {
-            // 这里假设 DB 有唯一约束 (job_id + status 组合 或类似)
-            // 如果 Mybatis 批量插入遇到 Duplicate Key 会整个失败吗？
-            // 通常是。如果为了极致稳定性，这里应该用 "INSERT IGNORE" 或 "ON DUPLICATE KEY UPDATE"
-            // 但标准 insertSysJobRuntimeBatch 可能是普通 insert。
-            // 鉴于我们已经过了 Redis 锁，冲突概率很低。如果冲突，这批任务失败，由重试机制处理。
             sysJobRuntimeMapper.insertSysJobRuntimeBatch(insertList);
             log.info("[BATCH_DB_INSERT] count={}", insertList.size());
         } catch (Exception e) {
             log.error("[BATCH_DB_FAIL] ex={}", e.getMessage());
-            // 回滚 Redis 锁
-            for (SysJob job : validJobs) {
-                redisTemplate.delete(DEDUP_KEY_PREFIX + job.getJobId());
-            }
-            return 0;
+            releaseDedupKeys(validJobs);
+            markFailed(outcomes, validJobs);
+            return outcomes;
         }
 
         // 3. 批量写 Cache & Enqueue (Pipeline)
         try {
-            redisTemplate.executePipelined((org.springframework.data.redis.core.RedisCallback<Object>) connection -> {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
                 for (int i = 0; i < validJobs.size(); i++) {
                     SysJob job = validJobs.get(i);
                     String execId = validExecutionIds.get(i);
@@ -181,36 +233,57 @@ public class TaskDistributor {
                     );
 
                     // 3.2 Enqueue
-                    // Job with id = 30 is temporarily treated as highest priority.
-                    // TODO: Remove this hardcoded logic once SysJob.priority is fully supported (DB + Mapper + UI).
-                    String priority;
-                    if (Long.valueOf(30L).equals(job.getJobId())) {
-                        priority = "HIGH";
-                    } else {
-                        priority = StringUtils.isEmpty(job.getPriority()) ? "NORMAL" : job.getPriority();
-                    }
-
-                    // Use injected instance instead of getInstance() for better testability/pattern
                     // Force immediate enqueue regardless of scheduled time
-                    redisMessageQueue.enqueueInPipeline(connection, job, execId, priority, 0);
+                    redisMessageQueue.enqueueInPipeline(connection, job, execId, resolvePriority(job), 0);
                 }
                 return null;
             });
+        } catch (Exception e) {
+            // Runtime 行已写入，保留去重锁等待补偿任务处理（与单个调度的入队失败一致）
+            log.error("[BATCH_PIPELINE_FAIL] count={} ex={}", validJobs.size(), e.getMessage());
+            markFailed(outcomes, validJobs);
+            return outcomes;
+        }
 
-            // Log after pipeline submission (assumed success if no exception)
-            for (int i = 0; i < validJobs.size(); i++) {
-                log.info("TASK_LIFECYCLE|PRODUCE_BATCH|jobId={}|executionId={}", validJobs.get(i).getJobId(), validExecutionIds.get(i));
-            }
-
-            return validJobs.size();
+        for (int i = 0; i < validJobs.size(); i++) {
+            SysJob job = validJobs.get(i);
+            outcomes.put(job.getJobId(), ScheduleOutcome.SCHEDULED);
+            log.info("TASK_LIFECYCLE|PRODUCE_BATCH|jobId={}|executionId={}", job.getJobId(), validExecutionIds.get(i));
+        }
+        return outcomes;
+    }
 
+    /**
+     * 一次性释放批量抢到的去重锁
+     */
+    private void releaseDedupKeys(List<SysJob> jobs) {
+        List<String> keys = new ArrayList<>(jobs.size());
+        for (SysJob job : jobs) {
+            keys.add(DEDUP_KEY_PREFIX + job.getJobId());
+        }
+        try {
+            redisTemplate.delete(keys);
         } catch (Exception e) {
-            log.error("[BATCH_PIPELINE_FAIL] count={} ex={}", validJobs.size(), e.getMessage());
-            // Partial failure handling in pipeline is tricky.
-            // But since DB insert succeeded, consumers might pick it up from DB fallback eventually if cache missing.
-            // Or simple retry logic could be added here.
-            return 0;
+            log.error("[BATCH_DEDUP_RELEASE_FAIL] count={} ex={}", keys.size(), e.getMessage());
+        }
+    }
+
+    private static void markFailed(Map<Long, ScheduleOutcome> outcomes, List<SysJob> jobs) {
+        for (SysJob job : jobs) {
+            outcomes.put(job.getJobId(), ScheduleOutcome.FAILED);
+        }
+    }
+
+    /**
+     * 任务优先级
+     */
+    private static String resolvePriority(SysJob job) {
+        // Job with id = 30 is temporarily treated as highest priority.
+        // TODO: Remove this hardcoded logic once SysJob.priority is fully supported (DB + Mapper + UI).
+        if (Long.valueOf(30L).equals(job.getJobId())) {
+            return "HIGH";
         }
+        return StringUtils.isEmpty(job.getPriority()) ? "NORMAL" : job.getPriority();
     }
 
     /**
@@ -268,14 +341,7 @@ public class TaskDistributor {
             sysJob.setTraceId(executionId);
 
             // 默认优先级
-            // Job with id = 30 is temporarily treated as highest priority.
-            // TODO: Remove this hardcoded logic once SysJob.priority is fully supported (DB + Mapper + UI).
-            String priority;
-            if (Long.valueOf(30L).equals(sysJob.getJobId())) {
-                priority = "HIGH";
-            } else {
-                priority = StringUtils.isEmpty(sysJob.getPriority()) ? "NORMAL" : sysJob.getPriority();
-            }
+            String priority = resolvePriority(sysJob);
 
             // 路由策略：目前默认当前节点或由 Queue 内部处理 (targetNode=null)
             String targetNode = null;
@@ -0,0 +1,124 @@
+package com.make.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Python 数据服务限流配置
+ * <p>
+ * 每个限流键（接口路径）拥有独立令牌桶，另有一个全局令牌桶作为总量上限，
+ * 防止多接口叠加后的总 QPS 触发上游封禁。
+ * 放行需同时取得键桶与全局桶的令牌，因此键桶的 burst 超过 global-burst 不会带来额外突发。
+ * </p>
+ * <pre>
+ * python:
+ *   service:
+ *     rate-limit:
+ *       permits-per-second: 0.5
+ *       burst: 1
+ *       global-permits-per-second: 0.5
+ *       global-burst: 1
+ *       buckets:
+ *         kline-all:
+ *           permits-per-second: 0.2
+ *           burst: 1
+ * </pre>
+ */
+@Component("pythonRateLimitProperties")
+@ConfigurationProperties(prefix = "python.service.rate-limit")
+public class PythonRateLimitProperties {
+
+    /**
+     * 默认每个限流键的补充速率（个/秒）
+     */
+    private double permitsPerSecond = 0.5;
+
+    /**
+     * 默认每个限流键的桶容量（允许的突发请求数）
+     */
+    private int burst = 1;
+
+    /**
+     * 全局补充速率（个/秒），默认与原固定间隔（每 2 秒一次）一致，小于等于 0 表示不启用全局上限
+     */
+    private double globalPermitsPerSecond = 0.5;
+
+    /**
+     * 全局桶容量
+     */
+    private int globalBurst = 1;
+
+    /**
+     * 按限流键覆盖的桶配置
+     */
+    private Map<String, Bucket> buckets = new HashMap<>();
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public double getGlobalPermitsPerSecond() {
+        return globalPermitsPerSecond;
+    }
+
+    public void setGlobalPermitsPerSecond(double globalPermitsPerSecond) {
+        this.globalPermitsPerSecond = globalPermitsPerSecond;
+    }
+
+    public int getGlobalBurst() {
+        return globalBurst;
+    }
+
+    public void setGlobalBurst(int globalBurst) {
+        this.globalBurst = globalBurst;
+    }
+
+    public Map<String, Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(Map<String, Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * 单个限流键的桶配置
+     */
+    public static class Bucket {
+
+        private double permitsPerSecond;
+
+        private int burst = 1;
+
+        public double getPermitsPerSecond() {
+            return permitsPerSecond;
+        }
+
+        public void setPermitsPerSecond(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+}
@@ -16,6 +16,136 @@ public class StockProperties {
      */
     private int stockPollWorkers = 5;
 
+    /**
+     * Stock Refresh Batch Size
+     * 大于 1 时开启批量刷新：单次最多拉取该数量的任务，按市场分组批量获取快照
+     */
+    private int stockRefreshBatchSize = 1;
+
+    /**
+     * Kline Backfill Streaming
+     * 历史 K 线是否按日期分页流式回填（分块落库 + 断点续传）；false 时一次拉取全历史
+     */
+    private boolean klineBackfillStreaming = true;
+
+    /**
+     * Kline Backfill Page Days
+     * 流式回填每页覆盖的自然日数
+     */
+    private int klineBackfillPageDays = 1095;
+
+    /**
+     * Kline Backfill Chunk Size
+     * 流式回填单条 insertOrUpdateBatch 语句的最大行数
+     */
+    private int klineBackfillChunkSize = 500;
+
+    /**
+     * Kline Column Store Resync Ms
+     * 列式 K 线缓存从库中重新加载最近数日数据的周期（毫秒），用于吸收其他节点写入；小于等于 0 时不重载
+     */
+    private long klineColumnResyncMs = 300000;
+
+    /**
+     * History Import Workers
+     * 东方财富历史数据导入的并发抓取线程数（请求仍受 kline-range 令牌桶限流）
+     */
+    private int historyImportWorkers = 4;
+
+    /**
+     * History Import Queue Capacity
+     * 抓取与入库之间有界队列的容量（行数），队列满时抓取线程阻塞
+     */
+    private int historyImportQueueCapacity = 20000;
+
+    /**
+     * History Import Batch Size
+     * 历史数据单次批量插入的行数
+     */
+    private int historyImportBatchSize = 2000;
+
+    /**
+     * Big Money Enabled
+     * 是否在逐笔入库时流式检测大资金
+     */
+    private boolean bigMoneyEnabled = true;
+
+    /**
+     * Big Money Window Size
+     * 每只股票滚动窗口保留的最近逐笔数
+     */
+    private int bigMoneyWindowSize = 200;
+
+    /**
+     * Big Money Min Samples
+     * 窗口样本数达到该值后才开始判定（冷启动保护）
+     */
+    private int bigMoneyMinSamples = 30;
+
+    /**
+     * Big Money Min Volume
+     * 判定为大资金的最小成交量（手）
+     */
+    private long bigMoneyMinVolume = 500;
+
+    /**
+     * Big Money Volume Multiple
+     * 成交量达到窗口平均成交量的倍数
+     */
+    private double bigMoneyVolumeMultiple = 5.0;
+
+    /**
+     * Big Money Avg Vol Multiple
+     * 每笔均量达到窗口平均每笔均量的倍数
+     */
+    private double bigMoneyAvgVolMultiple = 3.0;
+
+    /**
+     * Tick Raw Retention Months
+     * 原始逐笔（stock_tick 月分区）保留的月数（含当月），更早的分区在确认已汇总后整分区删除；小于等于 0 时不删除
+     */
+    private int tickRawRetentionMonths = 3;
+
+    /**
+     * Tick Partition Ahead Months
+     * stock_tick 提前创建的未来月份分区数
+     */
+    private int tickPartitionAheadMonths = 2;
+
+    /**
+     * Stock Profit Flush Ms
+     * 利润账本按有变动的用户批量刷新 YearlyInvestmentSummary 的周期（毫秒）
+     */
+    private long stockProfitFlushMs = 10000;
+
+    /**
+     * Stock Profit Daily Ms
+     * 主节点按交易表汇总写入当日 SalesData 的周期（毫秒）
+     */
+    private long stockProfitDailyMs = 300000;
+
+    /**
+     * Stock Queue Block Ms
+     * LIST 模式下 BRPOPLPUSH 的阻塞时长（毫秒），任务到达即被取走；小于等于 0 时退回非阻塞轮询
+     */
+    private long stockQueueBlockMs = 2000;
+
+    /**
+     * Stock Queue Backend
+     * list：LIST + RPOPLPUSH（默认）；stream：Redis Streams 消费组 + XAUTOCLAIM（需 Redis 6.2+）
+     */
+    private String stockQueueBackend = "list";
+
+    /**
+     * Stream 模式下 XREADGROUP 的阻塞时长（毫秒）
+     */
+    private long stockStreamBlockMs = 2000;
+
+    /**
+     * Stream 模式下条目空闲超过该时长（毫秒）即视为卡死，由 XAUTOCLAIM 转交给存活节点
+     */
+    private long stockStreamClaimIdleMs = 120000;
+
     public int getStockPollWorkers() {
         return stockPollWorkers;
     }
@@ -24,5 +154,181 @@ public class StockProperties {
         this.stockPollWorkers = stockPollWorkers;
     }
 
+    public int getStockRefreshBatchSize() {
+        return stockRefreshBatchSize;
+    }
+
+    public void setStockRefreshBatchSize(int stockRefreshBatchSize) {
+        this.stockRefreshBatchSize = stockRefreshBatchSize;
+    }
+
+    public boolean isKlineBackfillStreaming() {
+        return klineBackfillStreaming;
+    }
+
+    public void setKlineBackfillStreaming(boolean klineBackfillStreaming) {
+        this.klineBackfillStreaming = klineBackfillStreaming;
+    }
+
+    public int getKlineBackfillPageDays() {
+        return klineBackfillPageDays;
+    }
+
+    public void setKlineBackfillPageDays(int klineBackfillPageDays) {
+        this.klineBackfillPageDays = klineBackfillPageDays;
+    }
+
+    public int getKlineBackfillChunkSize() {
+        return klineBackfillChunkSize;
+    }
+
+    public void setKlineBackfillChunkSize(int klineBackfillChunkSize) {
+        this.klineBackfillChunkSize = klineBackfillChunkSize;
+    }
+
+    public long getKlineColumnResyncMs() {
+        return klineColumnResyncMs;
+    }
+
+    public void setKlineColumnResyncMs(long klineColumnResyncMs) {
+        this.klineColumnResyncMs = klineColumnResyncMs;
+    }
+
+    public int getHistoryImportWorkers() {
+        return historyImportWorkers;
+    }
+
+    public void setHistoryImportWorkers(int historyImportWorkers) {
+        this.historyImportWorkers = historyImportWorkers;
+    }
+
+    public int getHistoryImportQueueCapacity() {
+        return historyImportQueueCapacity;
+    }
+
+    public void setHistoryImportQueueCapacity(int historyImportQueueCapacity) {
+        this.historyImportQueueCapacity = historyImportQueueCapacity;
+    }
+
+    public int getHistoryImportBatchSize() {
+        return historyImportBatchSize;
+    }
+
+    public void setHistoryImportBatchSize(int historyImportBatchSize) {
+        this.historyImportBatchSize = historyImportBatchSize;
+    }
+
+    public boolean isBigMoneyEnabled() {
+        return bigMoneyEnabled;
+    }
+
+    public void setBigMoneyEnabled(boolean bigMoneyEnabled) {
+        this.bigMoneyEnabled = bigMoneyEnabled;
+    }
+
+    public int getBigMoneyWindowSize() {
+        return bigMoneyWindowSize;
+    }
+
+    public void setBigMoneyWindowSize(int bigMoneyWindowSize) {
+        this.bigMoneyWindowSize = bigMoneyWindowSize;
+    }
+
+    public int getBigMoneyMinSamples() {
+        return bigMoneyMinSamples;
+    }
+
+    public void setBigMoneyMinSamples(int bigMoneyMinSamples) {
+        this.bigMoneyMinSamples = bigMoneyMinSamples;
+    }
+
+    public long getBigMoneyMinVolume() {
+        return bigMoneyMinVolume;
+    }
+
+    public void setBigMoneyMinVolume(long bigMoneyMinVolume) {
+        this.bigMoneyMinVolume = bigMoneyMinVolume;
+    }
+
+    public double getBigMoneyVolumeMultiple() {
+        return bigMoneyVolumeMultiple;
+    }
+
+    public void setBigMoneyVolumeMultiple(double bigMoneyVolumeMultiple) {
+        this.bigMoneyVolumeMultiple = bigMoneyVolumeMultiple;
+    }
+
+    public double getBigMoneyAvgVolMultiple() {
+        return bigMoneyAvgVolMultiple;
+    }
+
+    public void setBigMoneyAvgVolMultiple(double bigMoneyAvgVolMultiple) {
+        this.bigMoneyAvgVolMultiple = bigMoneyAvgVolMultiple;
+    }
+
+    public int getTickRawRetentionMonths() {
+        return tickRawRetentionMonths;
+    }
+
+    public void setTickRawRetentionMonths(int tickRawRetentionMonths) {
+        this.tickRawRetentionMonths = tickRawRetentionMonths;
+    }
+
+    public int getTickPartitionAheadMonths() {
+        return tickPartitionAheadMonths;
+    }
+
+    public void setTickPartitionAheadMonths(int tickPartitionAheadMonths) {
+        this.tickPartitionAheadMonths = tickPartitionAheadMonths;
+    }
+
+    public long getStockProfitFlushMs() {
+        return stockProfitFlushMs;
+    }
+
+    public void setStockProfitFlushMs(long stockProfitFlushMs) {
+        this.stockProfitFlushMs = stockProfitFlushMs;
+    }
+
+    public long getStockProfitDailyMs() {
+        return stockProfitDailyMs;
+    }
+
+    public void setStockProfitDailyMs(long stockProfitDailyMs) {
+        this.stockProfitDailyMs = stockProfitDailyMs;
+    }
+
+    public long getStockQueueBlockMs() {
+        return stockQueueBlockMs;
+    }
+
+    public void setStockQueueBlockMs(long stockQueueBlockMs) {
+        this.stockQueueBlockMs = stockQueueBlockMs;
+    }
+
+    public String getStockQueueBackend() {
+        return stockQueueBackend;
+    }
+
+    public void setStockQueueBackend(String stockQueueBackend) {
+        this.stockQueueBackend = stockQueueBackend;
+    }
+
+    public long getStockStreamBlockMs() {
+        return stockStreamBlockMs;
+    }
+
+    public void setStockStreamBlockMs(long stockStreamBlockMs) {
+        this.stockStreamBlockMs = stockStreamBlockMs;
+    }
+
+    public long getStockStreamClaimIdleMs() {
+        return stockStreamClaimIdleMs;
+    }
+
+    public void setStockStreamClaimIdleMs(long stockStreamClaimIdleMs) {
+        this.stockStreamClaimIdleMs = stockStreamClaimIdleMs;
+    }
+
     // Add other fields if needed by Stock module
 }
@@ -6,6 +6,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.make.common.annotation.Log;
 import com.make.common.core.controller.BaseController;
@@ -54,9 +56,8 @@ public class StockKlineController extends BaseController {
     @Log(title = "股票K线数据", businessType = BusinessType.EXPORT)
     @PostMapping("/export")
     public void export(HttpServletResponse response, StockKline stockKline) {
-        List<StockKline> list = stockKlineService.selectStockKlineList(stockKline);
         ExcelUtil<StockKline> util = new ExcelUtil<StockKline>(StockKline. class);
-        util.exportExcel(response, list, "股票K线数据数据");
+        util.exportExcelStream(response, "股票K线数据数据", handler -> stockKlineService.streamStockKlineList(stockKline, handler));
     }
 
     /**
@@ -77,6 +78,19 @@ public class StockKlineController extends BaseController {
         return success(stockKlineService.selectStockRanking(type));
     }
 
+    /**
+     * 查询单只股票区间内的K线（按交易日升序，默认最近一年）
+     */
+    @PreAuthorize("@ss.hasPermi('stock:kline:list')")
+    @GetMapping(value = "/series/{stockCode}")
+    public AjaxResult series(@PathVariable("stockCode") String stockCode,
+                             @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                             @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end.minusYears(1);
+        return success(stockKlineService.selectKlineSeries(stockCode, start, end));
+    }
+
     /**
      * 新增股票K线数据
      */
@@ -1,11 +1,18 @@
 package com.make.stock.controller;
 
 import com.make.common.core.controller.BaseController;
+import com.make.common.core.domain.AjaxResult;
 import com.make.common.core.page.TableDataInfo;
 import com.make.stock.domain.StockTaskStatus;
+import com.make.stock.service.scheduled.impl.StockKlineColumnStore;
+import com.make.stock.service.scheduled.impl.StockKlineDateIndex;
+import com.make.stock.service.scheduled.impl.WatchStockExtremesTracker;
 import com.make.stock.service.scheduled.stock.queue.StockTaskQueueService;
+import com.make.stock.service.scheduled.stock.tick.BigMoneyDetector;
+import com.make.stock.service.scheduled.stock.tick.TickStorageManager;
 import com.make.stock.domain.Watchstock;
 import com.make.stock.service.IWatchstockService;
+import com.make.stock.util.KlineDataFetcher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -29,6 +36,21 @@ public class StockTaskMonitorController extends BaseController {
     @Resource
     private IWatchstockService watchstockService;
 
+    @Resource
+    private StockKlineDateIndex stockKlineDateIndex;
+
+    @Resource
+    private StockKlineColumnStore stockKlineColumnStore;
+
+    @Resource
+    private BigMoneyDetector bigMoneyDetector;
+
+    @Resource
+    private TickStorageManager tickStorageManager;
+
+    @Resource
+    private WatchStockExtremesTracker watchStockExtremesTracker;
+
     // Aggregation Priority Map (Lower number = Higher Priority)
     private static final Map<String, Integer> PRIORITY_MAP = new HashMap<>();
     static {
@@ -106,6 +128,69 @@ public class StockTaskMonitorController extends BaseController {
         return getDataTable(result, total);
     }
 
+    /**
+     * 获取 Python 数据服务限流统计（按接口分桶）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/rate-limit")
+    public AjaxResult rateLimit() {
+        return success(KlineDataFetcher.getRateLimitStats());
+    }
+
+    /**
+     * 获取 Python 数据服务连接池状态与接口耗时/字节数统计
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/http-stats")
+    public AjaxResult httpStats() {
+        return success(KlineDataFetcher.getHttpStats());
+    }
+
+    /**
+     * 获取 stock_kline 近期交易日存在性索引状态
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/kline-index")
+    public AjaxResult klineIndex() {
+        return success(stockKlineDateIndex.stats());
+    }
+
+    /**
+     * 获取列式 K 线缓存状态
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/kline-columns")
+    public AjaxResult klineColumns() {
+        return success(stockKlineColumnStore.stats());
+    }
+
+    /**
+     * 获取逐笔大资金检测器状态
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/big-money")
+    public AjaxResult bigMoney() {
+        return success(bigMoneyDetector.stats());
+    }
+
+    /**
+     * 获取逐笔分层存储状态（汇总边界、分区维护）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/tick-storage")
+    public AjaxResult tickStorage() {
+        return success(tickStorageManager.stats());
+    }
+
+    /**
+     * 获取自选股周/年高低价跟踪器状态
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/watch-extremes")
+    public AjaxResult watchExtremes() {
+        return success(watchStockExtremesTracker.stats());
+    }
+
     private TableDataInfo getDataTable(List<Map<String, Object>> rows, long total) {
         TableDataInfo rspData = new TableDataInfo();
         rspData.setCode(200);
@@ -1,10 +1,12 @@
 package com.make.stock.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.make.common.annotation.Log;
 import com.make.common.core.controller.BaseController;
@@ -46,6 +49,32 @@ public class StockTickController extends BaseController {
         return getDataTable(list);
     }
 
+    /**
+     * 查询单只股票区间内的分钟线（默认当日；已汇总的交易日读汇总表，其余从逐笔实时聚合）
+     */
+    @PreAuthorize("@ss.hasPermi('stock:stockTick:list')")
+    @GetMapping("/minute/{stockCode}")
+    public AjaxResult minute(@PathVariable("stockCode") String stockCode,
+                             @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                             @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end;
+        return success(stockTickService.selectMinuteBars(stockCode, start, end));
+    }
+
+    /**
+     * 查询单只股票区间内的分价成交量（默认当日）
+     */
+    @PreAuthorize("@ss.hasPermi('stock:stockTick:list')")
+    @GetMapping("/profile/{stockCode}")
+    public AjaxResult profile(@PathVariable("stockCode") String stockCode,
+                              @RequestParam(value = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                              @RequestParam(value = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        LocalDate start = startDate != null ? startDate : end;
+        return success(stockTickService.selectVolumeProfile(stockCode, start, end));
+    }
+
     /**
      * 导出股票逐笔成交明细列表
      */
@@ -53,9 +82,8 @@ public class StockTickController extends BaseController {
     @Log(title = "股票逐笔成交明细", businessType = BusinessType.EXPORT)
     @PostMapping("/export")
     public void export(HttpServletResponse response, StockTick stockTick) {
-        List<StockTick> list = stockTickService.selectStockTickList(stockTick);
         ExcelUtil<StockTick> util = new ExcelUtil<StockTick>(StockTick.class);
-        util.exportExcel(response, list, "股票逐笔成交明细数据");
+        util.exportExcelStream(response, "股票逐笔成交明细数据", handler -> stockTickService.streamStockTickList(stockTick, handler));
     }
 
     /**
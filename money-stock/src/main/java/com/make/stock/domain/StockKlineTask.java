@@ -40,6 +40,9 @@ public class StockKlineTask extends BaseEntity{
     @Excel(name = "节点ID")
     private Long nodeId;
 
+    /** 历史回填断点（已落库的最后一个分页截止日），任务完成后清空 */
+    private Date syncCheckpoint;
+
     public void setId(Long id)
     {
         this.id = id;
@@ -96,6 +99,14 @@ public class StockKlineTask extends BaseEntity{
         this.nodeId = nodeId;
     }
 
+    public Date getSyncCheckpoint() {
+        return syncCheckpoint;
+    }
+
+    public void setSyncCheckpoint(Date syncCheckpoint) {
+        this.syncCheckpoint = syncCheckpoint;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this,ToStringStyle.MULTI_LINE_STYLE)
@@ -105,6 +116,7 @@ public class StockKlineTask extends BaseEntity{
             .append("taskStatus", getTaskStatus())
             .append("executeTime", getExecuteTime())
             .append("nodeId", getNodeId())
+            .append("syncCheckpoint", getSyncCheckpoint())
             .append("createTime", getCreateTime())
             .append("updateTime", getUpdateTime())
             .toString();
@@ -1,5 +1,6 @@
 package com.make.stock.domain;
 
+import com.alibaba.fastjson2.annotation.JSONField;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
@@ -33,6 +34,10 @@ public class StockRefreshTask implements Serializable {
     /** 创建时间 */
     private Long createTime;
 
+    /** 队列条目ID (Stream 模式下用于 XACK，不参与序列化) */
+    @JSONField(serialize = false, deserialize = false)
+    private String queueEntryId;
+
     public StockRefreshTask() {}
 
     public StockRefreshTask(String traceId, String stockCode, String taskType) {
@@ -98,6 +103,14 @@ public class StockRefreshTask implements Serializable {
         this.createTime = createTime;
     }
 
+    public String getQueueEntryId() {
+        return queueEntryId;
+    }
+
+    public void setQueueEntryId(String queueEntryId) {
+        this.queueEntryId = queueEntryId;
+    }
+
     @Override
     public String toString() {
         return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
@@ -44,6 +44,11 @@ public class StockTick extends BaseEntity {
     @Excel(name = "成交时刻", width = 30, dateFormat = "yyyy-MM-dd")
     private Date tradeTime;
 
+    /**
+     * 同一秒内序号（按接口返回顺序，从 1 开始）
+     */
+    private Integer seqNo;
+
     /**
      * 成交价格
      */
@@ -112,6 +117,14 @@ public class StockTick extends BaseEntity {
         return tradeTime;
     }
 
+    public void setSeqNo(Integer seqNo) {
+        this.seqNo = seqNo;
+    }
+
+    public Integer getSeqNo() {
+        return seqNo;
+    }
+
     public void setPrice(BigDecimal price) {
         this.price = price;
     }
@@ -167,6 +180,7 @@ public class StockTick extends BaseEntity {
                 .append("stockCode", getStockCode())
                 .append("tradeDate", getTradeDate())
                 .append("tradeTime", getTradeTime())
+                .append("seqNo", getSeqNo())
                 .append("price", getPrice())
                 .append("volume", getVolume())
                 .append("sideCode", getSideCode())
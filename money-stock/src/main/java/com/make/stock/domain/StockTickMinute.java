@@ -0,0 +1,196 @@
+package com.make.stock.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * 逐笔成交分钟线对象 stock_tick_minute
+ * <p>
+ * 由收盘汇总任务从 stock_tick 生成；未汇总的交易日由原始逐笔实时聚合出同结构数据。
+ * </p>
+ */
+public class StockTickMinute implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 股票代码
+     */
+    private String stockCode;
+
+    /**
+     * 交易日期
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date tradeDate;
+
+    /**
+     * 分钟起始时刻
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date barTime;
+
+    /**
+     * 开盘价（该分钟首笔）
+     */
+    private BigDecimal open;
+
+    /**
+     * 最高价
+     */
+    private BigDecimal high;
+
+    /**
+     * 最低价
+     */
+    private BigDecimal low;
+
+    /**
+     * 收盘价（该分钟末笔）
+     */
+    private BigDecimal close;
+
+    /**
+     * 成交量
+     */
+    private Long volume;
+
+    /**
+     * 主动买入成交量
+     */
+    private Long buyVolume;
+
+    /**
+     * 主动卖出成交量
+     */
+    private Long sellVolume;
+
+    /**
+     * 成交笔数
+     */
+    private Long tickCount;
+
+    /**
+     * 大资金逐笔数
+     */
+    private Integer bigMoneyCount;
+
+    public String getStockCode() {
+        return stockCode;
+    }
+
+    public void setStockCode(String stockCode) {
+        this.stockCode = stockCode;
+    }
+
+    public Date getTradeDate() {
+        return tradeDate;
+    }
+
+    public void setTradeDate(Date tradeDate) {
+        this.tradeDate = tradeDate;
+    }
+
+    public Date getBarTime() {
+        return barTime;
+    }
+
+    public void setBarTime(Date barTime) {
+        this.barTime = barTime;
+    }
+
+    public BigDecimal getOpen() {
+        return open;
+    }
+
+    public void setOpen(BigDecimal open) {
+        this.open = open;
+    }
+
+    public BigDecimal getHigh() {
+        return high;
+    }
+
+    public void setHigh(BigDecimal high) {
+        this.high = high;
+    }
+
+    public BigDecimal getLow() {
+        return low;
+    }
+
+    public void setLow(BigDecimal low) {
+        this.low = low;
+    }
+
+    public BigDecimal getClose() {
+        return close;
+    }
+
+    public void setClose(BigDecimal close) {
+        this.close = close;
+    }
+
+    public Long getVolume() {
+        return volume;
+    }
+
+    public void setVolume(Long volume) {
+        this.volume = volume;
+    }
+
+    public Long getBuyVolume() {
+        return buyVolume;
+    }
+
+    public void setBuyVolume(Long buyVolume) {
+        this.buyVolume = buyVolume;
+    }
+
+    public Long getSellVolume() {
+        return sellVolume;
+    }
+
+    public void setSellVolume(Long sellVolume) {
+        this.sellVolume = sellVolume;
+    }
+
+    public Long getTickCount() {
+        return tickCount;
+    }
+
+    public void setTickCount(Long tickCount) {
+        this.tickCount = tickCount;
+    }
+
+    public Integer getBigMoneyCount() {
+        return bigMoneyCount;
+    }
+
+    public void setBigMoneyCount(Integer bigMoneyCount) {
+        this.bigMoneyCount = bigMoneyCount;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+                .append("stockCode", getStockCode())
+                .append("tradeDate", getTradeDate())
+                .append("barTime", getBarTime())
+                .append("open", getOpen())
+                .append("high", getHigh())
+                .append("low", getLow())
+                .append("close", getClose())
+                .append("volume", getVolume())
+                .append("buyVolume", getBuyVolume())
+                .append("sellVolume", getSellVolume())
+                .append("tickCount", getTickCount())
+                .append("bigMoneyCount", getBigMoneyCount())
+                .toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.make.stock.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * 逐笔成交分价对象 stock_tick_volume_profile
+ * <p>
+ * 单日汇总按 (股票, 交易日, 价格) 存储；区间查询时按价格合并，不再区分交易日。
+ * </p>
+ */
+public class StockTickVolumeProfile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 股票代码
+     */
+    private String stockCode;
+
+    /**
+     * 成交价格
+     */
+    private BigDecimal price;
+
+    /**
+     * 成交量
+     */
+    private Long volume;
+
+    /**
+     * 主动买入成交量
+     */
+    private Long buyVolume;
+
+    /**
+     * 主动卖出成交量
+     */
+    private Long sellVolume;
+
+    /**
+     * 成交笔数
+     */
+    private Long tickCount;
+
+    public String getStockCode() {
+        return stockCode;
+    }
+
+    public void setStockCode(String stockCode) {
+        this.stockCode = stockCode;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Long getVolume() {
+        return volume;
+    }
+
+    public void setVolume(Long volume) {
+        this.volume = volume;
+    }
+
+    public Long getBuyVolume() {
+        return buyVolume;
+    }
+
+    public void setBuyVolume(Long buyVolume) {
+        this.buyVolume = buyVolume;
+    }
+
+    public Long getSellVolume() {
+        return sellVolume;
+    }
+
+    public void setSellVolume(Long sellVolume) {
+        this.sellVolume = sellVolume;
+    }
+
+    public Long getTickCount() {
+        return tickCount;
+    }
+
+    public void setTickCount(Long tickCount) {
+        this.tickCount = tickCount;
+    }
+
+    /**
+     * 合并另一分层中同价位的数据
+     */
+    public void merge(StockTickVolumeProfile other) {
+        this.volume = sum(this.volume, other.volume);
+        this.buyVolume = sum(this.buyVolume, other.buyVolume);
+        this.sellVolume = sum(this.sellVolume, other.sellVolume);
+        this.tickCount = sum(this.tickCount, other.tickCount);
+    }
+
+    private static Long sum(Long a, Long b) {
+        return (a != null ? a : 0L) + (b != null ? b : 0L);
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE)
+                .append("stockCode", getStockCode())
+                .append("price", getPrice())
+                .append("volume", getVolume())
+                .append("buyVolume", getBuyVolume())
+                .append("sellVolume", getSellVolume())
+                .append("tickCount", getTickCount())
+                .toString();
+    }
+}
@@ -25,11 +25,21 @@ public class ProcessResult {
      */
     public List<StockKline> updateList = new ArrayList<>();
 
+    /**
+     * 流式回填已直接落库的记录数（不进入 insertList）
+     */
+    public int streamedCount = 0;
+
     /**
      * 是否处理成功
      */
     public boolean success = true;
 
+    /**
+     * 是否因限流被延后（未拉取数据，等待下一轮调度重新提交）
+     */
+    public boolean deferred = false;
+
     /**
      * 股票代码（仅用于日志）
      */
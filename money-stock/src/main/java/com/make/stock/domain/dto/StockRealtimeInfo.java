@@ -139,4 +139,9 @@ public class StockRealtimeInfo {
      * 散户资金流向
      */
     private Double retailFlow;
+
+    /**
+     * 上市日期（yyyyMMdd）
+     */
+    private String listingDate;
 }
@@ -1,7 +1,9 @@
 package com.make.stock.mapper;
 
+import java.util.Date;
 import java.util.List;
 
+import org.apache.ibatis.annotations.Param;
 import com.make.stock.domain.SalesData;
 
 /**
@@ -75,4 +77,13 @@ public interface SalesDataMapper {
      * @return 结果
      */
     public List<SalesData> selectSalesDataYearlyMax(Long userId);
+
+    /**
+     * 按交易表汇总当年净利润，写入或覆盖每个用户指定日期的记录（依赖 (user_id, record_date) 唯一键）
+     *
+     * @param recordDate 记录日期
+     * @param year       统计年份
+     * @return 结果
+     */
+    public int upsertDailyProfitFromTrades(@Param("recordDate") Date recordDate, @Param("year") int year);
 }
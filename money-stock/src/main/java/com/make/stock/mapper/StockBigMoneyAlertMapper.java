@@ -36,6 +36,14 @@ public interface StockBigMoneyAlertMapper {
      */
     public int insertStockBigMoneyAlert(StockBigMoneyAlert stockBigMoneyAlert);
 
+    /**
+     * 批量新增大资金入场异动预警（INSERT IGNORE，同一笔成交重复检测时按唯一键去重）
+     *
+     * @param alerts 预警列表
+     * @return 实际写入条数
+     */
+    public int insertStockBigMoneyAlertBatch(List<StockBigMoneyAlert> alerts);
+
     /**
      * 修改大资金入场异动预警
      *
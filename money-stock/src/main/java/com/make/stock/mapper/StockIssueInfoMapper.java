@@ -1,5 +1,6 @@
 package com.make.stock.mapper;
 
+import java.util.Date;
 import java.util.List;
 
 import com.make.stock.domain.StockIssueInfo;
@@ -78,4 +79,12 @@ public interface StockIssueInfoMapper {
      * }</pre>
      */
     String selectStockIssueInfoExistCode(String applyCode);
+
+    /**
+     * 按证券代码查询上市日期
+     *
+     * @param securityCode 证券代码
+     * @return 上市日期，未收录或尚未上市时返回 null
+     */
+    Date selectListingDateBySecurityCode(String securityCode);
 }
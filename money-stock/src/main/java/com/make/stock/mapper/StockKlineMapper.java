@@ -8,6 +8,7 @@ import java.util.Map;
 import com.make.stock.domain.StockKline;
 import com.make.stock.domain.vo.StockRankingStat;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 股票K线数据Mapper接口
@@ -33,6 +34,14 @@ public interface StockKlineMapper {
      */
     public List<StockKline> selectStockKlineList(StockKline stockKline);
 
+    /**
+     * 流式查询股票K线数据列表，逐行回调，用于大数据量导出
+     *
+     * @param stockKline 查询条件
+     * @param handler 行回调
+     */
+    public void streamStockKlineList(StockKline stockKline, ResultHandler<StockKline> handler);
+
     /**
      * 新增股票K线数据
      *
@@ -92,6 +101,22 @@ public interface StockKlineMapper {
 
     List<LocalDate> selectExistsDates(@Param("stockCode") String stockCode, @Param("tradeDateList") List<LocalDate> tradeDateList);
 
+    /**
+     * 查询指定日期之后的 (stock_code, trade_date)，用于预热存在性索引
+     *
+     * @param since 起始日期（含）
+     * @return 仅包含 stockCode / tradeDate 的K线列表
+     */
+    List<StockKline> selectTradeDatesSince(@Param("since") LocalDate since);
+
+    /**
+     * 流式读取指定日期之后的 OHLCV，逐行回调，用于加载列式 K 线缓存
+     *
+     * @param since   起始日期（含）
+     * @param handler 行回调（仅填充 stockCode / tradeDate / open / close / high / low / volume）
+     */
+    void streamKlineColumnsSince(@Param("since") LocalDate since, ResultHandler<StockKline> handler);
+
     List<StockKline> queryWeekAllStockKline(@Param("stockCode") String stockCode, @Param("tradeDateList") List<LocalDate> tradeDateList);
 
     /**
@@ -1,5 +1,6 @@
 package com.make.stock.mapper;
 
+import java.util.Date;
 import java.util.List;
 
 import com.make.stock.domain.StockKlineTask;
@@ -64,4 +65,13 @@ public interface StockKlineTaskMapper {
     List<StockKlineTask> getStockAllTask();
 
     void batchFinishTask(@Param("list") List<Long> taskIds);
+
+    /**
+     * 更新历史回填断点
+     *
+     * @param id         任务主键
+     * @param checkpoint 已落库的最后一个分页截止日
+     * @return 结果
+     */
+    int updateSyncCheckpoint(@Param("id") Long id, @Param("checkpoint") Date checkpoint);
 }
@@ -5,6 +5,9 @@ import java.util.List;
 
 import org.apache.ibatis.annotations.Param;
 import com.make.stock.domain.StockTick;
+import com.make.stock.domain.StockTickMinute;
+import com.make.stock.domain.StockTickVolumeProfile;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 股票逐笔成交明细Mapper接口
@@ -30,6 +33,14 @@ public interface StockTickMapper {
      */
     public List<StockTick> selectStockTickList(StockTick stockTick);
 
+    /**
+     * 流式查询股票逐笔成交明细列表，逐行回调，用于大数据量导出
+     *
+     * @param stockTick 查询条件
+     * @param handler 行回调
+     */
+    public void streamStockTickList(StockTick stockTick, ResultHandler<StockTick> handler);
+
     /**
      * 新增股票逐笔成交明细
      *
@@ -63,7 +74,7 @@ public interface StockTickMapper {
     public int deleteStockTickByIds(String[] ids);
 
     /**
-     * 批量新增股票逐笔成交明细
+     * 批量新增股票逐笔成交明细（INSERT IGNORE，同一 stock_code/trade_date/trade_time/seq_no/price/volume 已存在时跳过）
      *
      * @param stockTickList 股票逐笔成交明细列表
      * @return 结果
@@ -71,11 +82,115 @@ public interface StockTickMapper {
     public int insertStockTickBatch(List<StockTick> stockTickList);
 
     /**
-     * 查询指定日期最大的 tickCount
+     * 查询指定日期最后一个成交时刻及该时刻已入库的笔数
      *
      * @param stockCode 股票代码
      * @param tradeDate 交易日期
-     * @return 最大 tickCount
+     * @return tradeTime 为最后成交时刻、seqNo 为该时刻已入库笔数；当日无数据时返回 null
+     */
+    public StockTick selectLastTickCursor(@Param("stockCode") String stockCode, @Param("tradeDate") Date tradeDate);
+
+    /**
+     * 将指定交易日的逐笔汇总为分钟线（重复执行时覆盖）
+     *
+     * @param tradeDate 交易日期
+     * @return 影响行数
+     */
+    public int rollupMinuteBars(@Param("tradeDate") Date tradeDate);
+
+    /**
+     * 将指定交易日的逐笔汇总为分价成交量（重复执行时覆盖）
+     *
+     * @param tradeDate 交易日期
+     * @return 影响行数
+     */
+    public int rollupVolumeProfile(@Param("tradeDate") Date tradeDate);
+
+    /**
+     * 查询已汇总的最近交易日
+     *
+     * @return 交易日期，未汇总过返回 null
+     */
+    public Date selectMaxRolledUpDate();
+
+    /**
+     * 查询区间内存在逐笔但尚未汇总的交易日
+     *
+     * @param beginDate 开始日期（含）
+     * @param endDate   结束日期（不含）
+     * @return 交易日期列表
+     */
+    public List<Date> selectUnrolledTradeDates(@Param("beginDate") Date beginDate, @Param("endDate") Date endDate);
+
+    /**
+     * 从分钟线汇总表查询
+     *
+     * @param stockCode 股票代码
+     * @param beginDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 分钟线
+     */
+    public List<StockTickMinute> selectMinuteBarList(@Param("stockCode") String stockCode,
+                                                     @Param("beginDate") Date beginDate,
+                                                     @Param("endDate") Date endDate);
+
+    /**
+     * 从原始逐笔实时聚合分钟线（用于尚未汇总的交易日）
+     *
+     * @param stockCode 股票代码
+     * @param beginDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 分钟线
+     */
+    public List<StockTickMinute> aggregateMinuteBars(@Param("stockCode") String stockCode,
+                                                     @Param("beginDate") Date beginDate,
+                                                     @Param("endDate") Date endDate);
+
+    /**
+     * 从分价汇总表查询（区间内按价格合并）
+     *
+     * @param stockCode 股票代码
+     * @param beginDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 分价成交量
+     */
+    public List<StockTickVolumeProfile> selectVolumeProfileList(@Param("stockCode") String stockCode,
+                                                                @Param("beginDate") Date beginDate,
+                                                                @Param("endDate") Date endDate);
+
+    /**
+     * 从原始逐笔实时聚合分价成交量（用于尚未汇总的交易日）
+     *
+     * @param stockCode 股票代码
+     * @param beginDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 分价成交量
+     */
+    public List<StockTickVolumeProfile> aggregateVolumeProfile(@Param("stockCode") String stockCode,
+                                                               @Param("beginDate") Date beginDate,
+                                                               @Param("endDate") Date endDate);
+
+    /**
+     * 查询 stock_tick 的分区名（按边界升序），未分区时返回空列表
+     *
+     * @return 分区名
+     */
+    public List<String> selectTickPartitionNames();
+
+    /**
+     * 从 p_max 中拆出一个月份分区
+     *
+     * @param name     分区名（pYYYYMM）
+     * @param lessThan 分区上界（yyyy-MM-dd，不含）
+     * @return 结果
+     */
+    public int splitTickMaxPartition(@Param("name") String name, @Param("lessThan") String lessThan);
+
+    /**
+     * 删除一个月份分区（整分区删除原始逐笔）
+     *
+     * @param name 分区名（pYYYYMM）
+     * @return 结果
      */
-    public Long selectMaxTickCount(@Param("stockCode") String stockCode, @Param("tradeDate") Date tradeDate);
+    public int dropTickPartition(@Param("name") String name);
 }
@@ -14,6 +14,7 @@ import com.make.stock.service.scheduled.stock.StockInfoService;
 import com.make.stock.service.scheduled.stock.WatchService;
 import com.make.stock.service.scheduled.stock.handler.IStockRefreshHandler;
 import com.make.stock.service.scheduled.stock.queue.StockTaskQueueService;
+import com.make.stock.service.scheduled.stock.tick.TickStorageManager;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +61,9 @@ public class StockKafkaConsumer {
     @Resource
     private StockKlineTaskExecutor stockKlineTaskExecutor;
 
+    @Resource
+    private TickStorageManager tickStorageManager;
+
     @Resource
     private IRealTimeStockService realTimeStockService; // For legacy methods if any
 
@@ -130,6 +134,16 @@ public class StockKafkaConsumer {
         watchService.updateWatchStockYearLow();
     }
 
+    @KafkaListener(topics = KafkaTopics.TOPIC_STOCK_TICK_ROLLUP, groupId = "money-stock-group")
+    public void rollupStockTicks(ConsumerRecord<String, String> record) {
+        log.info("Consume [TOPIC_STOCK_TICK_ROLLUP]");
+        try {
+            tickStorageManager.endOfDay();
+        } catch (Exception e) {
+            log.error("Failed to roll up stock ticks", e);
+        }
+    }
+
     /**
      * ETF 任务消费 (单任务)
      */
@@ -5,9 +5,13 @@ import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.make.common.constant.KafkaTopics;
 import com.make.common.utils.DateUtils;
+import com.make.stock.domain.StockBigMoneyAlert;
 import com.make.stock.domain.StockTick;
 import com.make.stock.domain.dto.StockTickTaskDTO;
 import com.make.stock.mapper.StockTickMapper;
+import com.make.stock.service.IStockTickService;
+import com.make.stock.service.scheduled.stock.tick.BigMoneyDetector;
+import com.make.stock.service.scheduled.stock.tick.TickHighWaterMark;
 import com.make.stock.util.KlineDataFetcher;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
@@ -16,8 +20,8 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -31,9 +35,23 @@ public class StockTickTaskConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(StockTickTaskConsumer.class);
 
+    /**
+     * 前方排队超过该数量的许可间隔时跳过本轮，由下一轮调度补齐（逐笔数据按位置游标增量入库，跳过不丢数据）
+     */
+    private static final int MAX_QUEUED_PERMITS = 2;
+
     @Resource
     private StockTickMapper stockTickMapper;
 
+    @Resource
+    private IStockTickService stockTickService;
+
+    @Resource
+    private BigMoneyDetector bigMoneyDetector;
+
+    @Resource
+    private TickHighWaterMark tickHighWaterMark;
+
     @KafkaListener(topics = KafkaTopics.TOPIC_STOCK_TICK_TASK, groupId = "stock-tick-group", concurrency = "3")
     public void processTickTask(ConsumerRecord<String, String> record) {
         String msg = record.value();
@@ -43,63 +61,86 @@ public class StockTickTaskConsumer {
 
             long start = System.currentTimeMillis();
 
+            // 0. Throttle Check: avoid parking a listener thread on a long limiter wait
+            long waitHint = KlineDataFetcher.peekWaitMillis(KlineDataFetcher.KEY_TICKS);
+            if (waitHint > MAX_QUEUED_PERMITS * KlineDataFetcher.permitIntervalMillis(KlineDataFetcher.KEY_TICKS)) {
+                log.info("[TickConsumer] Throttled, defer {} to next cycle. wait={}ms, TraceId={}",
+                        task.getStockCode(), waitHint, task.getTraceId());
+                return;
+            }
+
             // 1. Fetch Data
             JSONArray ticksJson = KlineDataFetcher.fetchStockTicks(task.getStockCode(), task.getMarket());
             if (ticksJson == null || ticksJson.isEmpty()) {
                 return;
             }
 
-            // 2. Prepare Date Context
-            String todayStr = DateUtils.getDate(); // yyyy-MM-dd
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            SimpleDateFormat dateOnlySdk = new SimpleDateFormat("yyyy-MM-dd");
-            Date today = dateOnlySdk.parse(todayStr); // Midnight
+            // 2. Prepare Date Context (midnight epoch, tick times are offsets from it)
+            LocalDate tradeDay = LocalDate.now();
+            long midnightMs = tradeDay.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            Date today = new Date(midnightMs);
 
-            // 3. Get Max Tick Count to filter
-            Long maxTick = stockTickMapper.selectMaxTickCount(task.getStockCode(), today);
-            long maxTickVal = (maxTick != null) ? maxTick : -1;
+            // 3. High-water mark (Redis, DB only on first miss of the day)
+            long mark = tickHighWaterMark.get(task.getStockCode(), tradeDay);
 
             // 4. Parse and Filter
+            // Ticks come in time order without a sequence number; a tick is identified by its second
+            // plus its ordinal within that second, and only positions past the mark are new.
             List<StockTick> toInsert = new ArrayList<>();
             Date now = DateUtils.getNowDate();
+            long batchMax = mark;
+            int lastSecond = -1;
+            int seqNo = 0;
 
             for (int i = 0; i < ticksJson.size(); i++) {
                 JSONObject item = ticksJson.getJSONObject(i);
-                Long tickCount = item.getLong("tickCount");
-
-                if (tickCount != null && tickCount > maxTickVal) {
-                    StockTick tick = new StockTick();
-                    tick.setStockCode(task.getStockCode());
-                    tick.setTradeDate(today);
-
-                    String timeStr = item.getString("time");
-                    if (timeStr != null) {
-                        try {
-                            // timeStr is usually HH:mm:ss
-                            tick.setTradeTime(sdf.parse(todayStr + " " + timeStr));
-                        } catch (ParseException e) {
-                            // ignore
-                        }
-                    }
-
-                    tick.setPrice(item.getBigDecimal("price"));
-                    tick.setVolume(item.getLong("volume"));
-                    tick.setSideCode(item.getLong("sideCode"));
-                    tick.setTickCount(tickCount);
-                    tick.setAvgVol(item.getBigDecimal("avgVol"));
-                    tick.setIsBigMoney(0); // Default
-                    tick.setCreateTime(now);
-                    tick.setUpdateTime(now);
-
-                    toInsert.add(tick);
+
+                // timeStr is usually HH:mm:ss
+                int secondOfDay = parseSecondOfDay(item.getString("time"));
+                if (secondOfDay < 0) {
+                    continue;
                 }
+                seqNo = secondOfDay == lastSecond ? seqNo + 1 : 1;
+                lastSecond = secondOfDay;
+
+                long cursor = TickHighWaterMark.cursor(secondOfDay, seqNo);
+                if (cursor <= mark) {
+                    continue;
+                }
+
+                StockTick tick = new StockTick();
+                tick.setStockCode(task.getStockCode());
+                tick.setTradeDate(today);
+                tick.setTradeTime(new Date(midnightMs + secondOfDay * 1000L));
+                tick.setSeqNo(seqNo);
+                tick.setPrice(item.getBigDecimal("price"));
+                tick.setVolume(item.getLong("volume"));
+                tick.setSideCode(item.getLong("sideCode"));
+                tick.setTickCount(item.getLong("tickCount"));
+                tick.setAvgVol(item.getBigDecimal("avgVol"));
+                tick.setIsBigMoney(0); // Default
+                tick.setCreateTime(now);
+                tick.setUpdateTime(now);
+
+                toInsert.add(tick);
+                batchMax = Math.max(batchMax, cursor);
             }
 
-            // 5. Batch Insert
+            // 5. Big Money Detection (marks isBigMoney on flagged ticks; window advances only after commit)
+            BigMoneyDetector.Detection detection = bigMoneyDetector.detect(task.getStockCode(), today, toInsert);
+            List<StockBigMoneyAlert> alerts = detection.getAlerts();
+
+            // 6. Batch Insert (ticks and alerts in one transaction)
             if (!toInsert.isEmpty()) {
-                stockTickMapper.insertStockTickBatch(toInsert);
-                log.info("[TickConsumer] Inserted {} ticks for {}. TraceId={}, Cost={}ms",
-                        toInsert.size(), task.getStockCode(), task.getTraceId(), (System.currentTimeMillis() - start));
+                if (alerts.isEmpty()) {
+                    stockTickMapper.insertStockTickBatch(toInsert);
+                } else {
+                    stockTickService.insertTicksWithAlerts(toInsert, alerts);
+                }
+                bigMoneyDetector.commit(task.getStockCode(), detection);
+                tickHighWaterMark.advance(task.getStockCode(), tradeDay, batchMax);
+                log.info("[TickConsumer] Inserted {} ticks ({} big money) for {}. TraceId={}, Cost={}ms",
+                        toInsert.size(), alerts.size(), task.getStockCode(), task.getTraceId(), (System.currentTimeMillis() - start));
             } else {
                 log.debug("[TickConsumer] No new ticks for {}. TraceId={}", task.getStockCode(), task.getTraceId());
             }
@@ -108,4 +149,30 @@ public class StockTickTaskConsumer {
             log.error("[TickConsumer] Failed to process task: {}", msg, e);
         }
     }
+
+    /**
+     * 解析 HH:mm:ss / HH:mm 为当日秒数，格式不符返回 -1
+     */
+    private static int parseSecondOfDay(String time) {
+        if (time == null) {
+            return -1;
+        }
+        int len = time.length();
+        if ((len != 5 && len != 8) || time.charAt(2) != ':' || (len == 8 && time.charAt(5) != ':')) {
+            return -1;
+        }
+        int h = twoDigits(time, 0);
+        int m = twoDigits(time, 3);
+        int sec = len == 8 ? twoDigits(time, 6) : 0;
+        if (h < 0 || h > 23 || m < 0 || m > 59 || sec < 0 || sec > 59) {
+            return -1;
+        }
+        return h * 3600 + m * 60 + sec;
+    }
+
+    private static int twoDigits(String s, int from) {
+        int a = s.charAt(from) - '0';
+        int b = s.charAt(from + 1) - '0';
+        return (a < 0 || a > 9 || b < 0 || b > 9) ? -1 : a * 10 + b;
+    }
 }
@@ -1,5 +1,6 @@
 package com.make.stock.service;
 
+import java.util.Date;
 import java.util.List;
 
 import com.make.stock.domain .SalesData;
@@ -75,4 +76,13 @@ public interface ISalesDataService {
      * @return 结果
      */
     public List<SalesData> selectSalesDataYearlyMax(Long userId);
+
+    /**
+     * 按交易表汇总当年净利润，写入或覆盖每个用户指定日期的记录
+     *
+     * @param recordDate 记录日期
+     * @param year       统计年份
+     * @return 结果
+     */
+    public int upsertDailyProfitFromTrades(Date recordDate, int year);
 }
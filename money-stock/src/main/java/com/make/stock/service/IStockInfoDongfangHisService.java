@@ -61,7 +61,7 @@ public interface IStockInfoDongfangHisService {
     public int deleteStockInfoDongfangHisById(Long id);
 
     /**
-     * 批量新增东方财富历史
+     * 批量新增东方财富历史（同一 stock_code/in_date 已存在时覆盖）
      *
      * @return 结果
      */
@@ -6,6 +6,7 @@ import java.util.List;
 
 import com.make.stock.domain.StockKline;
 import com.make.stock.domain.vo.StockRankingStat;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 股票K线数据Service接口
@@ -31,6 +32,14 @@ public interface IStockKlineService {
      */
     public List<StockKline> selectStockKlineList(StockKline stockKline);
 
+    /**
+     * 流式查询股票K线数据列表，逐行回调，用于大数据量导出
+     *
+     * @param stockKline 查询条件
+     * @param handler 行回调
+     */
+    public void streamStockKlineList(StockKline stockKline, ResultHandler<StockKline> handler);
+
     /**
      * 新增股票K线数据
      *
@@ -100,4 +109,14 @@ public interface IStockKlineService {
      * @return List of ranking stats
      */
     List<StockRankingStat> selectStockRanking(String type);
+
+    /**
+     * 查询单只股票区间内的K线（按交易日升序）
+     *
+     * @param stockCode 股票代码
+     * @param startDate 起始日期（含）
+     * @param endDate   结束日期（含）
+     * @return K线列表
+     */
+    List<StockKline> selectKlineSeries(String stockCode, LocalDate startDate, LocalDate endDate);
 }
@@ -1,5 +1,6 @@
 package com.make.stock.service;
 
+import java.util.Date;
 import java.util.List;
 
 import com.make.stock.domain .StockKlineTask;
@@ -63,4 +64,12 @@ public interface IStockKlineTaskService {
     List<StockKlineTask> getStockAllTask(int nodeId);
 
     void batchFinishTask(List<Long> successTasks);
+
+    /**
+     * 更新历史回填断点
+     *
+     * @param id         任务主键
+     * @param checkpoint 已落库的最后一个分页截止日
+     */
+    void updateSyncCheckpoint(Long id, Date checkpoint);
 }
@@ -1,8 +1,13 @@
 package com.make.stock.service;
 
+import java.time.LocalDate;
 import java.util.List;
 
+import com.make.stock.domain.StockBigMoneyAlert;
 import com.make.stock.domain.StockTick;
+import com.make.stock.domain.StockTickMinute;
+import com.make.stock.domain.StockTickVolumeProfile;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 股票逐笔成交明细Service接口
@@ -28,6 +33,14 @@ public interface IStockTickService {
      */
     public List<StockTick> selectStockTickList(StockTick stockTick);
 
+    /**
+     * 流式查询股票逐笔成交明细列表，逐行回调，用于大数据量导出
+     *
+     * @param stockTick 查询条件
+     * @param handler 行回调
+     */
+    public void streamStockTickList(StockTick stockTick, ResultHandler<StockTick> handler);
+
     /**
      * 新增股票逐笔成交明细
      *
@@ -59,4 +72,33 @@ public interface IStockTickService {
      * @return 结果
      */
     public int deleteStockTickById(String id);
+
+    /**
+     * 批量写入逐笔成交，并在同一事务内写入其中被标记为大资金的预警
+     *
+     * @param ticks  逐笔成交（已标记 isBigMoney）
+     * @param alerts 大资金预警
+     * @return 写入的逐笔成交条数
+     */
+    public int insertTicksWithAlerts(List<StockTick> ticks, List<StockBigMoneyAlert> alerts);
+
+    /**
+     * 查询区间分钟线：已汇总的交易日读 stock_tick_minute，其余交易日从原始逐笔实时聚合
+     *
+     * @param stockCode 股票代码
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 按时间升序的分钟线
+     */
+    public List<StockTickMinute> selectMinuteBars(String stockCode, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * 查询区间分价成交量：已汇总的交易日读 stock_tick_volume_profile，其余交易日从原始逐笔实时聚合，按价格合并
+     *
+     * @param stockCode 股票代码
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 按价格升序的分价成交量
+     */
+    public List<StockTickVolumeProfile> selectVolumeProfile(String stockCode, LocalDate startDate, LocalDate endDate);
 }
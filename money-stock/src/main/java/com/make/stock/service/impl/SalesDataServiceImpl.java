@@ -1,5 +1,6 @@
 package com.make.stock.service.impl;
 
+import java.util.Date;
 import java.util.List;
         import com.make.common.utils.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -109,4 +110,16 @@ public class SalesDataServiceImpl implements ISalesDataService {
     public List<SalesData> selectSalesDataYearlyMax(Long userId) {
         return salesDataMapper.selectSalesDataYearlyMax(userId);
     }
+
+    /**
+     * 按交易表汇总当年净利润，写入或覆盖每个用户指定日期的记录
+     *
+     * @param recordDate 记录日期
+     * @param year       统计年份
+     * @return 结果
+     */
+    @Override
+    public int upsertDailyProfitFromTrades(Date recordDate, int year) {
+        return salesDataMapper.upsertDailyProfitFromTrades(recordDate, year);
+    }
 }
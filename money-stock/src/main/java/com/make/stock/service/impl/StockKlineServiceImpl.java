@@ -22,6 +22,9 @@ import com.make.stock.domain.vo.StockRankingStat;
 import com.make.stock.mapper.StockKlineMapper;
 import com.make.stock.domain.StockKline;
 import com.make.stock.service.IStockKlineService;
+import com.make.stock.service.scheduled.impl.StockKlineColumnStore;
+import com.make.stock.service.scheduled.impl.StockKlineDateIndex;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 股票K线数据Service业务层处理
@@ -35,6 +38,12 @@ public class StockKlineServiceImpl implements IStockKlineService {
     @Autowired
     private StockKlineMapper stockKlineMapper;
 
+    @Autowired
+    private StockKlineDateIndex stockKlineDateIndex;
+
+    @Autowired
+    private StockKlineColumnStore stockKlineColumnStore;
+
     /**
      * 查询股票K线数据
      *
@@ -57,6 +66,17 @@ public class StockKlineServiceImpl implements IStockKlineService {
         return stockKlineMapper.selectStockKlineList(stockKline);
     }
 
+    /**
+     * 流式查询股票K线数据列表，逐行回调，用于大数据量导出
+     *
+     * @param stockKline 查询条件
+     * @param handler 行回调
+     */
+    @Override
+    public void streamStockKlineList(StockKline stockKline, ResultHandler<StockKline> handler) {
+        stockKlineMapper.streamStockKlineList(stockKline, handler);
+    }
+
     /**
      * 新增股票K线数据
      *
@@ -66,7 +86,10 @@ public class StockKlineServiceImpl implements IStockKlineService {
     @Override
     public int insertStockKline(StockKline stockKline) {
         stockKline.setCreateTime(DateUtils.getNowDate());
-        return stockKlineMapper.insertStockKline(stockKline);
+        int rows = stockKlineMapper.insertStockKline(stockKline);
+        stockKlineDateIndex.record(stockKline);
+        stockKlineColumnStore.record(stockKline);
+        return rows;
     }
 
     /**
@@ -125,7 +148,12 @@ public class StockKlineServiceImpl implements IStockKlineService {
     @Override
     public int updateByStockCodeAndTradeDate(StockKline stockKline) {
         stockKline.setUpdateTime(DateUtils.getNowDate());
-        return stockKlineMapper.updateByStockCodeAndTradeDate(stockKline);
+        int rows = stockKlineMapper.updateByStockCodeAndTradeDate(stockKline);
+        if (rows > 0) {
+            stockKlineDateIndex.record(stockKline);
+            stockKlineColumnStore.record(stockKline);
+        }
+        return rows;
     }
 
     /**
@@ -136,12 +164,17 @@ public class StockKlineServiceImpl implements IStockKlineService {
      */
     @Override
     public int insertOrUpdateBatch(List<StockKline> klines) {
-        return stockKlineMapper.insertOrUpdateBatch(klines);
+        int rows = stockKlineMapper.insertOrUpdateBatch(klines);
+        stockKlineDateIndex.record(klines);
+        stockKlineColumnStore.record(klines);
+        return rows;
     }
 
     @Override
     public void batchUpdateByStockCodeAndTradeDate(List<StockKline> updateList) {
         stockKlineMapper.insertOrUpdateBatch(updateList);
+        stockKlineDateIndex.record(updateList);
+        stockKlineColumnStore.record(updateList);
     }
 
     @Override
@@ -154,6 +187,26 @@ public class StockKlineServiceImpl implements IStockKlineService {
         return stockKlineMapper.queryWeekAllStockKline(stockCode, tradeDateList);
     }
 
+    /**
+     * 查询单只股票区间内的K线（按交易日升序）
+     * <p>
+     * 区间在列式缓存覆盖范围内时直接从内存返回 OHLCV，否则回退到数据库。
+     * </p>
+     */
+    @Override
+    public List<StockKline> selectKlineSeries(String stockCode, LocalDate startDate, LocalDate endDate) {
+        if (stockKlineColumnStore.covers(startDate)) {
+            return stockKlineColumnStore.series(stockCode, startDate, endDate);
+        }
+        StockKline criteria = new StockKline();
+        criteria.setStockCode(stockCode);
+        criteria.setStartDate(java.sql.Date.valueOf(startDate));
+        criteria.setEndDate(java.sql.Date.valueOf(endDate));
+        List<StockKline> list = new ArrayList<>(stockKlineMapper.selectStockKlineList(criteria));
+        Collections.reverse(list);
+        return list;
+    }
+
     @Override
     public List<StockRankingStat> selectStockRanking(String type) {
         LocalDate endDate = LocalDate.now();
@@ -176,15 +229,19 @@ public class StockKlineServiceImpl implements IStockKlineService {
                 || type.startsWith("LATEST_VS_HIGH") || type.startsWith("LATEST_VS_LOW");
         boolean isWeeklyType = type.startsWith("WEEKLY");
 
-        List<StockKline> currentData = stockKlineMapper.selectStockKlineByRange(startDate, endDate);
+        // For yearly comparison, we want the FULL previous year (Jan 1 to Dec 31)
+        LocalDate prevYearStart = LocalDate.of(startDate.getYear() - 1, 1, 1);
+        LocalDate prevYearEnd = LocalDate.of(startDate.getYear() - 1, 12, 31);
+        LocalDate currWeekStart = endDate.with(DayOfWeek.MONDAY);
+        LocalDate prevWeekStart = currWeekStart.minusWeeks(1);
 
-        List<StockKline> prevData = new ArrayList<>();
-        if (isYearlyType) {
-            // Fix: For yearly comparison, we want the FULL previous year (Jan 1 to Dec 31)
-            LocalDate prevYearStart = LocalDate.of(startDate.getYear() - 1, 1, 1);
-            LocalDate prevYearEnd = LocalDate.of(startDate.getYear() - 1, 12, 31);
-            prevData = stockKlineMapper.selectStockKlineByRange(prevYearStart, prevYearEnd);
-        }
+        // 列式缓存已覆盖所需区间时直接在内存计算，否则回退到数据库
+        LocalDate earliest = isYearlyType ? prevYearStart : startDate;
+        Map<String, RankingInput> inputs = stockKlineColumnStore.covers(earliest)
+                ? collectRankingInputsFromStore(isYearlyType, isWeeklyType, startDate, endDate,
+                        prevYearStart, prevYearEnd, currWeekStart, prevWeekStart)
+                : collectRankingInputsFromDb(isYearlyType, isWeeklyType, startDate, endDate,
+                        prevYearStart, prevYearEnd, currWeekStart, prevWeekStart);
 
         // Map Stock Names
         List<StockRankingStat> nameStats = stockKlineMapper.selectStockNames();
@@ -195,103 +252,41 @@ public class StockKlineServiceImpl implements IStockKlineService {
             }
         }
 
-        Map<String, List<StockKline>> currentGrouped = currentData.stream().collect(Collectors.groupingBy(StockKline::getStockCode));
-        Map<String, List<StockKline>> prevGrouped = prevData.stream().collect(Collectors.groupingBy(StockKline::getStockCode));
-
         List<RankingWrapper> wrappers = new ArrayList<>();
 
-        for (String stockCode : currentGrouped.keySet()) {
-            List<StockKline> currKlines = currentGrouped.get(stockCode);
-            List<StockKline> prevKlines = prevGrouped.getOrDefault(stockCode, Collections.emptyList());
-
-            if (currKlines.isEmpty()) continue;
+        for (Map.Entry<String, RankingInput> entry : inputs.entrySet()) {
+            String stockCode = entry.getKey();
+            RankingInput in = entry.getValue();
 
             BigDecimal currentVal = null;
             BigDecimal prevVal = null;
             BigDecimal sortValue = null;
 
-            // Safe calculation with null checks
-            BigDecimal currMaxHigh = currKlines.stream()
-                    .map(StockKline::getHigh)
-                    .filter(Objects::nonNull)
-                    .max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
-
-            BigDecimal currMinLow = currKlines.stream()
-                    .map(StockKline::getLow)
-                    .filter(Objects::nonNull)
-                    .min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
-
-            BigDecimal currClose = currKlines.stream()
-                    .max(Comparator.comparing(StockKline::getTradeDate))
-                    .map(StockKline::getClose).orElse(BigDecimal.ZERO);
-
             if (isYearlyType) {
-                 if (prevKlines.isEmpty()) continue;
-
-                 BigDecimal prevMaxHigh = prevKlines.stream()
-                         .map(StockKline::getHigh)
-                         .filter(Objects::nonNull)
-                         .max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
-
-                 BigDecimal prevMinLow = prevKlines.stream()
-                         .map(StockKline::getLow)
-                         .filter(Objects::nonNull)
-                         .min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
-
                  switch (type) {
                      case "HIGH_VS_HIGH":
-                         currentVal = currMaxHigh;
-                         prevVal = prevMaxHigh;
-                         if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
-                             sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
-                         }
+                         currentVal = in.currMaxHigh;
+                         prevVal = in.prevMaxHigh;
                          break;
                      case "LOW_VS_LOW":
-                         currentVal = currMinLow;
-                         prevVal = prevMinLow;
-                         if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
-                             sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
-                         }
+                         currentVal = in.currMinLow;
+                         prevVal = in.prevMinLow;
                          break;
                      case "LATEST_VS_HIGH":
-                         currentVal = currClose;
-                         prevVal = prevMaxHigh;
-                         if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
-                             sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
-                         }
+                         currentVal = in.currClose;
+                         prevVal = in.prevMaxHigh;
                          break;
                      case "LATEST_VS_LOW":
-                         currentVal = currClose;
-                         prevVal = prevMinLow;
-                         if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
-                             sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
-                         }
+                         currentVal = in.currClose;
+                         prevVal = in.prevMinLow;
                          break;
                  }
+                 if (prevVal != null && prevVal.compareTo(BigDecimal.ZERO) != 0) {
+                     sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
+                 }
             } else if (isWeeklyType) {
-                LocalDate baseDate = endDate;
-                LocalDate currWeekStart = baseDate.with(DayOfWeek.MONDAY);
-                LocalDate prevWeekStart = currWeekStart.minusWeeks(1);
-
-                List<StockKline> thisWeekKlines = new ArrayList<>();
-                List<StockKline> lastWeekKlines = new ArrayList<>();
-
-                for (StockKline k : currKlines) {
-                    LocalDate kDate = convertToLocalDate(k.getTradeDate());
-                    if (!kDate.isBefore(currWeekStart)) {
-                        thisWeekKlines.add(k);
-                    } else if (!kDate.isBefore(prevWeekStart) && kDate.isBefore(currWeekStart)) {
-                        lastWeekKlines.add(k);
-                    }
-                }
-
-                if (thisWeekKlines.isEmpty() || lastWeekKlines.isEmpty()) continue;
-
-                BigDecimal thisWeekClose = thisWeekKlines.stream().max(Comparator.comparing(StockKline::getTradeDate)).map(StockKline::getClose).orElse(BigDecimal.ZERO);
-                BigDecimal lastWeekClose = lastWeekKlines.stream().max(Comparator.comparing(StockKline::getTradeDate)).map(StockKline::getClose).orElse(BigDecimal.ZERO);
-
-                currentVal = thisWeekClose;
-                prevVal = lastWeekClose;
+                currentVal = in.thisWeekClose;
+                prevVal = in.lastWeekClose;
 
                 if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
                     sortValue = currentVal.subtract(prevVal).divide(prevVal, 4, RoundingMode.HALF_UP);
@@ -301,21 +296,18 @@ public class StockKlineServiceImpl implements IStockKlineService {
                 switch (type) {
                     case "HIGH_VS_LATEST_HIGH":
                     case "HIGH_VS_LATEST_LOW":
-                        currentVal = currClose;
-                        prevVal = currMaxHigh;
-                        if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
-                            sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
-                        }
+                        currentVal = in.currClose;
+                        prevVal = in.currMaxHigh;
                         break;
                     case "LOW_VS_LATEST_HIGH":
                     case "LOW_VS_LATEST_LOW":
-                        currentVal = currClose;
-                        prevVal = currMinLow;
-                         if (prevVal.compareTo(BigDecimal.ZERO) != 0) {
-                            sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
-                        }
+                        currentVal = in.currClose;
+                        prevVal = in.currMinLow;
                         break;
                 }
+                if (prevVal != null && prevVal.compareTo(BigDecimal.ZERO) != 0) {
+                    sortValue = currentVal.divide(prevVal, 4, RoundingMode.HALF_UP);
+                }
             }
 
             if (sortValue != null) {
@@ -343,6 +335,135 @@ public class StockKlineServiceImpl implements IStockKlineService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 从列式缓存计算排行输入：每只股票只做几次二分 + 区间扫描，不构造 K 线对象
+     */
+    private Map<String, RankingInput> collectRankingInputsFromStore(boolean isYearlyType, boolean isWeeklyType,
+                                                                   LocalDate startDate, LocalDate endDate,
+                                                                   LocalDate prevYearStart, LocalDate prevYearEnd,
+                                                                   LocalDate currWeekStart, LocalDate prevWeekStart) {
+        Map<String, RankingInput> inputs = new HashMap<>();
+        for (String stockCode : stockKlineColumnStore.stockCodes()) {
+            StockKlineColumnStore.RangeStats curr = stockKlineColumnStore.rangeStats(stockCode, startDate, endDate);
+            if (curr == null) continue;
+
+            RankingInput in = new RankingInput();
+            in.currMaxHigh = orZero(curr.getMaxHigh());
+            in.currMinLow = orZero(curr.getMinLow());
+            in.currClose = orZero(curr.getLastClose());
+
+            if (isYearlyType) {
+                StockKlineColumnStore.RangeStats prev = stockKlineColumnStore.rangeStats(stockCode, prevYearStart, prevYearEnd);
+                if (prev == null) continue;
+                in.prevMaxHigh = orZero(prev.getMaxHigh());
+                in.prevMinLow = orZero(prev.getMinLow());
+            } else if (isWeeklyType) {
+                LocalDate thisWeekFrom = currWeekStart.isBefore(startDate) ? startDate : currWeekStart;
+                LocalDate lastWeekFrom = prevWeekStart.isBefore(startDate) ? startDate : prevWeekStart;
+                StockKlineColumnStore.RangeStats thisWeek = stockKlineColumnStore.rangeStats(stockCode, thisWeekFrom, endDate);
+                StockKlineColumnStore.RangeStats lastWeek = stockKlineColumnStore.rangeStats(stockCode, lastWeekFrom, currWeekStart.minusDays(1));
+                if (thisWeek == null || lastWeek == null) continue;
+                in.thisWeekClose = orZero(thisWeek.getLastClose());
+                in.lastWeekClose = orZero(lastWeek.getLastClose());
+            }
+            inputs.put(stockCode, in);
+        }
+        return inputs;
+    }
+
+    /**
+     * 从数据库计算排行输入（缓存未就绪时的回退路径）
+     */
+    private Map<String, RankingInput> collectRankingInputsFromDb(boolean isYearlyType, boolean isWeeklyType,
+                                                                LocalDate startDate, LocalDate endDate,
+                                                                LocalDate prevYearStart, LocalDate prevYearEnd,
+                                                                LocalDate currWeekStart, LocalDate prevWeekStart) {
+        List<StockKline> currentData = stockKlineMapper.selectStockKlineByRange(startDate, endDate);
+
+        List<StockKline> prevData = new ArrayList<>();
+        if (isYearlyType) {
+            prevData = stockKlineMapper.selectStockKlineByRange(prevYearStart, prevYearEnd);
+        }
+
+        Map<String, List<StockKline>> currentGrouped = currentData.stream().collect(Collectors.groupingBy(StockKline::getStockCode));
+        Map<String, List<StockKline>> prevGrouped = prevData.stream().collect(Collectors.groupingBy(StockKline::getStockCode));
+
+        Map<String, RankingInput> inputs = new HashMap<>();
+        for (String stockCode : currentGrouped.keySet()) {
+            List<StockKline> currKlines = currentGrouped.get(stockCode);
+            List<StockKline> prevKlines = prevGrouped.getOrDefault(stockCode, Collections.emptyList());
+
+            if (currKlines.isEmpty()) continue;
+
+            RankingInput in = new RankingInput();
+            in.currMaxHigh = maxHigh(currKlines);
+            in.currMinLow = minLow(currKlines);
+            in.currClose = latestClose(currKlines);
+
+            if (isYearlyType) {
+                if (prevKlines.isEmpty()) continue;
+                in.prevMaxHigh = maxHigh(prevKlines);
+                in.prevMinLow = minLow(prevKlines);
+            } else if (isWeeklyType) {
+                List<StockKline> thisWeekKlines = new ArrayList<>();
+                List<StockKline> lastWeekKlines = new ArrayList<>();
+
+                for (StockKline k : currKlines) {
+                    LocalDate kDate = convertToLocalDate(k.getTradeDate());
+                    if (!kDate.isBefore(currWeekStart)) {
+                        thisWeekKlines.add(k);
+                    } else if (!kDate.isBefore(prevWeekStart)) {
+                        lastWeekKlines.add(k);
+                    }
+                }
+
+                if (thisWeekKlines.isEmpty() || lastWeekKlines.isEmpty()) continue;
+
+                in.thisWeekClose = latestClose(thisWeekKlines);
+                in.lastWeekClose = latestClose(lastWeekKlines);
+            }
+            inputs.put(stockCode, in);
+        }
+        return inputs;
+    }
+
+    private static BigDecimal maxHigh(List<StockKline> klines) {
+        return klines.stream()
+                .map(StockKline::getHigh)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
+    }
+
+    private static BigDecimal minLow(List<StockKline> klines) {
+        return klines.stream()
+                .map(StockKline::getLow)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO);
+    }
+
+    private static BigDecimal latestClose(List<StockKline> klines) {
+        return klines.stream()
+                .max(Comparator.comparing(StockKline::getTradeDate))
+                .map(StockKline::getClose).orElse(BigDecimal.ZERO);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    /**
+     * 单只股票的排行计算输入（区间极值与收盘价）
+     */
+    private static class RankingInput {
+        BigDecimal currMaxHigh;
+        BigDecimal currMinLow;
+        BigDecimal currClose;
+        BigDecimal prevMaxHigh;
+        BigDecimal prevMinLow;
+        BigDecimal thisWeekClose;
+        BigDecimal lastWeekClose;
+    }
+
     private static class RankingWrapper {
         StockRankingStat stat;
         BigDecimal sortValue;
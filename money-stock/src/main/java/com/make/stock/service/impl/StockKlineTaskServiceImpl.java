@@ -1,6 +1,7 @@
 package com.make.stock.service.impl;
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import com.make.common.utils.DateUtils;
@@ -110,4 +111,12 @@ public class StockKlineTaskServiceImpl implements IStockKlineTaskService {
         }
         stockKlineTaskMapper.batchFinishTask(taskIds);
     }
+
+    @Override
+    public void updateSyncCheckpoint(Long id, Date checkpoint) {
+        if (id == null) {
+            return;
+        }
+        stockKlineTaskMapper.updateSyncCheckpoint(id, checkpoint);
+    }
 }
@@ -1,13 +1,25 @@
 package com.make.stock.service.impl;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.make.common.utils.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.make.stock.mapper.StockBigMoneyAlertMapper;
 import com.make.stock.mapper.StockTickMapper;
+import com.make.stock.domain.StockBigMoneyAlert;
 import com.make.stock.domain.StockTick;
+import com.make.stock.domain.StockTickMinute;
+import com.make.stock.domain.StockTickVolumeProfile;
 import com.make.stock.service.IStockTickService;
+import com.make.stock.service.scheduled.stock.tick.TickStorageManager;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 股票逐笔成交明细Service业务层处理
@@ -21,6 +33,12 @@ public class StockTickServiceImpl implements IStockTickService {
     @Autowired
     private StockTickMapper stockTickMapper;
 
+    @Autowired
+    private StockBigMoneyAlertMapper stockBigMoneyAlertMapper;
+
+    @Autowired
+    private TickStorageManager tickStorageManager;
+
     /**
      * 查询股票逐笔成交明细
      *
@@ -43,6 +61,17 @@ public class StockTickServiceImpl implements IStockTickService {
         return stockTickMapper.selectStockTickList(stockTick);
     }
 
+    /**
+     * 流式查询股票逐笔成交明细列表，逐行回调，用于大数据量导出
+     *
+     * @param stockTick 查询条件
+     * @param handler 行回调
+     */
+    @Override
+    public void streamStockTickList(StockTick stockTick, ResultHandler<StockTick> handler) {
+        stockTickMapper.streamStockTickList(stockTick, handler);
+    }
+
     /**
      * 新增股票逐笔成交明细
      *
@@ -88,4 +117,82 @@ public class StockTickServiceImpl implements IStockTickService {
     public int deleteStockTickById(String id) {
         return stockTickMapper.deleteStockTickById(id);
     }
+
+    /**
+     * 批量写入逐笔成交，并在同一事务内写入大资金预警
+     *
+     * @param ticks  逐笔成交（已标记 isBigMoney）
+     * @param alerts 大资金预警
+     * @return 写入的逐笔成交条数
+     */
+    @Override
+    @Transactional
+    public int insertTicksWithAlerts(List<StockTick> ticks, List<StockBigMoneyAlert> alerts) {
+        int rows = ticks.isEmpty() ? 0 : stockTickMapper.insertStockTickBatch(ticks);
+        if (alerts != null && !alerts.isEmpty()) {
+            stockBigMoneyAlertMapper.insertStockBigMoneyAlertBatch(alerts);
+        }
+        return rows;
+    }
+
+    /**
+     * 查询区间分钟线（按汇总边界分层读取）
+     *
+     * @param stockCode 股票代码
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 按时间升序的分钟线
+     */
+    @Override
+    public List<StockTickMinute> selectMinuteBars(String stockCode, LocalDate startDate, LocalDate endDate) {
+        LocalDate boundary = tickStorageManager.rolledUpUntil();
+        List<StockTickMinute> bars = new ArrayList<>();
+        if (boundary != null && !startDate.isAfter(boundary)) {
+            LocalDate rolledEnd = endDate.isAfter(boundary) ? boundary : endDate;
+            bars.addAll(stockTickMapper.selectMinuteBarList(stockCode,
+                    DateUtils.toDate(startDate), DateUtils.toDate(rolledEnd)));
+        }
+        LocalDate rawStart = boundary != null && !startDate.isAfter(boundary) ? boundary.plusDays(1) : startDate;
+        if (!rawStart.isAfter(endDate)) {
+            bars.addAll(stockTickMapper.aggregateMinuteBars(stockCode,
+                    DateUtils.toDate(rawStart), DateUtils.toDate(endDate)));
+        }
+        return bars;
+    }
+
+    /**
+     * 查询区间分价成交量（按汇总边界分层读取后按价格合并）
+     *
+     * @param stockCode 股票代码
+     * @param startDate 开始日期（含）
+     * @param endDate   结束日期（含）
+     * @return 按价格升序的分价成交量
+     */
+    @Override
+    public List<StockTickVolumeProfile> selectVolumeProfile(String stockCode, LocalDate startDate, LocalDate endDate) {
+        LocalDate boundary = tickStorageManager.rolledUpUntil();
+        Map<BigDecimal, StockTickVolumeProfile> byPrice = new TreeMap<>();
+        if (boundary != null && !startDate.isAfter(boundary)) {
+            LocalDate rolledEnd = endDate.isAfter(boundary) ? boundary : endDate;
+            mergeProfile(byPrice, stockTickMapper.selectVolumeProfileList(stockCode,
+                    DateUtils.toDate(startDate), DateUtils.toDate(rolledEnd)));
+        }
+        LocalDate rawStart = boundary != null && !startDate.isAfter(boundary) ? boundary.plusDays(1) : startDate;
+        if (!rawStart.isAfter(endDate)) {
+            mergeProfile(byPrice, stockTickMapper.aggregateVolumeProfile(stockCode,
+                    DateUtils.toDate(rawStart), DateUtils.toDate(endDate)));
+        }
+        return new ArrayList<>(byPrice.values());
+    }
+
+    private static void mergeProfile(Map<BigDecimal, StockTickVolumeProfile> byPrice,
+                                     List<StockTickVolumeProfile> levels) {
+        for (StockTickVolumeProfile level : levels) {
+            // 以去掉尾零的价格为键，避免两层小数位数不同导致同价位分裂
+            StockTickVolumeProfile existing = byPrice.putIfAbsent(level.getPrice().stripTrailingZeros(), level);
+            if (existing != null) {
+                existing.merge(level);
+            }
+        }
+    }
 }
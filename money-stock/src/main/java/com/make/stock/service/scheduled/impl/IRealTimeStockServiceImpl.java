@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.make.common.constant.CacheConstants;
 import com.make.common.exception.business.BusinessException;
 import com.make.common.utils.ThreadPoolUtil;
+import com.make.stock.config.StockProperties;
 import com.make.stock.domain.StockConfigProperties;
 import com.make.stock.service.scheduled.IRealTimeStockService;
 import com.make.stock.util.DateUtil;
@@ -19,6 +20,7 @@ import com.make.stock.domain.dto.StockInfoDongFangChain;
 import com.make.stock.service.IStockInfoDongfangHisService;
 import com.make.stock.service.IStockInfoDongfangService;
 import com.make.stock.service.IStockListingNoticeService;
+import com.make.stock.service.scheduled.stock.snapshot.DongfangSnapshotStore;
 import com.make.stock.util.KlineDataFetcher;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -46,13 +48,19 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
@@ -75,6 +83,11 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
      */
     private static final Logger log = LoggerFactory.getLogger(IRealTimeStockServiceImpl.class);
 
+    /**
+     * 东方财富全市场同步的分块大小（每块一条 upsert 语句）
+     */
+    private static final int SYNC_CHUNK_SIZE = 1000;
+
 
     /**
      * 东方财富股票信息服务，用于查询和操作股票信息数据
@@ -85,6 +98,22 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
     @Resource
     private IStockListingNoticeService stockListingNoticeService;
 
+    /**
+     * 东方财富全市场二进制快照（按代码 + 版本号增量读取）
+     */
+    @Resource
+    private DongfangSnapshotStore dongfangSnapshotStore;
+
+    /**
+     * 本节点上次同步到数据库的快照版本号，0 表示下次全量同步
+     */
+    private volatile long lastSyncedSnapshotVersion = 0L;
+
+    /**
+     * lastSyncedSnapshotVersion 所属的快照纪元
+     */
+    private volatile long lastSyncedSnapshotEpoch = 0L;
+
     /**
      * 获取动态阈值配置
      * <p>
@@ -458,179 +487,107 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
      * 批量将缓存中的实时股票数据同步到数据库中
      * <p>
      * 数据来源：Redis 中的实时股票列表缓存（key = stock:realtime:all）
-     * 同步策略：
-     * - 若数据库中已存在，则进行 update
-     * - 否则执行 insert
+     * 同步策略（按集合处理，耗时与分块数成正比，而非行数）：
+     * - 一次查询已存在股票的 ID、一次查询全部上市通知代码，放入内存 Map / Set
+     * - 按 SYNC_CHUNK_SIZE 分块并行转换，每块一条 INSERT ... ON DUPLICATE KEY UPDATE
+     * - 单行转换失败或单块写库失败只记入拒绝列表，不中断其余数据
      * </p>
-     * <p>
-     * 每 1000 条批量提交一次
-     * </p>
-     *
-     * @throws BusinessException 当数据同步过程中发生错误时抛出
      */
     public void batchSyncStockDataToDB() {
-        // 从 Redis 中获取缓存的实时股票数据列表
-        List<StockInfoDongFangChain> cacheList = redisCache.getCacheList(CacheConstants.REALTIME_STOCK_ALL_DONGFANG_KEY);
+        long start = System.currentTimeMillis();
+        // 从 Redis 快照中只读取上次同步之后变更的股票
+        DongfangSnapshotStore.Delta delta = dongfangSnapshotStore.readSince(lastSyncedSnapshotEpoch, lastSyncedSnapshotVersion);
+        List<StockInfoDongFangChain> cacheList = delta.getStocks();
         // 记录启动财富数据同步日志
-        log.info("启动财富数据同步，待处理记录数：{}", cacheList != null ? cacheList.size() : 0);
+        log.info("启动财富数据同步，快照版本：{} -> {}，{}，待处理记录数：{}",
+                lastSyncedSnapshotVersion, delta.getVersion(), delta.isFull() ? "全量" : "增量", cacheList.size());
 
         // 判断缓存列表是否为空
         if (CollectionUtils.isEmpty(cacheList)) {
-            // 如果缓存中没有任何股票数据，记录警告日志并返回
-            log.warn("缓存中没有任何股票数据，跳过同步任务");
+            // 快照不存在时下次重新全量读取；快照存在但无变更时记录版本号
+            lastSyncedSnapshotEpoch = delta.getEpoch();
+            lastSyncedSnapshotVersion = delta.getVersion();
+            log.info("快照中没有变更的股票数据，跳过同步任务");
             return;
         }
 
-        // 收集所有股票代码，添加空值检查
-        Set<String> allStockCodes = cacheList != null ?
-                cacheList.stream()
-                        // 映射获取股票代码
-                        .map(StockInfoDongFangChain::getStockCode)
-                        // 收集为Set集合
-                        .collect(Collectors.toSet()) :
-                // 如果cacheList为null，则创建空的Set
-                new HashSet<>();
-
-        // 将Set集合转换为List
-        List<String> allStockCodesList = new ArrayList<>(allStockCodes);
-
-        // 批量查询已存在的股票信息
-        List<StockInfoDongfang> existingStockList = stockInfoDongfangService.queryIDByCodes(allStockCodesList);
-
-        // 转换为 Map 方便判断是否存在
-        Map<String, StockInfoDongfang> existingStockMap = existingStockList.stream()
-                // 收集为Map，键为股票代码，值为股票信息对象
-                .collect(Collectors.toMap(StockInfoDongfang::getStockCode, stockInfo -> stockInfo));
-
-        // 创建用于存储插入数据的列表
-        List<StockInfoDongfang> insertBatch = new ArrayList<>();
-        // 创建用于存储更新数据的列表
-        List<StockInfoDongfang> updateBatch = new ArrayList<>();
-
-        // 设置批次大小为1000
-        int batchSize = 1000;
-        // 初始化已处理记录数为0
-        int processedCount = 0;
+        // 收集所有股票代码
+        List<String> allStockCodesList = cacheList.stream()
+                .map(StockInfoDongFangChain::getStockCode)
+                .filter(StringUtils::isNotBlank)
+                .distinct()
+                .collect(Collectors.toList());
+
+        // 批量查询已存在的股票 ID（一次查询）
+        Map<String, Long> existingIdMap = new HashMap<>();
+        for (StockInfoDongfang existing : stockInfoDongfangService.queryIDByCodes(allStockCodesList)) {
+            existingIdMap.putIfAbsent(existing.getStockCode(), existing.getId());
+        }
 
-        // 判断缓存列表是否为null
-        if (cacheList == null) {
-            // 如果缓存列表为null，直接返回
-            return;
+        // 一次查询全部上市通知，代码放入 Set，替代逐行查询
+        List<StockListingNotice> stockListingNotices = stockListingNoticeService.selectStockListingNoticeList(new StockListingNotice());
+        Set<String> listingNoticeCodes = stockListingNotices.stream()
+                .map(StockListingNotice::getSecurityCode)
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toSet());
+
+        Map<String, StockInfoDongfang> listingNoticeMap = new ConcurrentHashMap<>();
+        Queue<String> rejects = new ConcurrentLinkedQueue<>();
+        AtomicInteger written = new AtomicInteger();
+
+        // 分块并行转换 + 单语句 upsert
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int from = 0; from < cacheList.size(); from += SYNC_CHUNK_SIZE) {
+            List<StockInfoDongFangChain> chunk = cacheList.subList(from, Math.min(from + SYNC_CHUNK_SIZE, cacheList.size()));
+            futures.add(ThreadPoolUtil.getCoreExecutor().submit(() ->
+                    syncDongfangChunk(chunk, existingIdMap, listingNoticeCodes, listingNoticeMap, rejects, written)));
         }
-        Map<String, StockInfoDongfang> listingNoticeMap = new HashMap<>();
-        StockListingNotice listingNotice = new StockListingNotice();
-        // 遍历缓存列表中的每个股票数据
-        for (StockInfoDongFangChain chain : cacheList) {
-            // 查询所有上市通知记录
-            listingNotice.setSecurityCode(chain.getStockCode());
-            List<StockListingNotice> stockListingNotices = stockListingNoticeService.selectStockListingNoticeList(listingNotice);
-
-            // 增加已处理记录数
-            processedCount++;
+        boolean allWritten = true;
+        for (Future<Boolean> future : futures) {
             try {
-                // 将实时数据转换为数据库实体
-                StockInfoDongfang entity = convertToEntity(chain);
-                // 设置类型为2（东方财富标识）
-                entity.setType(2L);
-                if (!CollectionUtils.isEmpty(stockListingNotices)) {
-                    for (StockListingNotice stockListingNotice : stockListingNotices) {
-                        listingNoticeMap.put(stockListingNotice.getSecurityCode(), entity);
-                    }
-                }
-                // 判断数据库中是否已存在该股票数据
-                if (existingStockMap.containsKey(entity.getStockCode())) {
-                    // 已存在，执行更新
-                    StockInfoDongfang existing = existingStockMap.get(entity.getStockCode());
-                    // 设置ID
-                    entity.setId(existing.getId());
-                    // 将实体添加到更新批次列表中
-                    updateBatch.add(entity);
-                } else {
-                    // 不存在，执行插入
-                    // 将实体添加到插入批次列表中
-                    insertBatch.add(entity);
-                }
-
-                // 达到批次大小时，批量操作数据库
-                if (insertBatch.size() >= batchSize) {
-                    // 批量插入股票信息
-                    stockInfoDongfangService.batchInsertStockInfoDongfang(insertBatch);
-                    // 记录批量插入成功日志
-                    log.info("东方财富批量插入成功，插入记录数：{}", insertBatch.size());
-                    // 清空插入批次列表
-                    insertBatch.clear();
-                }
-
-                if (updateBatch.size() >= batchSize) {
-                    // 批量更新股票信息
-                    stockInfoDongfangService.batchUpdateStockInfoDongfang(updateBatch);
-                    // 记录批量更新成功日志
-                    log.info("东方财富批量更新成功，更新记录数：{}", updateBatch.size());
-                    // 清空更新批次列表
-                    updateBatch.clear();
-                }
-
-                // 每 100 条记录输出进度
-                if (processedCount % 100 == 0) {
-                    // 记录数据同步进度日志
-                    log.info("东方财富数据同步进度，已处理：{}条", processedCount);
-                }
-            } catch (Exception e) {
-                // 记录数据处理异常日志
-                log.error("东方财富数据处理异常，股票代码：{}，错误详情：{}", chain.getStockCode(), e.getMessage(), e);
-                // 抛出业务异常
-                throw new BusinessException("DATA_SYNC_ERROR，股票数据同步失败，代码：" + chain.getStockCode(), e);
+                allWritten &= Boolean.TRUE.equals(future.get());
+            } catch (InterruptedException e) {
+                log.error("东方财富数据同步被中断", e);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                allWritten = false;
+                log.error("东方财富数据同步分块执行异常", e);
             }
         }
-
-        // 处理剩余未满批次的数据
-        if (!insertBatch.isEmpty()) {
-            // 批量插入剩余的股票信息
-            stockInfoDongfangService.batchInsertStockInfoDongfang(insertBatch);
-            // 记录批量插入成功日志
-            log.info("东方财富批量插入成功，插入记录数：{}", insertBatch.size());
+        // 有分块写库失败时不推进版本号，下次重新同步这些变更
+        if (allWritten) {
+            lastSyncedSnapshotEpoch = delta.getEpoch();
+            lastSyncedSnapshotVersion = delta.getVersion();
         }
 
-        if (!updateBatch.isEmpty()) {
-            // 批量更新剩余的股票信息
-            stockInfoDongfangService.batchUpdateStockInfoDongfang(updateBatch);
-            // 记录批量更新成功日志
-            log.info("东方财富批量更新成功，更新记录数：{}", updateBatch.size());
+        if (!rejects.isEmpty()) {
+            log.warn("东方财富数据同步拒绝 {} 条记录，示例：{}", rejects.size(),
+                    rejects.stream().limit(20).collect(Collectors.joining("; ")));
         }
-
         // 记录数据同步完成日志
-        log.info("东方财富数据同步完成，总处理记录数：{}", processedCount);
+        log.info("东方财富数据同步完成，总记录数：{}，写入：{}，拒绝：{}，分块：{}，耗时：{}ms",
+                cacheList.size(), written.get(), rejects.size(), futures.size(), System.currentTimeMillis() - start);
 
-        // 提交异步任务：根据股票代码查询 Redis 内存中的数据并更新
+        // 提交异步任务：用本次同步的最新价格更新上市通知
         ThreadPoolUtil.getCoreExecutor().submit(() -> {
             try {
-                // 从 Redis 中获取最新的实时股票数据
-                List<StockInfoDongFangChain> latestCacheList = redisCache.getCacheList(CacheConstants.REALTIME_STOCK_ALL_DONGFANG_KEY);
-                if (CollectionUtils.isEmpty(latestCacheList)) {
-                    log.warn("Redis 中没有找到实时股票数据，跳过更新");
-                    return;
-                }
-
-                // 查询所有上市通知记录
-                List<StockListingNotice> stockListingNotices = stockListingNoticeService.selectStockListingNoticeList(new StockListingNotice());
-
+                int updated = 0;
                 // 处理每条上市通知记录
                 for (StockListingNotice stockListingNotice : stockListingNotices) {
                     // 根据证券代码获取最新的股票数据
                     StockInfoDongfang stockInfoDongFang = listingNoticeMap.get(stockListingNotice.getSecurityCode());
-                    if (stockInfoDongFang != null) {
-                        // 将最新数据转换为数据库实体
-                        if (stockInfoDongFang.getPrice() != null) {
-                            // 更新当前价格
-                            stockListingNotice.setCurrentPrice(stockInfoDongFang.getPrice());
-                            // 处理已存在的股票上市记录
-                            processExistingStockListing(stockListingNotice);
-                        }
+                    if (stockInfoDongFang != null && stockInfoDongFang.getPrice() != null) {
+                        // 更新当前价格
+                        stockListingNotice.setCurrentPrice(stockInfoDongFang.getPrice());
+                        // 处理已存在的股票上市记录
+                        processExistingStockListing(stockListingNotice);
+                        updated++;
                     }
                 }
 
                 // 记录更新完成日志
-                log.info("根据 Redis 数据更新股票信息完成，共处理 {} 条记录", stockListingNotices.size());
+                log.info("根据 Redis 数据更新股票信息完成，共处理 {} 条记录", updated);
             } catch (Exception e) {
                 // 记录异常日志
                 log.error("根据 Redis 数据更新股票信息时发生异常", e);
@@ -638,6 +595,57 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
         });
     }
 
+    /**
+     * 同步单个分块：逐行转换（失败行进入拒绝列表），再以一条 INSERT ... ON DUPLICATE KEY UPDATE 写入
+     * <p>
+     * 已存在的股票带上原 ID，按主键冲突走更新分支；新股票 ID 为空，直接插入。
+     * </p>
+     *
+     * @return 分块是否写库成功（行级转换失败不影响返回值）
+     */
+    private boolean syncDongfangChunk(List<StockInfoDongFangChain> chunk,
+                                   Map<String, Long> existingIdMap,
+                                   Set<String> listingNoticeCodes,
+                                   Map<String, StockInfoDongfang> listingNoticeMap,
+                                   Queue<String> rejects,
+                                   AtomicInteger written) {
+        List<StockInfoDongfang> entities = new ArrayList<>(chunk.size());
+        for (StockInfoDongFangChain chain : chunk) {
+            try {
+                if (chain == null || StringUtils.isBlank(chain.getStockCode())) {
+                    rejects.add("null: 缺少股票代码");
+                    continue;
+                }
+                // 将实时数据转换为数据库实体
+                StockInfoDongfang entity = convertToEntity(chain);
+                // 设置类型为2（东方财富标识）
+                entity.setType(2L);
+                entity.setId(existingIdMap.get(entity.getStockCode()));
+                if (listingNoticeCodes.contains(entity.getStockCode())) {
+                    listingNoticeMap.put(entity.getStockCode(), entity);
+                }
+                entities.add(entity);
+            } catch (Exception e) {
+                rejects.add(chain.getStockCode() + ": " + e.getMessage());
+            }
+        }
+        if (entities.isEmpty()) {
+            return true;
+        }
+
+        try {
+            stockInfoDongfangService.batchInsertStockInfoDongfang(entities);
+            written.addAndGet(entities.size());
+            return true;
+        } catch (Exception e) {
+            log.error("东方财富分块写入失败，记录数：{}，首个代码：{}", entities.size(), entities.get(0).getStockCode(), e);
+            for (StockInfoDongfang entity : entities) {
+                rejects.add(entity.getStockCode() + ": 写库失败");
+            }
+            return false;
+        }
+    }
+
     /**
      * 对象转换（使用MapStruct示例）
      * <p>
@@ -1169,11 +1177,24 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
     @Resource
     private IStockInfoDongfangHisService stockInfoDongfangHisService;
 
+    @Resource
+    private StockProperties stockProperties;
+
     /**
-     * 异步获取所有东方财富股票历史数据并批量入库（分离数据生产与入库）
+     * 异步获取所有东方财富股票历史数据并批量入库（生产者 / 消费者，内存有界）
+     * <p>
+     * 1. historyImportWorkers 个抓取线程并发拉取 K 线（经 KlineDataFetcher 的令牌桶限流），
+     *    转换后放入容量为 historyImportQueueCapacity 的有界队列，队列满时抓取线程限时等待；
+     *    消费者异常退出后抓取线程随之停止，不会永久阻塞在满队列上。
+     * 2. 当前线程作为唯一消费者，按 historyImportBatchSize 分批入库，堆内最多只保留队列容量 + 一个批次的数据。
+     * 3. 某只股票的全部数据入库成功后写入 Redis 断点集合，任务中断重启后跳过已完成的股票；
+     *    全部股票成功完成后清除断点，下次重新全量导入。
+     * 4. 历史表以 (stock_code, in_date) 唯一，批次写入为 upsert：中断时未写断点的股票重新导入不会产生重复行。
+     * </p>
      */
     @Override
     public void getHistoryDataStock() {
+        long start = System.currentTimeMillis();
         // 1️⃣ 获取全部股票列表
         List<StockInfoDongfang> stockList = stockInfoDongfangService.selectStockInfoDongfangList(new StockInfoDongfang());
         if (CollectionUtils.isEmpty(stockList)) {
@@ -1181,90 +1202,210 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
             return;
         }
 
-        // 成功与失败计数
-        int successCount = 0;
-        int failCount = 0;
+        // 2️⃣ 跳过断点中已完成的股票
+        Set<String> finished = redisCache.getCacheSet(CacheConstants.HISTORY_IMPORT_DONE_KEY);
+        Queue<StockInfoDongfang> pending = new ConcurrentLinkedQueue<>();
+        for (StockInfoDongfang stock : stockList) {
+            if (finished == null || !finished.contains(stock.getStockCode())) {
+                pending.add(stock);
+            }
+        }
+        int total = pending.size();
+        log.info("历史数据导入开始，股票总数：{}，断点跳过：{}，待导入：{}", stockList.size(), stockList.size() - total, total);
 
-        // 数据生产阶段结果集合（所有股票的历史数据）
-        List<StockInfoDongfangHis> allDataList = new ArrayList<>();
+        int workers = Math.max(1, stockProperties.getHistoryImportWorkers());
+        int batchSize = Math.max(1, stockProperties.getHistoryImportBatchSize());
+        BlockingQueue<HisImportItem> queue = new ArrayBlockingQueue<>(Math.max(batchSize, stockProperties.getHistoryImportQueueCapacity()));
+        AtomicInteger fetchFailCount = new AtomicInteger();
+        // 消费者退出后置位，抓取线程据此停止
+        AtomicBoolean aborted = new AtomicBoolean(false);
 
         // ===========================
-        // 🔹 第1阶段：数据生产（只采集数据，不入库）
+        // 🔹 生产者：并发抓取 + 转换，放入有界队列
         // ===========================
-        for (StockInfoDongfang stock : stockList) {
-            try {
-                List<KlineData> klineData = KlineDataFetcher.fetchKlineData(stock.getStockCode(), getMarketCode(stock.getStockCode()));
-                if (klineData == null || klineData.isEmpty()) {
-                    log.warn("股票 {} 数据为空或格式错误", stock.getStockCode());
-                    failCount++;
-                    continue;
-                }
-
-                for (KlineData klineDatum : klineData) {
-                    StockInfoDongfangHis entity = new StockInfoDongfangHis();
-                    entity.setCompanyName(stock.getCompanyName());
-                    entity.setStockCode(stock.getStockCode());
-                    entity.setInDate(parseDate(klineDatum.getTradeDate()));
-                    entity.setPrice(klineDatum.getClose() != null ? BigDecimal.valueOf(klineDatum.getClose()) : BigDecimal.ZERO);
-                    entity.setVolume(klineDatum.getVolume() != null ? new BigDecimal(klineDatum.getVolume()) : BigDecimal.ZERO);
-                    entity.setNetChange(klineDatum.getChange() != null ? BigDecimal.valueOf(klineDatum.getChange()) : BigDecimal.ZERO);
-                    entity.setNetChangePercentage(klineDatum.getChangePercent() != null ? BigDecimal.valueOf(klineDatum.getChangePercent()) : BigDecimal.ZERO);
-                    entity.setHighPrice(klineDatum.getHigh() != null ? BigDecimal.valueOf(klineDatum.getHigh()) : BigDecimal.ZERO);
-                    entity.setLowPrice(klineDatum.getLow() != null ? BigDecimal.valueOf(klineDatum.getLow()) : BigDecimal.ZERO);
-                    entity.setOpenPrice(klineDatum.getOpen() != null ? BigDecimal.valueOf(klineDatum.getOpen()) : BigDecimal.ZERO);
-                    entity.setClosePrice(klineDatum.getClose() != null ? BigDecimal.valueOf(klineDatum.getClose()) : BigDecimal.ZERO);
-                    entity.setTradingVolume(klineDatum.getVolume() != null ? BigDecimal.valueOf(klineDatum.getVolume()) : BigDecimal.ZERO);
-                    entity.setType(BigDecimal.valueOf(3));
-                    entity.setMarketCategory(stock.getMarketCategory());
-                    allDataList.add(entity);
+        ExecutorService fetchPool = ThreadPoolUtil.createCustomThreadPool(workers, workers, workers, "history-import");
+        for (int i = 0; i < workers; i++) {
+            fetchPool.submit(() -> {
+                StockInfoDongfang stock;
+                while (!aborted.get() && (stock = pending.poll()) != null) {
+                    try {
+                        List<KlineData> klineData = KlineDataFetcher.fetchKlineData(stock.getStockCode(), getMarketCode(stock.getStockCode()));
+                        if (klineData == null || klineData.isEmpty()) {
+                            log.warn("股票 {} 数据为空或格式错误", stock.getStockCode());
+                            fetchFailCount.incrementAndGet();
+                            continue;
+                        }
+                        for (KlineData klineDatum : klineData) {
+                            if (!offerHistoryItem(queue, new HisImportItem(toHisEntity(stock, klineDatum), null), aborted)) {
+                                return;
+                            }
+                        }
+                        // 该股票数据已全部入队，放入完成标记
+                        if (!offerHistoryItem(queue, new HisImportItem(null, stock.getStockCode()), aborted)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        log.error("处理股票 {} 历史数据时异常", stock.getStockCode(), e);
+                        fetchFailCount.incrementAndGet();
+                    }
                 }
-
-            } catch (Exception e) {
-                log.error("处理股票 {} 历史数据时异常", stock.getStockCode(), e);
-                failCount++;
-            }
+            });
         }
+        fetchPool.shutdown();
 
         // ===========================
-        // 🔹 第2阶段：数据入库（按批次批量插入）
+        // 🔹 消费者：固定批次入库，批次成功后记录完成的股票
         // ===========================
-        if (CollectionUtils.isEmpty(allDataList)) {
-            log.warn("未生成任何可入库的历史数据，任务结束。");
-            return;
-        }
-
-        int batchSize = 2000;
         List<StockInfoDongfangHis> batchBuffer = new ArrayList<>(batchSize);
+        Set<String> batchCodes = new HashSet<>();
+        List<String> pendingDone = new ArrayList<>();
+        Set<String> failedCodes = new HashSet<>();
+        int successCount = 0;
+        int failCount = 0;
+        int doneCount = 0;
 
-        for (StockInfoDongfangHis his : allDataList) {
-            batchBuffer.add(his);
-            if (batchBuffer.size() >= batchSize) {
-                try {
-                    stockInfoDongfangHisService.batchInsertStockInfoDongfangHis(new ArrayList<>(batchBuffer));
-                    successCount += batchBuffer.size();
-                    log.info("批量插入 {} 条历史数据", batchBuffer.size());
-                } catch (Exception e) {
-                    log.error("批量插入失败：", e);
-                    failCount += batchBuffer.size();
-                } finally {
+        try {
+            while (true) {
+                HisImportItem item = queue.poll(1, TimeUnit.SECONDS);
+                if (item == null) {
+                    if (fetchPool.isTerminated() && queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                if (item.doneCode != null) {
+                    pendingDone.add(item.doneCode);
+                } else {
+                    batchBuffer.add(item.row);
+                    batchCodes.add(item.row.getStockCode());
+                }
+                // 缓冲满、或完成标记积压时刷盘
+                if (batchBuffer.size() >= batchSize || (batchBuffer.isEmpty() && !pendingDone.isEmpty())) {
+                    int written = flushHistoryBatch(batchBuffer, batchCodes, failedCodes);
+                    successCount += written;
+                    failCount += batchBuffer.size() - written;
                     batchBuffer.clear();
+                    batchCodes.clear();
+                    doneCount += markHistoryImported(pendingDone, failedCodes);
+                    if (doneCount > 0 && doneCount % 100 == 0) {
+                        log.info("历史数据导入进度：{}/{}，已入库 {} 条", doneCount, total, successCount);
+                    }
                 }
             }
+
+            // 处理最后剩余的批次
+            int written = flushHistoryBatch(batchBuffer, batchCodes, failedCodes);
+            successCount += written;
+            failCount += batchBuffer.size() - written;
+            doneCount += markHistoryImported(pendingDone, failedCodes);
+        } catch (InterruptedException e) {
+            log.warn("历史数据导入被中断，已完成 {} 只股票，重启后从断点继续", doneCount);
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            // 正常结束时抓取线程已全部退出；异常退出时通知并中断抓取线程
+            if (!fetchPool.isTerminated()) {
+                aborted.set(true);
+                fetchPool.shutdownNow();
+            }
         }
 
-        // 处理最后剩余的批次
-        if (!batchBuffer.isEmpty()) {
-            try {
-                stockInfoDongfangHisService.batchInsertStockInfoDongfangHis(new ArrayList<>(batchBuffer));
-                log.info("插入剩余批次 {} 条历史数据", batchBuffer.size());
-                successCount += batchBuffer.size();
-            } catch (Exception e) {
-                log.error("最后批量插入失败：", e);
-                failCount += batchBuffer.size();
+        // 全部股票成功完成后清除断点
+        if (doneCount == total) {
+            redisCache.deleteObject(CacheConstants.HISTORY_IMPORT_DONE_KEY);
+        }
+        log.info("历史数据获取任务完成 ✅ 股票完成: {}/{}，抓取失败: {}，入库成功: {} 条，入库失败: {} 条，耗时: {}ms",
+                doneCount, total, fetchFailCount.get(), successCount, failCount, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 限时放入导入队列，消费者已退出时放弃
+     *
+     * @return false 表示消费者已退出，抓取线程应停止
+     */
+    private static boolean offerHistoryItem(BlockingQueue<HisImportItem> queue, HisImportItem item, AtomicBoolean aborted)
+            throws InterruptedException {
+        while (!aborted.get()) {
+            if (queue.offer(item, 1, TimeUnit.SECONDS)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        log.info("历史数据获取任务完成 ✅ 成功: {}，失败: {}", successCount, failCount);
+    /**
+     * 批量插入历史数据
+     *
+     * @return 成功插入的条数；失败时批次内的股票记入 failedCodes，不写断点
+     */
+    private int flushHistoryBatch(List<StockInfoDongfangHis> batch, Set<String> batchCodes, Set<String> failedCodes) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            stockInfoDongfangHisService.batchInsertStockInfoDongfangHis(new ArrayList<>(batch));
+            log.debug("批量插入 {} 条历史数据", batch.size());
+            return batch.size();
+        } catch (Exception e) {
+            log.error("批量插入失败：", e);
+            failedCodes.addAll(batchCodes);
+            return 0;
+        }
+    }
+
+    /**
+     * 将已全部入库的股票写入断点集合
+     *
+     * @return 本次标记完成的股票数
+     */
+    private int markHistoryImported(List<String> doneCodes, Set<String> failedCodes) {
+        int marked = 0;
+        for (String code : doneCodes) {
+            if (!failedCodes.contains(code)) {
+                redisCache.addCacheSetValue(CacheConstants.HISTORY_IMPORT_DONE_KEY, code);
+                marked++;
+            }
+        }
+        doneCodes.clear();
+        return marked;
+    }
+
+    /**
+     * K 线数据转换为东方财富历史数据实体
+     */
+    private StockInfoDongfangHis toHisEntity(StockInfoDongfang stock, KlineData klineDatum) {
+        StockInfoDongfangHis entity = new StockInfoDongfangHis();
+        entity.setCompanyName(stock.getCompanyName());
+        entity.setStockCode(stock.getStockCode());
+        entity.setInDate(parseDate(klineDatum.getTradeDate()));
+        entity.setPrice(klineDatum.getClose() != null ? BigDecimal.valueOf(klineDatum.getClose()) : BigDecimal.ZERO);
+        entity.setVolume(klineDatum.getVolume() != null ? new BigDecimal(klineDatum.getVolume()) : BigDecimal.ZERO);
+        entity.setNetChange(klineDatum.getChange() != null ? BigDecimal.valueOf(klineDatum.getChange()) : BigDecimal.ZERO);
+        entity.setNetChangePercentage(klineDatum.getChangePercent() != null ? BigDecimal.valueOf(klineDatum.getChangePercent()) : BigDecimal.ZERO);
+        entity.setHighPrice(klineDatum.getHigh() != null ? BigDecimal.valueOf(klineDatum.getHigh()) : BigDecimal.ZERO);
+        entity.setLowPrice(klineDatum.getLow() != null ? BigDecimal.valueOf(klineDatum.getLow()) : BigDecimal.ZERO);
+        entity.setOpenPrice(klineDatum.getOpen() != null ? BigDecimal.valueOf(klineDatum.getOpen()) : BigDecimal.ZERO);
+        entity.setClosePrice(klineDatum.getClose() != null ? BigDecimal.valueOf(klineDatum.getClose()) : BigDecimal.ZERO);
+        entity.setTradingVolume(klineDatum.getVolume() != null ? BigDecimal.valueOf(klineDatum.getVolume()) : BigDecimal.ZERO);
+        entity.setType(BigDecimal.valueOf(3));
+        entity.setMarketCategory(stock.getMarketCategory());
+        return entity;
+    }
+
+    /**
+     * 历史导入队列元素：一行数据，或某只股票数据已全部入队的完成标记
+     */
+    private static final class HisImportItem {
+        private final StockInfoDongfangHis row;
+        private final String doneCode;
+
+        private HisImportItem(StockInfoDongfangHis row, String doneCode) {
+            this.row = row;
+            this.doneCode = doneCode;
+        }
     }
 
 
@@ -1386,17 +1527,20 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
      * 1. 使用股票代码作为唯一标识，每条数据单独缓存
      * 2. 如果 Redis 中已存在该股票数据，则覆盖更新（保留最新）
      * 3. 同时维护一个股票代码集合，方便后续全量查询
+     * 4. 本页数据同时交给 {@link DongfangSnapshotStore} 发布，供 batchSyncStockDataToDB 增量读取
      * </p>
      *
      * @param stockData JSON 数组格式的股票数据
      */
     private void processWealthStockAllDataJSON(JsonNode stockData) {
         try {
+            List<StockInfoDongFangChain> pageList = new ArrayList<>(stockData.size());
             // 遍历 JSON 数组中的每个元素
             for (JsonNode element : stockData) {
                 // 解析 JSON 节点为 StockInfoDongFangChain 对象
                 StockInfoDongFangChain stock = StockInfoDongFangChain.parse(element);
                 String securityCode = stock.getStockCode();
+                pageList.add(stock);
 
                 // 单条股票缓存的 Redis 键，例如 REALTIME_STOCK_SINGLE:600000
                 String stockKey = CacheConstants.REALTIME_STOCK_SINGLE_KEY + securityCode;
@@ -1414,8 +1558,11 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
                 redisCache.addCacheSetValue(CacheConstants.REALTIME_STOCK_CODES_KEY, securityCode);
             }
 
+            // 写入二进制快照：仅发布内容变化的股票
+            int published = dongfangSnapshotStore.publish(pageList);
+
             // 记录日志，输出本次处理股票数量
-            log.info("东方实时股票数据已逐条写入 Redis，共 {} 条", stockData.size());
+            log.info("东方实时股票数据已逐条写入 Redis，共 {} 条，快照变更写入 {} 条", stockData.size(), published);
         } catch (Exception e) {
             log.error("逐条写入股票数据到 Redis 失败", e);
 //            throw new RuntimeException("处理股票数据异常", e);
@@ -1423,17 +1570,18 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
     }
 
     /**
-     * 处理股票数据并合并到全局缓存，然后写入 Redis
+     * 处理股票数据并合并到全局缓存，然后写入 Redis 快照
      * <p>
      * 将 JSON 数组格式的股票数据解析为对象，并与全局缓存合并：
      * 1. 如果股票代码重复，保留最新的数据（后来的覆盖之前的）
-     * 2. 合并后，统一写入 Redis 缓存，缓存有效期为 1 小时
+     * 2. 只把本页数据交给 {@link DongfangSnapshotStore} 发布，内容未变的股票不写 Redis，缓存有效期为 1 小时
      * </p>
      *
      * @param stockData JSON 数组格式的股票数据
      */
     private void processWealthStockAllData(JsonNode stockData) {
         try {
+            List<StockInfoDongFangChain> pageList = new ArrayList<>(stockData.size());
             // 遍历 JSON 数组中的每个元素
             for (JsonNode element : stockData) {
                 // 解析 JSON 节点为 StockInfoDongFangChain 对象
@@ -1441,19 +1589,15 @@ public class IRealTimeStockServiceImpl implements IRealTimeStockService {
                 // 将股票对象放入全局 ConcurrentHashMap，使用股票代码作为唯一标识
                 // 如果股票代码重复，后出现的记录会覆盖之前的记录（保留最新的数据）
                 globalStockMap.put(stock.getStockCode(), stock);
+                pageList.add(stock);
             }
 
-            // 合并后的全量股票数据转换为列表
-            List<StockInfoDongFangChain> stockList = new ArrayList<>(globalStockMap.values());
-
-            // 写入 Redis 缓存：key 为全市场缓存键名，例如 "REALTIME_STOCK_ALL"
-            redisCache.setCacheList(CacheConstants.REALTIME_STOCK_ALL_DONGFANG_KEY, stockList);
-
-            // 设置缓存过期时间为 1 小时
-            redisCache.setExpireTime(CacheConstants.REALTIME_STOCK_ALL_DONGFANG_KEY, 1, TimeUnit.HOURS);
+            // 写入二进制快照：仅发布内容变化的股票
+            int published = dongfangSnapshotStore.publish(pageList);
 
-            // 记录日志，输出当前全局缓存数据条数
-            log.info("东方实时股票数据已合并并缓存至 Redis，共 {} 条", stockList.size());
+            // 记录日志，输出本页变更条数与当前全局缓存数据条数
+            log.info("东方实时股票数据已合并，本页 {} 条，变更写入 {} 条，全市场共 {} 条",
+                    pageList.size(), published, globalStockMap.size());
         } catch (Exception e) {
             // 记录错误日志
             log.error("解析并缓存股票数据失败", e);
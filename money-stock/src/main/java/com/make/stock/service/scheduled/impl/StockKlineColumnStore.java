@@ -0,0 +1,564 @@
+package com.make.stock.service.scheduled.impl;
+
+import com.make.common.utils.ThreadPoolUtil;
+import com.make.stock.config.StockProperties;
+import com.make.stock.domain.StockKline;
+import com.make.stock.mapper.StockKlineMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列式 K 线缓存
+ * <p>
+ * 每只股票一份不可变的列式序列：升序 int[] 交易日（epochDay）+ long[] 开高低收（放大 10^4 的定点数）+ long[] 成交量。
+ * 1. 启动时异步从「上一年 1 月 1 日」起流式加载全部 OHLCV，覆盖排行所需的当年与上一整年。
+ * 2. 所有 stock_kline 写入路径（StockKlineServiceImpl）写库后同步合并，K 线任务 upsert 后即可见。
+ * 3. 每 klineColumnResyncMs 从库中重新加载最近数日，吸收其他节点写入的数据。
+ * 4. 排行、周/年对比与单股区间查询直接在数组上计算，不再整表扫描、逐条构造 BigDecimal。
+ * <p>
+ * 预热完成前、或查询起点早于缓存下界时 {@link #covers} 返回 false，调用方回退到数据库查询。
+ * 序列写时复制，读无锁。
+ * </p>
+ */
+@Component
+public class StockKlineColumnStore {
+
+    private static final Logger log = LoggerFactory.getLogger(StockKlineColumnStore.class);
+
+    /**
+     * 价格定点数的小数位
+     */
+    private static final int SCALE = 4;
+
+    /**
+     * 空值标记（库中字段为 NULL）
+     */
+    private static final long NULL = Long.MIN_VALUE;
+
+    /**
+     * 周期重载覆盖的最近自然日数
+     */
+    private static final int RESYNC_DAYS = 10;
+
+    @Resource
+    private StockKlineMapper stockKlineMapper;
+
+    @Resource
+    private StockProperties stockProperties;
+
+    private final Map<String, Series> seriesByStock = new ConcurrentHashMap<>();
+
+    private volatile boolean warmed = false;
+
+    /**
+     * 库中价格列的小数位，从加载到的 DECIMAL 值上读取；未加载到数据前为 -1
+     * <p>
+     * 还原出的价格按该小数位输出，与走数据库查询时 MyBatis 返回的 BigDecimal 一致，
+     * 缓存命中与回退数据库两条路径的结果可以直接比较。
+     * </p>
+     */
+    private volatile int priceScale = -1;
+
+    /**
+     * 已加载窗口的下界（epochDay）
+     */
+    private volatile long loadedFloor = Long.MAX_VALUE;
+
+    private ScheduledFuture<?> resyncFuture;
+
+    @PostConstruct
+    public void init() {
+        ThreadPoolUtil.getCoreExecutor().submit(this::warmUp);
+
+        long interval = stockProperties.getKlineColumnResyncMs();
+        if (interval > 0) {
+            resyncFuture = ThreadPoolUtil.getScheduler()
+                    .scheduleWithFixedDelay(this::resync, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (resyncFuture != null) {
+            resyncFuture.cancel(false);
+        }
+    }
+
+    /**
+     * 从库中加载上一年 1 月 1 日至今的全部 OHLCV
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        LocalDate since = floorDate();
+        try {
+            int rows = load(since);
+            loadedFloor = since.toEpochDay();
+            warmed = true;
+            log.info("StockKlineColumnStore warmed. stocks={}, rows={}, since={}, cost={}ms",
+                    seriesByStock.size(), rows, since, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 预热失败不影响业务，查询全部回退到数据库
+            log.error("StockKlineColumnStore warm up failed, fallback to DB queries", e);
+        }
+    }
+
+    /**
+     * 重新加载最近数日，并丢弃早于窗口下界的数据
+     */
+    private void resync() {
+        if (!warmed) {
+            return;
+        }
+        try {
+            load(LocalDate.now().minusDays(RESYNC_DAYS));
+
+            long floor = floorDate().toEpochDay();
+            if (floor > loadedFloor) {
+                seriesByStock.replaceAll((code, s) -> s.trim((int) floor));
+                loadedFloor = floor;
+            }
+        } catch (Exception e) {
+            log.warn("StockKlineColumnStore resync failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 流式读取 since 之后的数据，按股票构建序列后与现有序列合并（库中的值覆盖缓存）
+     *
+     * @return 读取的行数
+     */
+    private int load(LocalDate since) {
+        Map<String, SeriesBuilder> builders = new HashMap<>();
+        int[] rows = {0};
+        stockKlineMapper.streamKlineColumnsSince(since, ctx -> {
+            StockKline k = ctx.getResultObject();
+            if (priceScale < 0 && k != null && k.getClose() != null) {
+                detectPriceScale(k.getClose().scale());
+            }
+            if (k != null && k.getStockCode() != null && k.getTradeDate() != null) {
+                builders.computeIfAbsent(k.getStockCode(), c -> new SeriesBuilder()).add(k);
+                rows[0]++;
+            }
+        });
+        for (Map.Entry<String, SeriesBuilder> entry : builders.entrySet()) {
+            seriesByStock.merge(entry.getKey(), entry.getValue().build(), Series::merge);
+        }
+        return rows[0];
+    }
+
+    /**
+     * 合并已写入的 K 线（写库成功后调用）
+     * <p>
+     * 新值为 NULL 的字段保留缓存中的旧值，与按字段更新的 SQL 语义一致。
+     * </p>
+     *
+     * @param klines 已写入的 K 线
+     */
+    public void record(Collection<StockKline> klines) {
+        if (klines == null || klines.isEmpty()) {
+            return;
+        }
+        long floor = floorDate().toEpochDay();
+        Map<String, SeriesBuilder> builders = new HashMap<>();
+        for (StockKline k : klines) {
+            if (k == null || k.getStockCode() == null || k.getTradeDate() == null || toEpochDay(k.getTradeDate()) < floor) {
+                continue;
+            }
+            builders.computeIfAbsent(k.getStockCode(), c -> new SeriesBuilder()).add(k);
+        }
+        for (Map.Entry<String, SeriesBuilder> entry : builders.entrySet()) {
+            seriesByStock.merge(entry.getKey(), entry.getValue().build(), Series::merge);
+        }
+    }
+
+    /**
+     * 合并单条已写入的 K 线
+     */
+    public void record(StockKline kline) {
+        if (kline != null) {
+            record(Collections.singletonList(kline));
+        }
+    }
+
+    /**
+     * 缓存是否已完整覆盖 from 至今的数据
+     *
+     * @param from 查询起点
+     * @return false 表示调用方应回退到数据库
+     */
+    public boolean covers(LocalDate from) {
+        return warmed && from.toEpochDay() >= loadedFloor;
+    }
+
+    /**
+     * 缓存中的全部股票代码
+     */
+    public Set<String> stockCodes() {
+        return seriesByStock.keySet();
+    }
+
+    /**
+     * 计算区间 [from, to] 内的最高价、最低价（及其所在交易日）与最后一个交易日的收盘价
+     *
+     * @param stockCode 股票代码
+     * @param from      起始日期（含）
+     * @param to        结束日期（含）
+     * @return 区间统计，区间内无数据时返回 null
+     */
+    public RangeStats rangeStats(String stockCode, LocalDate from, LocalDate to) {
+        Series s = seriesByStock.get(stockCode);
+        if (s == null) {
+            return null;
+        }
+        int lo = s.lowerBound((int) from.toEpochDay());
+        int hi = s.lowerBound((int) to.toEpochDay() + 1);
+        if (lo >= hi) {
+            return null;
+        }
+
+        long maxHigh = NULL;
+        long minLow = NULL;
+        int maxHighAt = -1;
+        int minLowAt = -1;
+        for (int i = lo; i < hi; i++) {
+            long h = s.high[i];
+            if (h != NULL && (maxHigh == NULL || h > maxHigh)) {
+                maxHigh = h;
+                maxHighAt = i;
+            }
+            long l = s.low[i];
+            if (l != NULL && (minLow == NULL || l < minLow)) {
+                minLow = l;
+                minLowAt = i;
+            }
+        }
+        return new RangeStats(hi - lo, toDecimal(maxHigh), toDecimal(minLow), toDecimal(s.close[hi - 1]),
+                maxHighAt >= 0 ? LocalDate.ofEpochDay(s.days[maxHighAt]) : null,
+                minLowAt >= 0 ? LocalDate.ofEpochDay(s.days[minLowAt]) : null);
+    }
+
+    /**
+     * 查询单只股票区间 [from, to] 内的 K 线（按交易日升序，仅包含 OHLCV）
+     *
+     * @param stockCode 股票代码
+     * @param from      起始日期（含）
+     * @param to        结束日期（含）
+     * @return K 线列表
+     */
+    public List<StockKline> series(String stockCode, LocalDate from, LocalDate to) {
+        Series s = seriesByStock.get(stockCode);
+        if (s == null) {
+            return Collections.emptyList();
+        }
+        int lo = s.lowerBound((int) from.toEpochDay());
+        int hi = s.lowerBound((int) to.toEpochDay() + 1);
+        List<StockKline> out = new ArrayList<>(Math.max(0, hi - lo));
+        for (int i = lo; i < hi; i++) {
+            StockKline k = new StockKline();
+            k.setStockCode(stockCode);
+            k.setTradeDate(java.sql.Date.valueOf(LocalDate.ofEpochDay(s.days[i])));
+            k.setOpen(toDecimal(s.open[i]));
+            k.setHigh(toDecimal(s.high[i]));
+            k.setLow(toDecimal(s.low[i]));
+            k.setClose(toDecimal(s.close[i]));
+            k.setVolume(s.volume[i] == NULL ? null : s.volume[i]);
+            out.add(k);
+        }
+        return out;
+    }
+
+    /**
+     * 缓存统计（监控用）
+     */
+    public Map<String, Object> stats() {
+        int rows = seriesByStock.values().stream().mapToInt(s -> s.days.length).sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("warmed", warmed);
+        stats.put("priceScale", priceScale);
+        stats.put("stocks", seriesByStock.size());
+        stats.put("rows", rows);
+        stats.put("since", warmed ? LocalDate.ofEpochDay(loadedFloor).toString() : null);
+        // 每行 1 个 int + 5 个 long
+        stats.put("approxBytes", (long) rows * (4 + 5 * 8));
+        return stats;
+    }
+
+    /**
+     * 缓存窗口下界：上一年 1 月 1 日，保证年度对比所需的上一整年始终在缓存中
+     */
+    private static LocalDate floorDate() {
+        return LocalDate.of(LocalDate.now().getYear() - 1, 1, 1);
+    }
+
+    private static int toEpochDay(Date date) {
+        if (date instanceof java.sql.Date) {
+            return (int) ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private static long toScaled(BigDecimal value) {
+        return value == null ? NULL : value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private BigDecimal toDecimal(long scaled) {
+        if (scaled == NULL) {
+            return null;
+        }
+        BigDecimal value = BigDecimal.valueOf(scaled, SCALE);
+        int scale = priceScale;
+        if (scale >= 0) {
+            return value.setScale(scale, RoundingMode.HALF_UP);
+        }
+        // 尚未从库中读到价格列时的兜底
+        value = value.stripTrailingZeros();
+        return value.scale() < 2 ? value.setScale(2) : value;
+    }
+
+    private void detectPriceScale(int scale) {
+        if (scale > SCALE) {
+            log.warn("stock_kline 价格列小数位 {} 超过缓存定点精度 {}，缓存结果将按 {} 位截断", scale, SCALE, SCALE);
+        }
+        priceScale = scale;
+    }
+
+    /**
+     * 区间统计结果，价格字段在区间内全为 NULL 时为 null
+     */
+    public static final class RangeStats {
+
+        private final int count;
+        private final BigDecimal maxHigh;
+        private final BigDecimal minLow;
+        private final BigDecimal lastClose;
+        private final LocalDate maxHighDate;
+        private final LocalDate minLowDate;
+
+        private RangeStats(int count, BigDecimal maxHigh, BigDecimal minLow, BigDecimal lastClose,
+                           LocalDate maxHighDate, LocalDate minLowDate) {
+            this.count = count;
+            this.maxHigh = maxHigh;
+            this.minLow = minLow;
+            this.lastClose = lastClose;
+            this.maxHighDate = maxHighDate;
+            this.minLowDate = minLowDate;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public BigDecimal getMaxHigh() {
+            return maxHigh;
+        }
+
+        public BigDecimal getMinLow() {
+            return minLow;
+        }
+
+        public BigDecimal getLastClose() {
+            return lastClose;
+        }
+
+        public LocalDate getMaxHighDate() {
+            return maxHighDate;
+        }
+
+        public LocalDate getMinLowDate() {
+            return minLowDate;
+        }
+    }
+
+    /**
+     * 单只股票的不可变列式序列，days 升序且唯一
+     */
+    private static final class Series {
+
+        private final int[] days;
+        private final long[] open;
+        private final long[] high;
+        private final long[] low;
+        private final long[] close;
+        private final long[] volume;
+
+        private Series(int[] days, long[] open, long[] high, long[] low, long[] close, long[] volume) {
+            this.days = days;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+        }
+
+        /**
+         * 第一个 >= day 的下标
+         */
+        private int lowerBound(int day) {
+            int i = Arrays.binarySearch(days, day);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        /**
+         * 合并两个序列，同一交易日以 newer 为准（newer 中为 NULL 的字段保留旧值）
+         */
+        private static Series merge(Series older, Series newer) {
+            int cap = older.days.length + newer.days.length;
+            SeriesBuilder b = new SeriesBuilder(cap);
+            int i = 0, j = 0;
+            while (i < older.days.length || j < newer.days.length) {
+                if (j >= newer.days.length || (i < older.days.length && older.days[i] < newer.days[j])) {
+                    b.append(older, i++);
+                } else if (i >= older.days.length || newer.days[j] < older.days[i]) {
+                    b.append(newer, j++);
+                } else {
+                    b.appendMerged(older, i++, newer, j++);
+                }
+            }
+            return b.freeze();
+        }
+
+        /**
+         * 丢弃早于 floor 的交易日
+         */
+        private Series trim(int floor) {
+            int from = lowerBound(floor);
+            if (from == 0) {
+                return this;
+            }
+            int to = days.length;
+            return new Series(Arrays.copyOfRange(days, from, to),
+                    Arrays.copyOfRange(open, from, to), Arrays.copyOfRange(high, from, to),
+                    Arrays.copyOfRange(low, from, to), Arrays.copyOfRange(close, from, to),
+                    Arrays.copyOfRange(volume, from, to));
+        }
+    }
+
+    /**
+     * 序列构建器：add 接受任意顺序的 K 线，build 时按交易日排序去重（后加入的覆盖先加入的）
+     */
+    private static final class SeriesBuilder {
+
+        private int size;
+        private int[] days;
+        private long[] open;
+        private long[] high;
+        private long[] low;
+        private long[] close;
+        private long[] volume;
+
+        private SeriesBuilder() {
+            this(16);
+        }
+
+        private SeriesBuilder(int capacity) {
+            days = new int[capacity];
+            open = new long[capacity];
+            high = new long[capacity];
+            low = new long[capacity];
+            close = new long[capacity];
+            volume = new long[capacity];
+        }
+
+        private void add(StockKline k) {
+            ensureCapacity();
+            days[size] = toEpochDay(k.getTradeDate());
+            open[size] = toScaled(k.getOpen());
+            high[size] = toScaled(k.getHigh());
+            low[size] = toScaled(k.getLow());
+            close[size] = toScaled(k.getClose());
+            volume[size] = k.getVolume() == null ? NULL : k.getVolume();
+            size++;
+        }
+
+        private void append(Series s, int i) {
+            ensureCapacity();
+            days[size] = s.days[i];
+            open[size] = s.open[i];
+            high[size] = s.high[i];
+            low[size] = s.low[i];
+            close[size] = s.close[i];
+            volume[size] = s.volume[i];
+            size++;
+        }
+
+        private void appendMerged(Series older, int i, Series newer, int j) {
+            ensureCapacity();
+            days[size] = newer.days[j];
+            open[size] = newer.open[j] != NULL ? newer.open[j] : older.open[i];
+            high[size] = newer.high[j] != NULL ? newer.high[j] : older.high[i];
+            low[size] = newer.low[j] != NULL ? newer.low[j] : older.low[i];
+            close[size] = newer.close[j] != NULL ? newer.close[j] : older.close[i];
+            volume[size] = newer.volume[j] != NULL ? newer.volume[j] : older.volume[i];
+            size++;
+        }
+
+        private void ensureCapacity() {
+            if (size < days.length) {
+                return;
+            }
+            int cap = Math.max(16, days.length * 2);
+            days = Arrays.copyOf(days, cap);
+            open = Arrays.copyOf(open, cap);
+            high = Arrays.copyOf(high, cap);
+            low = Arrays.copyOf(low, cap);
+            close = Arrays.copyOf(close, cap);
+            volume = Arrays.copyOf(volume, cap);
+        }
+
+        /**
+         * 按交易日稳定排序，同一交易日保留最后加入的一行
+         */
+        private Series build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(days[a], days[b]));
+
+            SeriesBuilder sorted = new SeriesBuilder(Math.max(1, size));
+            for (int n = 0; n < size; n++) {
+                int i = order[n];
+                if (sorted.size > 0 && sorted.days[sorted.size - 1] == days[i]) {
+                    sorted.size--;
+                }
+                sorted.days[sorted.size] = days[i];
+                sorted.open[sorted.size] = open[i];
+                sorted.high[sorted.size] = high[i];
+                sorted.low[sorted.size] = low[i];
+                sorted.close[sorted.size] = close[i];
+                sorted.volume[sorted.size] = volume[i];
+                sorted.size++;
+            }
+            return sorted.freeze();
+        }
+
+        /**
+         * 输出已按交易日升序排列的数据
+         */
+        private Series freeze() {
+            return new Series(Arrays.copyOf(days, size), Arrays.copyOf(open, size), Arrays.copyOf(high, size),
+                    Arrays.copyOf(low, size), Arrays.copyOf(close, size), Arrays.copyOf(volume, size));
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.make.stock.service.scheduled.impl;
+
+import com.make.common.utils.ThreadPoolUtil;
+import com.make.stock.domain.StockKline;
+import com.make.stock.mapper.StockKlineMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * stock_kline 近期交易日存在性索引
+ * <p>
+ * 每只股票一个升序 int[]（epochDay），只保留最近 WINDOW_DAYS 天：
+ * 1. 启动时异步从库中一次性加载窗口内的 (stock_code, trade_date)。
+ * 2. 本节点所有 stock_kline 写入路径（StockKlineServiceImpl）写库后同步登记。
+ * 3. 今日任务用它区分 insert / update：命中即存在；其他节点预热后写入的日期不在本节点索引中，
+ *    因此未命中只代表「未知」，调用方仅对未命中的日期回查数据库，并通过 {@link #recordDates} 回填。
+ * <p>
+ * 预热完成前、或查询日期早于窗口下界时返回 null，调用方回退到数据库查询。
+ * 数组写时复制，读无锁。
+ * </p>
+ */
+@Component
+public class StockKlineDateIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(StockKlineDateIndex.class);
+
+    /**
+     * 索引覆盖的最近自然日数（今日任务只拉取最近 5 个交易日，留足余量）
+     */
+    private static final int WINDOW_DAYS = 30;
+
+    private static final int[] EMPTY = new int[0];
+
+    @Resource
+    private StockKlineMapper stockKlineMapper;
+
+    private final Map<String, int[]> datesByStock = new ConcurrentHashMap<>();
+
+    private volatile boolean warmed = false;
+
+    @PostConstruct
+    public void init() {
+        ThreadPoolUtil.getCoreExecutor().submit(this::warmUp);
+    }
+
+    /**
+     * 从库中加载窗口内的所有交易日
+     */
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        LocalDate since = LocalDate.now().minusDays(WINDOW_DAYS);
+        try {
+            List<StockKline> rows = stockKlineMapper.selectTradeDatesSince(since);
+
+            Map<String, Set<Integer>> grouped = new HashMap<>();
+            for (StockKline row : rows) {
+                if (row.getStockCode() == null || row.getTradeDate() == null) {
+                    continue;
+                }
+                grouped.computeIfAbsent(row.getStockCode(), k -> new HashSet<>()).add(toEpochDay(row.getTradeDate()));
+            }
+
+            // 预热期间已登记的写入一并合并，避免被覆盖
+            for (Map.Entry<String, Set<Integer>> entry : grouped.entrySet()) {
+                int[] loaded = entry.getValue().stream().mapToInt(Integer::intValue).sorted().toArray();
+                datesByStock.merge(entry.getKey(), loaded, StockKlineDateIndex::union);
+            }
+
+            warmed = true;
+            log.info("StockKlineDateIndex warmed. stocks={}, rows={}, since={}, cost={}ms",
+                    grouped.size(), rows.size(), since, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 预热失败不影响业务，查询全部回退到数据库
+            log.error("StockKlineDateIndex warm up failed, fallback to DB lookups", e);
+        }
+    }
+
+    /**
+     * 查询已存在的交易日
+     *
+     * @param stockCode 股票代码
+     * @param dates     待判断的交易日
+     * @return 索引中已登记的交易日集合（未包含的日期需回查数据库）；索引无法确定时返回 null
+     */
+    public Set<LocalDate> findExisting(String stockCode, Collection<LocalDate> dates) {
+        if (!warmed || stockCode == null) {
+            return null;
+        }
+        long floor = floor();
+        for (LocalDate d : dates) {
+            if (d.toEpochDay() < floor) {
+                return null;
+            }
+        }
+
+        int[] days = datesByStock.getOrDefault(stockCode, EMPTY);
+        Set<LocalDate> existing = new HashSet<>();
+        for (LocalDate d : dates) {
+            if (Arrays.binarySearch(days, (int) d.toEpochDay()) >= 0) {
+                existing.add(d);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * 登记已写入的 K 线（写库成功后调用）
+     *
+     * @param klines 已写入的 K 线
+     */
+    public void record(Collection<StockKline> klines) {
+        if (klines == null || klines.isEmpty()) {
+            return;
+        }
+        Map<String, Set<Integer>> grouped = new HashMap<>();
+        long floor = floor();
+        for (StockKline k : klines) {
+            if (k == null || k.getStockCode() == null || k.getTradeDate() == null) {
+                continue;
+            }
+            int day = toEpochDay(k.getTradeDate());
+            if (day >= floor) {
+                grouped.computeIfAbsent(k.getStockCode(), c -> new HashSet<>()).add(day);
+            }
+        }
+        for (Map.Entry<String, Set<Integer>> entry : grouped.entrySet()) {
+            int[] added = entry.getValue().stream().mapToInt(Integer::intValue).sorted().toArray();
+            datesByStock.merge(entry.getKey(), added, (a, b) -> trim(union(a, b), floor()));
+        }
+    }
+
+    /**
+     * 登记从数据库回查到的已存在交易日
+     *
+     * @param stockCode 股票代码
+     * @param dates     已存在的交易日
+     */
+    public void recordDates(String stockCode, Collection<LocalDate> dates) {
+        if (stockCode == null || dates == null || dates.isEmpty()) {
+            return;
+        }
+        long floor = floor();
+        int[] added = dates.stream()
+                .mapToInt(d -> (int) d.toEpochDay())
+                .filter(d -> d >= floor)
+                .distinct()
+                .sorted()
+                .toArray();
+        if (added.length > 0) {
+            datesByStock.merge(stockCode, added, (a, b) -> trim(union(a, b), floor));
+        }
+    }
+
+    /**
+     * 登记单条已写入的 K 线
+     */
+    public void record(StockKline kline) {
+        if (kline != null) {
+            record(Collections.singletonList(kline));
+        }
+    }
+
+    /**
+     * 索引条目统计（监控用）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("warmed", warmed);
+        stats.put("stocks", datesByStock.size());
+        stats.put("dates", datesByStock.values().stream().mapToInt(a -> a.length).sum());
+        return stats;
+    }
+
+    /**
+     * 当前窗口下界（epochDay），随日期滚动，早于它的日期不在索引中
+     */
+    private static long floor() {
+        return LocalDate.now().minusDays(WINDOW_DAYS).toEpochDay();
+    }
+
+    private static int toEpochDay(Date date) {
+        if (date instanceof java.sql.Date) {
+            return (int) ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * 合并两个升序数组并去重
+     */
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int v;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                v = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                v = b[j++];
+            } else {
+                v = a[i++];
+                j++;
+            }
+            if (n == 0 || out[n - 1] != v) {
+                out[n++] = v;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 丢弃早于窗口下界的日期
+     */
+    private static int[] trim(int[] days, long floor) {
+        int from = 0;
+        while (from < days.length && days[from] < floor) {
+            from++;
+        }
+        return from == 0 ? days : Arrays.copyOfRange(days, from, days.length);
+    }
+}
@@ -1,9 +1,13 @@
 package com.make.stock.service.scheduled.impl;
 
+import com.make.stock.config.StockProperties;
 import com.make.stock.domain.KlineData;
 import com.make.stock.domain.StockKline;
 import com.make.stock.domain.StockKlineTask;
 import com.make.stock.domain.dto.ProcessResult;
+import com.make.stock.domain.dto.StockRealtimeInfo;
+import com.make.stock.mapper.StockIssueInfoMapper;
+import com.make.stock.service.IStockKlineTaskService;
 import com.make.stock.util.KlineDataFetcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +15,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
@@ -34,6 +39,8 @@ import java.util.*;
  * 4. **最重要点**：
  * - 单任务执行期间完全无任何数据库 IO
  * - 只构造 ProcessResult，调度端汇总结果一次 commit
+ * - 例外：流式历史回填（quartz.klineBackfillStreaming）按分页分块直接落库并记录断点，
+ *   避免全历史一次性驻留内存与超大 SQL 包
  * <p>
  * ---------------------------------------------------------
  * => 非常适合大规模多股票批处理与高吞吐量 Quartz 执行
@@ -44,6 +51,12 @@ public class StockKlineProcessor {
 
     private static final Logger log = LoggerFactory.getLogger(StockKlineProcessor.class);
 
+    /**
+     * 前方排队超过该数量的许可间隔时不占用消费线程，直接延后到下一轮 Watchdog 提交
+     * （按默认 0.5 次/秒即约 10 秒，阈值随速率配置变化）
+     */
+    private static final int MAX_QUEUED_PERMITS = 5;
+
     @Resource
     private StockKlineBuilder klineBuilder;
 
@@ -53,6 +66,22 @@ public class StockKlineProcessor {
     @Resource
     private StockKlineRepositoryService repositoryService;
 
+    @Resource
+    private IStockKlineTaskService stockKlineTaskService;
+
+    @Resource
+    private StockProperties stockProperties;
+
+    @Resource
+    private StockIssueInfoMapper stockIssueInfoMapper;
+
+    /**
+     * 流式回填无断点且查不到上市日期时的兜底起始日期
+     */
+    private static final LocalDate BACKFILL_EPOCH = LocalDate.of(1990, 1, 1);
+
+    private static final DateTimeFormatter PAGE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
 
     /**
      * 核心执行入口
@@ -74,10 +103,26 @@ public class StockKlineProcessor {
 
         log.info("▶ 开始执行单任务 stock={} taskStatus={}", stockCode, task.getTaskStatus());
 
+        boolean today = Long.valueOf(3).equals(task.getTaskStatus());
+        boolean streaming = !today && stockProperties.isKlineBackfillStreaming();
+        String throttleKey = today ? KlineDataFetcher.KEY_KLINE_5D
+                : streaming ? KlineDataFetcher.KEY_KLINE_RANGE : KlineDataFetcher.KEY_KLINE_ALL;
+        long waitHint = KlineDataFetcher.peekWaitMillis(throttleKey);
+        if (waitHint > MAX_QUEUED_PERMITS * KlineDataFetcher.permitIntervalMillis(throttleKey)) {
+            // 任务未标记完成，下一轮 Watchdog 会重新提交
+            result.success = false;
+            result.deferred = true;
+            log.info("⏸ 限流等待过长，任务延后 stock={} wait={}ms", stockCode, waitHint);
+            return result;
+        }
+
         try {
-            if (Long.valueOf(3).equals(task.getTaskStatus())) {
+            if (today) {
                 // === 今日任务 ===
                 handleToday(task, df, result);
+            } else if (streaming) {
+                // === 历史任务（流式分页回填） ===
+                handleHistoryStreaming(task, df, result);
             } else {
                 // === 历史任务 ===
                 handleHistory(task, df, result);
@@ -85,10 +130,11 @@ public class StockKlineProcessor {
 
             result.success = true;
 
-            log.info("✓ 单任务完成 stock={} insert={} update={} failed={}",
+            log.info("✓ 单任务完成 stock={} insert={} update={} streamed={} failed={}",
                     stockCode,
                     result.insertList.size(),
                     result.updateList.size(),
+                    result.streamedCount,
                     result.failedCount);
 
         } catch (Exception e) {
@@ -114,7 +160,7 @@ public class StockKlineProcessor {
      * <p>
      * 2. 遍历 KlineData，解析 tradeDate + 构造 StockKline
      * <p>
-     * 3. 一次性查询数据库是否存在 tradeDate（批量 exists）
+     * 3. 批量判断 tradeDate 是否已存在（优先内存存在性索引，无需查库）
      * repositoryService.selectExistsDates(stockCode, tradeDateList)
      * <p>
      * 4. 批量分发 insertList / updateList，避免循环 exists
@@ -184,8 +230,8 @@ public class StockKlineProcessor {
 
         log.info("▶ 今日任务批量 exists 查询 stock={} dates={}", stockCode, tradeDateList.size());
 
-        // ====== 一次性 exists 查询 ======
-        List<LocalDate> existsDates =
+        // ====== 一次性 exists 判断（内存索引，必要时回退查库） ======
+        Set<LocalDate> existsDates =
                 repositoryService.selectExistsDates(stockCode, tradeDateList);
 
         log.info("✓ exists 查询完成 stock={} exists={}", stockCode, existsDates.size());
@@ -279,4 +325,134 @@ public class StockKlineProcessor {
                 result.failedCount);
     }
 
+
+    /**
+     * 历史任务流式回填
+     * <p>
+     * 核心逻辑：
+     * ------------------------------------------------------
+     * 1. 起点 = 断点次日（无断点则从上市日期开始，见 {@link #resolveBackfillStart}），
+     *    按 klineBackfillPageDays 切分日期区间逐页拉取
+     * <p>
+     * 2. 每页边转换边攒块，满 klineBackfillChunkSize 条即 insertOrUpdateBatch 一次
+     * <p>
+     * 3. 每页全部落库后写断点，进程崩溃或拉取失败后下次从断点之后继续
+     * <p>
+     * ------------------------------------------------------
+     * 内存占用上限 = 单页数据 + 单块实体，与历史长度无关；
+     * 任务完成后由 batchFinishTask 清空断点。
+     */
+    private void handleHistoryStreaming(StockKlineTask task,
+                                        DateTimeFormatter df,
+                                        ProcessResult result) {
+
+        String stockCode = task.getStockCode();
+        String market = StockMarketResolver.getMarketCode(stockCode);
+
+        // [VALIDATION] 校验 Market 是否合法，若不合法直接终止
+        if (market == null) {
+            log.warn("⚠ [INVALID_MARKET] 无法解析市场编码，终止任务 stock={}", stockCode);
+            result.failedCount++;
+            return;
+        }
+
+        int pageDays = Math.max(1, stockProperties.getKlineBackfillPageDays());
+        int chunkSize = Math.max(1, stockProperties.getKlineBackfillChunkSize());
+        LocalDate endDate = LocalDate.now();
+        LocalDate pageStart = task.getSyncCheckpoint() != null
+                ? toLocalDate(task.getSyncCheckpoint()).plusDays(1)
+                : resolveBackfillStart(stockCode, market);
+
+        log.info("▶ 历史任务流式回填 stock={} market={} from={} pageDays={} chunk={}",
+                stockCode, market, pageStart, pageDays, chunkSize);
+
+        List<StockKline> chunk = new ArrayList<>(chunkSize);
+        int pages = 0;
+
+        while (!pageStart.isAfter(endDate)) {
+            LocalDate pageEnd = pageStart.plusDays(pageDays - 1L);
+            if (pageEnd.isAfter(endDate)) {
+                pageEnd = endDate;
+            }
+
+            // 拉取失败直接抛出：已提交的分页保留断点，本任务不标记完成
+            List<KlineData> page = retryFetcher.fetchRangeWithRetry(stockCode, market,
+                    pageStart.format(PAGE_DATE_FORMAT), pageEnd.format(PAGE_DATE_FORMAT));
+
+            for (KlineData data : page) {
+                if (data == null || data.getTradeDate() == null) {
+                    result.failedCount++;
+                    continue;
+                }
+
+                LocalDate tradeDate = klineBuilder.parseTradeDate(data.getTradeDate(), df);
+                if (tradeDate == null) {
+                    result.failedCount++;
+                    continue;
+                }
+
+                chunk.add(klineBuilder.build(stockCode, market, tradeDate, data));
+                if (chunk.size() >= chunkSize) {
+                    flushChunk(chunk, result);
+                }
+            }
+            flushChunk(chunk, result);
+
+            stockKlineTaskService.updateSyncCheckpoint(task.getId(), toDate(pageEnd));
+            pages++;
+            log.debug("✓ 分页落库 stock={} range={}~{} rows={}", stockCode, pageStart, pageEnd, page.size());
+
+            pageStart = pageEnd.plusDays(1);
+        }
+
+        log.info("✓ 历史任务流式回填完成 stock={} pages={} streamed={} failed={}",
+                stockCode, pages, result.streamedCount, result.failedCount);
+    }
+
+    /**
+     * 解析无断点时的回填起点
+     * <p>
+     * 从 1990-01-01 起按页扫描时，新股上市前的每一页都是空结果，却各占一次限流许可。
+     * 依次取：新股发行表的上市日期 → 上游快照的上市日期（一次 snapshot 请求）→ 兜底 1990-01-01。
+     */
+    private LocalDate resolveBackfillStart(String stockCode, String market) {
+        Date listingDate = stockIssueInfoMapper.selectListingDateBySecurityCode(stockCode);
+        if (listingDate != null) {
+            return toLocalDate(listingDate);
+        }
+
+        try {
+            StockRealtimeInfo snapshot = KlineDataFetcher.fetchStockSnapshot(stockCode, market);
+            if (snapshot != null && snapshot.getListingDate() != null) {
+                return LocalDate.parse(snapshot.getListingDate(), PAGE_DATE_FORMAT);
+            }
+        } catch (Exception e) {
+            log.warn("⚠ 获取上市日期失败，回填从 {} 开始 stock={} err={}", BACKFILL_EPOCH, stockCode, e.getMessage());
+        }
+        return BACKFILL_EPOCH;
+    }
+
+    /**
+     * 分块落库（upsert，重复执行安全）
+     */
+    private void flushChunk(List<StockKline> chunk, ProcessResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        repositoryService.insertOrUpdateBatch(chunk);
+        result.streamedCount += chunk.size();
+        chunk.clear();
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
 }
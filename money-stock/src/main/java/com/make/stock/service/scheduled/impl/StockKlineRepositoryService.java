@@ -8,7 +8,10 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 股票K线数据仓储服务
@@ -28,6 +31,12 @@ public class StockKlineRepositoryService {
     @Resource
     private IStockKlineService stockKlineService;
 
+    /**
+     * 近期交易日存在性索引
+     */
+    @Resource
+    private StockKlineDateIndex dateIndex;
+
     /**
      * 检查指定股票和日期的K线数据是否存在
      * <p>
@@ -100,7 +109,35 @@ public class StockKlineRepositoryService {
         stockKlineService.batchUpdateByStockCodeAndTradeDate(updateList);
     }
 
-    public List<LocalDate> selectExistsDates(String stockCode, List<LocalDate> tradeDateList) {
-        return stockKlineService.selectExistsDates(stockCode, tradeDateList);
+    /**
+     * 查询已存在的交易日
+     * <p>
+     * 优先使用内存存在性索引，索引未预热或日期超出索引窗口时回退到数据库查询。
+     * 索引只登记本节点写入与回查到的日期，命中即存在；未命中的日期可能由其他节点写入，
+     * 仅对这部分回查数据库，查到的日期回填索引。
+     * </p>
+     *
+     * @param stockCode     股票代码
+     * @param tradeDateList 待判断的交易日
+     * @return 已存在的交易日集合
+     */
+    public Set<LocalDate> selectExistsDates(String stockCode, List<LocalDate> tradeDateList) {
+        Set<LocalDate> existing = dateIndex.findExisting(stockCode, tradeDateList);
+        if (existing == null) {
+            return new HashSet<>(stockKlineService.selectExistsDates(stockCode, tradeDateList));
+        }
+
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date : new HashSet<>(tradeDateList)) {
+            if (!existing.contains(date)) {
+                missing.add(date);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<LocalDate> found = stockKlineService.selectExistsDates(stockCode, missing);
+            dateIndex.recordDates(stockCode, found);
+            existing.addAll(found);
+        }
+        return existing;
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,6 +33,17 @@ public class StockKlineRetryFetcher {
      */
     private static final long RETRY_DELAY_MS = 3 * 60_000L;
 
+    /**
+     * 分页拉取最大重试次数
+     * <p>分页请求体量小，失败后快速重试；仍失败则中止本次回填，下次从断点继续</p>
+     */
+    private static final int PAGE_MAX_RETRIES = 5;
+
+    /**
+     * 分页拉取重试间隔时间（毫秒）
+     */
+    private static final long PAGE_RETRY_DELAY_MS = 10_000L;
+
     /**
      * 带重试机制的数据获取方法
      * <p>
@@ -81,4 +93,41 @@ public class StockKlineRetryFetcher {
         // 返回最终获取到的数据（可能为null）
         return klineData;
     }
+
+    /**
+     * 带重试机制的日期区间分页获取
+     * <p>
+     * 与全历史拉取不同，空列表是合法结果（如上市前的区间），不触发重试；
+     * 只有请求异常才重试，重试耗尽后抛出异常，由调用方保留断点。
+     * </p>
+     *
+     * @param stockCode 股票代码
+     * @param market    市场代码
+     * @param beg       开始日期（yyyyMMdd）
+     * @param end       结束日期（yyyyMMdd）
+     * @return 区间内K线数据列表（可能为空）
+     * @throws IllegalStateException 重试耗尽或等待被中断
+     */
+    public List<KlineData> fetchRangeWithRetry(String stockCode, String market, String beg, String end) {
+        Exception last = null;
+        for (int attempt = 1; attempt <= PAGE_MAX_RETRIES; attempt++) {
+            try {
+                List<KlineData> page = KlineDataFetcher.fetchKlineDataRange(stockCode, market, beg, end);
+                return page != null ? page : Collections.emptyList();
+            } catch (Exception e) {
+                last = e;
+                log.warn("获取股票 {} 区间 {}~{} 数据异常 (第 {} 次): {}", stockCode, beg, end, attempt, e.getMessage());
+            }
+
+            if (attempt < PAGE_MAX_RETRIES) {
+                try {
+                    Thread.sleep(PAGE_RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        throw new IllegalStateException("区间拉取失败 stock=" + stockCode + " " + beg + "~" + end, last);
+    }
 }
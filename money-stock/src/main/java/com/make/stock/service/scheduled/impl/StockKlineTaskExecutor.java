@@ -16,6 +16,7 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -208,23 +209,25 @@ public class StockKlineTaskExecutor implements SmartLifecycle {
 
             // 3. 处理持久化
             if (r.success) {
-                // 批量插入 (虽为单任务，ProcessResult 仍返回 List)
-                if (!r.insertList.isEmpty()) {
-                    repositoryService.insertOrUpdateBatch(r.insertList);
+                // insert / update 合并为一条 upsert（表以 (stock_code, trade_date) 唯一），
+                // 拆分结果只用于决定是否更新监控信息
+                if (!r.insertList.isEmpty() || !r.updateList.isEmpty()) {
+                    List<StockKline> upsertList = new ArrayList<>(r.insertList.size() + r.updateList.size());
+                    upsertList.addAll(r.insertList);
+                    upsertList.addAll(r.updateList);
+                    repositoryService.insertOrUpdateBatch(upsertList);
                 }
-                // 批量更新
-                if (!r.updateList.isEmpty()) {
-                    repositoryService.batchUpdateByStockCodeAndTradeDate(r.updateList);
-                    // 更新监控信息
-                    for (StockKline k : r.updateList) {
-                         watchStockUpdater.processWatchStock(k);
-                    }
+                // 更新监控信息
+                for (StockKline k : r.updateList) {
+                    watchStockUpdater.processWatchStock(k);
                 }
 
                 // 标记任务完成
                 stockKlineTaskService.batchFinishTask(Collections.singletonList(task.getId()));
 
                 log.debug("✅ [Kline-Consumer] 成功 TraceId={} Code={}", traceId, task.getStockCode());
+            } else if (r.deferred) {
+                log.info("⏸ [Kline-Consumer] 限流延后 TraceId={} Code={}", traceId, task.getStockCode());
             } else {
                 log.error("❌ [Kline-Consumer] 业务处理失败 TraceId={} Code={}", traceId, task.getStockCode());
             }
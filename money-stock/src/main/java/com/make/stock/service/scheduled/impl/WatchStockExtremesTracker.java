@@ -0,0 +1,260 @@
+package com.make.stock.service.scheduled.impl;
+
+import com.make.stock.domain.StockKline;
+import com.make.stock.service.IStockKlineService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自选股周/年高低价增量跟踪器
+ * <p>
+ * 替代每次刷新都查询本周 / 年初至今 K 线再逐条比较：
+ * 1. 每只股票每个窗口（自然周、自然年）保存「今日之前」的历史极值及其交易日，
+ *    首次访问或窗口切换（周一 / 元旦）时从列式 K 线缓存（未覆盖时回退数据库）计算一次。
+ * 2. 当日高低价随实时行情单调更新，窗口极值 = 历史极值与当日高低价合并，O(1)。
+ * 3. 跨日时按已入库的 K 线重算历史极值，不使用本节点观察到的前一日行情：
+ *    本节点可能只看到前一日的部分行情（启动较晚、任务在节点间迁移），入库 K 线才是全天完整值。
+ * <p>
+ * 周、年均为自然窗口，窗口切换或跨日时整体重算（每只股票每个窗口每日一次）；周末按上一交易日所在周处理。
+ * </p>
+ */
+@Component
+public class WatchStockExtremesTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(WatchStockExtremesTracker.class);
+
+    @Resource
+    private StockKlineColumnStore stockKlineColumnStore;
+
+    @Resource
+    private IStockKlineService stockKlineService;
+
+    private final Map<String, Window> weeks = new ConcurrentHashMap<>();
+
+    private final Map<String, Window> years = new ConcurrentHashMap<>();
+
+    private final AtomicLong reseeds = new AtomicLong();
+    private final AtomicLong dbReseeds = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+
+    /**
+     * 以当日高低价推进本周极值
+     *
+     * @param stockCode 股票代码
+     * @param today     当前日期（周末自动回退到周五）
+     * @param dayHigh   当日最高价，可为 null
+     * @param dayLow    当日最低价，可为 null
+     * @return 本周极值
+     */
+    public Extremes week(String stockCode, LocalDate today, BigDecimal dayHigh, BigDecimal dayLow) {
+        LocalDate day = today;
+        if (day.getDayOfWeek() == DayOfWeek.SATURDAY) {
+            day = day.minusDays(1);
+        } else if (day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            day = day.minusDays(2);
+        }
+        LocalDate monday = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return advance(weeks, stockCode, monday, day, dayHigh, dayLow);
+    }
+
+    /**
+     * 以当日高低价推进年初至今极值
+     *
+     * @param stockCode 股票代码
+     * @param today     当前日期
+     * @param dayHigh   当日最高价，可为 null
+     * @param dayLow    当日最低价，可为 null
+     * @return 年初至今极值
+     */
+    public Extremes year(String stockCode, LocalDate today, BigDecimal dayHigh, BigDecimal dayLow) {
+        return advance(years, stockCode, LocalDate.of(today.getYear(), 1, 1), today, dayHigh, dayLow);
+    }
+
+    /**
+     * 跟踪器统计（监控用）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("weekStocks", weeks.size());
+        stats.put("yearStocks", years.size());
+        stats.put("updates", updates.get());
+        stats.put("reseeds", reseeds.get());
+        stats.put("dbReseeds", dbReseeds.get());
+        return stats;
+    }
+
+    private Extremes advance(Map<String, Window> windows, String stockCode, LocalDate start, LocalDate day,
+                             BigDecimal dayHigh, BigDecimal dayLow) {
+        Window w = windows.computeIfAbsent(stockCode, k -> new Window());
+        synchronized (w) {
+            if (!start.equals(w.start) || !day.equals(w.day)) {
+                // 窗口切换或同窗口内跨日：按入库 K 线重算今日之前的历史极值
+                seed(w, stockCode, start, day);
+            }
+            w.offer(dayHigh, dayLow);
+            updates.incrementAndGet();
+            return w.snapshot(day.equals(start));
+        }
+    }
+
+    /**
+     * 重算窗口内「今日之前」的历史极值
+     */
+    private void seed(Window w, String stockCode, LocalDate start, LocalDate day) {
+        w.reset(start, day);
+        reseeds.incrementAndGet();
+        if (!day.isAfter(start)) {
+            return;
+        }
+        LocalDate end = day.minusDays(1);
+        if (stockKlineColumnStore.covers(start)) {
+            StockKlineColumnStore.RangeStats stats = stockKlineColumnStore.rangeStats(stockCode, start, end);
+            if (stats != null) {
+                w.histCount = stats.getCount();
+                w.histHigh = stats.getMaxHigh();
+                w.histHighDate = stats.getMaxHighDate();
+                w.histLow = stats.getMinLow();
+                w.histLowDate = stats.getMinLowDate();
+            }
+            return;
+        }
+
+        dbReseeds.incrementAndGet();
+        StockKline query = new StockKline();
+        query.setStockCode(stockCode);
+        query.setStartDate(Date.from(start.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        query.setEndDate(Date.from(end.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        try {
+            List<StockKline> klines = stockKlineService.selectStockKlineList(query);
+            for (StockKline k : klines) {
+                LocalDate tradeDay = k.getTradeDate() != null
+                        ? k.getTradeDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : null;
+                w.histCount++;
+                if (k.getHigh() != null && (w.histHigh == null || k.getHigh().compareTo(w.histHigh) > 0)) {
+                    w.histHigh = k.getHigh();
+                    w.histHighDate = tradeDay;
+                }
+                if (k.getLow() != null && (w.histLow == null || k.getLow().compareTo(w.histLow) < 0)) {
+                    w.histLow = k.getLow();
+                    w.histLowDate = tradeDay;
+                }
+            }
+        } catch (Exception e) {
+            // 历史缺失时本窗口只按当日行情推进，窗口切换时再重算
+            log.warn("[Extremes] 加载历史K线失败 code={}, from={}, err={}", stockCode, start, e.getMessage());
+        }
+    }
+
+    /**
+     * 单只股票单个窗口的状态，所有字段在持有本对象锁时读写
+     */
+    private static final class Window {
+
+        private LocalDate start;
+        private LocalDate day;
+
+        private int histCount;
+        private BigDecimal histHigh;
+        private LocalDate histHighDate;
+        private BigDecimal histLow;
+        private LocalDate histLowDate;
+
+        private BigDecimal dayHigh;
+        private BigDecimal dayLow;
+
+        private void reset(LocalDate start, LocalDate day) {
+            this.start = start;
+            this.day = day;
+            this.histCount = 0;
+            this.histHigh = null;
+            this.histHighDate = null;
+            this.histLow = null;
+            this.histLowDate = null;
+            this.dayHigh = null;
+            this.dayLow = null;
+        }
+
+        private void offer(BigDecimal high, BigDecimal low) {
+            if (high != null && (dayHigh == null || high.compareTo(dayHigh) > 0)) {
+                dayHigh = high;
+            }
+            if (low != null && (dayLow == null || low.compareTo(dayLow) < 0)) {
+                dayLow = low;
+            }
+        }
+
+        private Extremes snapshot(boolean firstDayOfWindow) {
+            BigDecimal high = histHigh;
+            LocalDate highDate = histHighDate;
+            if (dayHigh != null && (high == null || dayHigh.compareTo(high) >= 0)) {
+                high = dayHigh;
+                highDate = day;
+            }
+            BigDecimal low = histLow;
+            LocalDate lowDate = histLowDate;
+            if (dayLow != null && (low == null || dayLow.compareTo(low) <= 0)) {
+                low = dayLow;
+                lowDate = day;
+            }
+            return new Extremes(high, highDate, low, lowDate, histCount > 0 || firstDayOfWindow);
+        }
+    }
+
+    /**
+     * 窗口极值快照
+     */
+    public static final class Extremes {
+
+        private final BigDecimal high;
+        private final LocalDate highDate;
+        private final BigDecimal low;
+        private final LocalDate lowDate;
+        private final boolean complete;
+
+        private Extremes(BigDecimal high, LocalDate highDate, BigDecimal low, LocalDate lowDate, boolean complete) {
+            this.high = high;
+            this.highDate = highDate;
+            this.low = low;
+            this.lowDate = lowDate;
+            this.complete = complete;
+        }
+
+        public BigDecimal getHigh() {
+            return high;
+        }
+
+        public LocalDate getHighDate() {
+            return highDate;
+        }
+
+        public BigDecimal getLow() {
+            return low;
+        }
+
+        public LocalDate getLowDate() {
+            return lowDate;
+        }
+
+        /**
+         * 窗口内今日之前已有 K 线（或今日即窗口首日），结果可直接覆盖已存值以修正跨窗口残留；
+         * 否则只应在突破已存值时更新
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
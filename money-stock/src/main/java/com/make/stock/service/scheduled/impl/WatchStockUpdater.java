@@ -4,7 +4,6 @@ import com.make.common.utils.DateUtils;
 import com.make.stock.domain.StockKline;
 import com.make.stock.domain.Watchstock;
 import com.make.stock.domain.dto.StockRealtimeInfo;
-import com.make.stock.service.IStockKlineService;
 import com.make.stock.service.IWatchstockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,11 +13,7 @@ import javax.annotation.Resource;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.temporal.TemporalAdjusters;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -41,10 +36,10 @@ public class WatchStockUpdater {
     private IWatchstockService watchstockService;
 
     /**
-     * 股票K线服务接口，用于执行具体的数据库操作
+     * 周/年高低价增量跟踪器
      */
     @Resource
-    private IStockKlineService stockKlineService;
+    private WatchStockExtremesTracker extremesTracker;
 
     /**
      * 处理自选股更新
@@ -199,9 +194,9 @@ public class WatchStockUpdater {
      *
      * <p>规则：
      * <ul>
-     *   <li>若本周 K 线可用，则以本周计算结果为准（可覆盖修正旧值）</li>
-     *   <li>若本周 K 线不可用，则仅使用当日实时行情做初始化/突破更新</li>
-     *   <li>当日实时行情用于兜底补偿，防止当日 K 线未入库</li>
+     *   <li>本周极值由 {@link WatchStockExtremesTracker} 增量维护（今日之前的 K 线 + 当日实时高低价），不再逐次查询本周 K 线</li>
+     *   <li>若本周今日之前已有 K 线（或今日为周一），则以计算结果为准（可覆盖修正旧值）</li>
+     *   <li>否则仅使用当日实时行情做初始化/突破更新</li>
      * </ul>
      *
      * @param stock 自选股对象（需包含当日实时高低价）
@@ -211,57 +206,10 @@ public class WatchStockUpdater {
         // 股票代码
         String stockCode = stock.getCode();
 
-        // 取当前日期（周末视为上一交易日，避免把周末算作新的一周）
-        LocalDate today = LocalDate.now();
-        if (today.getDayOfWeek() == DayOfWeek.SATURDAY) {
-            today = today.minusDays(1);
-        } else if (today.getDayOfWeek() == DayOfWeek.SUNDAY) {
-            today = today.minusDays(2);
-        }
-
-        // 本周周一（ISO：周一为一周开始）
-        LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-
-        // 构造本周周一至周五日期列表
-        List<LocalDate> tradeDateList = new ArrayList<>(5);
-        for (int i = 0; i < 5; i++) {
-            tradeDateList.add(monday.plusDays(i));
-        }
-
-        // 查询本周 K 线（允许为空）
-        List<StockKline> stockKlineList =
-                stockKlineService.queryWeekAllStockKline(stockCode, tradeDateList);
-
-        BigDecimal computedWeekHigh = null;
-        BigDecimal computedWeekLow = null;
-
-        // 基于 K 线计算本周高低价
-        if (stockKlineList != null && !stockKlineList.isEmpty()) {
-            for (StockKline kline : stockKlineList) {
-                if (kline.getHigh() != null) {
-                    computedWeekHigh = (computedWeekHigh == null)
-                            ? kline.getHigh()
-                            : computedWeekHigh.max(kline.getHigh());
-                }
-                if (kline.getLow() != null) {
-                    computedWeekLow = (computedWeekLow == null)
-                            ? kline.getLow()
-                            : computedWeekLow.min(kline.getLow());
-                }
-            }
-        }
-
-        // 当日实时行情兜底补偿（防止当日 K 线尚未入库）
-        if (stock.getHighPrice() != null) {
-            computedWeekHigh = (computedWeekHigh == null)
-                    ? stock.getHighPrice()
-                    : computedWeekHigh.max(stock.getHighPrice());
-        }
-        if (stock.getLowPrice() != null) {
-            computedWeekLow = (computedWeekLow == null)
-                    ? stock.getLowPrice()
-                    : computedWeekLow.min(stock.getLowPrice());
-        }
+        WatchStockExtremesTracker.Extremes week = extremesTracker.week(
+                stockCode, LocalDate.now(), stock.getHighPrice(), stock.getLowPrice());
+        BigDecimal computedWeekHigh = week.getHigh();
+        BigDecimal computedWeekLow = week.getLow();
 
         // 若本周既无 K 线也无今日行情，则无从计算
         if (computedWeekHigh == null && computedWeekLow == null) {
@@ -270,7 +218,7 @@ public class WatchStockUpdater {
         }
 
         // 本周有 K 线：以本周计算结果为准，允许覆盖修正（解决跨周残留问题）
-        if (stockKlineList != null && !stockKlineList.isEmpty()) {
+        if (week.isComplete()) {
 
             boolean changed = false;
 
@@ -285,7 +233,8 @@ public class WatchStockUpdater {
             }
 
             if (changed) {
-                log.info("股票 [{}] 周度高低价按本周K线校准，高={}, 低={}", stockCode, computedWeekHigh, computedWeekLow);
+                log.info("股票 [{}] 周度高低价按本周K线校准，高={}({}), 低={}({})", stockCode,
+                        computedWeekHigh, week.getHighDate(), computedWeekLow, week.getLowDate());
             }
             return;
         }
@@ -310,9 +259,8 @@ public class WatchStockUpdater {
      *
      * <p>处理逻辑：
      * <ol>
-     *   <li>以当年 1 月 1 日至今日为时间范围，查询历史 K 线数据</li>
-     *   <li>遍历计算区间内的最高价和最低价</li>
-     *   <li>将计算结果与今日实时行情进行兜底合并</li>
+     *   <li>年初至昨日的极值由 {@link WatchStockExtremesTracker} 在跨年时计算一次，之后逐日增量并入</li>
+     *   <li>与今日实时行情合并得到年内最高价和最低价</li>
      *   <li>仅在突破当前已记录的年高/年低时才执行更新</li>
      * </ol>
      *
@@ -327,63 +275,24 @@ public class WatchStockUpdater {
      */
     public void updateYearHighLowIfNeeded(Watchstock stock) {
         String stockCode = stock.getCode();
-        LocalDate today = LocalDate.now();
-
-        // 本年起始日期
-        LocalDate startOfYear = LocalDate.of(today.getYear(), 1, 1);
-
-        // 构造 K 线查询条件
-        StockKline query = new StockKline();
-        query.setStockCode(stockCode);
-        query.setStartDate(Date.from(startOfYear.atStartOfDay(ZoneId.systemDefault()).toInstant()));
-        query.setEndDate(Date.from(today.atStartOfDay(ZoneId.systemDefault()).toInstant()));
-
-        // 查询年内 K 线
-        List<StockKline> klineList = stockKlineService.selectStockKlineList(query);
-
-        BigDecimal computedYearHigh = null;
-        BigDecimal computedYearLow = null;
-
-        // 计算年内历史最高/最低
-        if (klineList != null && !klineList.isEmpty()) {
-            for (StockKline k : klineList) {
-                if (k.getHigh() != null) {
-                    computedYearHigh = (computedYearHigh == null)
-                            ? k.getHigh()
-                            : computedYearHigh.max(k.getHigh());
-                }
-                if (k.getLow() != null) {
-                    computedYearLow = (computedYearLow == null)
-                            ? k.getLow()
-                            : computedYearLow.min(k.getLow());
-                }
-            }
-        }
 
-        // 今日实时行情兜底（防止今日 K 线未入库）
-        if (stock.getHighPrice() != null) {
-            computedYearHigh = (computedYearHigh == null)
-                    ? stock.getHighPrice()
-                    : computedYearHigh.max(stock.getHighPrice());
-        }
-        if (stock.getLowPrice() != null) {
-            computedYearLow = (computedYearLow == null)
-                    ? stock.getLowPrice()
-                    : computedYearLow.min(stock.getLowPrice());
-        }
+        WatchStockExtremesTracker.Extremes year = extremesTracker.year(
+                stockCode, LocalDate.now(), stock.getHighPrice(), stock.getLowPrice());
+        BigDecimal computedYearHigh = year.getHigh();
+        BigDecimal computedYearLow = year.getLow();
 
         // 年最低价更新（仅当更低时）
         if (computedYearLow != null &&
                 (stock.getYearLow() == null || computedYearLow.compareTo(stock.getYearLow()) < 0)) {
             stock.setYearLow(computedYearLow);
-            log.info("股票 [{}] 年最低价更新为 {}", stockCode, computedYearLow);
+            log.info("股票 [{}] 年最低价更新为 {}（{}）", stockCode, computedYearLow, year.getLowDate());
         }
 
         // 年最高价更新（仅当更高时）
         if (computedYearHigh != null &&
                 (stock.getYearHigh() == null || computedYearHigh.compareTo(stock.getYearHigh()) > 0)) {
             stock.setYearHigh(computedYearHigh);
-            log.info("股票 [{}] 年最高价更新为 {}", stockCode, computedYearHigh);
+            log.info("股票 [{}] 年最高价更新为 {}（{}）", stockCode, computedYearHigh, year.getHighDate());
         }
     }
 
@@ -15,6 +15,10 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -23,7 +27,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * <p>
  * 重构说明：
  * 1. 职责分离：业务逻辑已委托给 StockRefreshHandler 处理，本类只负责“消费机制”。
- * 2. 并发模型：采用 Polling (轮询) + ThreadPool (执行) + Semaphore (背压) 架构。
+ * 2. 并发模型：采用 阻塞拉取 (BRPOPLPUSH / XREADGROUP BLOCK，任务到达即取走) + ThreadPool (执行) + Semaphore (背压) 架构；
+ *    quartz.stockQueueBlockMs &lt;= 0 时退回 Polling (轮询)。
  * 3. 分布式锁：保证同一股票在同一时刻只被一个节点更新。
  */
 @Component
@@ -178,8 +183,8 @@ public class StockTaskConsumer implements SmartLifecycle {
      * 单次轮询并提交任务
      * <p>
      * 核心流程：
-     * 1. 从 Redis 队列中非阻塞拉取一个任务。
-     * 2. 如果队列为空，短暂休眠避免 CPU 空转。
+     * 1. 从 Redis 队列中拉取一个任务（阻塞模式下在 Redis 端等待任务到达）。
+     * 2. 如果队列为空且为非阻塞拉取，短暂休眠避免 CPU 空转。
      * 3. 获取背压许可 (Semaphore)：如果当前并发高，此处会阻塞，实现流量控制。
      * 4. 提交任务到 executePool 执行，并在 finally 块中释放许可。
      * </p>
@@ -187,11 +192,17 @@ public class StockTaskConsumer implements SmartLifecycle {
      * @throws InterruptedException 如果在等待许可时被中断
      */
     private void pollOnceAndSubmit() throws InterruptedException {
+        int batchSize = stockProperties.getStockRefreshBatchSize();
+        if (batchSize > 1) {
+            pollBatchAndSubmit(batchSize);
+            return;
+        }
+
         // Use Reliable Poll
         StockRefreshTask task = queueService.pollReliable(currentNodeId);
 
         if (task == null) {
-            TimeUnit.MILLISECONDS.sleep(EMPTY_QUEUE_SLEEP_MS);
+            sleepIfNonBlocking();
             return;
         }
 
@@ -219,6 +230,104 @@ public class StockTaskConsumer implements SmartLifecycle {
         }
     }
 
+    /**
+     * 队列为空时的退避
+     * <p>
+     * 阻塞式拉取（Stream XREADGROUP BLOCK）已在 Redis 端等待过，直接进入下一轮；
+     * 非阻塞拉取休眠 EMPTY_QUEUE_SLEEP_MS 避免空转。
+     * </p>
+     *
+     * @throws InterruptedException 休眠期间被中断
+     */
+    private void sleepIfNonBlocking() throws InterruptedException {
+        if (!queueService.isBlockingPoll()) {
+            TimeUnit.MILLISECONDS.sleep(EMPTY_QUEUE_SLEEP_MS);
+        }
+    }
+
+    /**
+     * 批量轮询并提交任务
+     * <p>
+     * 一次拉取最多 batchSize 个任务作为一个执行单元提交，只占用一个背压许可。
+     * </p>
+     *
+     * @param batchSize 单批最大任务数
+     * @throws InterruptedException 如果在等待许可时被中断
+     */
+    private void pollBatchAndSubmit(int batchSize) throws InterruptedException {
+        List<StockRefreshTask> tasks = queueService.pollReliableBatch(currentNodeId, batchSize);
+
+        if (tasks.isEmpty()) {
+            sleepIfNonBlocking();
+            return;
+        }
+
+        submitLimiter.acquire();
+
+        try {
+            executePool.execute(() -> {
+                try {
+                    handleBatchExecution(tasks);
+                } finally {
+                    submitLimiter.release();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            submitLimiter.release();
+            // 与单任务一致：不 ACK，留在 processing 队列等待 Watchdog 回收
+            log.warn("Execute pool rejected batch. size={}", tasks.size(), ree);
+        }
+    }
+
+    /**
+     * 处理一批任务的执行流程
+     * <p>
+     * 1. 逐个加锁，同一批次内重复的股票只保留第一个，其余直接 ACK。
+     * 2. 已加锁的任务交给 Handler 批量刷新。
+     * 3. finally 块中逐个释放锁、ACK、清理状态并触发下一轮。
+     * </p>
+     *
+     * @param tasks 从队列中获取的任务列表
+     */
+    private void handleBatchExecution(List<StockRefreshTask> tasks) {
+        List<StockRefreshTask> locked = new ArrayList<>(tasks.size());
+        Set<String> seen = new HashSet<>();
+
+        for (StockRefreshTask task : tasks) {
+            String stockCode = task.getStockCode();
+            if (isBlank(stockCode)) {
+                log.warn("Skip invalid task: empty stockCode, traceId={}", task.getTraceId());
+                continue;
+            }
+            if (!seen.add(stockCode)) {
+                // 同批次重复任务：本批次已会刷新该股票，不再触发下一轮，避免循环倍增
+                queueService.ack(currentNodeId, task);
+                queueService.deleteStatus(stockCode, task.getTraceId());
+                continue;
+            }
+            if (tryLockWithRetry(stockCode)) {
+                locked.add(task);
+            } else {
+                releaseUnlocked(task);
+            }
+        }
+
+        if (locked.isEmpty()) {
+            return;
+        }
+
+        try {
+            stockRefreshHandler.refreshStockBatch(locked);
+        } finally {
+            for (StockRefreshTask task : locked) {
+                safeReleaseLock(task.getStockCode());
+                queueService.ack(currentNodeId, task);
+                queueService.deleteStatus(task.getStockCode(), task.getTraceId());
+                stockWatchProcessor.submitTask(task.getStockCode());
+            }
+        }
+    }
+
     /**
      * 处理单个任务的执行流程
      * <p>
@@ -243,6 +352,7 @@ public class StockTaskConsumer implements SmartLifecycle {
         // 尝试获取分布式锁
         boolean locked = tryLockWithRetry(stockCode);
         if (!locked) {
+            releaseUnlocked(task);
             return;
         }
 
@@ -284,6 +394,22 @@ public class StockTaskConsumer implements SmartLifecycle {
         return false;
     }
 
+    /**
+     * 加锁失败的任务直接确认
+     * <p>
+     * 锁被占用说明其他节点正在刷新该股票，并会在结束后触发下一轮；
+     * 不确认的话任务会一直滞留在 processing 队列中。
+     * </p>
+     *
+     * @param task 加锁失败的任务
+     */
+    private void releaseUnlocked(StockRefreshTask task) {
+        log.debug("Stock locked by another node, drop duplicate task. stockCode={}, traceId={}",
+                task.getStockCode(), task.getTraceId());
+        queueService.ack(currentNodeId, task);
+        queueService.deleteStatus(task.getStockCode(), task.getTraceId());
+    }
+
     /**
      * 安全释放锁
      * <p>
@@ -2,6 +2,8 @@ package com.make.stock.service.scheduled.stock.handler;
 
 import com.make.stock.domain.StockRefreshTask;
 
+import java.util.List;
+
 /**
  * 股票刷新业务处理器接口
  * 负责执行具体的股票刷新业务逻辑：获取数据、更新DB、计算利润、通知等
@@ -14,4 +16,12 @@ public interface IStockRefreshHandler {
      * @param task 任务信息
      */
     void refreshStock(StockRefreshTask task);
+
+    /**
+     * 批量处理股票刷新任务
+     * 按市场分组批量拉取快照，关注股票一次批量落库
+     *
+     * @param tasks 任务列表（同一批次内股票代码不重复）
+     */
+    void refreshStockBatch(List<StockRefreshTask> tasks);
 }
@@ -2,20 +2,18 @@ package com.make.stock.service.scheduled.stock.handler;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONWriter;
-import com.make.common.utils.ThreadPoolUtil;
-import com.make.finance.domain.YearlyInvestmentSummary;
-import com.make.finance.service.IYearlyInvestmentSummaryService;
 import com.make.stock.domain.StockRefreshExecuteRecord;
 import com.make.stock.domain.StockRefreshTask;
 import com.make.stock.domain.StockTaskStatus;
 import com.make.stock.service.scheduled.IStockRefreshExecuteRecordService;
+import com.make.stock.service.scheduled.impl.StockMarketResolver;
 import com.make.stock.service.scheduled.impl.WatchStockUpdater;
+import com.make.stock.service.scheduled.stock.ledger.ProfitLedger;
 import com.make.stock.service.scheduled.stock.queue.StockTaskQueueService;
 import com.make.stock.util.DateUtil;
 import com.make.stock.util.email.SendEmail;
 import com.make.stock.domain.*;
 import com.make.stock.domain.dto.StockRealtimeInfo;
-import com.make.stock.service.ISalesDataService;
 import com.make.stock.service.ISellPriceAlertsService;
 import com.make.stock.service.IStockTradesService;
 import com.make.stock.service.IWatchstockService;
@@ -29,16 +27,16 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.Year;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 
@@ -49,7 +47,7 @@ import java.util.stream.IntStream;
  * 1. Fetch 数据（带重试）
  * 2. Update WatchStock（更新价格）
  * 3. Update Trade Records（更新交易记录与预警）
- * 4. Calculate Profits (优化后的按用户计算)
+ * 4. Calculate Profits (增量利润账本，按交易差值累加，定时批量落库)
  * 5. Notifications（价格预警通知）
  * 6. DB Logging（执行日志落库）
  */
@@ -60,6 +58,7 @@ public class StockRefreshHandler implements IStockRefreshHandler {
 
     private static final int MAX_ATTEMPTS = 3;
     private static final long RETRY_BASE_DELAY_MS = 300;
+    private static final long SNAPSHOT_THROTTLE_WAIT_MS = 1000;
 
     @Resource
     private IWatchstockService watchstockService;
@@ -70,15 +69,13 @@ public class StockRefreshHandler implements IStockRefreshHandler {
     @Resource
     private ISellPriceAlertsService sellPriceAlertsService;
     @Resource
-    private ISalesDataService salesDataService;
-    @Resource
-    private IYearlyInvestmentSummaryService yearlyInvestmentSummaryService;
-    @Resource
     private IStockRefreshExecuteRecordService recordService;
     @Resource
     private StockTaskQueueService queueService;
     @Resource
     private StockKlineTaskMapper stockKlineTaskMapper;
+    @Resource
+    private ProfitLedger profitLedger;
 
     /**
      * 处理股票刷新任务的主入口
@@ -110,8 +107,9 @@ public class StockRefreshHandler implements IStockRefreshHandler {
             StockRealtimeInfo info = null;
 
             // 尝试根据code和market获取数据（优先策略）
+            // 快照接口限流等待明显长于 URL 接口时，直接走 URL 方式，避免占用线程空等
             String market = getMarketFromTask(stockCode);
-            if (market != null && !market.isEmpty()) {
+            if (market != null && !market.isEmpty() && !isSnapshotThrottled(ws)) {
                 info = fetchFromData(stockCode, market);
             }
 
@@ -133,29 +131,14 @@ public class StockRefreshHandler implements IStockRefreshHandler {
                 return;
             }
 
-            if (ws.getLowPrice() != null && ws.getThresholdPrice() != null) {
-                BigDecimal currentPrice = ws.getNewPrice();
-                BigDecimal threshold = ws.getThresholdPrice();
-                if (ws.getNewPrice().compareTo(BigDecimal.ZERO) > 0 && threshold != null && currentPrice.compareTo(threshold) < 0) {
-                    if (DateUtil.isCurrentTimeInRange()) {
-                        sendNotification(task, ws);
-                    }
-
-                }
-            }
-
             // 5. 更新 WatchStock 实体与数据库
             watchStockUpdater.updateFromRealtimeInfo(ws, info);
             watchstockService.updateWatchstock(ws);
 
             // 6. 同步更新交易记录（解决并发数据不一致问题）
+            // 7. 利润差值计入增量账本，由账本定时批量落库（仅在工作日落库）
             updateTradeRecordsSync(ws.getCode(), ws.getNewPrice());
 
-            // 7. 计算利润（仅在工作日执行）
-            if (DateUtil.isValidWorkday()) {
-                updateProfitForHolders(ws.getCode());
-            }
-
             // 8. 检查并发送价格预警通知
             if (info.getPrice() != null) {
                 dbStatus = "SUCCESS";
@@ -165,15 +148,7 @@ public class StockRefreshHandler implements IStockRefreshHandler {
                 dbResult = "Price= null";
             }
 
-            if (ws.getLowPrice() != null && ws.getThresholdPrice() != null) {
-                BigDecimal currentPrice = ws.getNewPrice();
-                BigDecimal threshold = ws.getThresholdPrice();
-                if (ws.getNewPrice().compareTo(BigDecimal.ZERO) > 0 && threshold != null && currentPrice.compareTo(threshold) < 0) {
-                    if (DateUtil.isCurrentTimeInRange()) {
-                        sendNotification(task, ws);
-                    }
-                }
-            }
+            checkPriceAlert(task, ws);
 
         } catch (Exception e) {
             log.error("Task failed: stockCode={}, traceId={}", stockCode, traceId, e);
@@ -184,6 +159,133 @@ public class StockRefreshHandler implements IStockRefreshHandler {
         }
     }
 
+    /**
+     * 批量处理股票刷新任务
+     * <p>
+     * 流程：
+     * 1. 一次查询加载批次内所有关注股票
+     * 2. 按市场分组，每组一次批量快照请求（只占一个限流许可）
+     * 3. 关注股票一次 updateWatchstockBatchById 落库
+     * 4. 利润变动登记到利润账本，落库成功后按新价格检查预警
+     * 5. 批量快照未返回的股票回退到单只刷新流程
+     * </p>
+     *
+     * @param tasks 任务列表（同一批次内股票代码不重复）
+     */
+    @Override
+    public void refreshStockBatch(List<StockRefreshTask> tasks) {
+        if (CollectionUtils.isEmpty(tasks)) {
+            return;
+        }
+
+        Map<String, StockRefreshTask> taskByCode = new LinkedHashMap<>();
+        for (StockRefreshTask task : tasks) {
+            taskByCode.put(task.getStockCode(), task);
+            updateStatus(task.getStockCode(), StockTaskStatus.STATUS_RUNNING, null, task.getTraceId());
+        }
+
+        // 1. 一次性加载关注股票
+        Map<String, Watchstock> wsByCode = new HashMap<>();
+        for (Watchstock ws : watchstockService.getWatchstockAllList()) {
+            if (ws.getCode() != null && taskByCode.containsKey(ws.getCode())) {
+                wsByCode.put(ws.getCode(), ws);
+            }
+        }
+
+        // 2. 按市场分组（无法解析市场的直接走单只流程）
+        Map<String, List<String>> codesByMarket = new HashMap<>();
+        List<StockRefreshTask> fallback = new ArrayList<>();
+        for (StockRefreshTask task : taskByCode.values()) {
+            String stockCode = task.getStockCode();
+            if (!wsByCode.containsKey(stockCode)) {
+                saveExecutionRecord(stockCode, null, "FAILED", "Stock not found in DB", task.getTraceId());
+                continue;
+            }
+            String market = StockMarketResolver.getMarketCode(stockCode);
+            if (market == null) {
+                fallback.add(task);
+            } else {
+                codesByMarket.computeIfAbsent(market, k -> new ArrayList<>()).add(stockCode);
+            }
+        }
+
+        // 3. 每个市场一次批量快照
+        Map<String, StockRealtimeInfo> infoByCode = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : codesByMarket.entrySet()) {
+            try {
+                infoByCode.putAll(KlineDataFetcher.fetchStockSnapshotBatch(entry.getValue(), entry.getKey()));
+            } catch (Exception e) {
+                log.warn("Batch snapshot failed, market={}, size={}", entry.getKey(), entry.getValue().size(), e);
+            }
+        }
+
+        // 4. 内存中更新关注股票
+        List<Watchstock> updated = new ArrayList<>();
+        for (List<String> codes : codesByMarket.values()) {
+            for (String stockCode : codes) {
+                StockRealtimeInfo info = infoByCode.get(stockCode);
+                if (info == null || info.getPrice() == null) {
+                    fallback.add(taskByCode.get(stockCode));
+                    continue;
+                }
+                Watchstock ws = wsByCode.get(stockCode);
+                watchStockUpdater.updateFromRealtimeInfo(ws, info);
+                updated.add(ws);
+            }
+        }
+
+        // 5. 批量落库 + 交易记录（利润由账本累加）
+        String dbStatus = "FAILED";
+        String dbResult = "";
+        if (!updated.isEmpty()) {
+            try {
+                watchstockService.updateWatchstockBatch(updated);
+                for (Watchstock ws : updated) {
+                    updateTradeRecordsSync(ws.getCode(), ws.getNewPrice());
+                }
+                dbStatus = "SUCCESS";
+            } catch (Exception e) {
+                log.error("Batch refresh persist failed, size={}", updated.size(), e);
+                dbResult = Objects.toString(e.getMessage(), "Exception");
+            }
+        }
+
+        for (Watchstock ws : updated) {
+            StockRefreshTask task = taskByCode.get(ws.getCode());
+            String result = "SUCCESS".equals(dbStatus) ? "Price=" + ws.getNewPrice() + " (batch)" : dbResult;
+            saveExecutionRecord(ws.getCode(), ws.getName(), dbStatus, result, task.getTraceId());
+            // 新价格已写入后再判断预警，与单只流程一致
+            if ("SUCCESS".equals(dbStatus)) {
+                checkPriceAlert(task, ws);
+            }
+        }
+
+        log.info("Batch refresh done. total={}, batched={}, fallback={}", taskByCode.size(), updated.size(), fallback.size());
+
+        // 6. 批量未覆盖的股票回退到单只流程
+        for (StockRefreshTask task : fallback) {
+            refreshStock(task);
+        }
+    }
+
+    /**
+     * 价格低于预警门槛时发送通知（在最新价格写入 ws 并落库之后调用）
+     *
+     * @param task 当前任务信息
+     * @param ws   关注股票信息
+     */
+    private void checkPriceAlert(StockRefreshTask task, Watchstock ws) {
+        if (ws.getLowPrice() != null && ws.getThresholdPrice() != null) {
+            BigDecimal currentPrice = ws.getNewPrice();
+            BigDecimal threshold = ws.getThresholdPrice();
+            if (currentPrice != null && currentPrice.compareTo(BigDecimal.ZERO) > 0 && currentPrice.compareTo(threshold) < 0) {
+                if (DateUtil.isCurrentTimeInRange()) {
+                    sendNotification(task, ws);
+                }
+            }
+        }
+    }
+
     /**
      * 尝试查询 stock_kline_task 表获取 market
      */
@@ -202,7 +304,25 @@ public class StockRefreshHandler implements IStockRefreshHandler {
     }
 
     /**
+     * 判断快照接口是否处于限流等待中，且 URL 接口可更快获取
      *
+     * @param ws 关注股票信息
+     * @return true 表示应跳过快照接口
+     */
+    private boolean isSnapshotThrottled(Watchstock ws) {
+        long snapshotWait = KlineDataFetcher.peekWaitMillis(KlineDataFetcher.KEY_SNAPSHOT);
+        if (snapshotWait <= SNAPSHOT_THROTTLE_WAIT_MS) {
+            return false;
+        }
+        String apiUrl = ws.getStockApi();
+        if (apiUrl == null || apiUrl.contains("secid=null")) {
+            return false;
+        }
+        return KlineDataFetcher.peekWaitMillis(KlineDataFetcher.KEY_REALTIME_STOCK) < snapshotWait;
+    }
+
+    /**
+     * 通过快照接口获取实时数据
      */
     private StockRealtimeInfo fetchFromData(String stockCode, String market) {
         try {
@@ -267,8 +387,12 @@ public class StockRefreshHandler implements IStockRefreshHandler {
 
             for (StockTrades stockTrades : tradesList) {
                 if (stockTrades != null && stockTrades.getStockCode().equals(code)) {
+                    BigDecimal previousProfit = stockTrades.getNetProfit();
                     updateTradeDetails(stockTrades, newPrice);
                     stockTradesService.updateStockTradesByCode(stockTrades);
+                    if (!Objects.equals(previousProfit, stockTrades.getNetProfit())) {
+                        profitLedger.onTradeUpdated(stockTrades);
+                    }
 
                     SellPriceAlerts sellPriceAlerts = new SellPriceAlerts()
                             .setStockCode(stockTrades.getStockCode())
@@ -281,116 +405,6 @@ public class StockRefreshHandler implements IStockRefreshHandler {
         }
     }
 
-    /**
-     * 优化后的利润更新逻辑：仅更新持有该股票的用户
-     *
-     * @param stockCode 股票代码
-     */
-    private void updateProfitForHolders(String stockCode) {
-        try {
-            // 1. 找出持有该股票的所有用户 (利用 selectStockTradesList)
-            // 在 updateProfitForHolders 方法中替换硬编码的年份
-            long currentYear = Year.now().getValue();
-            List<StockTrades> holders = stockTradesService.selectStockTradesByYear((int) currentYear);
-
-            if (CollectionUtils.isEmpty(holders)) {
-                return;
-            }
-
-            // 提取去重的 userId 列表
-            List<Long> userIds = holders.stream()
-                    .map(StockTrades::getUserId)
-                    .filter(Objects::nonNull)
-                    .distinct()
-                    .collect(Collectors.toList());
-
-            // 2. 针对每个受影响的用户，重新计算当日总利润
-            for (Long userId : userIds) {
-                updateDailyProfitForUser(userId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to update profit for holders of {}", stockCode, e);
-        }
-    }
-
-    /**
-     * 更新指定用户的当日总利润及年度汇总
-     *
-     * @param userId 用户ID
-     */
-    private void updateDailyProfitForUser(Long userId) {
-        // 获取该用户的所有持仓
-        List<StockTrades> userTrades = stockTradesService.selectStockTradesByYearAndUserId(Year.now().getValue(), userId);
-
-        // 累加净利润
-        BigDecimal totalProfit = userTrades.stream()
-                .filter(t -> t.getNetProfit() != null)
-                .map(StockTrades::getNetProfit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 更新 SalesData（日报表）
-        LocalDate today = LocalDate.now(ZoneId.systemDefault());
-        Date recordDate = Date.from(today.atStartOfDay(ZoneId.systemDefault()).toInstant());
-
-        SalesData criteria = new SalesData();
-        criteria.setRecordDate(recordDate);
-        criteria.setUserId(userId);
-
-        List<SalesData> existing = salesDataService.selectSalesDataList(criteria);
-        SalesData salesData = new SalesData();
-        salesData.setRecordDate(recordDate);
-        salesData.setUserId(userId);
-        salesData.setProfit(totalProfit);
-
-        if (CollectionUtils.isNotEmpty(existing)) {
-            salesData.setId(existing.get(0).getId());
-            salesDataService.updateSalesData(salesData);
-        } else {
-            salesDataService.insertSalesData(salesData);
-        }
-
-        // 异步更新年度汇总（防止阻塞主流程）
-        ThreadPoolUtil.getCoreExecutor().submit(() -> {
-            queryAndUpdateYearlyInvestmentSummary(totalProfit, userId);
-        });
-    }
-
-    /**
-     * 查询并更新当年投资汇总数据
-     *
-     * @param totalProfit 本年度累计利润
-     * @param userId      用户ID
-     */
-    public void queryAndUpdateYearlyInvestmentSummary(BigDecimal totalProfit, Long userId) {
-        long currentYear = Year.now().getValue();
-        try {
-            YearlyInvestmentSummary queryCondition = new YearlyInvestmentSummary();
-            queryCondition.setYear(currentYear);
-            queryCondition.setUserId(userId);
-
-            List<YearlyInvestmentSummary> summaries =
-                    yearlyInvestmentSummaryService.selectYearlyInvestmentSummaryList(queryCondition);
-
-            if (summaries == null || summaries.isEmpty()) {
-                return;
-            }
-
-            YearlyInvestmentSummary summaryToUpdate = summaries.get(0);
-            BigDecimal startPrincipal = summaryToUpdate.getStartPrincipal() != null
-                    ? summaryToUpdate.getStartPrincipal()
-                    : BigDecimal.ZERO;
-
-            BigDecimal profit = totalProfit != null ? totalProfit : BigDecimal.ZERO;
-            BigDecimal actualEndValue = profit.add(startPrincipal);
-
-            summaryToUpdate.setActualEndValue(actualEndValue);
-            yearlyInvestmentSummaryService.updateYearlyInvestmentSummary(summaryToUpdate);
-
-        } catch (Exception e) {
-            log.error("queryAndUpdateYearlyInvestmentSummary failed for user {}", userId, e);
-        }
-    }
-
     /**
      * 计算并更新交易详情（利润、成本、目标达成等）
      *
@@ -0,0 +1,158 @@
+package com.make.stock.service.scheduled.stock.ledger;
+
+import com.make.common.core.NodeRegistry;
+import com.make.common.utils.ThreadPoolUtil;
+import com.make.finance.service.IYearlyInvestmentSummaryService;
+import com.make.stock.config.StockProperties;
+import com.make.stock.domain.StockTrades;
+import com.make.stock.service.ISalesDataService;
+import com.make.stock.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 利润账本
+ * <p>
+ * 替代「每刷新一只股票就全量扫描当年所有交易、逐用户重算利润」的做法：
+ * 1. 交易记录按新价格重算并落库后调用 {@link #onTradeUpdated}，只记录该用户有变动，往年交易直接忽略。
+ * 2. 定时把有变动的用户批量刷新到 YearlyInvestmentSummary：汇总与写入在同一条 SQL 中完成，
+ *    以库中已提交的交易为准。各节点只刷新了部分股票，若在内存中各自累计再整体写回，
+ *    后写的节点会用自己的旧值覆盖其他节点的结果。
+ * 3. 当日 SalesData 由主节点按独立周期整表汇总写入（依赖 (user_id, record_date) 唯一键），
+ *    不随刷新路径逐节点「先查后插」。
+ * </p>
+ */
+@Component
+public class ProfitLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfitLedger.class);
+
+    @Resource
+    private ISalesDataService salesDataService;
+    @Resource
+    private IYearlyInvestmentSummaryService yearlyInvestmentSummaryService;
+    @Resource
+    private StockProperties stockProperties;
+    @Resource
+    private NodeRegistry nodeRegistry;
+
+    /**
+     * 自上次刷新以来有交易变动的用户
+     */
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    private ScheduledFuture<?> flushFuture;
+
+    private ScheduledFuture<?> dailyFuture;
+
+    @PostConstruct
+    public void init() {
+        long interval = Math.max(1000, stockProperties.getStockProfitFlushMs());
+        flushFuture = ThreadPoolUtil.getScheduler()
+                .scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        long dailyInterval = Math.max(interval, stockProperties.getStockProfitDailyMs());
+        dailyFuture = ThreadPoolUtil.getScheduler()
+                .scheduleWithFixedDelay(this::writeDailySafely, dailyInterval, dailyInterval, TimeUnit.MILLISECONDS);
+        log.info("ProfitLedger started. flushMs={}, dailyMs={}", interval, dailyInterval);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+        }
+        if (dailyFuture != null) {
+            dailyFuture.cancel(false);
+        }
+        flushSafely();
+    }
+
+    /**
+     * 记录一笔交易按新价格重算后的净利润已落库
+     *
+     * @param trade 已完成重算并落库的交易记录（需包含 userId / createTime）
+     */
+    public void onTradeUpdated(StockTrades trade) {
+        if (trade == null || trade.getUserId() == null) {
+            return;
+        }
+        // 往年的持仓不计入当年利润（与 selectStockTradesByYearAndUserId 一致，按 create_time 所在年份）
+        Date createTime = trade.getCreateTime();
+        if (createTime != null
+                && createTime.toInstant().atZone(ZoneId.systemDefault()).getYear() != Year.now().getValue()) {
+            return;
+        }
+        dirtyUsers.add(trade.getUserId());
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("ProfitLedger flush failed", e);
+        }
+    }
+
+    /**
+     * 批量刷新有变动用户的年度汇总
+     * <p>
+     * 非工作日只清除脏标记，不写库（与原逻辑保持一致）。
+     * </p>
+     */
+    public void flush() {
+        List<Long> users = new ArrayList<>(dirtyUsers);
+        if (users.isEmpty()) {
+            return;
+        }
+        dirtyUsers.removeAll(users);
+        if (!DateUtil.isValidWorkday()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            yearlyInvestmentSummaryService.refreshActualEndValueFromTrades(Year.now().getValue(), users);
+        } catch (Exception e) {
+            // 落库失败时恢复脏标记，下一轮重试
+            dirtyUsers.addAll(users);
+            throw e;
+        }
+        log.debug("ProfitLedger flushed {} users in {} ms", users.size(), System.currentTimeMillis() - start);
+    }
+
+    private void writeDailySafely() {
+        try {
+            writeDaily();
+        } catch (Exception e) {
+            log.error("ProfitLedger daily SalesData write failed", e);
+        }
+    }
+
+    /**
+     * 主节点写入当日 SalesData（工作日）
+     */
+    public void writeDaily() {
+        if (!nodeRegistry.isMaster() || !DateUtil.isValidWorkday()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        Date recordDate = Date.from(today.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        int rows = salesDataService.upsertDailyProfitFromTrades(recordDate, today.getYear());
+        log.debug("ProfitLedger wrote daily SalesData for {}, affected={}", today, rows);
+    }
+}
@@ -2,11 +2,13 @@ package com.make.stock.service.scheduled.stock.queue;
 
 import com.alibaba.fastjson2.JSON;
 import com.make.common.utils.StringUtils;
+import com.make.stock.config.StockProperties;
 import com.make.stock.domain.StockRefreshTask;
 import com.make.stock.domain.StockTaskStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import com.make.common.core.NodeRegistry;
 import com.make.common.utils.ThreadPoolUtil;
 import org.springframework.stereotype.Service;
@@ -14,6 +16,8 @@ import org.springframework.stereotype.Service;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -32,6 +36,11 @@ import java.util.stream.Collectors;
  * 2.  Using ZSET index for retrieval: stock:refresh:status:index
  * 3.  Lazy cleanup on read
  * 4.  Switched to StringRedisTemplate to fix atomic integer operations and avoid double-JSON-encoding.
+ * 5.  Coalescing queue: the pending LIST holds stock codes only, the latest task JSON per code lives in
+ *     a pending HASH. A submit for a code that is already pending replaces the task (newest traceId wins)
+ *     instead of queueing a duplicate; the replaced traceId is kept in the status index as SKIPPED.
+ * 6.  Pluggable transport: quartz.stockQueueBackend=stream delegates push/pop/ack to {@link StockTaskStreamQueue}
+ *     (consumer group + XACK by entry id + XAUTOCLAIM); status, lock and coalescing keys are shared by both backends.
  */
 @Service
 public class StockTaskQueueService {
@@ -44,6 +53,16 @@ public class StockTaskQueueService {
     private static final String STATUS_INDEX_KEY = "stock:refresh:status:index";
     private static final String ACTIVE_KEY_PREFIX = "stock:refresh:active:"; // + stockCode
     private static final String PROCESSING_QUEUE_PREFIX = "mq:task:stock:refresh:processing:"; // + nodeId
+    private static final String PENDING_HASH_KEY = "mq:task:stock:refresh:pending"; // stockCode -> latest task JSON
+    private static final String CLAIM_QUEUE_PREFIX = "mq:task:stock:refresh:claim:"; // + nodeId, codes popped by BRPOPLPUSH
+    private static final String CONSUMER_NODES_KEY = "mq:task:stock:refresh:nodes"; // SET of nodeIds that have polled
+
+    // Lua Scripts
+    private DefaultRedisScript<String> enqueueScript;
+    private DefaultRedisScript<String> pollScript;
+    private DefaultRedisScript<String> claimScript;
+    private DefaultRedisScript<List> reclaimScript;
+    private DefaultRedisScript<Long> repairScript;
 
     @Resource
     private StringRedisTemplate stringRedisTemplate;
@@ -51,8 +70,153 @@ public class StockTaskQueueService {
     @Resource
     private NodeRegistry nodeRegistry;
 
+    @Resource
+    private StockProperties stockProperties;
+
+    @Resource
+    private StockTaskStreamQueue streamQueue;
+
     private ScheduledExecutorService cleanupExecutor;
 
+    /**
+     * 本节点上次登记到 CONSUMER_NODES_KEY 的时间（节点被误判失联注销后可重新登记）
+     */
+    private volatile long consumerRegisteredAt;
+
+    @PostConstruct
+    public void initLuaScripts() {
+        // Script: COALESCING_ENQUEUE
+        // KEYS[1]=PendingHash, KEYS[2]=Queue
+        // ARGV[1]=stockCode, ARGV[2]=taskJson, ARGV[3]=replace ('1' = newest wins, '0' = keep existing)
+        // Returns the task JSON that lost (replaced or rejected), nil if the code was newly queued
+        String enqueueLua = "local prev = redis.call('HGET', KEYS[1], ARGV[1])\n" +
+                "if not prev then\n" +
+                "    redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+                "    redis.call('LPUSH', KEYS[2], ARGV[1])\n" +
+                "    return nil\n" +
+                "end\n" +
+                "if ARGV[3] == '1' then\n" +
+                "    redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+                "    return prev\n" +
+                "end\n" +
+                "return ARGV[2]";
+        this.enqueueScript = new DefaultRedisScript<>(enqueueLua, String.class);
+
+        // Script: COALESCING_POLL
+        // KEYS[1]=Queue, KEYS[2]=ProcessingQueue, KEYS[3]=PendingHash
+        // ARGV[1]=reliable ('1' = push the task JSON into the processing queue)
+        // Legacy elements (raw task JSON queued before coalescing) are passed through as-is
+        String pollLua = "local item = redis.call('RPOP', KEYS[1])\n" +
+                "if not item then return nil end\n" +
+                "local json = redis.call('HGET', KEYS[3], item)\n" +
+                "if json then\n" +
+                "    redis.call('HDEL', KEYS[3], item)\n" +
+                "else\n" +
+                "    local c = string.sub(item, 1, 1)\n" +
+                "    if c ~= '{' and c ~= '\"' then return nil end\n" +
+                "    json = item\n" +
+                "end\n" +
+                "if ARGV[1] == '1' then\n" +
+                "    redis.call('LPUSH', KEYS[2], json)\n" +
+                "end\n" +
+                "return json";
+        this.pollScript = new DefaultRedisScript<>(pollLua, String.class);
+
+        // Script: CLAIM_POPPED (second half of the blocking poll, after BRPOPLPUSH Queue -> ClaimQueue)
+        // KEYS[1]=ClaimQueue, KEYS[2]=ProcessingQueue, KEYS[3]=PendingHash
+        // ARGV[1]=item popped by BRPOPLPUSH (stock code, or legacy raw task JSON)
+        String claimLua = "redis.call('LREM', KEYS[1], 1, ARGV[1])\n" +
+                "local json = redis.call('HGET', KEYS[3], ARGV[1])\n" +
+                "if json then\n" +
+                "    redis.call('HDEL', KEYS[3], ARGV[1])\n" +
+                "else\n" +
+                "    local c = string.sub(ARGV[1], 1, 1)\n" +
+                "    if c ~= '{' and c ~= '\"' then return nil end\n" +
+                "    json = ARGV[1]\n" +
+                "end\n" +
+                "redis.call('LPUSH', KEYS[2], json)\n" +
+                "return json";
+        this.claimScript = new DefaultRedisScript<>(claimLua, String.class);
+
+        // Script: RECLAIM_PROCESSING (one stuck task from a dead node's processing queue)
+        // KEYS[1]=ProcessingQueue, KEYS[2]=PendingHash, KEYS[3]=Queue (list backend) or Stream (stream backend)
+        // ARGV[1]=stream ('1' = XADD to the stream), ARGV[2]=stream code field, ARGV[3]=stream task field
+        // Pop and coalescing re-enqueue happen atomically, so a crash in between cannot lose the task.
+        // Returns {stockCode, outcome}, outcome = requeued | superseded | invalid; nil when the queue is empty
+        String reclaimLua = "local item = redis.call('RPOP', KEYS[1])\n" +
+                "if not item then return nil end\n" +
+                "local ok, task = pcall(cjson.decode, item)\n" +
+                "if ok and type(task) == 'string' then\n" +
+                "    item = task\n" +
+                "    ok, task = pcall(cjson.decode, item)\n" +
+                "end\n" +
+                "if not ok or type(task) ~= 'table' or type(task['stockCode']) ~= 'string' or task['stockCode'] == '' then\n" +
+                "    return {'', 'invalid'}\n" +
+                "end\n" +
+                "local code = task['stockCode']\n" +
+                "if redis.call('HEXISTS', KEYS[2], code) == 1 then\n" +
+                "    return {code, 'superseded'}\n" +
+                "end\n" +
+                "redis.call('HSET', KEYS[2], code, item)\n" +
+                "if ARGV[1] == '1' then\n" +
+                "    redis.call('XADD', KEYS[3], '*', ARGV[2], code, ARGV[3], item)\n" +
+                "else\n" +
+                "    redis.call('LPUSH', KEYS[3], code)\n" +
+                "end\n" +
+                "return {code, 'requeued'}";
+        this.reclaimScript = new DefaultRedisScript<>(reclaimLua, List.class);
+
+        // Script: REPAIR_PENDING
+        // KEYS[1]=PendingHash, KEYS[2]=Queue
+        // Re-pushes codes that hold a pending task but have no element in the queue, which would otherwise
+        // make COALESCING_ENQUEUE treat them as queued forever. Extra elements are harmless: a code popped
+        // without a pending task is skipped by COALESCING_POLL / CLAIM_POPPED.
+        // Returns the number of codes re-pushed
+        String repairLua = "local queued = {}\n" +
+                "for _, item in ipairs(redis.call('LRANGE', KEYS[2], 0, -1)) do queued[item] = true end\n" +
+                "local n = 0\n" +
+                "for _, code in ipairs(redis.call('HKEYS', KEYS[1])) do\n" +
+                "    if not queued[code] then\n" +
+                "        redis.call('LPUSH', KEYS[2], code)\n" +
+                "        n = n + 1\n" +
+                "    end\n" +
+                "end\n" +
+                "return n";
+        this.repairScript = new DefaultRedisScript<>(repairLua, Long.class);
+
+        // 节点 ID 重启后不变，上一次运行遗留在本节点队列中的任务不会被判定为宕机节点，
+        // 脚本就绪后、消费者启动（SmartLifecycle）前先放回，再按待处理 HASH 重建队列中丢失的元素
+        reclaimTasksFromNode(NodeRegistry.getCurrentNodeId());
+        repairPendingIndex();
+    }
+
+    @PostConstruct
+    public void initStreamGroup() {
+        if (!isStreamBackend()) {
+            return;
+        }
+        try {
+            streamQueue.ensureGroup();
+        } catch (Exception e) {
+            // 不阻断启动，读取时遇到 NOGROUP 会再次创建
+            log.error("Failed to create stock task stream group", e);
+        }
+    }
+
+    /**
+     * 是否使用 Redis Streams 作为队列后端
+     */
+    public boolean isStreamBackend() {
+        return "stream".equalsIgnoreCase(stockProperties.getStockQueueBackend());
+    }
+
+    /**
+     * 拉取是否为阻塞式（阻塞式拉取在队列为空时已等待过，消费者无需再休眠）
+     */
+    public boolean isBlockingPoll() {
+        return isStreamBackend() || stockProperties.getStockQueueBlockMs() > 0;
+    }
+
     @PostConstruct
     public void startCleanupMonitor() {
         cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -63,6 +227,76 @@ public class StockTaskQueueService {
 
         // Run every 30 seconds
         cleanupExecutor.scheduleWithFixedDelay(this::activeCleanup, 30, 30, TimeUnit.SECONDS);
+        cleanupExecutor.scheduleWithFixedDelay(this::reclaimDeadNodes, 30, 30, TimeUnit.SECONDS);
+        cleanupExecutor.scheduleWithFixedDelay(() -> {
+            if (nodeRegistry.isMaster()) {
+                repairPendingIndex();
+            }
+        }, 60, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 重建待处理 HASH 与队列的一致性
+     * 待处理 HASH 中有任务、队列中却没有对应元素时（元素丢失或键被清理），合并入队会一直认为该股票已在排队，
+     * 新任务只替换 HASH 而永远不会被消费。这里为这些股票补推队列元素。
+     * Stream 模式下补发 Stream 条目，从 LIST 模式切换过来时遗留的 HASH 记录也由此接管。
+     */
+    public void repairPendingIndex() {
+        try {
+            Long repushed = isStreamBackend()
+                    ? streamQueue.repair(PENDING_HASH_KEY)
+                    : stringRedisTemplate.execute(repairScript, Arrays.asList(PENDING_HASH_KEY, QUEUE_KEY));
+            if (repushed != null && repushed > 0) {
+                log.warn("[STOCK_QUEUE_REPAIR] Re-pushed {} orphaned pending tasks.", repushed);
+            }
+        } catch (Exception e) {
+            log.error("[STOCK_QUEUE_REPAIR] Failed to repair pending index", e);
+        }
+    }
+
+    /**
+     * Dead Node Watchdog (Master Only)
+     * 心跳 TTL 键已消失的节点，其 claim / processing 队列中的任务放回待处理队列。
+     * 候选节点取自 CONSUMER_NODES_KEY（拉取过任务的节点）：NodeRegistry 的存活集合会被 NodeMonitor
+     * 移除失联节点，不能用来寻找宕机节点。
+     */
+    void reclaimDeadNodes() {
+        if (!nodeRegistry.isMaster()) {
+            return;
+        }
+        try {
+            Set<String> nodes = stringRedisTemplate.opsForSet().members(CONSUMER_NODES_KEY);
+            if (nodes == null || nodes.isEmpty()) {
+                return;
+            }
+            String self = NodeRegistry.getCurrentNodeId();
+            for (String node : nodes) {
+                if (StringUtils.isEmpty(node) || node.equals(self) || nodeRegistry.isNodeAlive(node)) {
+                    continue;
+                }
+                log.warn("[STOCK_QUEUE_WATCHDOG] Node {} heartbeat missing, reclaiming its tasks.", node);
+                reclaimTasksFromNode(node);
+                // 队列已清空才注销，回收失败时下一轮重试
+                Long claimLeft = stringRedisTemplate.opsForList().size(CLAIM_QUEUE_PREFIX + node);
+                Long processingLeft = stringRedisTemplate.opsForList().size(PROCESSING_QUEUE_PREFIX + node);
+                if ((claimLeft == null || claimLeft == 0) && (processingLeft == null || processingLeft == 0)) {
+                    stringRedisTemplate.opsForSet().remove(CONSUMER_NODES_KEY, node);
+                }
+            }
+        } catch (Exception e) {
+            log.error("[STOCK_QUEUE_WATCHDOG] Dead node reclaim failed", e);
+        }
+    }
+
+    /**
+     * 登记本节点为 LIST 队列消费者，供看门狗在本节点宕机后找到它的队列
+     */
+    private void registerConsumer(String nodeId) {
+        long now = System.currentTimeMillis();
+        if (now - consumerRegisteredAt > TimeUnit.SECONDS.toMillis(30)) {
+            stringRedisTemplate.opsForSet().add(CONSUMER_NODES_KEY, nodeId);
+            consumerRegisteredAt = now;
+        }
     }
 
     /**
@@ -189,13 +423,15 @@ public class StockTaskQueueService {
     }
 
     /**
-     * 投递任务
+     * 投递任务 (Coalescing)
+     * <p>
+     * 同一股票已有待处理任务时不再重复入队，仅用新任务替换（保留最新 traceId），
+     * 被替换任务的 traceId 在状态索引中标记为 SKIPPED，状态 ZSET 仍记录每一次投递。
      */
     public void enqueue(StockRefreshTask task) {
         if (task == null) return;
         try {
-            String json = JSON.toJSONString(task);
-            stringRedisTemplate.opsForList().leftPush(QUEUE_KEY, json);
+            String replaced = coalesce(task, true);
 
             // Set WAITING status (Long TTL safety net)
             StockTaskStatus status = new StockTaskStatus();
@@ -205,22 +441,102 @@ public class StockTaskQueueService {
             status.setLastUpdateTime(System.currentTimeMillis());
 
             updateStatus(task.getStockCode(), status);
+
+            if (replaced != null) {
+                markCoalesced(replaced, task.getTraceId());
+            }
         } catch (Exception e) {
             log.error("Failed to enqueue stock task: {}", task.getStockCode(), e);
         }
     }
 
+    /**
+     * 原子地合并入队
+     *
+     * @param task    任务
+     * @param replace true 表示新任务替换已存在的待处理任务；false 表示已存在时丢弃新任务
+     * @return 落选的任务 JSON（被替换或被丢弃），新入队时返回 null
+     */
+    private String coalesce(StockRefreshTask task, boolean replace) {
+        if (isStreamBackend()) {
+            return streamQueue.coalesce(PENDING_HASH_KEY, task, replace);
+        }
+        return stringRedisTemplate.execute(
+                enqueueScript,
+                Arrays.asList(PENDING_HASH_KEY, QUEUE_KEY),
+                task.getStockCode(), JSON.toJSONString(task), replace ? "1" : "0");
+    }
+
+    /**
+     * 将被合并掉的任务状态标记为 SKIPPED
+     *
+     * @param replacedJson 被替换任务 JSON
+     * @param winnerTrace  保留下来的 traceId
+     */
+    private void markCoalesced(String replacedJson, String winnerTrace) {
+        try {
+            StockRefreshTask replaced = JSON.parseObject(unquoteJSON(replacedJson), StockRefreshTask.class);
+            if (replaced == null || Objects.equals(replaced.getTraceId(), winnerTrace)) {
+                return;
+            }
+            StockTaskStatus status = new StockTaskStatus();
+            status.setStockCode(replaced.getStockCode());
+            status.setStatus(StockTaskStatus.STATUS_SKIPPED);
+            status.setTraceId(replaced.getTraceId());
+            status.setLastResult("COALESCED -> " + winnerTrace);
+            updateStatus(replaced.getStockCode(), status);
+        } catch (Exception e) {
+            log.warn("Failed to mark coalesced task status", e);
+        }
+    }
+
     /**
      * 获取任务 (Reliable Poll)
-     * Uses RPOPLPUSH to move from pending to processing queue.
+     * Pops a stock code from pending, takes its latest task from the pending hash
+     * and pushes the task JSON into the processing queue atomically.
      * This ensures tasks are not lost if the consumer crashes.
+     * <p>
+     * quartz.stockQueueBlockMs &gt; 0 时为阻塞拉取：队列为空时在 Redis 端等待，任务到达即返回。
      */
     public StockRefreshTask pollReliable(String nodeId) {
         if (StringUtils.isEmpty(nodeId)) return null;
+        if (isStreamBackend()) {
+            List<StockRefreshTask> tasks = pollReliableBatch(nodeId, 1);
+            return tasks.isEmpty() ? null : tasks.get(0);
+        }
+        return pollReliableList(nodeId, stockProperties.getStockQueueBlockMs());
+    }
+
+    /**
+     * LIST 模式拉取
+     *
+     * @param nodeId  当前节点
+     * @param blockMs 阻塞时长，小于等于 0 表示非阻塞
+     */
+    private StockRefreshTask pollReliableList(String nodeId, long blockMs) {
         try {
+            registerConsumer(nodeId);
             String processingQueue = PROCESSING_QUEUE_PREFIX + nodeId;
-            // Pop from RIGHT of QUEUE_KEY, Push to LEFT of processingQueue
-            String json = stringRedisTemplate.opsForList().rightPopAndLeftPush(QUEUE_KEY, processingQueue);
+            String json;
+            if (blockMs > 0) {
+                // BRPOPLPUSH 不能放进 Lua：先阻塞地把元素移入本节点 claim 队列，再原子地换成任务 JSON。
+                // 两步之间宕机时元素留在 claim 队列，心跳消失后由 reclaimDeadNodes 调用 reclaimTasksFromNode 放回。
+                String claimQueue = CLAIM_QUEUE_PREFIX + nodeId;
+                String item = stringRedisTemplate.opsForList()
+                        .rightPopAndLeftPush(QUEUE_KEY, claimQueue, blockMs, TimeUnit.MILLISECONDS);
+                if (StringUtils.isEmpty(item)) {
+                    return null;
+                }
+                json = stringRedisTemplate.execute(
+                        claimScript,
+                        Arrays.asList(claimQueue, processingQueue, PENDING_HASH_KEY),
+                        item);
+            } else {
+                json = stringRedisTemplate.execute(
+                        pollScript,
+                        Arrays.asList(QUEUE_KEY, processingQueue, PENDING_HASH_KEY),
+                        "1");
+            }
 
             if (StringUtils.isEmpty(json)) {
                 return null;
@@ -230,16 +546,75 @@ public class StockTaskQueueService {
             return JSON.parseObject(cleanJson, StockRefreshTask.class);
         } catch (Exception e) {
             log.error("Failed to poll reliable stock task", e);
+            if (blockMs > 0) {
+                backoffAfterError(blockMs);
+            }
             return null;
         }
     }
 
+    /**
+     * 批量获取任务 (Reliable Poll)
+     * 首个任务按配置阻塞等待，之后连续非阻塞拉取直到队列为空或达到上限，每个任务仍独立进入 processing 队列并单独 ACK。
+     * Stream 模式下为一次 XREADGROUP COUNT maxCount（阻塞读取）。
+     *
+     * @param nodeId   当前节点
+     * @param maxCount 最多获取数量
+     * @return 任务列表，队列为空时返回空列表
+     */
+    public List<StockRefreshTask> pollReliableBatch(String nodeId, int maxCount) {
+        if (isStreamBackend()) {
+            if (StringUtils.isEmpty(nodeId)) return Collections.emptyList();
+            try {
+                return streamQueue.read(PENDING_HASH_KEY, nodeId, maxCount);
+            } catch (Exception e) {
+                log.error("Failed to read stock tasks from stream", e);
+                backoffAfterError(stockProperties.getStockStreamBlockMs());
+                return Collections.emptyList();
+            }
+        }
+        if (StringUtils.isEmpty(nodeId)) return Collections.emptyList();
+        List<StockRefreshTask> tasks = new ArrayList<>();
+        for (int i = 0; i < maxCount; i++) {
+            // 仅首个任务阻塞等待，其余有多少取多少
+            StockRefreshTask task = pollReliableList(nodeId, i == 0 ? stockProperties.getStockQueueBlockMs() : 0);
+            if (task == null) {
+                break;
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * 阻塞拉取出错时补足等待时长
+     * 调用方视阻塞拉取为已等待而不再休眠，避免 Redis 异常时空转
+     */
+    private void backoffAfterError(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Acknowledge Task Completion
-     * Removes the task from the processing queue.
+     * Removes the task from the processing queue (LIST), or XACK/XDEL by entry id (Stream).
      */
     public void ack(String nodeId, StockRefreshTask task) {
         if (StringUtils.isEmpty(nodeId) || task == null) return;
+        if (StringUtils.isNotEmpty(task.getQueueEntryId())) {
+            try {
+                if (!streamQueue.ack(task.getQueueEntryId())) {
+                    log.warn("ACK failed: Entry not pending (reclaimed by another node?). Id={}, Task={}",
+                            task.getQueueEntryId(), task.getStockCode());
+                }
+            } catch (Exception e) {
+                log.error("Failed to ack stream task", e);
+            }
+            return;
+        }
         try {
             String processingQueue = PROCESSING_QUEUE_PREFIX + nodeId;
             // Remove 1 occurrence of the value from the processing queue
@@ -261,27 +636,41 @@ public class StockTaskQueueService {
     }
 
     /**
-     * Reclaim Pending Tasks (Watchdog Logic)
-     * Scans processing queues of nodes and reclaims tasks if they are stuck.
-     * For now, simplistic implementation: If a node is "dead" (not in registry?), move all its processing tasks back to pending.
-     * Or, we can just look at task timestamp.
+     * Reclaim Pending Tasks
+     * 把指定节点 claim 队列中的元素原样放回，processing 队列中的任务经合并后重新入队。
+     * 由 {@link #reclaimDeadNodes} 对心跳消失的节点调用，启动时也对本节点调用一次。
      *
-     * To implement properly, we need to know which nodes are dead.
-     * Or we assume tasks older than X minutes in ANY processing queue are stale.
+     * Stream 模式下卡死条目由 XAUTOCLAIM 自动回收，这里只处理切换前遗留的 LIST processing 队列。
      *
-     * @param targetNodeId The node to reclaim from (if known dead)
+     * @param targetNodeId 已确认失联（或正在启动）的节点
      */
     public void reclaimTasksFromNode(String targetNodeId) {
         try {
+            // Items moved by BRPOPLPUSH but never claimed: put them back as-is
+            String claimQueue = CLAIM_QUEUE_PREFIX + targetNodeId;
+            while (stringRedisTemplate.opsForList().rightPopAndLeftPush(claimQueue, QUEUE_KEY) != null) {
+                log.info("Reclaimed unclaimed queue item from node {}", targetNodeId);
+            }
+
+            // Pop + coalescing re-enqueue in one script: a newer pending task for the same stock wins
             String processingQueue = PROCESSING_QUEUE_PREFIX + targetNodeId;
+            boolean stream = isStreamBackend();
+            List<String> keys = Arrays.asList(processingQueue, PENDING_HASH_KEY,
+                    stream ? StockTaskStreamQueue.STREAM_KEY : QUEUE_KEY);
             while (true) {
-                // RPOP from processing, LPUSH to pending (re-queue at head to prioritize?)
-                // Or LPUSH to pending (Head) is standard for "put back".
-                String json = stringRedisTemplate.opsForList().rightPopAndLeftPush(processingQueue, QUEUE_KEY);
-                if (StringUtils.isEmpty(json)) {
+                List<?> result = stringRedisTemplate.execute(reclaimScript, keys,
+                        stream ? "1" : "0", StockTaskStreamQueue.FIELD_CODE, StockTaskStreamQueue.FIELD_TASK);
+                if (result == null || result.size() < 2) {
                     break;
                 }
-                log.info("Reclaimed stuck task from node {}: {}", targetNodeId, json);
+                String code = String.valueOf(result.get(0));
+                String outcome = String.valueOf(result.get(1));
+                if ("invalid".equals(outcome)) {
+                    log.warn("Dropped unparseable task from processing queue of node {}", targetNodeId);
+                    continue;
+                }
+                log.info("Reclaimed stuck task from node {}: {}{}", targetNodeId, code,
+                        "superseded".equals(outcome) ? " (superseded by pending task)" : "");
             }
         } catch (Exception e) {
              log.error("Failed to reclaim tasks from node {}", targetNodeId, e);
@@ -294,8 +683,20 @@ public class StockTaskQueueService {
      */
     public StockRefreshTask poll() {
         // Deprecated in favor of pollReliable, but kept for backward compatibility if needed
+        if (isStreamBackend()) {
+            // 无 ACK 语义：读取即确认
+            StockRefreshTask task = pollReliable(NodeRegistry.getCurrentNodeId());
+            if (task != null) {
+                streamQueue.ack(task.getQueueEntryId());
+                task.setQueueEntryId(null);
+            }
+            return task;
+        }
         try {
-            String json = stringRedisTemplate.opsForList().rightPop(QUEUE_KEY);
+            String json = stringRedisTemplate.execute(
+                    pollScript,
+                    Arrays.asList(QUEUE_KEY, PROCESSING_QUEUE_PREFIX, PENDING_HASH_KEY),
+                    "0");
             if (StringUtils.isEmpty(json)) {
                 return null;
             }
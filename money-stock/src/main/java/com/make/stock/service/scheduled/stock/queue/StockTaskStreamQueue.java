@@ -0,0 +1,307 @@
+package com.make.stock.service.scheduled.stock.queue;
+
+import com.alibaba.fastjson2.JSON;
+import com.make.common.utils.StringUtils;
+import com.make.stock.config.StockProperties;
+import com.make.stock.domain.StockRefreshTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 股票刷新任务队列 - Redis Streams 实现
+ * <p>
+ * 1. 投递：与 LIST 模式共用 pending HASH 做按股票合并，仅在股票无待处理任务时 XADD 一个条目。
+ * 2. 消费：XREADGROUP 阻塞读取（消费者名 = nodeId），条目进入消费组 PEL，无需 processing 队列。
+ * 3. 确认：按条目 ID 执行 XACK + XDEL，O(1)，不依赖 JSON 序列化结果一致。
+ * 4. 回收：定期 XAUTOCLAIM 将空闲超时的条目转交给当前节点，替代手动 reclaimTasksFromNode。
+ * <p>
+ * 由 {@link StockTaskQueueService} 在 quartz.stockQueueBackend=stream 时委托调用，需 Redis 6.2+。
+ */
+@Component
+public class StockTaskStreamQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(StockTaskStreamQueue.class);
+
+    static final String STREAM_KEY = "mq:task:stock:refresh:stream";
+    private static final String GROUP = "stock-refresh";
+    static final String FIELD_CODE = "code";
+    static final String FIELD_TASK = "task";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private StockProperties stockProperties;
+
+    // Lua Scripts
+    private DefaultRedisScript<String> enqueueScript;
+    private DefaultRedisScript<String> takeScript;
+    private DefaultRedisScript<Long> ackScript;
+    private DefaultRedisScript<List> claimScript;
+    private DefaultRedisScript<Long> createGroupScript;
+    private DefaultRedisScript<Long> repairScript;
+
+    /**
+     * 上次执行 XAUTOCLAIM 的时间，所有拉取线程共享，避免每次拉取都扫描 PEL
+     */
+    private final AtomicLong lastClaimAt = new AtomicLong();
+
+    @PostConstruct
+    public void initLuaScripts() {
+        // Script: STREAM_COALESCING_ENQUEUE
+        // KEYS[1]=PendingHash, KEYS[2]=Stream
+        // ARGV[1]=stockCode, ARGV[2]=taskJson, ARGV[3]=replace ('1' = newest wins, '0' = keep existing)
+        // Returns the task JSON that lost (replaced or rejected), nil if a new entry was added
+        String enqueueLua = "local prev = redis.call('HGET', KEYS[1], ARGV[1])\n" +
+                "if not prev then\n" +
+                "    redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+                "    redis.call('XADD', KEYS[2], '*', '" + FIELD_CODE + "', ARGV[1], '" + FIELD_TASK + "', ARGV[2])\n" +
+                "    return nil\n" +
+                "end\n" +
+                "if ARGV[3] == '1' then\n" +
+                "    redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+                "    return prev\n" +
+                "end\n" +
+                "return ARGV[2]";
+        this.enqueueScript = new DefaultRedisScript<>(enqueueLua, String.class);
+
+        // Script: TAKE_LATEST
+        // KEYS[1]=PendingHash, ARGV[1]=stockCode
+        // Returns and removes the latest task JSON of the stock, nil if already taken
+        String takeLua = "local json = redis.call('HGET', KEYS[1], ARGV[1])\n" +
+                "if json then redis.call('HDEL', KEYS[1], ARGV[1]) end\n" +
+                "return json";
+        this.takeScript = new DefaultRedisScript<>(takeLua, String.class);
+
+        // Script: ACK_AND_DELETE
+        // KEYS[1]=Stream, ARGV[1]=Group, ARGV[2]=EntryId
+        String ackLua = "local acked = redis.call('XACK', KEYS[1], ARGV[1], ARGV[2])\n" +
+                "redis.call('XDEL', KEYS[1], ARGV[2])\n" +
+                "return acked";
+        this.ackScript = new DefaultRedisScript<>(ackLua, Long.class);
+
+        // Script: AUTO_CLAIM
+        // KEYS[1]=Stream, ARGV[1]=Group, ARGV[2]=Consumer, ARGV[3]=MinIdleMs, ARGV[4]=Count
+        // Returns flat list [id1, task1, id2, task2, ...]; entries already deleted from the stream are acked away
+        String claimLua = "local res = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], '0-0', 'COUNT', ARGV[4])\n" +
+                "local out = {}\n" +
+                "for _, entry in ipairs(res[2]) do\n" +
+                "    local task = nil\n" +
+                "    local fields = entry[2]\n" +
+                "    if fields then\n" +
+                "        for i = 1, #fields, 2 do\n" +
+                "            if fields[i] == '" + FIELD_TASK + "' then task = fields[i + 1] end\n" +
+                "        end\n" +
+                "    end\n" +
+                "    if task then\n" +
+                "        table.insert(out, entry[1])\n" +
+                "        table.insert(out, task)\n" +
+                "    else\n" +
+                "        redis.call('XACK', KEYS[1], ARGV[1], entry[1])\n" +
+                "    end\n" +
+                "end\n" +
+                "return out";
+        this.claimScript = new DefaultRedisScript<>(claimLua, List.class);
+
+        // Script: CREATE_GROUP (idempotent, creates the stream if missing)
+        // KEYS[1]=Stream, ARGV[1]=Group
+        String createGroupLua = "local ok = pcall(redis.call, 'XGROUP', 'CREATE', KEYS[1], ARGV[1], '0', 'MKSTREAM')\n" +
+                "if ok then return 1 end\n" +
+                "return 0";
+        this.createGroupScript = new DefaultRedisScript<>(createGroupLua, Long.class);
+
+        // Script: STREAM_REPAIR_PENDING
+        // KEYS[1]=PendingHash, KEYS[2]=Stream
+        // XADDs an entry for every code that holds a pending task but has no entry in the stream (undelivered or in
+        // the PEL), e.g. codes left by the LIST backend before switching, or entries deleted with the stream.
+        // Returns the number of entries added
+        String repairLua = "local queued = {}\n" +
+                "for _, entry in ipairs(redis.call('XRANGE', KEYS[2], '-', '+')) do\n" +
+                "    local fields = entry[2]\n" +
+                "    for i = 1, #fields, 2 do\n" +
+                "        if fields[i] == '" + FIELD_CODE + "' then queued[fields[i + 1]] = true end\n" +
+                "    end\n" +
+                "end\n" +
+                "local n = 0\n" +
+                "local pending = redis.call('HGETALL', KEYS[1])\n" +
+                "for i = 1, #pending, 2 do\n" +
+                "    if not queued[pending[i]] then\n" +
+                "        redis.call('XADD', KEYS[2], '*', '" + FIELD_CODE + "', pending[i], '" + FIELD_TASK + "', pending[i + 1])\n" +
+                "        n = n + 1\n" +
+                "    end\n" +
+                "end\n" +
+                "return n";
+        this.repairScript = new DefaultRedisScript<>(repairLua, Long.class);
+    }
+
+    /**
+     * 确保消费组存在（重复调用安全）
+     */
+    public void ensureGroup() {
+        Long created = stringRedisTemplate.execute(createGroupScript, Collections.singletonList(STREAM_KEY), GROUP);
+        if (created != null && created == 1L) {
+            log.info("Created stream consumer group. stream={}, group={}", STREAM_KEY, GROUP);
+        }
+    }
+
+    /**
+     * 原子地合并入队
+     *
+     * @param pendingHashKey 待处理任务 HASH（与 LIST 模式共用）
+     * @param task           任务
+     * @param replace        true 表示新任务替换已存在的待处理任务；false 表示已存在时丢弃新任务
+     * @return 落选的任务 JSON（被替换或被丢弃），新入队时返回 null
+     */
+    public String coalesce(String pendingHashKey, StockRefreshTask task, boolean replace) {
+        return stringRedisTemplate.execute(
+                enqueueScript,
+                Arrays.asList(pendingHashKey, STREAM_KEY),
+                task.getStockCode(), JSON.toJSONString(task), replace ? "1" : "0");
+    }
+
+    /**
+     * 为 pending HASH 中没有 Stream 条目的股票补发条目
+     * <p>
+     * 合并入队只在 HASH 中没有该股票时 XADD，HASH 中的孤立记录（LIST 模式切换前遗留等）会让该股票永远不再入队。
+     *
+     * @param pendingHashKey 待处理任务 HASH
+     * @return 补发的条目数
+     */
+    public Long repair(String pendingHashKey) {
+        return stringRedisTemplate.execute(repairScript, Arrays.asList(pendingHashKey, STREAM_KEY));
+    }
+
+    /**
+     * 读取任务
+     * <p>
+     * 先按周期回收空闲超时的条目，否则以 XREADGROUP 阻塞读取新条目。
+     * 新条目优先取 pending HASH 中该股票的最新任务，已被取走时退回条目自带的任务。
+     *
+     * @param pendingHashKey 待处理任务 HASH
+     * @param nodeId         当前节点（消费者名）
+     * @param maxCount       最多读取数量
+     * @return 任务列表（已填充 queueEntryId），阻塞超时返回空列表
+     */
+    public List<StockRefreshTask> read(String pendingHashKey, String nodeId, int maxCount) {
+        List<StockRefreshTask> claimed = claimIfDue(nodeId, maxCount);
+        if (!claimed.isEmpty()) {
+            return claimed;
+        }
+
+        List<MapRecord<String, Object, Object>> records;
+        try {
+            records = stringRedisTemplate.opsForStream().read(
+                    Consumer.from(GROUP, nodeId),
+                    StreamReadOptions.empty().count(maxCount).block(Duration.ofMillis(stockProperties.getStockStreamBlockMs())),
+                    StreamOffset.create(STREAM_KEY, ReadOffset.lastConsumed()));
+        } catch (Exception e) {
+            // Stream 被删除后消费组随之消失，重建后下一轮继续
+            if (String.valueOf(e.getMessage()).contains("NOGROUP")) {
+                ensureGroup();
+                return Collections.emptyList();
+            }
+            throw e;
+        }
+
+        if (records == null || records.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<StockRefreshTask> tasks = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> fields = record.getValue();
+            String entryId = record.getId().getValue();
+            String code = (String) fields.get(FIELD_CODE);
+
+            String json = StringUtils.isEmpty(code) ? null
+                    : stringRedisTemplate.execute(takeScript, Collections.singletonList(pendingHashKey), code);
+            if (StringUtils.isEmpty(json)) {
+                json = (String) fields.get(FIELD_TASK);
+            }
+
+            StockRefreshTask task = StringUtils.isEmpty(json) ? null : JSON.parseObject(json, StockRefreshTask.class);
+            if (task == null) {
+                log.warn("Drop malformed stream entry. id={}", entryId);
+                ack(entryId);
+                continue;
+            }
+            task.setQueueEntryId(entryId);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * 确认条目：XACK + XDEL
+     *
+     * @param entryId 条目ID
+     * @return true 表示条目仍在 PEL 中并已确认
+     */
+    public boolean ack(String entryId) {
+        if (StringUtils.isEmpty(entryId)) {
+            return false;
+        }
+        Long acked = stringRedisTemplate.execute(ackScript, Collections.singletonList(STREAM_KEY), GROUP, entryId);
+        return acked != null && acked > 0;
+    }
+
+    /**
+     * 按周期执行 XAUTOCLAIM，将空闲超时的条目转交给当前节点
+     */
+    @SuppressWarnings("unchecked")
+    private List<StockRefreshTask> claimIfDue(String nodeId, int maxCount) {
+        long idleMs = stockProperties.getStockStreamClaimIdleMs();
+        long now = System.currentTimeMillis();
+        long last = lastClaimAt.get();
+        // 周期取空闲阈值的一半，保证卡死条目最迟 1.5 倍阈值内被回收
+        if (idleMs <= 0 || now - last < idleMs / 2 || !lastClaimAt.compareAndSet(last, now)) {
+            return Collections.emptyList();
+        }
+
+        List<Object> flat = stringRedisTemplate.execute(
+                claimScript,
+                Collections.singletonList(STREAM_KEY),
+                GROUP, nodeId, String.valueOf(idleMs), String.valueOf(maxCount));
+        if (flat == null || flat.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<StockRefreshTask> tasks = new ArrayList<>(flat.size() / 2);
+        for (int i = 0; i + 1 < flat.size(); i += 2) {
+            String entryId = String.valueOf(flat.get(i));
+            StockRefreshTask task = JSON.parseObject(String.valueOf(flat.get(i + 1)), StockRefreshTask.class);
+            if (task == null) {
+                ack(entryId);
+                continue;
+            }
+            task.setQueueEntryId(entryId);
+            tasks.add(task);
+        }
+        if (!tasks.isEmpty()) {
+            log.info("XAUTOCLAIM reclaimed {} stuck stream entries to node {}", tasks.size(), nodeId);
+            // 还有积压时下一轮立即继续回收
+            if (tasks.size() >= maxCount) {
+                lastClaimAt.set(0);
+            }
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,403 @@
+package com.make.stock.service.scheduled.stock.snapshot;
+
+import com.make.common.constant.CacheConstants;
+import com.make.stock.domain.dto.StockInfoDongFangChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 东方财富全市场快照存储（二进制 + 增量版本）
+ * <p>
+ * 替代把整个 {@link StockInfoDongFangChain} 列表序列化进 Redis LIST 的做法：
+ * 1. 每只股票编码为定长二进制：价格类 Double 放大 10^4 存为 long，整数字段原样存储，代码与名称放在末尾。
+ * 2. 快照按代码存入 HASH（{@link CacheConstants#REALTIME_STOCK_DONGFANG_SNAPSHOT_KEY}），
+ *    每次发布 INCR 版本号，并把变更的代码以版本号为分值写入 ZSET，三步在同一个 Lua 脚本中完成。
+ * 3. 发布端记住上次发布的编码，内容未变的股票不再写 Redis。
+ * 4. 读取端携带上次看到的纪元与版本号，只 HMGET 之后变更的代码；纪元变化或版本号回退时退回全量读取。
+ * </p>
+ * <p>
+ * 分页抓取会并行发布，版本号与 ZSET 分值由脚本原子分配，不会出现版本号已递增而变更尚未写入的窗口。
+ * 快照各键过期后由下一次发布开启新纪元（{@link CacheConstants#REALTIME_STOCK_DONGFANG_EPOCH_KEY}），
+ * 版本号从 1 重新计数；读取端发现纪元不同即全量读取，不会把新纪元的小版本号误当作已读过。
+ * </p>
+ */
+@Component
+public class DongfangSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(DongfangSnapshotStore.class);
+
+    /**
+     * 编码格式版本
+     */
+    private static final byte FORMAT = 1;
+
+    /**
+     * Double 字段的定点倍数
+     */
+    private static final double SCALE = 10000d;
+
+    /**
+     * 空值标记
+     */
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    /**
+     * 定长部分：1 字节格式 + 27 个 long + 2 个 int
+     */
+    private static final int FIXED_BYTES = 1 + 27 * 8 + 2 * 4;
+
+    /**
+     * 快照相关键的过期时间（秒）
+     */
+    private static final long EXPIRE_SECONDS = 3600;
+
+    private static final byte[] SNAPSHOT_KEY = CacheConstants.REALTIME_STOCK_DONGFANG_SNAPSHOT_KEY.getBytes(StandardCharsets.UTF_8);
+
+    private static final List<String> PUBLISH_KEYS = Arrays.asList(
+            CacheConstants.REALTIME_STOCK_DONGFANG_SNAPSHOT_KEY,
+            CacheConstants.REALTIME_STOCK_DONGFANG_SEQ_KEY,
+            CacheConstants.REALTIME_STOCK_DONGFANG_VERSION_KEY,
+            CacheConstants.REALTIME_STOCK_DONGFANG_EPOCH_KEY);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本节点上次发布的编码（股票代码 -> 快照字节），用于跳过未变化的股票
+     */
+    private final Map<String, byte[]> lastPublished = new ConcurrentHashMap<>();
+
+    /**
+     * lastPublished 所属的快照纪元
+     */
+    private volatile String publishedEpoch = "";
+
+    private DefaultRedisScript<String> publishScript;
+
+    @PostConstruct
+    public void initLuaScripts() {
+        // Script: PUBLISH_SNAPSHOT
+        // KEYS[1]=SnapshotHash, KEYS[2]=SeqZset, KEYS[3]=VersionKey, KEYS[4]=EpochKey
+        // ARGV[1]=expireSeconds, ARGV[2]=candidateEpoch, ARGV[3]=expectedEpoch, ARGV[4..]=code, bytes, code, bytes...
+        // Returns "epoch:version"; version 0 means nothing was written because the epoch differs from the expected one
+        String publishLua = "local epoch = redis.call('GET', KEYS[4])\n" +
+                "if not epoch then\n" +
+                "    redis.call('DEL', KEYS[1], KEYS[2], KEYS[3])\n" +
+                "    epoch = ARGV[2]\n" +
+                "    redis.call('SET', KEYS[4], epoch)\n" +
+                "end\n" +
+                "if epoch ~= ARGV[3] then\n" +
+                "    redis.call('EXPIRE', KEYS[4], ARGV[1])\n" +
+                "    return epoch .. ':0'\n" +
+                "end\n" +
+                "local version = redis.call('INCR', KEYS[3])\n" +
+                "for i = 4, #ARGV, 2 do\n" +
+                "    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+                "    redis.call('ZADD', KEYS[2], version, ARGV[i])\n" +
+                "end\n" +
+                "for i = 1, 4 do\n" +
+                "    redis.call('EXPIRE', KEYS[i], ARGV[1])\n" +
+                "end\n" +
+                "return epoch .. ':' .. version";
+        this.publishScript = new DefaultRedisScript<>(publishLua, String.class);
+    }
+
+    /**
+     * 发布一批股票快照，仅写入内容发生变化的股票
+     *
+     * @param stocks 股票快照
+     * @return 实际写入的股票数
+     */
+    public int publish(Collection<StockInfoDongFangChain> stocks) {
+        if (stocks == null || stocks.isEmpty()) {
+            return 0;
+        }
+        // 第一次按本地记录只发布变化部分；纪元已更换时本地记录失效，按新纪元全量重发一次
+        for (int attempt = 0; attempt < 2; attempt++) {
+            String expectedEpoch = publishedEpoch;
+            Map<String, byte[]> changed = new LinkedHashMap<>();
+            for (StockInfoDongFangChain stock : stocks) {
+                if (stock == null || stock.getStockCode() == null) {
+                    continue;
+                }
+                byte[] encoded = encode(stock);
+                if (!Arrays.equals(encoded, lastPublished.get(stock.getStockCode()))) {
+                    changed.put(stock.getStockCode(), encoded);
+                }
+            }
+            if (changed.isEmpty()) {
+                return 0;
+            }
+
+            List<byte[]> args = new ArrayList<>(3 + changed.size() * 2);
+            args.add(bytesOf(String.valueOf(EXPIRE_SECONDS)));
+            args.add(bytesOf(String.valueOf(System.currentTimeMillis())));
+            args.add(bytesOf(expectedEpoch));
+            changed.forEach((code, bytes) -> {
+                args.add(bytesOf(code));
+                args.add(bytes);
+            });
+            String result = stringRedisTemplate.execute(publishScript, RedisSerializer.byteArray(),
+                    RedisSerializer.string(), PUBLISH_KEYS, args.toArray());
+            if (result == null) {
+                return 0;
+            }
+            int sep = result.lastIndexOf(':');
+            String epoch = result.substring(0, sep);
+            if (!"0".equals(result.substring(sep + 1))) {
+                lastPublished.putAll(changed);
+                return changed.size();
+            }
+            synchronized (this) {
+                if (!epoch.equals(publishedEpoch)) {
+                    lastPublished.clear();
+                    publishedEpoch = epoch;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 读取 sinceEpoch/sinceVersion 之后变更的股票快照
+     *
+     * @param sinceEpoch   上次读取到的纪元，与当前纪元不同时全量读取
+     * @param sinceVersion 上次读取到的版本号，小于等于 0 表示全量读取
+     * @return 快照增量（含本次读取到的纪元与版本号）
+     */
+    public Delta readSince(long sinceEpoch, long sinceVersion) {
+        List<String> current = stringRedisTemplate.opsForValue().multiGet(Arrays.asList(
+                CacheConstants.REALTIME_STOCK_DONGFANG_EPOCH_KEY, CacheConstants.REALTIME_STOCK_DONGFANG_VERSION_KEY));
+        String epochValue = current != null ? current.get(0) : null;
+        String versionValue = current != null ? current.get(1) : null;
+        if (epochValue == null || versionValue == null) {
+            return new Delta(0L, 0L, Collections.emptyList(), true);
+        }
+        long currentEpoch = Long.parseLong(epochValue);
+        long currentVersion = Long.parseLong(versionValue);
+        if (currentEpoch == sinceEpoch && sinceVersion > 0 && currentVersion == sinceVersion) {
+            return new Delta(sinceEpoch, sinceVersion, Collections.emptyList(), false);
+        }
+
+        // 纪元变化或版本号回退说明快照被重建，退回全量读取
+        if (currentEpoch != sinceEpoch || sinceVersion <= 0 || currentVersion < sinceVersion) {
+            Map<byte[], byte[]> all = stringRedisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) c -> c.hGetAll(SNAPSHOT_KEY));
+            List<StockInfoDongFangChain> stocks = decodeAll(all != null ? all.values() : Collections.emptyList());
+            return new Delta(currentEpoch, currentVersion, stocks, true);
+        }
+
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .rangeByScoreWithScores(CacheConstants.REALTIME_STOCK_DONGFANG_SEQ_KEY, sinceVersion + 1, Double.POSITIVE_INFINITY);
+        if (tuples == null || tuples.isEmpty()) {
+            return new Delta(sinceEpoch, sinceVersion, Collections.emptyList(), false);
+        }
+
+        long maxVersion = sinceVersion;
+        byte[][] fields = new byte[tuples.size()][];
+        int i = 0;
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            fields[i++] = tuple.getValue().getBytes(StandardCharsets.UTF_8);
+            if (tuple.getScore() != null) {
+                maxVersion = Math.max(maxVersion, tuple.getScore().longValue());
+            }
+        }
+        List<byte[]> values = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) c -> c.hMGet(SNAPSHOT_KEY, fields));
+        return new Delta(currentEpoch, maxVersion, decodeAll(values != null ? values : Collections.emptyList()), false);
+    }
+
+    private static List<StockInfoDongFangChain> decodeAll(Collection<byte[]> values) {
+        List<StockInfoDongFangChain> stocks = new ArrayList<>(values.size());
+        for (byte[] bytes : values) {
+            if (bytes == null) {
+                continue;
+            }
+            try {
+                stocks.add(decode(bytes));
+            } catch (Exception e) {
+                log.warn("Skip malformed dongfang snapshot entry: {}", e.getMessage());
+            }
+        }
+        return stocks;
+    }
+
+    /**
+     * 编码为定长二进制（字段顺序即格式，修改时需同步提升 FORMAT）
+     */
+    static byte[] encode(StockInfoDongFangChain s) {
+        byte[] code = bytesOf(s.getStockCode());
+        byte[] name = bytesOf(s.getCompanyName());
+        ByteBuffer buf = ByteBuffer.allocate(FIXED_BYTES + 4 + code.length + name.length);
+        buf.put(FORMAT);
+        putScaled(buf, s.getPrice());
+        putScaled(buf, s.getNetChangePercentage());
+        putScaled(buf, s.getNetChange());
+        putScaled(buf, s.getTurnover());
+        putScaled(buf, s.getAmplitude());
+        putScaled(buf, s.getTurnoverRate());
+        putScaled(buf, s.getPeRatio());
+        putScaled(buf, s.getPbRatio());
+        putScaled(buf, s.getHighPrice());
+        putScaled(buf, s.getLowPrice());
+        putScaled(buf, s.getOpenPrice());
+        putScaled(buf, s.getPrevClose());
+        putScaled(buf, s.getCirculatingMarketValue());
+        putScaled(buf, s.getMainFundsInflow());
+        putScaled(buf, s.getVolumeRatio());
+        putScaled(buf, s.getCommissionRatio());
+        putScaled(buf, s.getEps());
+        putScaled(buf, s.getMainNetInflow());
+        putScaled(buf, s.getTotalShares());
+        putScaled(buf, s.getDividendYield());
+        putScaled(buf, s.getRoe());
+        putScaled(buf, s.getGrossMargin());
+        putScaled(buf, s.getInstitutionalFlow());
+        putScaled(buf, s.getRetailFlow());
+        putLong(buf, s.getVolume());
+        putLong(buf, s.getCommissionDifference());
+        putLong(buf, s.getCirculatingShares());
+        buf.putInt(s.getMarketType() != null ? s.getMarketType() : NULL_INT);
+        buf.putInt(s.getVolumePriceTrend() != null ? s.getVolumePriceTrend() : NULL_INT);
+        buf.putShort((short) code.length).put(code);
+        buf.putShort((short) name.length).put(name);
+        return buf.array();
+    }
+
+    static StockInfoDongFangChain decode(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        byte format = buf.get();
+        if (format != FORMAT) {
+            throw new IllegalStateException("unsupported snapshot format " + format);
+        }
+        StockInfoDongFangChain.StockInfoDongFangChainBuilder b = StockInfoDongFangChain.builder()
+                .price(getScaled(buf))
+                .netChangePercentage(getScaled(buf))
+                .netChange(getScaled(buf))
+                .turnover(getScaled(buf))
+                .amplitude(getScaled(buf))
+                .turnoverRate(getScaled(buf))
+                .peRatio(getScaled(buf))
+                .pbRatio(getScaled(buf))
+                .highPrice(getScaled(buf))
+                .lowPrice(getScaled(buf))
+                .openPrice(getScaled(buf))
+                .prevClose(getScaled(buf))
+                .circulatingMarketValue(getScaled(buf))
+                .mainFundsInflow(getScaled(buf))
+                .volumeRatio(getScaled(buf))
+                .commissionRatio(getScaled(buf))
+                .eps(getScaled(buf))
+                .mainNetInflow(getScaled(buf))
+                .totalShares(getScaled(buf))
+                .dividendYield(getScaled(buf))
+                .roe(getScaled(buf))
+                .grossMargin(getScaled(buf))
+                .institutionalFlow(getScaled(buf))
+                .retailFlow(getScaled(buf))
+                .volume(getLong(buf))
+                .commissionDifference(getLong(buf))
+                .circulatingShares(getLong(buf));
+        int marketType = buf.getInt();
+        int trend = buf.getInt();
+        return b.marketType(marketType == NULL_INT ? null : marketType)
+                .volumePriceTrend(trend == NULL_INT ? null : trend)
+                .stockCode(getString(buf))
+                .companyName(getString(buf))
+                .build();
+    }
+
+    private static void putScaled(ByteBuffer buf, Double v) {
+        buf.putLong(v == null || v.isNaN() || v.isInfinite() ? NULL_LONG : Math.round(v * SCALE));
+    }
+
+    private static Double getScaled(ByteBuffer buf) {
+        long v = buf.getLong();
+        return v == NULL_LONG ? null : v / SCALE;
+    }
+
+    private static void putLong(ByteBuffer buf, Long v) {
+        buf.putLong(v != null ? v : NULL_LONG);
+    }
+
+    private static Long getLong(ByteBuffer buf) {
+        long v = buf.getLong();
+        return v == NULL_LONG ? null : v;
+    }
+
+    private static byte[] bytesOf(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        if (len == 0) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 快照增量
+     */
+    public static final class Delta {
+
+        private final long epoch;
+        private final long version;
+        private final List<StockInfoDongFangChain> stocks;
+        private final boolean full;
+
+        private Delta(long epoch, long version, List<StockInfoDongFangChain> stocks, boolean full) {
+            this.epoch = epoch;
+            this.version = version;
+            this.stocks = stocks;
+            this.full = full;
+        }
+
+        /**
+         * 本次读取到的纪元，下次以此调用 {@link #readSince}
+         */
+        public long getEpoch() {
+            return epoch;
+        }
+
+        /**
+         * 本次读取到的版本号，下次以此调用 {@link #readSince}
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public List<StockInfoDongFangChain> getStocks() {
+            return stocks;
+        }
+
+        /**
+         * 是否为全量读取
+         */
+        public boolean isFull() {
+            return full;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.make.stock.service.scheduled.stock.tick;
+
+import com.make.stock.config.StockProperties;
+import com.make.stock.domain.StockBigMoneyAlert;
+import com.make.stock.domain.StockTick;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 大资金逐笔流式检测器
+ * <p>
+ * 在逐笔成交入库前逐条检测，不再事后扫描 stock_tick：
+ * 1. 每只股票一个固定长度的环形窗口（long[]），保存最近 N 笔的成交量与每笔均量（放大 100 倍），并维护滚动和。
+ * 2. 当前成交与窗口均值比较（先判断、后入窗），同时满足以下条件即判定为大资金：
+ *    - 窗口样本数 >= bigMoneyMinSamples（冷启动期不报警）
+ *    - 成交量 >= bigMoneyMinVolume
+ *    - 成交量 >= 窗口平均成交量 × bigMoneyVolumeMultiple
+ *    - 每笔均量 >= 窗口平均每笔均量 × bigMoneyAvgVolMultiple
+ * 3. 命中的逐笔标记 isBigMoney = 1，并生成 {@link StockBigMoneyAlert}，由调用方与逐笔在同一事务中写入。
+ * 4. 检测在窗口副本上进行，调用方落库成功后再 {@link #commit} 把本批样本并入窗口；
+ *    落库失败时窗口保持不变，重试的同一批逐笔仍按原窗口判断。
+ * <p>
+ * 窗口按交易日重置，节点重启后需重新积累样本。
+ * </p>
+ */
+@Component
+public class BigMoneyDetector {
+
+    /**
+     * 每笔均量的定点倍数
+     */
+    private static final int AVG_SCALE = 100;
+
+    @Resource
+    private StockProperties stockProperties;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 检测一批按成交顺序排列的逐笔成交（不修改窗口）
+     *
+     * @param stockCode 股票代码
+     * @param tradeDate 交易日
+     * @param ticks     新增逐笔（命中的会被标记 isBigMoney = 1）
+     * @return 检测结果，落库成功后需交给 {@link #commit}
+     */
+    public Detection detect(String stockCode, Date tradeDate, List<StockTick> ticks) {
+        if (!stockProperties.isBigMoneyEnabled() || ticks == null || ticks.isEmpty()) {
+            return Detection.EMPTY;
+        }
+        int size = Math.max(1, stockProperties.getBigMoneyWindowSize());
+        Window window = windows.computeIfAbsent(stockCode, k -> new Window(size));
+
+        Window scratch;
+        synchronized (window) {
+            scratch = window.copy();
+        }
+        long day = tradeDate != null ? tradeDate.getTime() : 0L;
+        scratch.resetIfNewDay(day);
+
+        List<StockBigMoneyAlert> alerts = new ArrayList<>();
+        long[] vols = new long[ticks.size()];
+        long[] avgs = new long[ticks.size()];
+        int samples = 0;
+        for (StockTick tick : ticks) {
+            if (tick.getVolume() == null || tick.getVolume() <= 0) {
+                continue;
+            }
+            long vol = tick.getVolume();
+            long avg = scaledAvgVol(tick);
+
+            double volRatio = scratch.count > 0 ? vol * (double) scratch.count / scratch.sumVol : 0d;
+            double avgRatio = scratch.count > 0 && scratch.sumAvg > 0 ? avg * (double) scratch.count / scratch.sumAvg : 0d;
+
+            if (scratch.count >= stockProperties.getBigMoneyMinSamples()
+                    && vol >= stockProperties.getBigMoneyMinVolume()
+                    && volRatio >= stockProperties.getBigMoneyVolumeMultiple()
+                    && avgRatio >= stockProperties.getBigMoneyAvgVolMultiple()) {
+                tick.setIsBigMoney(1);
+                alerts.add(toAlert(tick, volRatio));
+            }
+            scratch.add(vol, avg);
+            vols[samples] = vol;
+            avgs[samples] = avg;
+            samples++;
+        }
+        return new Detection(alerts, day, vols, avgs, samples);
+    }
+
+    /**
+     * 逐笔落库成功后把本批样本并入窗口
+     *
+     * @param stockCode 股票代码
+     * @param detection {@link #detect} 的结果
+     */
+    public void commit(String stockCode, Detection detection) {
+        if (detection == null || detection.samples == 0) {
+            return;
+        }
+        Window window = windows.get(stockCode);
+        if (window == null) {
+            return;
+        }
+        synchronized (window) {
+            window.resetIfNewDay(detection.day);
+            for (int i = 0; i < detection.samples; i++) {
+                window.add(detection.vols[i], detection.avgs[i]);
+            }
+        }
+    }
+
+    /**
+     * 检测器统计（监控用）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", stockProperties.isBigMoneyEnabled());
+        stats.put("stocks", windows.size());
+        stats.put("windowSize", stockProperties.getBigMoneyWindowSize());
+        return stats;
+    }
+
+    /**
+     * 每笔均量（放大 100 倍）；缺失时按 成交量 / 笔数 估算，笔数缺失时取成交量
+     */
+    private static long scaledAvgVol(StockTick tick) {
+        if (tick.getAvgVol() != null) {
+            return tick.getAvgVol().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+        long trades = tick.getTickCount() != null && tick.getTickCount() > 0 ? tick.getTickCount() : 1L;
+        return tick.getVolume() * AVG_SCALE / trades;
+    }
+
+    private static StockBigMoneyAlert toAlert(StockTick tick, double volRatio) {
+        String direction;
+        if (Long.valueOf(1L).equals(tick.getSideCode())) {
+            direction = "疑似大资金扫货";
+        } else if (Long.valueOf(2L).equals(tick.getSideCode())) {
+            direction = "疑似大资金砸盘";
+        } else {
+            direction = "疑似大资金成交";
+        }
+
+        StockBigMoneyAlert alert = new StockBigMoneyAlert();
+        alert.setStockCode(tick.getStockCode());
+        alert.setTradeDate(tick.getTradeDate());
+        alert.setTradeTime(tick.getTradeTime());
+        alert.setPrice(tick.getPrice());
+        alert.setVolume(tick.getVolume());
+        alert.setAvgVol(tick.getAvgVol());
+        alert.setAlertMsg(direction + "，成交量为近期均值的 "
+                + BigDecimal.valueOf(volRatio).setScale(1, RoundingMode.HALF_UP) + " 倍");
+        alert.setCreateTime(tick.getCreateTime());
+        alert.setUpdateTime(tick.getUpdateTime());
+        return alert;
+    }
+
+    /**
+     * 一批逐笔的检测结果：命中的预警，以及落库成功后要并入窗口的样本
+     */
+    public static final class Detection {
+
+        private static final Detection EMPTY = new Detection(Collections.emptyList(), 0L, new long[0], new long[0], 0);
+
+        private final List<StockBigMoneyAlert> alerts;
+        private final long day;
+        private final long[] vols;
+        private final long[] avgs;
+        private final int samples;
+
+        private Detection(List<StockBigMoneyAlert> alerts, long day, long[] vols, long[] avgs, int samples) {
+            this.alerts = alerts;
+            this.day = day;
+            this.vols = vols;
+            this.avgs = avgs;
+            this.samples = samples;
+        }
+
+        public List<StockBigMoneyAlert> getAlerts() {
+            return alerts;
+        }
+    }
+
+    /**
+     * 单只股票的环形窗口，所有字段在持有本对象锁时读写
+     */
+    private static final class Window {
+
+        private final long[] vol;
+        private final long[] avg;
+        private int pos;
+        private int count;
+        private long sumVol;
+        private long sumAvg;
+        private long day = Long.MIN_VALUE;
+
+        private Window(int size) {
+            this.vol = new long[size];
+            this.avg = new long[size];
+        }
+
+        private Window copy() {
+            Window copy = new Window(vol.length);
+            System.arraycopy(vol, 0, copy.vol, 0, vol.length);
+            System.arraycopy(avg, 0, copy.avg, 0, avg.length);
+            copy.pos = pos;
+            copy.count = count;
+            copy.sumVol = sumVol;
+            copy.sumAvg = sumAvg;
+            copy.day = day;
+            return copy;
+        }
+
+        private void resetIfNewDay(long tradeDay) {
+            if (tradeDay != day) {
+                day = tradeDay;
+                pos = 0;
+                count = 0;
+                sumVol = 0;
+                sumAvg = 0;
+            }
+        }
+
+        private void add(long v, long a) {
+            if (count == vol.length) {
+                sumVol -= vol[pos];
+                sumAvg -= avg[pos];
+            } else {
+                count++;
+            }
+            vol[pos] = v;
+            avg[pos] = a;
+            sumVol += v;
+            sumAvg += a;
+            pos = (pos + 1) % vol.length;
+        }
+    }
+}
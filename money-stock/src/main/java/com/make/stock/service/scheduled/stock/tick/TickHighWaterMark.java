@@ -0,0 +1,182 @@
+package com.make.stock.service.scheduled.stock.tick;
+
+import com.make.stock.domain.StockTick;
+import com.make.stock.mapper.StockTickMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 逐笔成交高水位（每只股票每个交易日已入库到的位置）
+ * <p>
+ * 东财逐笔接口按时间顺序返回当日最近 1000 笔，没有成交序号（tickCount 只是该时刻包含的成交笔数），
+ * 因此水位是一个位置游标：成交秒数 * {@link #CURSOR_SCALE} + 该秒内序号，见 {@link #cursor(int, int)}。
+ * 游标同样只增不减，可以沿用「取最大值」的推进方式。
+ * <p>
+ * 替代每个逐笔任务都执行一次数据库聚合查询：
+ * 1. 每个任务读一次 Redis HASH（stock:tick:hwm:{yyyyMMdd}，单次 HGET），未命中才回退到数据库聚合一次并回填。
+ * 2. 批量入库后用 Lua 原子地「只增不减」推进 Redis 水位。
+ * 3. 本地 Map 只保存最近一次读到或推进后的水位，仅在 Redis 不可用时兜底使用。
+ * <p>
+ * Kafka 分区再均衡后同一股票可能在节点间来回迁移，本地水位可能落后于其他节点已入库的进度，
+ * 因此不作为首选来源；stock_tick 上 (stock_code, trade_date, trade_time, seq_no, price, volume) 唯一键与 INSERT IGNORE 再兜底一次。
+ * </p>
+ */
+@Component
+public class TickHighWaterMark {
+
+    private static final Logger log = LoggerFactory.getLogger(TickHighWaterMark.class);
+
+    private static final String KEY_PREFIX = "stock:tick:hwm:";
+
+    /**
+     * 游标中秒数的倍率，单秒成交笔数远小于该值
+     */
+    public static final long CURSOR_SCALE = 100_000L;
+
+    /**
+     * 当日尚无数据时的游标
+     */
+    public static final long NONE = -1L;
+
+    /**
+     * 水位键保留时长（秒），跨日后自然过期
+     */
+    private static final long EXPIRE_SECONDS = 2 * 24 * 3600;
+
+    private static final DateTimeFormatter KEY_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private StockTickMapper stockTickMapper;
+
+    /**
+     * 本地水位：key = yyyyMMdd:stockCode
+     */
+    private final Map<String, Long> local = new ConcurrentHashMap<>();
+
+    private volatile String localDay;
+
+    private DefaultRedisScript<Long> advanceScript;
+
+    @PostConstruct
+    public void initLuaScripts() {
+        // Script: ADVANCE_HIGH_WATER_MARK
+        // KEYS[1]=HwmHash, ARGV[1]=stockCode, ARGV[2]=candidate, ARGV[3]=expireSeconds
+        // Returns the high-water mark after the update (max of stored and candidate)
+        String advanceLua = "local cur = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '-1')\n" +
+                "local cand = tonumber(ARGV[2])\n" +
+                "if cand > cur then\n" +
+                "    redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+                "    cur = cand\n" +
+                "end\n" +
+                "redis.call('EXPIRE', KEYS[1], ARGV[3])\n" +
+                "return cur";
+        this.advanceScript = new DefaultRedisScript<>(advanceLua, Long.class);
+    }
+
+    /**
+     * 计算逐笔位置游标
+     *
+     * @param secondOfDay 成交时刻的当日秒数
+     * @param seqNo       该秒内序号（从 1 开始）
+     * @return 游标
+     */
+    public static long cursor(int secondOfDay, int seqNo) {
+        return secondOfDay * CURSOR_SCALE + seqNo;
+    }
+
+    /**
+     * 获取当日水位
+     *
+     * @param stockCode 股票代码
+     * @param tradeDay  交易日
+     * @return 已入库位置的游标，无数据时返回 {@link #NONE}
+     */
+    public long get(String stockCode, LocalDate tradeDay) {
+        String day = tradeDay.format(KEY_DATE);
+        rollDay(day);
+        String localKey = day + ":" + stockCode;
+        try {
+            Object stored = stringRedisTemplate.opsForHash().get(KEY_PREFIX + day, stockCode);
+            if (stored != null) {
+                long value = Long.parseLong(stored.toString());
+                local.merge(localKey, value, Math::max);
+                return value;
+            }
+        } catch (Exception e) {
+            Long cached = local.get(localKey);
+            if (cached != null) {
+                log.warn("[TickHWM] Redis read failed, use local mark. code={}, err={}", stockCode, e.getMessage());
+                return cached;
+            }
+            log.warn("[TickHWM] Redis read failed, fallback to DB. code={}, err={}", stockCode, e.getMessage());
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        Date date = Date.from(tradeDay.atStartOfDay(zone).toInstant());
+        StockTick last = stockTickMapper.selectLastTickCursor(stockCode, date);
+        long value = NONE;
+        if (last != null && last.getTradeTime() != null && last.getSeqNo() != null) {
+            int secondOfDay = last.getTradeTime().toInstant().atZone(zone).toLocalTime().toSecondOfDay();
+            value = cursor(secondOfDay, last.getSeqNo());
+        }
+        // 回填 Redis 与本地
+        return advance(stockCode, tradeDay, value);
+    }
+
+    /**
+     * 推进水位（入库成功后调用），只增不减
+     *
+     * @param stockCode 股票代码
+     * @param tradeDay  交易日
+     * @param candidate 本批最后一笔的游标
+     * @return 推进后的水位
+     */
+    public long advance(String stockCode, LocalDate tradeDay, long candidate) {
+        String day = tradeDay.format(KEY_DATE);
+        rollDay(day);
+        String localKey = day + ":" + stockCode;
+        long value = candidate;
+        try {
+            Long stored = stringRedisTemplate.execute(advanceScript,
+                    Collections.singletonList(KEY_PREFIX + day),
+                    stockCode, String.valueOf(candidate), String.valueOf(EXPIRE_SECONDS));
+            if (stored != null) {
+                value = stored;
+            }
+        } catch (Exception e) {
+            log.warn("[TickHWM] Redis advance failed, keep local only. code={}, err={}", stockCode, e.getMessage());
+        }
+        local.merge(localKey, value, Math::max);
+        return local.get(localKey);
+    }
+
+    /**
+     * 跨日时清空本地水位
+     */
+    private void rollDay(String day) {
+        if (!day.equals(localDay)) {
+            synchronized (this) {
+                if (!day.equals(localDay)) {
+                    local.clear();
+                    localDay = day;
+                }
+            }
+        }
+    }
+}
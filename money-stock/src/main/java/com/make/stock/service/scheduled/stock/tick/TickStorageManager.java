@@ -0,0 +1,248 @@
+package com.make.stock.service.scheduled.stock.tick;
+
+import com.make.common.utils.DateUtils;
+import com.make.stock.config.StockProperties;
+import com.make.stock.mapper.StockTickMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 逐笔成交分层存储管理
+ * <p>
+ * 存储分三层：
+ * 1. 热层：stock_tick 按月 RANGE 分区，当日逐笔只追加到最新分区，按 trade_date 查询时分区裁剪。
+ * 2. 汇总层：收盘后将逐笔汇总为分钟线（stock_tick_minute）与分价成交量（stock_tick_volume_profile），
+ *    汇总语句为 INSERT ... SELECT ... ON DUPLICATE KEY UPDATE，可重复执行。
+ * 3. 过期：超过 tickRawRetentionMonths 的月份分区在确认其中每个交易日都已汇总后整分区 DROP，
+ *    分区化之前的历史数据位于 p_old，不自动删除。
+ * <p>
+ * 读路径以 {@link #rolledUpUntil()} 为界：不晚于该日的区间读汇总表，之后的交易日从原始逐笔实时聚合。
+ * stock_tick 尚未分区（未执行 sql/stock_tick_partition.sql）时只做汇总，跳过分区维护。
+ * </p>
+ */
+@Component
+public class TickStorageManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TickStorageManager.class);
+
+    private static final String MAX_PARTITION = "p_max";
+
+    private static final String OLD_PARTITION = "p_old";
+
+    /**
+     * 没有 p_old 时，最早的月份分区同时容纳其下界之前的全部数据，补汇总从该日期起算
+     */
+    private static final LocalDate EARLIEST_TRADE_DATE = LocalDate.of(1990, 1, 1);
+
+    private static final Pattern MONTH_PARTITION = Pattern.compile("p\\d{6}");
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    /**
+     * 收盘汇总时回看的自然日数，补齐此前因节点停机等原因漏汇总的交易日
+     */
+    private static final int ROLLUP_LOOKBACK_DAYS = 7;
+
+    /**
+     * 分层边界从库中重新加载的周期，用于感知其他节点执行的汇总
+     */
+    private static final long BOUNDARY_RELOAD_MS = 10 * 60 * 1000L;
+
+    @Resource
+    private StockTickMapper stockTickMapper;
+
+    @Resource
+    private StockProperties stockProperties;
+
+    /**
+     * 已汇总的最近交易日；null 表示库中尚无汇总数据
+     */
+    private volatile LocalDate rolledUpUntil;
+
+    private volatile long rolledUpLoadedMs;
+
+    private final AtomicLong rolledUpDays = new AtomicLong();
+    private final AtomicLong partitionsCreated = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private volatile long lastRunMs;
+
+    /**
+     * 收盘任务：汇总当日（及近期漏汇总的交易日），再维护分区
+     */
+    public void endOfDay() {
+        LocalDate today = LocalDate.now();
+        List<Date> missed = stockTickMapper.selectUnrolledTradeDates(
+                DateUtils.toDate(today.minusDays(ROLLUP_LOOKBACK_DAYS)), DateUtils.toDate(today));
+        for (Date day : missed) {
+            rollUp(toLocalDate(day));
+        }
+        // 当日总是重新汇总，覆盖盘中提前执行的结果
+        rollUp(today);
+
+        try {
+            maintainPartitions();
+        } catch (Exception e) {
+            log.error("[TickStorage] 分区维护失败", e);
+        }
+        lastRunMs = System.currentTimeMillis();
+    }
+
+    /**
+     * 汇总指定交易日的分钟线与分价成交量
+     *
+     * @param day 交易日
+     * @return 写入的分钟线行数（ON DUPLICATE KEY UPDATE 口径）
+     */
+    public int rollUp(LocalDate day) {
+        long start = System.currentTimeMillis();
+        Date date = DateUtils.toDate(day);
+        int bars = stockTickMapper.rollupMinuteBars(date);
+        int levels = stockTickMapper.rollupVolumeProfile(date);
+        if (bars > 0) {
+            rolledUpDays.incrementAndGet();
+            advanceRolledUpUntil(day);
+        }
+        log.info("[TickStorage] 汇总完成 day={}, minuteRows={}, profileRows={}, cost={}ms",
+                day, bars, levels, System.currentTimeMillis() - start);
+        return bars;
+    }
+
+    /**
+     * 已汇总的最近交易日（读路径分层边界）
+     *
+     * @return 交易日，从未汇总过返回 null
+     */
+    public LocalDate rolledUpUntil() {
+        if (System.currentTimeMillis() - rolledUpLoadedMs > BOUNDARY_RELOAD_MS) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - rolledUpLoadedMs > BOUNDARY_RELOAD_MS) {
+                    Date max = stockTickMapper.selectMaxRolledUpDate();
+                    if (max != null) {
+                        advanceRolledUpUntil(toLocalDate(max));
+                    }
+                    rolledUpLoadedMs = System.currentTimeMillis();
+                }
+            }
+        }
+        return rolledUpUntil;
+    }
+
+    /**
+     * 维护 stock_tick 月分区：补齐到未来 tickPartitionAheadMonths 个月，删除超出保留期且已汇总的月份
+     */
+    public void maintainPartitions() {
+        List<String> partitions = stockTickMapper.selectTickPartitionNames();
+        if (partitions.isEmpty()) {
+            log.info("[TickStorage] stock_tick 未分区，跳过分区维护");
+            return;
+        }
+        YearMonth current = YearMonth.now();
+
+        // 1. 从 p_max 依次拆出缺失的未来月份（只能追加在最后一个月份分区之后）
+        if (partitions.contains(MAX_PARTITION)) {
+            YearMonth last = null;
+            for (String name : partitions) {
+                if (MONTH_PARTITION.matcher(name).matches()) {
+                    YearMonth month = YearMonth.parse(name, PARTITION_NAME);
+                    if (last == null || month.isAfter(last)) {
+                        last = month;
+                    }
+                }
+            }
+            YearMonth target = current.plusMonths(Math.max(0, stockProperties.getTickPartitionAheadMonths()));
+            YearMonth next = last != null ? last.plusMonths(1) : current;
+            for (; !next.isAfter(target); next = next.plusMonths(1)) {
+                String name = next.format(PARTITION_NAME);
+                stockTickMapper.splitTickMaxPartition(name, next.plusMonths(1).atDay(1).toString());
+                partitionsCreated.incrementAndGet();
+                log.info("[TickStorage] 新建分区 {}", name);
+            }
+        } else {
+            log.warn("[TickStorage] stock_tick 缺少 {} 分区，无法自动追加月份分区", MAX_PARTITION);
+        }
+
+        // 2. 删除超出保留期的月份分区，删除前补齐漏汇总的交易日；p_old 不在自动删除之列
+        int retention = stockProperties.getTickRawRetentionMonths();
+        if (retention <= 0) {
+            return;
+        }
+        YearMonth oldestKept = current.minusMonths(retention - 1L);
+        YearMonth firstMonth = null;
+        for (String name : partitions) {
+            if (MONTH_PARTITION.matcher(name).matches()) {
+                YearMonth month = YearMonth.parse(name, PARTITION_NAME);
+                if (firstMonth == null || month.isBefore(firstMonth)) {
+                    firstMonth = month;
+                }
+            }
+        }
+        boolean hasOldPartition = partitions.contains(OLD_PARTITION);
+        for (String name : partitions) {
+            if (!MONTH_PARTITION.matcher(name).matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(name, PARTITION_NAME);
+            if (!month.isBefore(oldestKept)) {
+                continue;
+            }
+            // RANGE 分区只有上界：没有 p_old 时最早的月份分区还包含更早的全部逐笔
+            LocalDate begin = !hasOldPartition && month.equals(firstMonth) ? EARLIEST_TRADE_DATE : month.atDay(1);
+            Date beginDate = DateUtils.toDate(begin);
+            Date endDate = DateUtils.toDate(month.plusMonths(1).atDay(1));
+            List<Date> unrolled = stockTickMapper.selectUnrolledTradeDates(beginDate, endDate);
+            for (Date day : unrolled) {
+                rollUp(toLocalDate(day));
+            }
+            List<Date> remaining = stockTickMapper.selectUnrolledTradeDates(beginDate, endDate);
+            if (!remaining.isEmpty()) {
+                log.warn("[TickStorage] 分区 {} 仍有 {} 个交易日未汇总（最早 {}），暂不删除",
+                        name, remaining.size(), toLocalDate(remaining.get(0)));
+                continue;
+            }
+            stockTickMapper.dropTickPartition(name);
+            partitionsDropped.incrementAndGet();
+            log.info("[TickStorage] 删除过期分区 {}（补汇总 {} 个交易日）", name, unrolled.size());
+        }
+    }
+
+    /**
+     * 存储状态（监控用）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        LocalDate until = rolledUpUntil();
+        stats.put("rolledUpUntil", until != null ? until.toString() : null);
+        stats.put("rolledUpDays", rolledUpDays.get());
+        stats.put("partitionsCreated", partitionsCreated.get());
+        stats.put("partitionsDropped", partitionsDropped.get());
+        stats.put("rawRetentionMonths", stockProperties.getTickRawRetentionMonths());
+        stats.put("lastRunMs", lastRunMs);
+        return stats;
+    }
+
+    private synchronized void advanceRolledUpUntil(LocalDate day) {
+        if (rolledUpUntil == null || day.isAfter(rolledUpUntil)) {
+            rolledUpUntil = day;
+        }
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -4,22 +4,41 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONException;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
 import com.alibaba.fastjson2.TypeReference;
+import com.make.stock.config.PythonRateLimitProperties;
 import com.make.stock.domain.KlineData;
 import com.make.stock.domain.dto.EtfRealtimeInfo;
 import com.make.stock.domain.dto.StockRealtimeInfo;
 import com.make.stock.exception.PythonServiceException;
+import com.make.stock.util.http.CountingInputStream;
+import com.make.stock.util.http.HttpEndpointMetrics;
+import com.make.stock.util.limiter.KeyedRateLimiter;
+import com.make.stock.util.limiter.TokenBucketRateLimiter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * =========================================================
@@ -29,21 +48,25 @@ import java.util.*;
  * <p>
  * 【核心职责】
  * 1. 提供统一的Java ↔ Python股票数据服务访问接口
- * 2. 实现严格的全局请求限流机制
+ * 2. 实现按接口分桶的令牌桶限流机制
  * 3. 处理各种股票数据类型的获取和转换
  * <p>
- * 【🔥 全局严格限流模式 (Global Strict Rate Limit)】
+ * 【🔥 分桶令牌桶限流 (Keyed Token Bucket)】
  * <p>
- * 规则：全局每 2 秒允许发送 1 个请求 (QPS = 0.5)
- * <p>
- * 目的：
- * 1. 极其严格地保护 Python 服务
- * 2. 防止被上游数据源 (如东方财富) 封禁 IP
- * 3. 所有请求变为串行执行，并强制间隔
+ * 规则：
+ * 1. 每个接口（限流键，如 snapshot / ticks / kline-5d）拥有独立令牌桶，
+ *    速率与突发容量由 python.service.rate-limit 配置
+ * 2. 另有全局令牌桶作为总量上限，防止被上游数据源 (如东方财富) 封禁 IP
  * <p>
  * 逻辑：
- * 任何调用此类的线程，若距离上次请求不足 2 秒，
- * 将自动阻塞 (Thread.sleep) 直到满足时间间隔。
+ * 1. 同步调用在对应桶无令牌时阻塞，仅阻塞同一接口的调用方，不同接口互不影响
+ * 2. 调用方可通过 {@link #peekWaitMillis(String)} 预估等待时间，
+ *    等待过长时主动改期，而不是占用线程池线程空等
+ * <p>
+ * 【连接与解析】
+ * 1. 固定大小的 Apache HttpClient 连接池 + Keep-Alive，复用到 Python 服务的长连接
+ * 2. 响应体直接从输入流交给 fastjson2 JSONReader 解析，不再整体读成 String
+ * 3. 按请求路径统计耗时与响应字节数，见 {@link #getHttpStats()}
  * <p>
  * =========================================================
  */
@@ -63,6 +86,18 @@ public class KlineDataFetcher {
      * REST模板实例
      */
     private static RestTemplate restTemplate;
+    /**
+     * 连接池管理器（用于输出池状态）
+     */
+    private static PoolingHttpClientConnectionManager connectionManager;
+    /**
+     * 底层 HttpClient（容器关闭时释放连接）
+     */
+    private static CloseableHttpClient httpClient;
+    /**
+     * 按请求路径的调用指标
+     */
+    private static final HttpEndpointMetrics HTTP_METRICS = new HttpEndpointMetrics();
 
     /**
      * 日期格式化器，格式：yyyyMMdd
@@ -76,60 +111,126 @@ public class KlineDataFetcher {
     @Value("${python.service.url:http://localhost:8000}")
     private String pythonServiceUrlConfig;
 
+    /**
+     * 批量快照单次请求的最大股票数
+     */
+    public static final int SNAPSHOT_BATCH_SIZE = 200;
+
     /**
      * 请求超时时间配置，单位：毫秒
      */
     @Value("${python.service.timeout:10000}")
     private int timeoutMillis;
 
+    /**
+     * 连接池大小（固定上限，Python 服务为单一路由）
+     */
+    @Value("${python.service.pool.max-total:8}")
+    private int poolMaxTotal;
+
+    /**
+     * 长连接保活时间，单位：毫秒
+     */
+    @Value("${python.service.pool.keep-alive-ms:30000}")
+    private long keepAliveMillis;
+
     /* =====================================================
-     * 二、全局限流核心结构 (每2秒1请求)
+     * 二、限流核心结构 (按接口分桶)
      * ===================================================== */
 
     /**
-     * 全局锁对象，用于同步限流操作
+     * 限流键：股票快照
+     */
+    public static final String KEY_SNAPSHOT = "snapshot";
+    /**
+     * 限流键：批量股票快照
+     */
+    public static final String KEY_SNAPSHOT_BATCH = "snapshot-batch";
+    /**
+     * 限流键：股票实时信息（URL 方式）
+     */
+    public static final String KEY_REALTIME_STOCK = "realtime-stock";
+    /**
+     * 限流键：ETF 实时信息
+     */
+    public static final String KEY_REALTIME_ETF = "realtime-etf";
+    /**
+     * 限流键：逐笔成交
+     */
+    public static final String KEY_TICKS = "ticks";
+    /**
+     * 限流键：指定区间 K 线
+     */
+    public static final String KEY_KLINE_RANGE = "kline-range";
+    /**
+     * 限流键：最近 5 日 K 线
      */
-    private static final Object GLOBAL_LOCK = new Object();
+    public static final String KEY_KLINE_5D = "kline-5d";
     /**
-     * 上一次请求的时间戳
+     * 限流键：全历史 K 线
      */
-    private static long lastRequestTime = 0L;
+    public static final String KEY_KLINE_ALL = "kline-all";
     /**
-     * 请求间隔时间，单位：毫秒
+     * 限流键：美股 K 线
      */
-    private static final long INTERVAL_MS = 2000L; // 2000ms = 2秒
+    public static final String KEY_US_KLINE = "us-kline";
+    /**
+     * 限流键：通用 JSON 代理
+     */
+    public static final String KEY_PROXY_JSON = "proxy-json";
+
+    /**
+     * 限流器实例
+     */
+    private static KeyedRateLimiter rateLimiter;
+
+    /**
+     * 限流配置
+     */
+    @Resource
+    private PythonRateLimitProperties rateLimitProperties;
 
     /**
-     * ⏳ 强制获取限流许可
+     * 预估指定接口获取许可需等待的毫秒数（不消耗许可）
      * <p>
-     * 功能：确保请求间隔符合限流规则，不足时间间隔时会阻塞当前线程
+     * 供调用方在发起请求前判断是否需要改期执行。
+     *
+     * @param throttleKey 限流键
+     * @return 0 表示可立即发起请求
+     */
+    public static long peekWaitMillis(String throttleKey) {
+        return rateLimiter.peekWaitMillis(throttleKey);
+    }
+
+    /**
+     * 该限流键相邻两次许可的间隔（按配置速率计算）
      * <p>
-     * 逻辑：
-     * 1. 锁住全局对象
-     * 2. 计算距离上次请求过去多久
-     * 3. 如果不足 2秒，强制 sleep 补足时间
-     * 4. 更新 lastRequestTime
+     * 调用方以「间隔 × 可容忍的排队数」作为改期阈值，速率配置调整后阈值随之变化。
      *
-     * @throws RuntimeException 如果等待期间线程被中断
-     */
-    private static void enforceGlobalRateLimit() {
-        synchronized (GLOBAL_LOCK) {
-            long now = System.currentTimeMillis();
-            long elapsed = now - lastRequestTime;
-
-            if (elapsed < INTERVAL_MS) {
-                long sleepTime = INTERVAL_MS - elapsed;
-                try {
-                    log.info("⚡ 触发全局限流，当前线程需等待 {} ms", sleepTime);
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("限流等待期间被中断", e);
-                }
-            }
-            // 更新最后请求时间（注意：是在 sleep 之后，真正发起请求前更新）
-            lastRequestTime = System.currentTimeMillis();
-        }
+     * @param throttleKey 限流键
+     * @return 毫秒
+     */
+    public static long permitIntervalMillis(String throttleKey) {
+        return rateLimiter.permitIntervalMillis(throttleKey);
+    }
+
+    /**
+     * 非阻塞获取指定接口的许可
+     *
+     * @param throttleKey 限流键
+     * @return 0 表示已获取许可；否则为建议等待毫秒数
+     */
+    public static long tryAcquire(String throttleKey) {
+        return rateLimiter.tryAcquire(throttleKey);
+    }
+
+    /**
+     * 获取限流统计快照
+     *
+     * @return key -> granted / throttled / waitMillis 等统计项
+     */
+    public static Map<String, Map<String, Object>> getRateLimitStats() {
+        return rateLimiter.snapshotStats();
     }
 
     /**
@@ -140,13 +241,65 @@ public class KlineDataFetcher {
     public void init() {
         pythonServiceUrl = pythonServiceUrlConfig;
 
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(timeoutMillis);    // 设置连接超时
-        factory.setReadTimeout(timeoutMillis);        // 设置读取超时
+        connectionManager = new PoolingHttpClientConnectionManager(keepAliveMillis, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(poolMaxTotal);                  // 固定池大小
+        connectionManager.setDefaultMaxPerRoute(poolMaxTotal);        // 单一路由，全部给 Python 服务
+        connectionManager.setValidateAfterInactivity(2000);          // 空闲 2s 以上的连接复用前校验
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> keepAliveMillis)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectTimeout(timeoutMillis);              // 设置连接超时
+        factory.setReadTimeout(timeoutMillis);                 // 设置读取超时
+        factory.setConnectionRequestTimeout(timeoutMillis);    // 设置从连接池获取连接的超时
 
         restTemplate = new RestTemplate(factory);
+        rateLimiter = new TokenBucketRateLimiter(rateLimitProperties);
 
-        log.info("KlineDataFetcher 初始化完成：启用全局严格限流 (1 req / 2s)");
+        log.info("KlineDataFetcher 初始化完成：启用分桶限流 (默认 {} req/s, burst={}, 全局 {} req/s)",
+                rateLimitProperties.getPermitsPerSecond(),
+                rateLimitProperties.getBurst(),
+                rateLimitProperties.getGlobalPermitsPerSecond());
+        log.info("KlineDataFetcher 连接池：maxTotal={}, keepAlive={}ms", poolMaxTotal, keepAliveMillis);
+    }
+
+    /**
+     * 容器关闭时释放连接池
+     */
+    @PreDestroy
+    public void destroy() {
+        try {
+            if (httpClient != null) {
+                httpClient.close();
+            }
+        } catch (IOException e) {
+            log.warn("关闭 Python HttpClient 失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取 HTTP 连接池状态与各接口调用指标
+     *
+     * @return pool（leased / available / pending / max）与 endpoints（按路径统计）
+     */
+    public static Map<String, Object> getHttpStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (connectionManager != null) {
+            PoolStats pool = connectionManager.getTotalStats();
+            Map<String, Object> poolMap = new LinkedHashMap<>();
+            poolMap.put("leased", pool.getLeased());
+            poolMap.put("available", pool.getAvailable());
+            poolMap.put("pending", pool.getPending());
+            poolMap.put("max", pool.getMax());
+            stats.put("pool", poolMap);
+        }
+        stats.put("endpoints", HTTP_METRICS.snapshot());
+        return stats;
     }
 
     /* =====================================================
@@ -157,7 +310,7 @@ public class KlineDataFetcher {
      * 通用 Python 同步调用模板
      *
      * @param <T>         返回类型泛型
-     * @param throttleKey 限流键（兼容保留参数，仅用于日志）
+     * @param throttleKey 限流键，决定使用哪个令牌桶
      * @param path        Python服务路径
      * @param body        请求体数据
      * @param typeRef     返回类型引用
@@ -165,41 +318,93 @@ public class KlineDataFetcher {
      * @throws PythonServiceException 当HTTP状态码非2xx或解析失败时抛出
      */
     private static <T> T callPythonSyncData(
-            String throttleKey, // 兼容保留参数名，但此处仅用于日志
+            String throttleKey,
             String path,
             Map<String, Object> body,
             TypeReference<T> typeRef
     ) {
-        // ① 全局限流检查 (会阻塞)
-        enforceGlobalRateLimit();
-
-        try {
-            String url = pythonServiceUrl + path;
+        // ① 按接口限流 (仅阻塞同一限流键的调用方)
+        // 注意：不需要 finally release，令牌桶是基于时间补充的，不是基于引用计数的
+        rateLimiter.acquire(throttleKey);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Object> entity = new HttpEntity<>(body, headers);
-
-            ResponseEntity<String> response =
-                    restTemplate.postForEntity(url, entity, String.class);
-
-            // 检查HTTP状态码
-            if (!response.getStatusCode().is2xxSuccessful()
-                    || response.getBody() == null) {
-                throw new PythonServiceException(
-                        response.getStatusCodeValue(), response.getBody());
-            }
+        // ② 连接池发起请求，流式解析响应
+        return postJson(path, body, reader -> reader.read(typeRef.getType()));
+    }
 
-            // 解析JSON响应
-            return JSON.parseObject(response.getBody(), typeRef);
+    /**
+     * POST JSON 并流式解析响应
+     * <p>
+     * 请求体序列化为字节直接写入连接；响应体输入流直接交给 JSONReader，
+     * 不经过中间 String，全历史 K 线等大响应不再额外占用一份字符串内存。
+     *
+     * @param <T>     返回类型泛型
+     * @param path    Python服务路径
+     * @param body    请求体数据
+     * @param decoder 响应解析函数
+     * @return 解析后的响应数据
+     * @throws PythonServiceException 当HTTP状态码非2xx或解析失败时抛出
+     */
+    private static <T> T postJson(String path, Object body, Function<JSONReader, T> decoder) {
+        long start = System.nanoTime();
+        long[] bytes = {0L};
+        boolean success = false;
 
+        try {
+            T result = restTemplate.execute(
+                    pythonServiceUrl + path,
+                    HttpMethod.POST,
+                    jsonRequest(body),
+                    response -> readJson(response, bytes, decoder)
+            );
+            success = true;
+            return result;
+        } catch (PythonServiceException e) {
+            throw e;
         } catch (JSONException e) {
             throw new PythonServiceException(502, "Python 返回非法 JSON");
         } catch (Exception e) {
             log.error("调用 Python 服务异常: {}", e.getMessage());
             throw new PythonServiceException(500, "Python 服务不可用");
+        } finally {
+            HTTP_METRICS.record(path, System.nanoTime() - start, bytes[0], success);
+        }
+    }
+
+    /**
+     * 构造 JSON 请求体写入回调
+     *
+     * @param body 请求体数据
+     * @return RequestCallback
+     */
+    private static RequestCallback jsonRequest(Object body) {
+        return request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getBody().write(JSON.toJSONBytes(body));
+        };
+    }
+
+    /**
+     * 从响应输入流直接解析 JSON
+     *
+     * @param response HTTP 响应
+     * @param bytes    输出参数：已读取的响应字节数
+     * @param decoder  解析函数
+     * @return 解析结果
+     * @throws IOException 读取响应失败
+     */
+    private static <T> T readJson(ClientHttpResponse response, long[] bytes,
+                                  Function<JSONReader, T> decoder) throws IOException {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new PythonServiceException(response.getRawStatusCode(), null);
+        }
+
+        InputStream body = response.getBody();
+        CountingInputStream in = new CountingInputStream(body);
+        try (JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+            return decoder.apply(reader);
+        } finally {
+            bytes[0] = in.getCount();
         }
-        // 注意：不再需要 finally release，因为是基于时间的限流，不是基于引用计数的
     }
 
     /* =====================================================
@@ -214,24 +419,13 @@ public class KlineDataFetcher {
      * @throws PythonServiceException 当请求失败时抛出
      */
     public static Object fetchRawJson(String targetUrl) {
-        // ① 全局限流检查
-        enforceGlobalRateLimit();
+        // ① 按接口限流
+        rateLimiter.acquire(KEY_PROXY_JSON);
 
         try {
-            String url = pythonServiceUrl + "/proxy/json";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<Object> entity =
-                    new HttpEntity<>(Map.of("url", targetUrl), headers);
-
-            ResponseEntity<String> response =
-                    restTemplate.postForEntity(url, entity, String.class);
-
-            return JSON.parse(response.getBody());
-        } catch (Exception e) {
-            throw new PythonServiceException(500, "Fetch Raw JSON Error: " + e.getMessage());
+            return postJson("/proxy/json", Map.of("url", targetUrl), JSONReader::readAny);
+        } catch (PythonServiceException e) {
+            throw new PythonServiceException(e.getStatusCode(), "Fetch Raw JSON Error: " + e.getBody());
         }
     }
 
@@ -319,7 +513,7 @@ public class KlineDataFetcher {
         if (endDate != null) body.put("end", endDate);
 
         return callPythonSyncData(
-                "kline_range",
+                KEY_KLINE_RANGE,
                 "/stock/kline/range",
                 body,
                 new TypeReference<List<KlineData>>() {
@@ -372,7 +566,7 @@ public class KlineDataFetcher {
         body.put("end", endDate);
 
         return callPythonSyncData(
-                "us_kline",
+                KEY_US_KLINE,
                 "/stock/kline/us",
                 body,
                 new TypeReference<List<KlineData>>() {
@@ -393,7 +587,7 @@ public class KlineDataFetcher {
         body.put("ndays", 5);
 
         return callPythonSyncData(
-                "kline_5d",
+                KEY_KLINE_5D,
                 "/stock/kline",
                 body,
                 new TypeReference<List<KlineData>>() {
@@ -414,7 +608,7 @@ public class KlineDataFetcher {
         body.put("ndays", 100000); // 使用大数字表示获取所有数据
 
         return callPythonSyncData(
-                "kline_all",
+                KEY_KLINE_ALL,
                 "/stock/kline",
                 body,
                 new TypeReference<List<KlineData>>() {
@@ -430,7 +624,7 @@ public class KlineDataFetcher {
      */
     public static StockRealtimeInfo fetchRealtimeInfo(String apiUrl) {
         return callPythonSyncData(
-                "realtime_stock",
+                KEY_REALTIME_STOCK,
                 "/stock/realtime",
                 Map.of("url", apiUrl),
                 new TypeReference<StockRealtimeInfo>() {
@@ -450,7 +644,7 @@ public class KlineDataFetcher {
         body.put("secid", formatFullSecid(secid, market));
 
         return callPythonSyncData(
-                "snapshot",
+                KEY_SNAPSHOT,
                 "/stock/snapshot",
                 body,
                 new TypeReference<StockRealtimeInfo>() {
@@ -458,6 +652,47 @@ public class KlineDataFetcher {
         );
     }
 
+    /**
+     * 批量获取同一市场的股票快照信息
+     * <p>
+     * 每 {@link #SNAPSHOT_BATCH_SIZE} 只股票合并为一次 Python 请求，只占用一个限流许可。
+     *
+     * @param secids 股票代码列表
+     * @param market 市场代码
+     * @return stockCode -> 快照信息（上游未返回的股票不在结果中）
+     */
+    public static Map<String, StockRealtimeInfo> fetchStockSnapshotBatch(List<String> secids, String market) {
+        Map<String, StockRealtimeInfo> result = new HashMap<>();
+        if (secids == null || secids.isEmpty()) {
+            return result;
+        }
+
+        for (int from = 0; from < secids.size(); from += SNAPSHOT_BATCH_SIZE) {
+            List<String> chunk = secids.subList(from, Math.min(from + SNAPSHOT_BATCH_SIZE, secids.size()));
+            List<String> fullSecids = new ArrayList<>(chunk.size());
+            for (String secid : chunk) {
+                fullSecids.add(formatFullSecid(secid, market));
+            }
+
+            List<StockRealtimeInfo> infos = callPythonSyncData(
+                    KEY_SNAPSHOT_BATCH,
+                    "/stock/snapshot/batch",
+                    Map.of("secids", fullSecids),
+                    new TypeReference<List<StockRealtimeInfo>>() {
+                    }
+            );
+
+            if (infos != null) {
+                for (StockRealtimeInfo info : infos) {
+                    if (info != null && info.getStockCode() != null) {
+                        result.put(info.getStockCode(), info);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * 获取ETF实时信息
      *
@@ -466,7 +701,7 @@ public class KlineDataFetcher {
      */
     public static EtfRealtimeInfo fetchEtfRealtimeInfo(String apiUrl) {
         return callPythonSyncData(
-                "realtime_etf",
+                KEY_REALTIME_ETF,
                 "/etf/realtime",
                 Map.of("url", apiUrl),
                 new TypeReference<EtfRealtimeInfo>() {
@@ -483,7 +718,7 @@ public class KlineDataFetcher {
      */
     public static JSONArray fetchStockTicks(String secid, String market) {
         return callPythonSyncData(
-                "ticks",
+                KEY_TICKS,
                 "/stock/ticks",
                 Map.of("secid", formatFullSecid(secid, market)),
                 new TypeReference<JSONArray>() {
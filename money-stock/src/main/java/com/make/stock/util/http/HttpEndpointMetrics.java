@@ -0,0 +1,72 @@
+package com.make.stock.util.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP 接口调用指标（按请求路径统计）
+ * <p>
+ * 记录调用次数、失败次数、累计耗时、最大耗时与响应字节数，
+ * 全部基于 LongAdder，调用线程无锁竞争。
+ * </p>
+ */
+public class HttpEndpointMetrics {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次调用
+     *
+     * @param path         请求路径
+     * @param elapsedNanos 耗时（纳秒）
+     * @param bytes        响应体字节数
+     * @param success      是否成功
+     */
+    public void record(String path, long elapsedNanos, long bytes, boolean success) {
+        Endpoint e = endpoints.computeIfAbsent(path, k -> new Endpoint());
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        e.calls.increment();
+        if (!success) {
+            e.errors.increment();
+        }
+        e.totalMillis.add(millis);
+        e.maxMillis.accumulate(millis);
+        e.bytes.add(bytes);
+        e.maxBytes.accumulate(bytes);
+    }
+
+    /**
+     * 获取指标快照
+     *
+     * @return path -> calls / errors / avgMillis / maxMillis / bytes / maxBytes
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        endpoints.forEach((path, e) -> {
+            long calls = e.calls.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("calls", calls);
+            map.put("errors", e.errors.sum());
+            map.put("avgMillis", calls == 0 ? 0 : e.totalMillis.sum() / calls);
+            map.put("maxMillis", e.maxMillis.get());
+            map.put("bytes", e.bytes.sum());
+            map.put("maxBytes", e.maxBytes.get());
+            result.put(path, map);
+        });
+        return result;
+    }
+
+    private static final class Endpoint {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+        private final LongAdder bytes = new LongAdder();
+        private final LongAccumulator maxBytes = new LongAccumulator(Math::max, 0);
+    }
+}
@@ -0,0 +1,51 @@
+package com.make.stock.util.limiter;
+
+import java.util.Map;
+
+/**
+ * 按键隔离的限流器
+ * <p>
+ * 每个限流键（如 Python 接口路径、市场）独立计数，互不阻塞。
+ * </p>
+ */
+public interface KeyedRateLimiter {
+
+    /**
+     * 非阻塞获取许可
+     *
+     * @param key 限流键
+     * @return 0 表示已获取许可；大于 0 表示未获取，值为建议等待的毫秒数
+     */
+    long tryAcquire(String key);
+
+    /**
+     * 预估获取许可需要等待的毫秒数（不消耗许可），包含已阻塞排队的调用方
+     *
+     * @param key 限流键
+     * @return 0 表示当前可立即获取
+     */
+    long peekWaitMillis(String key);
+
+    /**
+     * 该键稳定状态下相邻两次许可的间隔（键速率与全局速率中较慢者）
+     *
+     * @param key 限流键
+     * @return 毫秒
+     */
+    long permitIntervalMillis(String key);
+
+    /**
+     * 阻塞获取许可，直到成功
+     *
+     * @param key 限流键
+     * @throws RuntimeException 等待期间线程被中断
+     */
+    void acquire(String key);
+
+    /**
+     * 获取各限流键的统计快照
+     *
+     * @return key -> 统计项（granted / throttled / waitMillis / permitsPerSecond / burst）
+     */
+    Map<String, Map<String, Object>> snapshotStats();
+}
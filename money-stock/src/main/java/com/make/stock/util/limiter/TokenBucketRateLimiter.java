@@ -0,0 +1,237 @@
+package com.make.stock.util.limiter;
+
+import com.make.stock.config.PythonRateLimitProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 令牌桶限流器（按键分桶 + 全局上限）
+ * <p>
+ * 1. 每个限流键一个令牌桶，容量 = burst，按 permitsPerSecond 匀速补充。
+ * 2. 可选的全局令牌桶，所有键共享，保证总 QPS 不超过上游容忍度。
+ * 3. 只有键桶与全局桶同时有令牌时才放行，两者同时扣减。
+ * 4. 记录阻塞在 acquire 中的调用方数量，{@link #peekWaitMillis} 按排队长度估算等待时间；
+ *    只看下一个令牌的到达时间时估值永远不超过一个补充间隔，调用方的改期阈值不会生效。
+ * <p>
+ * 加锁顺序固定为「键桶 → 全局桶」，全局桶内部不会反向获取键桶锁，不存在死锁。
+ */
+public class TokenBucketRateLimiter implements KeyedRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    /**
+     * 全局桶在统计中的键名
+     */
+    private static final String GLOBAL_KEY = "*";
+
+    private final PythonRateLimitProperties properties;
+
+    private final TokenBucket globalBucket;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketRateLimiter(PythonRateLimitProperties properties) {
+        this.properties = properties;
+        this.globalBucket = properties.getGlobalPermitsPerSecond() > 0
+                ? new TokenBucket(properties.getGlobalPermitsPerSecond(), properties.getGlobalBurst())
+                : null;
+        if (globalBucket != null) {
+            properties.getBuckets().forEach((key, bucket) -> {
+                if (bucket.getBurst() > properties.getGlobalBurst()) {
+                    log.warn("限流键 {} 的 burst={} 大于全局 burst={}，实际突发容量以全局为准",
+                            key, bucket.getBurst(), properties.getGlobalBurst());
+                }
+            });
+        }
+    }
+
+    @Override
+    public long tryAcquire(String key) {
+        return tryAcquire(key, true);
+    }
+
+    @Override
+    public long peekWaitMillis(String key) {
+        TokenBucket bucket = bucketOf(key);
+        long now = System.nanoTime();
+        synchronized (bucket) {
+            long waitNanos = bucket.waitNanos(now) + bucket.waiting.get() * bucket.nanosPerPermit;
+            if (globalBucket != null) {
+                synchronized (globalBucket) {
+                    waitNanos = Math.max(waitNanos,
+                            globalBucket.waitNanos(now) + globalBucket.waiting.get() * globalBucket.nanosPerPermit);
+                }
+            }
+            return toMillis(waitNanos);
+        }
+    }
+
+    @Override
+    public long permitIntervalMillis(String key) {
+        long nanos = bucketOf(key).nanosPerPermit;
+        if (globalBucket != null) {
+            nanos = Math.max(nanos, globalBucket.nanosPerPermit);
+        }
+        return toMillis(nanos);
+    }
+
+    @Override
+    public void acquire(String key) {
+        long wait = tryAcquire(key, true);
+        if (wait == 0) {
+            return;
+        }
+
+        TokenBucket bucket = bucketOf(key);
+        long start = System.nanoTime();
+        bucket.waiting.incrementAndGet();
+        if (globalBucket != null) {
+            globalBucket.waiting.incrementAndGet();
+        }
+        try {
+            log.info("⚡ 触发限流 key={}，当前线程需等待 {} ms", key, wait);
+            while (wait > 0) {
+                TimeUnit.MILLISECONDS.sleep(wait);
+                wait = tryAcquire(key, false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("限流等待期间被中断", e);
+        } finally {
+            bucket.waiting.decrementAndGet();
+            if (globalBucket != null) {
+                globalBucket.waiting.decrementAndGet();
+            }
+            bucket.waitMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> snapshotStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        buckets.forEach((key, bucket) -> stats.put(key, bucket.stats()));
+        if (globalBucket != null) {
+            stats.put(GLOBAL_KEY, globalBucket.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 尝试获取许可
+     *
+     * @param key            限流键
+     * @param countThrottled 是否计入 throttled 计数（阻塞重试时只计一次）
+     * @return 0 表示成功，否则为建议等待毫秒数
+     */
+    private long tryAcquire(String key, boolean countThrottled) {
+        TokenBucket bucket = bucketOf(key);
+        long now = System.nanoTime();
+
+        synchronized (bucket) {
+            long waitNanos = bucket.waitNanos(now);
+            if (globalBucket != null) {
+                synchronized (globalBucket) {
+                    waitNanos = Math.max(waitNanos, globalBucket.waitNanos(now));
+                    if (waitNanos == 0) {
+                        globalBucket.consume();
+                    }
+                }
+            }
+
+            if (waitNanos == 0) {
+                bucket.consume();
+                return 0;
+            }
+
+            if (countThrottled) {
+                bucket.throttled.increment();
+                if (globalBucket != null) {
+                    globalBucket.throttled.increment();
+                }
+            }
+            return Math.max(1, toMillis(waitNanos));
+        }
+    }
+
+    private TokenBucket bucketOf(String key) {
+        return buckets.computeIfAbsent(key, k -> {
+            PythonRateLimitProperties.Bucket override = properties.getBuckets().get(k);
+            if (override != null && override.getPermitsPerSecond() > 0) {
+                return new TokenBucket(override.getPermitsPerSecond(), override.getBurst());
+            }
+            return new TokenBucket(properties.getPermitsPerSecond(), properties.getBurst());
+        });
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + 999_999) / 1_000_000;
+    }
+
+    /**
+     * 单个令牌桶，所有状态变更均在调用方持有本对象锁时进行
+     */
+    private static final class TokenBucket {
+
+        private final double permitsPerSecond;
+        private final double capacity;
+        private final double permitsPerNano;
+        private final long nanosPerPermit;
+
+        private double tokens;
+        private long lastRefillNanos;
+
+        private final LongAdder granted = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder waitMillis = new LongAdder();
+
+        /**
+         * 正阻塞在 acquire 中等待本桶令牌的调用方数量
+         */
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private TokenBucket(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.capacity = Math.max(1, burst);
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.nanosPerPermit = (long) Math.ceil(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            // 启动时满桶，第一次请求无需等待
+            this.tokens = capacity;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        private long waitNanos(long now) {
+            if (now > lastRefillNanos) {
+                tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+                lastRefillNanos = now;
+            }
+            if (tokens >= 1) {
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        private void consume() {
+            tokens -= 1;
+            granted.increment();
+        }
+
+        private Map<String, Object> stats() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("permitsPerSecond", permitsPerSecond);
+            map.put("burst", (int) capacity);
+            map.put("granted", granted.sum());
+            map.put("throttled", throttled.sum());
+            map.put("waitMillis", waitMillis.sum());
+            map.put("waiting", waiting.get());
+            return map;
+        }
+    }
+}
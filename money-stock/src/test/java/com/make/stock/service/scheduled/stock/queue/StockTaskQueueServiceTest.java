@@ -0,0 +1,112 @@
+package com.make.stock.service.scheduled.stock.queue;
+
+import com.make.common.core.NodeRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 失联节点看门狗：只回收心跳消失的节点，队列清空后才注销
+ */
+@ExtendWith(MockitoExtension.class)
+class StockTaskQueueServiceTest {
+
+    private static final String NODES_KEY = "mq:task:stock:refresh:nodes";
+    private static final String SELF = "10.0.0.1";
+    private static final String ALIVE = "10.0.0.2";
+    private static final String DEAD = "10.0.0.3";
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private NodeRegistry nodeRegistry;
+
+    @Mock
+    private SetOperations<String, String> setOps;
+
+    @Mock
+    private ListOperations<String, String> listOps;
+
+    private StockTaskQueueService service;
+
+    private Object previousNodeId;
+
+    @BeforeEach
+    void setUp() {
+        service = spy(new StockTaskQueueService());
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(service, "nodeRegistry", nodeRegistry);
+        previousNodeId = ReflectionTestUtils.getField(NodeRegistry.class, "CURRENT_NODE_ID");
+        ReflectionTestUtils.setField(NodeRegistry.class, "CURRENT_NODE_ID", SELF);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(NodeRegistry.class, "CURRENT_NODE_ID", previousNodeId);
+    }
+
+    @Test
+    void reclaimsOnlyNodesWithoutHeartbeat() {
+        when(nodeRegistry.isMaster()).thenReturn(true);
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOps);
+        when(stringRedisTemplate.opsForList()).thenReturn(listOps);
+        when(setOps.members(NODES_KEY)).thenReturn(new HashSet<>(Arrays.asList(SELF, ALIVE, DEAD)));
+        when(nodeRegistry.isNodeAlive(ALIVE)).thenReturn(true);
+        when(nodeRegistry.isNodeAlive(DEAD)).thenReturn(false);
+        when(listOps.size(anyString())).thenReturn(0L);
+        doNothing().when(service).reclaimTasksFromNode(anyString());
+
+        service.reclaimDeadNodes();
+
+        verify(service).reclaimTasksFromNode(DEAD);
+        verify(service, never()).reclaimTasksFromNode(ALIVE);
+        verify(service, never()).reclaimTasksFromNode(SELF);
+        verify(setOps).remove(NODES_KEY, DEAD);
+    }
+
+    @Test
+    void keepsDeadNodeRegisteredUntilQueuesAreDrained() {
+        when(nodeRegistry.isMaster()).thenReturn(true);
+        when(stringRedisTemplate.opsForSet()).thenReturn(setOps);
+        when(stringRedisTemplate.opsForList()).thenReturn(listOps);
+        when(setOps.members(NODES_KEY)).thenReturn(new HashSet<>(Arrays.asList(DEAD)));
+        when(nodeRegistry.isNodeAlive(DEAD)).thenReturn(false);
+        when(listOps.size("mq:task:stock:refresh:claim:" + DEAD)).thenReturn(0L);
+        when(listOps.size("mq:task:stock:refresh:processing:" + DEAD)).thenReturn(2L);
+        doNothing().when(service).reclaimTasksFromNode(anyString());
+
+        service.reclaimDeadNodes();
+
+        verify(service).reclaimTasksFromNode(DEAD);
+        verify(setOps, never()).remove(NODES_KEY, DEAD);
+    }
+
+    @Test
+    void nonMasterDoesNothing() {
+        when(nodeRegistry.isMaster()).thenReturn(false);
+
+        service.reclaimDeadNodes();
+
+        verifyNoInteractions(stringRedisTemplate);
+        verify(service, never()).reclaimTasksFromNode(anyString());
+    }
+}
@@ -31,7 +31,7 @@ HEADLESS = True
 POOL_SIZE = 8  # Increased from 4 for GPU node
 PAGE_TTL = 200
 BROWSER_TTL = 3600
-FULL_FIELDS = "f58,f734,f107,f57,f43,f59,f169,f301,f60,f170,f152,f177,f111,f46,f44,f45,f47,f260,f48,f261,f279,f277,f278,f288,f19,f17,f531,f15,f13,f11,f20,f18,f16,f14,f12,f39,f37,f35,f33,f31,f40,f38,f36,f34,f32,f211,f212,f213,f214,f215,f210,f209,f208,f207,f206,f161,f49,f171,f50,f86,f84,f85,f168,f108,f116,f167,f164,f162,f163,f92,f71,f117,f292,f51,f52,f191,f192,f262,f294,f295,f269,f270,f256,f257,f285,f286,f748,f747"
+FULL_FIELDS = "f58,f734,f107,f57,f43,f59,f169,f301,f60,f170,f152,f177,f111,f46,f44,f45,f47,f260,f48,f261,f279,f277,f278,f288,f19,f17,f531,f15,f13,f11,f20,f18,f16,f14,f12,f39,f37,f35,f33,f31,f40,f38,f36,f34,f32,f211,f212,f213,f214,f215,f210,f209,f208,f207,f206,f161,f49,f171,f50,f86,f84,f85,f168,f108,f116,f167,f164,f162,f163,f92,f71,f117,f292,f51,f52,f191,f192,f262,f294,f295,f269,f270,f256,f257,f285,f286,f748,f747,f189"
 
 # =========================================================
 # 2. Logging
@@ -273,9 +273,51 @@ def standardize_realtime(data: Dict) -> Dict:
         "turnoverRate": _div100(d.get("f168")),
         "peRatio": _div100(d.get("f162")),
         "pbRatio": _div100(d.get("f167")),
+        # f189: Listing Date (yyyymmdd, 0/"-" when unknown)
+        "listingDate": str(d.get("f189")) if str(d.get("f189") or "").isdigit() and int(d.get("f189")) > 0 else None,
     }
 
 
+ULIST_FIELDS = "f2,f3,f5,f6,f8,f9,f10,f12,f14,f15,f16,f17,f18,f23,f33,f62"
+ULIST_CHUNK = 100
+
+
+def _num(v):
+    """ulist with fltt=2 returns real values, '-' for missing"""
+    try:
+        if v in (None, "-", ""): return None
+        return float(v)
+    except:
+        return None
+
+
+def standardize_ulist(data: Dict) -> List:
+    diff = (data.get("data") or {}).get("diff") or []
+    if isinstance(diff, dict): diff = list(diff.values())
+    res = []
+    for d in diff:
+        if not d or d.get("f12") in (None, "-"): continue
+        res.append({
+            "stockCode": d.get("f12"),
+            "companyName": d.get("f14"),
+            "price": _num(d.get("f2")),
+            "prevClose": _num(d.get("f18")),
+            "openPrice": _num(d.get("f17")),
+            "highPrice": _num(d.get("f15")),
+            "lowPrice": _num(d.get("f16")),
+            "volume": d.get("f5"),
+            "turnover": d.get("f6"),
+            "changePercent": _num(d.get("f3")),
+            "volumeRatio": _num(d.get("f10")),
+            "commissionRatio": _num(d.get("f33")),
+            "mainFundsInflow": d.get("f62"),
+            "turnoverRate": _num(d.get("f8")),
+            "peRatio": _num(d.get("f9")),
+            "pbRatio": _num(d.get("f23")),
+        })
+    return res
+
+
 def standardize_kline(data: Dict) -> List:
     # Use .get with default dict to prevent crash if 'data' key exists but value is None
     klines = (data.get("data") or {}).get("klines", [])
@@ -367,6 +409,7 @@ class USReq(BaseModel): secid: str; market: str
 
 
 class TickReq(BaseModel): secid: str
+class BatchReq(BaseModel): secids: List[str]
 
 
 @app.middleware("http")
@@ -394,6 +437,19 @@ async def stock_snapshot(req: BaseReq, request: Request):
     return standardize_realtime(clean_jsonp(raw) or {})
 
 
+@app.post("/stock/snapshot/batch")
+async def stock_snapshot_batch(req: BatchReq, request: Request):
+    secids = [normalize_secid(x) for x in req.secids if x]
+    res = []
+    for i in range(0, len(secids), ULIST_CHUNK):
+        chunk = ",".join(secids[i:i + ULIST_CHUNK])
+        url = fix_url_params(
+            f"https://push2.eastmoney.com/api/qt/ulist.np/get?fltt=2&invt=2&secids={chunk}", ULIST_FIELDS)
+        raw = await POOL.dispatch(url, request.state.rid)
+        res.extend(standardize_ulist(clean_jsonp(raw) or {}))
+    return res
+
+
 @app.post("/stock/realtime")
 async def stock_realtime(req: UrlReq, request: Request):
     url = fix_url_params(req.url)
@@ -429,11 +485,16 @@ async def stock_ticks(req: TickReq, request: Request):
         parts = p.split(",")
         if len(parts) >= 5:
             try:
+                volume = int(parts[2])
+                tick_count = int(parts[3])
                 result.append({
                     "time": parts[0],
                     "price": float(parts[1]),
-                    "volume": int(parts[2]),
-                    "side": side_map.get(parts[4], "其他")
+                    "volume": volume,
+                    "side": side_map.get(parts[4], "其他"),
+                    "sideCode": int(parts[4]),
+                    "tickCount": tick_count,
+                    "avgVol": round(volume / tick_count, 2) if tick_count > 0 else None
                 })
             except:
                 continue
@@ -0,0 +1,63 @@
+-- 首页财务图表按用户/月份/分类预聚合
+-- source：WXZFB = 微信支付宝流水（transaction_records），BANK = 银行卡流水（bank_card_transactions）
+-- category：微信支付宝为商品类型（product_type），银行卡流水不分类（空串）
+-- direction：
+--   WXZFB  IN = 退款或收入，OUT = 其余支出；amount 为原始金额之和
+--   BANK   IN = 收入，OUT = 支出（amount 取绝对值），TRANSFER = 本人账户互转 / 还款 / 证券转账
+-- 流水新增、修改、删除、导入后按 (用户, 月份) 重新汇总受影响的月份；本人账户变更后重算全部银行卡汇总。
+
+CREATE TABLE IF NOT EXISTS finance_monthly_aggregate
+(
+    user_id      bigint         NOT NULL COMMENT '用户ID',
+    source       varchar(16)    NOT NULL COMMENT '数据来源 WXZFB/BANK',
+    month        char(7)        NOT NULL COMMENT '月份 yyyy-MM',
+    category     varchar(128)   NOT NULL DEFAULT '' COMMENT '分类',
+    direction    varchar(16)    NOT NULL COMMENT '收支方向 IN/OUT/TRANSFER',
+    amount       decimal(16, 2) NOT NULL DEFAULT 0 COMMENT '金额合计',
+    record_count int            NOT NULL DEFAULT 0 COMMENT '记录条数',
+    updated_at   datetime       NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '汇总时间',
+    PRIMARY KEY (user_id, source, month, category, direction)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT ='财务流水月度预聚合';
+
+-- 按用户、月份重新汇总时的原始表访问路径
+ALTER TABLE transaction_records
+    ADD INDEX idx_transaction_records_user_time (user_id, transaction_time);
+ALTER TABLE bank_card_transactions
+    ADD INDEX idx_bank_card_transactions_user_date (user_id, Date);
+
+-- 存量数据回填
+INSERT INTO finance_monthly_aggregate (user_id, source, month, category, direction, amount, record_count)
+SELECT user_id,
+       'WXZFB',
+       DATE_FORMAT(transaction_time, '%Y-%m'),
+       IFNULL(product_type, ''),
+       CASE WHEN transaction_type LIKE '%退款%' OR in_out LIKE '%收入%' THEN 'IN' ELSE 'OUT' END,
+       IFNULL(SUM(amount), 0),
+       COUNT(*)
+FROM transaction_records
+WHERE user_id IS NOT NULL
+  AND transaction_time IS NOT NULL
+GROUP BY 1, 2, 3, 4, 5;
+
+INSERT INTO finance_monthly_aggregate (user_id, source, month, category, direction, amount, record_count)
+SELECT b.user_id,
+       'BANK',
+       DATE_FORMAT(b.Date, '%Y-%m'),
+       '',
+       CASE
+           WHEN b.CounterParty LIKE '%还款%' OR b.CounterParty LIKE '%中国银河证券%'
+               OR EXISTS (SELECT 1
+                          FROM user_accounts a
+                          WHERE a.bank_card_number IS NOT NULL
+                            AND a.bank_card_number <> ''
+                            AND INSTR(b.CounterParty, a.bank_card_number) > 0) THEN 'TRANSFER'
+           WHEN b.Amount >= 0 THEN 'IN'
+           ELSE 'OUT' END,
+       IFNULL(SUM(ABS(b.Amount)), 0),
+       COUNT(*)
+FROM bank_card_transactions b
+WHERE b.user_id IS NOT NULL
+  AND b.Date IS NOT NULL
+  AND b.Amount IS NOT NULL
+GROUP BY 1, 2, 3, 4, 5;
@@ -0,0 +1,11 @@
+-- 利润折线图按 (用户, 日期) 唯一
+-- 当日记录由主节点按交易表汇总写入（INSERT ... SELECT ... ON DUPLICATE KEY UPDATE），
+-- 多节点不再各自「先查后插」，避免同一用户同一天出现多行或互相覆盖为旧值。
+
+-- 清理历史上并发插入产生的重复行（保留最新一条），否则无法建立唯一索引
+DELETE t1 FROM sales_data t1
+    JOIN sales_data t2
+      ON t1.user_id = t2.user_id AND t1.record_date = t2.record_date AND t1.id < t2.id;
+
+ALTER TABLE sales_data
+    ADD UNIQUE KEY uk_sales_data_user_date (user_id, record_date);
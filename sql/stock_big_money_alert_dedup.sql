@@ -0,0 +1,12 @@
+-- 大资金预警去重
+-- 逐笔成交按 (stock_code, trade_date, trade_time, seq_no, price, volume) INSERT IGNORE，
+-- 重复抓取的逐笔会被静默丢弃，但其预警仍会再次生成；预警按同一成交身份建立唯一键并改为 INSERT IGNORE。
+
+-- 清理已重复写入的预警（保留最早一条），否则无法建立唯一索引
+DELETE t1 FROM stock_big_money_alert t1
+    JOIN stock_big_money_alert t2
+      ON t1.stock_code = t2.stock_code AND t1.trade_date = t2.trade_date AND t1.trade_time = t2.trade_time
+     AND t1.price = t2.price AND t1.volume = t2.volume AND t1.id > t2.id;
+
+ALTER TABLE stock_big_money_alert
+    ADD UNIQUE KEY uk_stock_big_money_alert_identity (stock_code, trade_date, trade_time, price, volume);
@@ -0,0 +1,11 @@
+-- 东方财富历史行情去重
+-- 历史导入按股票写断点，中断时已入库但未写断点的股票会在重启后整只重新导入；
+-- (stock_code, in_date) 唯一，批量写入改为 INSERT ... ON DUPLICATE KEY UPDATE，重复导入时覆盖为最新值。
+
+-- 清理历史上重复导入产生的重复行（保留最新一条），否则无法建立唯一索引
+DELETE t1 FROM stock_info_dongfang_his t1
+    JOIN stock_info_dongfang_his t2
+      ON t1.stock_code = t2.stock_code AND t1.in_date = t2.in_date AND t1.id < t2.id;
+
+ALTER TABLE stock_info_dongfang_his
+    ADD UNIQUE KEY uk_stock_info_dongfang_his_code_date (stock_code, in_date);
@@ -0,0 +1,5 @@
+-- 股票K线任务表：历史回填断点
+-- 流式回填按日期分页拉取并分块落库，每页提交后记录断点，崩溃重启后从断点之后继续
+
+ALTER TABLE stock_kline_task
+    ADD COLUMN sync_checkpoint date NULL COMMENT '历史回填断点（已落库的最后一个分页截止日），任务完成后清空' AFTER node_id;
@@ -0,0 +1,20 @@
+-- 逐笔成交去重
+-- 东财逐笔接口没有成交序号：tick_count 是「该时刻包含的成交笔数」，同一只股票一天内大量重复，不能当作唯一标识。
+-- 逐笔的真实身份是 (stock_code, trade_date, trade_time, seq_no, price, volume)，
+-- 其中 seq_no 为同一秒内按接口返回顺序的序号（从 1 开始）。批量写入为 INSERT IGNORE，
+-- 分区再均衡等原因导致同一批逐笔被重复提交时，已存在的行被跳过。
+-- 唯一键包含分区列 trade_date，可与 stock_tick_partition.sql 的按月分区共存。
+-- 本脚本不删除任何历史数据。
+
+ALTER TABLE stock_tick
+    ADD COLUMN seq_no int NOT NULL DEFAULT 0 COMMENT '同一秒内序号' AFTER trade_time;
+
+-- 历史数据按写入顺序补齐秒内序号（MySQL 8.0+）
+UPDATE stock_tick t
+    JOIN (SELECT id,
+                 ROW_NUMBER() OVER (PARTITION BY stock_code, trade_date, trade_time ORDER BY id) AS rn
+            FROM stock_tick) s ON t.id = s.id
+   SET t.seq_no = s.rn;
+
+ALTER TABLE stock_tick
+    ADD UNIQUE KEY uk_stock_tick_identity (stock_code, trade_date, trade_time, seq_no, price, volume);
@@ -0,0 +1,71 @@
+-- 逐笔成交分层存储
+-- 1. stock_tick 按交易日所在月份 RANGE 分区并启用页压缩：当日写入只落在最新分区，历史查询按 trade_date 裁剪分区，
+--    过期月份整分区 DROP，不再逐行 DELETE。分区列必须包含在主键中，故主键改为 (id, trade_date)。
+-- 2. 收盘后将当日逐笔汇总为分钟线（stock_tick_minute）与分价成交量（stock_tick_volume_profile），
+--    历史区间查询读汇总表，原始逐笔只保留最近 quartz.tick-raw-retention-months 个月。
+-- 后续月份分区由 TickStorageManager 从 p_max 中拆分（REORGANIZE PARTITION）自动补齐，以下只需建到当前月份。
+-- p_old 保存分区化之前的历史逐笔，名称不符合 pyyyyMM，TickStorageManager 不会自动删除，需人工确认已汇总后处理。
+
+ALTER TABLE stock_tick
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, trade_date),
+    ROW_FORMAT = COMPRESSED KEY_BLOCK_SIZE = 8;
+
+ALTER TABLE stock_tick
+    PARTITION BY RANGE COLUMNS (trade_date) (
+        PARTITION p_old VALUES LESS THAN ('2026-01-01'),
+        PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+        PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+        PARTITION p202603 VALUES LESS THAN ('2026-04-01'),
+        PARTITION p202604 VALUES LESS THAN ('2026-05-01'),
+        PARTITION p202605 VALUES LESS THAN ('2026-06-01'),
+        PARTITION p202606 VALUES LESS THAN ('2026-07-01'),
+        PARTITION p202607 VALUES LESS THAN ('2026-08-01'),
+        PARTITION p202608 VALUES LESS THAN ('2026-09-01'),
+        PARTITION p202609 VALUES LESS THAN ('2026-10-01'),
+        PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+        PARTITION p_max VALUES LESS THAN (MAXVALUE)
+    );
+
+-- 逐笔分钟线
+DROP TABLE IF EXISTS stock_tick_minute;
+CREATE TABLE stock_tick_minute (
+    id              bigint(20)     NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    stock_code      varchar(20)    NOT NULL                COMMENT '股票代码',
+    trade_date      date           NOT NULL                COMMENT '交易日期',
+    bar_time        datetime       NOT NULL                COMMENT '分钟起始时刻',
+    open_price      decimal(10, 3) DEFAULT NULL            COMMENT '开盘价（该分钟首笔）',
+    high_price      decimal(10, 3) DEFAULT NULL            COMMENT '最高价',
+    low_price       decimal(10, 3) DEFAULT NULL            COMMENT '最低价',
+    close_price     decimal(10, 3) DEFAULT NULL            COMMENT '收盘价（该分钟末笔）',
+    volume          bigint(20)     DEFAULT 0               COMMENT '成交量',
+    buy_volume      bigint(20)     DEFAULT 0               COMMENT '主动买入成交量',
+    sell_volume     bigint(20)     DEFAULT 0               COMMENT '主动卖出成交量',
+    tick_count      bigint(20)     DEFAULT 0               COMMENT '成交笔数',
+    big_money_count int(11)        DEFAULT 0               COMMENT '大资金逐笔数',
+    create_time     datetime       DEFAULT NULL            COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_stock_tick_minute (stock_code, trade_date, bar_time),
+    KEY idx_stock_tick_minute_date (trade_date)
+) ENGINE = InnoDB COMMENT = '逐笔成交分钟线汇总';
+
+-- 逐笔分价成交量
+DROP TABLE IF EXISTS stock_tick_volume_profile;
+CREATE TABLE stock_tick_volume_profile (
+    id          bigint(20)     NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    stock_code  varchar(20)    NOT NULL                COMMENT '股票代码',
+    trade_date  date           NOT NULL                COMMENT '交易日期',
+    price       decimal(10, 3) NOT NULL                COMMENT '成交价格',
+    volume      bigint(20)     DEFAULT 0               COMMENT '成交量',
+    buy_volume  bigint(20)     DEFAULT 0               COMMENT '主动买入成交量',
+    sell_volume bigint(20)     DEFAULT 0               COMMENT '主动卖出成交量',
+    tick_count  bigint(20)     DEFAULT 0               COMMENT '成交笔数',
+    create_time datetime       DEFAULT NULL            COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_stock_tick_profile (stock_code, trade_date, price),
+    KEY idx_stock_tick_profile_date (trade_date)
+) ENGINE = InnoDB COMMENT = '逐笔成交分价汇总';
+
+-- 收盘后汇总与分区维护（暂停状态创建，确认后在定时任务页面启用）
+INSERT INTO sys_job (job_name, job_group, invoke_target, cron_expression, misfire_policy, concurrent, status, create_by, create_time, remark)
+VALUES ('逐笔成交收盘汇总', 'SYSTEM', 'stockTriggerTask.triggerTickRollup()', '0 30 15 * * ?', '2', '1', '1', 'admin', sysdate(), '逐笔汇总为分钟线/分价表并维护 stock_tick 分区');
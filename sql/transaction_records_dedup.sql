@@ -0,0 +1,19 @@
+-- 微信/支付宝流水导入去重
+-- 导入时为每行生成去重键：有交易单号时为「来源:交易单号」，否则为交易时间/金额/对方/商品/收支的 MD5；
+-- (user_id, dedup_key) 唯一，重复导入同一账单时已存在的行被跳过。
+-- 存量数据仅为有交易单号的行回填去重键（无单号的历史行保持 NULL，不参与去重）。
+
+ALTER TABLE transaction_records
+    ADD COLUMN dedup_key varchar(128) NULL COMMENT '去重键（同一用户下唯一）' AFTER user_id;
+
+UPDATE transaction_records
+SET dedup_key = CONCAT(source, ':', transaction_id)
+WHERE transaction_id IS NOT NULL AND transaction_id <> '';
+
+-- 清理历史上重复导入产生的重复行（保留最早一条），否则无法建立唯一索引
+DELETE t1 FROM transaction_records t1
+    JOIN transaction_records t2
+      ON t1.user_id = t2.user_id AND t1.dedup_key = t2.dedup_key AND t1.id > t2.id;
+
+ALTER TABLE transaction_records
+    ADD UNIQUE KEY uk_transaction_records_dedup (user_id, dedup_key);